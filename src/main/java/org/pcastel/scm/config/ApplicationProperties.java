@@ -2,6 +2,14 @@ package org.pcastel.scm.config;
 
 import org.springframework.boot.context.properties.ConfigurationProperties;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
 /**
  * Properties specific to JHipster.
  * <p>
@@ -10,4 +18,731 @@ import org.springframework.boot.context.properties.ConfigurationProperties;
 @ConfigurationProperties(prefix = "application", ignoreUnknownFields = false)
 public class ApplicationProperties {
 
+    private final Photo photo = new Photo();
+
+    private final Cache cache = new Cache();
+
+    private final Security security = new Security();
+
+    private final RateLimit rateLimit = new RateLimit();
+
+    private final Audit audit = new Audit();
+
+    private final Mail mail = new Mail();
+
+    public Photo getPhoto() {
+        return photo;
+    }
+
+    public Cache getCache() {
+        return cache;
+    }
+
+    public Security getSecurity() {
+        return security;
+    }
+
+    public RateLimit getRateLimit() {
+        return rateLimit;
+    }
+
+    public Audit getAudit() {
+        return audit;
+    }
+
+    public Mail getMail() {
+        return mail;
+    }
+
+    public static class Photo {
+
+        private String storageDirectory = "target/photos";
+
+        private long cacheMaxAgeSeconds = 31536000;
+
+        private List<Integer> renditionSizes = new ArrayList<>(Arrays.asList(48, 96, 300));
+
+        private final Pipeline pipeline = new Pipeline();
+
+        public String getStorageDirectory() {
+            return storageDirectory;
+        }
+
+        public void setStorageDirectory(String storageDirectory) {
+            this.storageDirectory = storageDirectory;
+        }
+
+        public long getCacheMaxAgeSeconds() {
+            return cacheMaxAgeSeconds;
+        }
+
+        public void setCacheMaxAgeSeconds(long cacheMaxAgeSeconds) {
+            this.cacheMaxAgeSeconds = cacheMaxAgeSeconds;
+        }
+
+        public List<Integer> getRenditionSizes() {
+            return renditionSizes;
+        }
+
+        public void setRenditionSizes(List<Integer> renditionSizes) {
+            this.renditionSizes = renditionSizes;
+        }
+
+        public Pipeline getPipeline() {
+            return pipeline;
+        }
+
+        public static class Pipeline {
+
+            private int corePoolSize = 1;
+
+            private int maxPoolSize = 2;
+
+            private int queueCapacity = 500;
+
+            public int getCorePoolSize() {
+                return corePoolSize;
+            }
+
+            public void setCorePoolSize(int corePoolSize) {
+                this.corePoolSize = corePoolSize;
+            }
+
+            public int getMaxPoolSize() {
+                return maxPoolSize;
+            }
+
+            public void setMaxPoolSize(int maxPoolSize) {
+                this.maxPoolSize = maxPoolSize;
+            }
+
+            public int getQueueCapacity() {
+                return queueCapacity;
+            }
+
+            public void setQueueCapacity(int queueCapacity) {
+                this.queueCapacity = queueCapacity;
+            }
+        }
+    }
+
+    public static class Cache {
+
+        /**
+         * JCache provider of the caches, also used by Hibernate: Ehcache, or Caffeine
+         * ("com.github.benmanes.caffeine.jcache.spi.CaffeineCachingProvider").
+         */
+        private String provider = "org.ehcache.jsr107.EhcacheCachingProvider";
+
+        /**
+         * URI of the cache manager in the caching provider, also set as hibernate.javax.cache.uri,
+         * or null for the default URI of the provider.
+         */
+        private String managerUri;
+
+        /**
+         * Configuration of the cache regions, by cache name relative to the domain package, such as
+         * "users" or "Event.participants". Unset values default to jhipster.cache.ehcache.
+         */
+        private final Map<String, Region> regions = new HashMap<>();
+
+        private final Persistence persistence = new Persistence();
+
+        private final Cluster cluster = new Cluster();
+
+        public String getProvider() {
+            return provider;
+        }
+
+        public void setProvider(String provider) {
+            this.provider = provider;
+        }
+
+        public String getManagerUri() {
+            return managerUri;
+        }
+
+        public void setManagerUri(String managerUri) {
+            this.managerUri = managerUri;
+        }
+
+        public Map<String, Region> getRegions() {
+            return regions;
+        }
+
+        public Persistence getPersistence() {
+            return persistence;
+        }
+
+        public Cluster getCluster() {
+            return cluster;
+        }
+
+        /**
+         * Cluster of the application nodes, which invalidate the cache entries changed by one of
+         * them on the others.
+         */
+        public static class Cluster {
+
+            private boolean enabled = false;
+
+            private String groupName = "scm";
+
+            private int port = 5701;
+
+            private List<String> members = new ArrayList<>(Collections.singletonList("127.0.0.1"));
+
+            public boolean isEnabled() {
+                return enabled;
+            }
+
+            public void setEnabled(boolean enabled) {
+                this.enabled = enabled;
+            }
+
+            /**
+             * @return the name of the cluster, which the nodes must share to join it
+             */
+            public String getGroupName() {
+                return groupName;
+            }
+
+            public void setGroupName(String groupName) {
+                this.groupName = groupName;
+            }
+
+            /**
+             * @return the first port the node listens to, or the next ones if it is taken
+             */
+            public int getPort() {
+                return port;
+            }
+
+            public void setPort(int port) {
+                this.port = port;
+            }
+
+            /**
+             * @return the addresses of the nodes, with an optional port or port range
+             */
+            public List<String> getMembers() {
+                return members;
+            }
+
+            public void setMembers(List<String> members) {
+                this.members = members;
+            }
+        }
+
+        /**
+         * Persistent disk tier of the cache regions, written when the application is stopped and
+         * read again when it starts. Only supported by Ehcache.
+         */
+        public static class Persistence {
+
+            private boolean enabled = false;
+
+            private String directory = "target/cache";
+
+            private long diskMegabytes = 100;
+
+            private int warmUpReports = 5;
+
+            public boolean isEnabled() {
+                return enabled;
+            }
+
+            public void setEnabled(boolean enabled) {
+                this.enabled = enabled;
+            }
+
+            public String getDirectory() {
+                return directory;
+            }
+
+            public void setDirectory(String directory) {
+                this.directory = directory;
+            }
+
+            /**
+             * @return the size of the disk tier of each region in megabytes, unless set by the region
+             */
+            public long getDiskMegabytes() {
+                return diskMegabytes;
+            }
+
+            public void setDiskMegabytes(long diskMegabytes) {
+                this.diskMegabytes = diskMegabytes;
+            }
+
+            /**
+             * @return the number of minutes after startup for which the hit ratios of the regions are logged
+             */
+            public int getWarmUpReports() {
+                return warmUpReports;
+            }
+
+            public void setWarmUpReports(int warmUpReports) {
+                this.warmUpReports = warmUpReports;
+            }
+        }
+
+        public static class Region {
+
+            private Long maxEntries;
+
+            private Long maxHeapMegabytes;
+
+            private Long offHeapMegabytes;
+
+            private Long timeToLiveSeconds;
+
+            private Long timeToIdleSeconds;
+
+            private Long diskMegabytes;
+
+            /**
+             * @return the maximum number of entries on heap, unless the heap is sized in megabytes
+             */
+            public Long getMaxEntries() {
+                return maxEntries;
+            }
+
+            public void setMaxEntries(Long maxEntries) {
+                this.maxEntries = maxEntries;
+            }
+
+            /**
+             * @return the size of the heap tier in megabytes, instead of a number of entries (Ehcache only)
+             */
+            public Long getMaxHeapMegabytes() {
+                return maxHeapMegabytes;
+            }
+
+            public void setMaxHeapMegabytes(Long maxHeapMegabytes) {
+                this.maxHeapMegabytes = maxHeapMegabytes;
+            }
+
+            /**
+             * @return the size of the optional off-heap tier in megabytes, larger than the heap tier (Ehcache only)
+             */
+            public Long getOffHeapMegabytes() {
+                return offHeapMegabytes;
+            }
+
+            public void setOffHeapMegabytes(Long offHeapMegabytes) {
+                this.offHeapMegabytes = offHeapMegabytes;
+            }
+
+            public Long getTimeToLiveSeconds() {
+                return timeToLiveSeconds;
+            }
+
+            public void setTimeToLiveSeconds(Long timeToLiveSeconds) {
+                this.timeToLiveSeconds = timeToLiveSeconds;
+            }
+
+            /**
+             * @return the time an entry stays in the cache without being read, which replaces the time to live
+             */
+            public Long getTimeToIdleSeconds() {
+                return timeToIdleSeconds;
+            }
+
+            public void setTimeToIdleSeconds(Long timeToIdleSeconds) {
+                this.timeToIdleSeconds = timeToIdleSeconds;
+            }
+
+            /**
+             * @return the size of the disk tier in megabytes, when the persistence of the caches is enabled
+             */
+            public Long getDiskMegabytes() {
+                return diskMegabytes;
+            }
+
+            public void setDiskMegabytes(Long diskMegabytes) {
+                this.diskMegabytes = diskMegabytes;
+            }
+        }
+    }
+
+    public static class Security {
+
+        /**
+         * Validity of the refresh tokens of the sessions without "remember me". Those with it use
+         * jhipster.security.authentication.jwt.token-validity-in-seconds-for-remember-me.
+         */
+        private long refreshTokenValidityInSeconds = 604800;
+
+        /**
+         * Time after its rotation during which a refresh token can still be used, by the requests
+         * which were sent with it concurrently, before its reuse is considered a theft.
+         */
+        private long refreshTokenReuseIntervalInSeconds = 30;
+
+        private final PasswordHashing passwordHashing = new PasswordHashing();
+
+        public long getRefreshTokenValidityInSeconds() {
+            return refreshTokenValidityInSeconds;
+        }
+
+        public void setRefreshTokenValidityInSeconds(long refreshTokenValidityInSeconds) {
+            this.refreshTokenValidityInSeconds = refreshTokenValidityInSeconds;
+        }
+
+        public long getRefreshTokenReuseIntervalInSeconds() {
+            return refreshTokenReuseIntervalInSeconds;
+        }
+
+        public void setRefreshTokenReuseIntervalInSeconds(long refreshTokenReuseIntervalInSeconds) {
+            this.refreshTokenReuseIntervalInSeconds = refreshTokenReuseIntervalInSeconds;
+        }
+
+        public PasswordHashing getPasswordHashing() {
+            return passwordHashing;
+        }
+
+        /**
+         * Executor of the password hashing and verification, which are CPU bound.
+         */
+        public static class PasswordHashing {
+
+            private int poolSize = 2;
+
+            /**
+             * Number of passwords waiting to be hashed, above which the requests fail at once.
+             */
+            private int queueCapacity = 20;
+
+            public int getPoolSize() {
+                return poolSize;
+            }
+
+            public void setPoolSize(int poolSize) {
+                this.poolSize = poolSize;
+            }
+
+            public int getQueueCapacity() {
+                return queueCapacity;
+            }
+
+            public void setQueueCapacity(int queueCapacity) {
+                this.queueCapacity = queueCapacity;
+            }
+        }
+    }
+
+    public static class RateLimit {
+
+        private boolean enabled = true;
+
+        /**
+         * Number of clients whose requests are counted, above which the least recently seen ones
+         * are forgotten.
+         */
+        private int maxClients = 100000;
+
+        /**
+         * Regular expression of the addresses of the proxies whose X-Forwarded-For header is trusted
+         * to give the address of the client. No proxy is trusted by default: any client could
+         * otherwise choose the address its requests are counted for.
+         */
+        private String trustedProxies;
+
+        /**
+         * Policies by name, in order: a request is limited by the first policy matching its path.
+         */
+        private final Map<String, Policy> policies = new LinkedHashMap<>();
+
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+
+        public int getMaxClients() {
+            return maxClients;
+        }
+
+        public void setMaxClients(int maxClients) {
+            this.maxClients = maxClients;
+        }
+
+        public String getTrustedProxies() {
+            return trustedProxies;
+        }
+
+        public void setTrustedProxies(String trustedProxies) {
+            this.trustedProxies = trustedProxies;
+        }
+
+        public Map<String, Policy> getPolicies() {
+            return policies;
+        }
+
+        public static class Policy {
+
+            /**
+             * Ant pattern of the paths of the requests.
+             */
+            private String path;
+
+            /**
+             * Client whose requests are counted: the IP address, or the principal for the requests
+             * with a token, and the IP address for the others.
+             */
+            private Key key = Key.IP;
+
+            /**
+             * Number of requests which a client can send at once.
+             */
+            private int capacity = 10;
+
+            /**
+             * Number of requests which a client can send per minute, once its capacity is used.
+             */
+            private int requestsPerMinute = 60;
+
+            public String getPath() {
+                return path;
+            }
+
+            public void setPath(String path) {
+                this.path = path;
+            }
+
+            public Key getKey() {
+                return key;
+            }
+
+            public void setKey(Key key) {
+                this.key = key;
+            }
+
+            public int getCapacity() {
+                return capacity;
+            }
+
+            public void setCapacity(int capacity) {
+                this.capacity = capacity;
+            }
+
+            public int getRequestsPerMinute() {
+                return requestsPerMinute;
+            }
+
+            public void setRequestsPerMinute(int requestsPerMinute) {
+                this.requestsPerMinute = requestsPerMinute;
+            }
+
+            public enum Key {
+                IP, PRINCIPAL
+            }
+        }
+    }
+
+    public static class Audit {
+
+        /**
+         * Number of audit events waiting to be written, above which the new events are dropped.
+         */
+        private int queueCapacity = 10000;
+
+        /**
+         * Number of audit events written per transaction, and of queued events which wake the writer
+         * before the end of its flush interval.
+         */
+        private int batchSize = 100;
+
+        /**
+         * Maximum time for which the audit events wait to be written.
+         */
+        private long flushIntervalMillis = 1000;
+
+        /**
+         * Number of months, before the current one, for which the audit events are kept in the
+         * database. The older months are moved to archives.
+         */
+        private int retentionMonths = 12;
+
+        /**
+         * Directory of the archives of the audit events, one gzipped NDJSON file per month.
+         */
+        private String archiveDirectory = "target/audit-archive";
+
+        public int getQueueCapacity() {
+            return queueCapacity;
+        }
+
+        public void setQueueCapacity(int queueCapacity) {
+            this.queueCapacity = queueCapacity;
+        }
+
+        public int getBatchSize() {
+            return batchSize;
+        }
+
+        public void setBatchSize(int batchSize) {
+            this.batchSize = batchSize;
+        }
+
+        public long getFlushIntervalMillis() {
+            return flushIntervalMillis;
+        }
+
+        public void setFlushIntervalMillis(long flushIntervalMillis) {
+            this.flushIntervalMillis = flushIntervalMillis;
+        }
+
+        public int getRetentionMonths() {
+            return retentionMonths;
+        }
+
+        public void setRetentionMonths(int retentionMonths) {
+            this.retentionMonths = retentionMonths;
+        }
+
+        public String getArchiveDirectory() {
+            return archiveDirectory;
+        }
+
+        public void setArchiveDirectory(String archiveDirectory) {
+            this.archiveDirectory = archiveDirectory;
+        }
+    }
+
+    public static class Mail {
+
+        /**
+         * Number of threads sending the emails of the outbox, each with its own SMTP connection.
+         */
+        private int dispatchers = 1;
+
+        /**
+         * Number of emails claimed at once by a dispatcher.
+         */
+        private int batchSize = 50;
+
+        /**
+         * Number of emails written at once to the outbox, when an email is sent to many recipients.
+         */
+        private int writeBatchSize = 100;
+
+        /**
+         * Maximum time between two checks of the outbox, when no new email wakes the dispatchers up.
+         */
+        private long pollIntervalMillis = 1000;
+
+        /**
+         * Number of attempts to send an email, after which it is given up as dead.
+         */
+        private int maxAttempts = 8;
+
+        /**
+         * Delay before the second attempt to send an email, doubled after each failed attempt.
+         */
+        private long initialBackoffSeconds = 30;
+
+        /**
+         * Maximum delay between two attempts to send an email.
+         */
+        private long maxBackoffSeconds = 3600;
+
+        /**
+         * Time after which an unused SMTP connection of a dispatcher is closed.
+         */
+        private long connectionIdleTimeoutMillis = 30000;
+
+        /**
+         * Number of days for which the sent emails are kept in the outbox.
+         */
+        private int sentRetentionDays = 7;
+
+        /**
+         * Number of users whose daily digests are sent in the same transaction.
+         */
+        private int digestChunkSize = 100;
+
+        public int getDispatchers() {
+            return dispatchers;
+        }
+
+        public void setDispatchers(int dispatchers) {
+            this.dispatchers = dispatchers;
+        }
+
+        public int getBatchSize() {
+            return batchSize;
+        }
+
+        public void setBatchSize(int batchSize) {
+            this.batchSize = batchSize;
+        }
+
+        public int getWriteBatchSize() {
+            return writeBatchSize;
+        }
+
+        public void setWriteBatchSize(int writeBatchSize) {
+            this.writeBatchSize = writeBatchSize;
+        }
+
+        public long getPollIntervalMillis() {
+            return pollIntervalMillis;
+        }
+
+        public void setPollIntervalMillis(long pollIntervalMillis) {
+            this.pollIntervalMillis = pollIntervalMillis;
+        }
+
+        public int getMaxAttempts() {
+            return maxAttempts;
+        }
+
+        public void setMaxAttempts(int maxAttempts) {
+            this.maxAttempts = maxAttempts;
+        }
+
+        public long getInitialBackoffSeconds() {
+            return initialBackoffSeconds;
+        }
+
+        public void setInitialBackoffSeconds(long initialBackoffSeconds) {
+            this.initialBackoffSeconds = initialBackoffSeconds;
+        }
+
+        public long getMaxBackoffSeconds() {
+            return maxBackoffSeconds;
+        }
+
+        public void setMaxBackoffSeconds(long maxBackoffSeconds) {
+            this.maxBackoffSeconds = maxBackoffSeconds;
+        }
+
+        public long getConnectionIdleTimeoutMillis() {
+            return connectionIdleTimeoutMillis;
+        }
+
+        public void setConnectionIdleTimeoutMillis(long connectionIdleTimeoutMillis) {
+            this.connectionIdleTimeoutMillis = connectionIdleTimeoutMillis;
+        }
+
+        public int getSentRetentionDays() {
+            return sentRetentionDays;
+        }
+
+        public void setSentRetentionDays(int sentRetentionDays) {
+            this.sentRetentionDays = sentRetentionDays;
+        }
+
+        public int getDigestChunkSize() {
+            return digestChunkSize;
+        }
+
+        public void setDigestChunkSize(int digestChunkSize) {
+            this.digestChunkSize = digestChunkSize;
+        }
+    }
 }
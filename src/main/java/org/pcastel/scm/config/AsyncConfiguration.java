@@ -23,8 +23,11 @@ public class AsyncConfiguration implements AsyncConfigurer {
 
     private final JHipsterProperties jHipsterProperties;
 
-    public AsyncConfiguration(JHipsterProperties jHipsterProperties) {
+    private final ApplicationProperties applicationProperties;
+
+    public AsyncConfiguration(JHipsterProperties jHipsterProperties, ApplicationProperties applicationProperties) {
         this.jHipsterProperties = jHipsterProperties;
+        this.applicationProperties = applicationProperties;
     }
 
     @Override
@@ -39,6 +42,45 @@ public class AsyncConfiguration implements AsyncConfigurer {
         return new ExceptionHandlingAsyncTaskExecutor(executor);
     }
 
+    /**
+     * Executor used to create member photo renditions.
+     * <p>
+     * Image processing is CPU and memory hungry, so it gets its own small, bounded pool: a burst of
+     * uploads can neither starve the mail and audit tasks running on the default executor, nor
+     * pile up an unbounded number of decoded images in memory.
+     */
+    @Bean(name = "photoTaskExecutor")
+    public ThreadPoolTaskExecutor photoTaskExecutor() {
+        log.debug("Creating Photo Task Executor");
+        ApplicationProperties.Photo.Pipeline pipeline = applicationProperties.getPhoto().getPipeline();
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(pipeline.getCorePoolSize());
+        executor.setMaxPoolSize(pipeline.getMaxPoolSize());
+        executor.setQueueCapacity(pipeline.getQueueCapacity());
+        executor.setThreadNamePrefix("scm-Photo-");
+        return executor;
+    }
+
+    /**
+     * Executor hashing and verifying the passwords.
+     * <p>
+     * BCrypt is slow by design, so a burst of logins could take all the request threads: the
+     * hashing gets its own small pool, with a short queue, and the requests beyond are rejected.
+     *
+     * @see org.pcastel.scm.security.BoundedPasswordEncoder
+     */
+    @Bean(name = "passwordHashingExecutor")
+    public ThreadPoolTaskExecutor passwordHashingExecutor() {
+        log.debug("Creating Password Hashing Executor");
+        ApplicationProperties.Security.PasswordHashing passwordHashing = applicationProperties.getSecurity().getPasswordHashing();
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(passwordHashing.getPoolSize());
+        executor.setMaxPoolSize(passwordHashing.getPoolSize());
+        executor.setQueueCapacity(passwordHashing.getQueueCapacity());
+        executor.setThreadNamePrefix("scm-Password-");
+        return executor;
+    }
+
     @Override
     public AsyncUncaughtExceptionHandler getAsyncUncaughtExceptionHandler() {
         return new SimpleAsyncUncaughtExceptionHandler();
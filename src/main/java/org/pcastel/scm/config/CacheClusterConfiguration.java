@@ -0,0 +1,50 @@
+package org.pcastel.scm.config;
+
+import com.hazelcast.config.Config;
+import com.hazelcast.config.JoinConfig;
+import com.hazelcast.core.Hazelcast;
+import com.hazelcast.core.HazelcastInstance;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Cluster of the application nodes, used to invalidate the cache entries changed by a node on the
+ * other ones, so that the application can run on several nodes behind a load balancer.
+ * <p>
+ * The nodes join an embedded Hazelcast cluster, which is only used as a message bus: the caches
+ * stay local to each node.
+ */
+@Configuration
+@ConditionalOnProperty(prefix = "application.cache.cluster", name = "enabled")
+public class CacheClusterConfiguration {
+
+    private final Logger log = LoggerFactory.getLogger(CacheClusterConfiguration.class);
+
+    private final ApplicationProperties.Cache.Cluster cluster;
+
+    public CacheClusterConfiguration(ApplicationProperties applicationProperties) {
+        this.cluster = applicationProperties.getCache().getCluster();
+    }
+
+    @Bean(destroyMethod = "shutdown")
+    public HazelcastInstance hazelcastInstance() {
+        log.debug("Joining the cache cluster {} of {}", cluster.getGroupName(), cluster.getMembers());
+        Config config = new Config();
+        config.getGroupConfig().setName(cluster.getGroupName());
+        config.getNetworkConfig().setPort(cluster.getPort()).setPortAutoIncrement(true);
+        JoinConfig join = config.getNetworkConfig().getJoin();
+        join.getMulticastConfig().setEnabled(false);
+        join.getTcpIpConfig().setEnabled(true).setMembers(cluster.getMembers());
+        config.setProperty("hazelcast.logging.type", "slf4j");
+        config.setProperty("hazelcast.phone.home.enabled", "false");
+        return Hazelcast.newHazelcastInstance(config);
+    }
+
+    @Bean
+    public CacheInvalidationBus cacheInvalidationBus(HazelcastInstance hazelcastInstance) {
+        return new CacheInvalidationBus(hazelcastInstance);
+    }
+}
@@ -1,54 +1,242 @@
 package org.pcastel.scm.config;
 
 import io.github.jhipster.config.JHipsterProperties;
+import com.github.benmanes.caffeine.jcache.configuration.CaffeineConfiguration;
+import com.github.benmanes.caffeine.jcache.spi.CaffeineCachingProvider;
 import org.ehcache.config.builders.CacheConfigurationBuilder;
 import org.ehcache.config.builders.ResourcePoolsBuilder;
+import org.ehcache.config.units.MemoryUnit;
+import org.ehcache.core.config.DefaultConfiguration;
 import org.ehcache.expiry.Duration;
 import org.ehcache.expiry.Expirations;
+import org.ehcache.expiry.Expiry;
+import org.ehcache.impl.config.persistence.DefaultPersistenceConfiguration;
+import org.ehcache.impl.serialization.PlainJavaSerializer;
 import org.ehcache.jsr107.Eh107Configuration;
+import org.ehcache.jsr107.EhcacheCachingProvider;
 
+import java.io.File;
+import java.io.IOException;
+import java.net.URI;
+import java.util.Map;
+import java.util.OptionalLong;
 import java.util.concurrent.TimeUnit;
 
+import javax.cache.Caching;
+import javax.cache.spi.CachingProvider;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.BeanClassLoaderAware;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.autoconfigure.AutoConfigureAfter;
 import org.springframework.boot.autoconfigure.AutoConfigureBefore;
 import org.springframework.boot.autoconfigure.cache.JCacheManagerCustomizer;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.cache.annotation.EnableCaching;
 import org.springframework.context.annotation.*;
+import org.springframework.core.io.support.PathMatchingResourcePatternResolver;
 
 @Configuration
 @EnableCaching
 @AutoConfigureAfter(value = { MetricsConfiguration.class })
 @AutoConfigureBefore(value = { WebConfigurer.class, DatabaseConfiguration.class })
-public class CacheConfiguration {
+public class CacheConfiguration implements BeanClassLoaderAware {
+
+    private static final String CHANGELOG_LOCATION_PATTERN = "classpath*:config/liquibase/**/*.*";
+
+    private static final String DOMAIN_PACKAGE = org.pcastel.scm.domain.User.class.getPackage().getName() + ".";
+
+    private final Logger log = LoggerFactory.getLogger(CacheConfiguration.class);
+
+    private final JHipsterProperties.Cache.Ehcache ehcache;
+
+    private final Map<String, ApplicationProperties.Cache.Region> regions;
+
+    private final ApplicationProperties.Cache.Persistence persistence;
+
+    private final String provider;
+
+    private final String managerUri;
+
+    private final boolean clustered;
+
+    private ClassLoader beanClassLoader;
+
+    private CacheInvalidationBus cacheInvalidationBus;
+
+    public CacheConfiguration(JHipsterProperties jHipsterProperties, ApplicationProperties applicationProperties) {
+        this.ehcache = jHipsterProperties.getCache().getEhcache();
+        this.regions = applicationProperties.getCache().getRegions();
+        this.persistence = applicationProperties.getCache().getPersistence();
+        this.provider = applicationProperties.getCache().getProvider();
+        this.managerUri = applicationProperties.getCache().getManagerUri();
+        this.clustered = applicationProperties.getCache().getCluster().isEnabled();
+    }
+
+    @Override
+    public void setBeanClassLoader(ClassLoader classLoader) {
+        this.beanClassLoader = classLoader;
+    }
 
-    private final javax.cache.configuration.Configuration<Object, Object> jcacheConfiguration;
+    @Autowired(required = false)
+    public void setCacheInvalidationBus(CacheInvalidationBus cacheInvalidationBus) {
+        this.cacheInvalidationBus = cacheInvalidationBus;
+    }
 
-    public CacheConfiguration(JHipsterProperties jHipsterProperties) {
-        JHipsterProperties.Cache.Ehcache ehcache =
-            jHipsterProperties.getCache().getEhcache();
+    /**
+     * Cache manager of the caching provider set by application.cache.provider, replacing the one
+     * created by Spring Boot.
+     * <p>
+     * It is registered in the caching provider under the URI set by application.cache.manager-uri
+     * and the default class loader of the provider, so that Hibernate, which is configured with the
+     * same provider and URI, uses it too.
+     * <p>
+     * With Ehcache, the caches can have a persistent disk tier: they are written to disk when the
+     * cache manager is closed on shutdown, and read back on startup unless the Liquibase changelog
+     * has changed since.
+     */
+    @Bean(destroyMethod = "close")
+    @ConditionalOnProperty(prefix = "spring.cache", name = "type", havingValue = "jcache", matchIfMissing = true)
+    public javax.cache.CacheManager jCacheCacheManager() throws IOException {
+        CachingProvider cachingProvider = Caching.getCachingProvider(provider, beanClassLoader);
+        URI uri = managerUri != null ? URI.create(managerUri) : cachingProvider.getDefaultURI();
+        log.info("Caching provider: {}, cache manager {}", provider, uri);
+        if (persistence.isEnabled() && !isPersistent()) {
+            log.warn("The persistence of the caches is only supported by Ehcache, without cluster: it is disabled");
+        }
+        javax.cache.CacheManager cm;
+        if (cachingProvider instanceof EhcacheCachingProvider) {
+            cm = ((EhcacheCachingProvider) cachingProvider).getCacheManager(uri,
+                ehcacheManagerConfiguration(cachingProvider.getDefaultClassLoader()));
+        } else {
+            cm = cachingProvider.getCacheManager(uri, cachingProvider.getDefaultClassLoader());
+        }
+        cacheManagerCustomizer().customize(cm);
+        return cm;
+    }
 
-        jcacheConfiguration = Eh107Configuration.fromEhcacheCacheConfiguration(
-            CacheConfigurationBuilder.newCacheConfigurationBuilder(Object.class, Object.class,
-                ResourcePoolsBuilder.heap(ehcache.getMaxEntries()))
-                .withExpiry(Expirations.timeToLiveExpiration(Duration.of(ehcache.getTimeToLiveSeconds(), TimeUnit.SECONDS)))
-                .build());
+    private org.ehcache.config.Configuration ehcacheManagerConfiguration(ClassLoader classLoader) throws IOException {
+        if (!isPersistent()) {
+            return new DefaultConfiguration(classLoader);
+        }
+        PersistentCacheDirectory directory = new PersistentCacheDirectory(new File(persistence.getDirectory()));
+        String changelogChecksum = PersistentCacheDirectory.changelogChecksum(
+            new PathMatchingResourcePatternResolver(beanClassLoader), CHANGELOG_LOCATION_PATTERN);
+        if (directory.validate(changelogChecksum)) {
+            log.info("Restoring the caches from {}", persistence.getDirectory());
+        } else {
+            log.info("Starting with empty caches in {}: no snapshot matches the database changelog {}",
+                persistence.getDirectory(), changelogChecksum);
+        }
+        return new DefaultConfiguration(classLoader, new DefaultPersistenceConfiguration(directory.getDataDirectory()));
     }
 
     @Bean
     public JCacheManagerCustomizer cacheManagerCustomizer() {
         return cm -> {
-            cm.createCache("users", jcacheConfiguration);
-            cm.createCache(org.pcastel.scm.domain.User.class.getName(), jcacheConfiguration);
-            cm.createCache(org.pcastel.scm.domain.Authority.class.getName(), jcacheConfiguration);
-            cm.createCache(org.pcastel.scm.domain.User.class.getName() + ".authorities", jcacheConfiguration);
-            cm.createCache(org.pcastel.scm.domain.Member.class.getName(), jcacheConfiguration);
-            cm.createCache(org.pcastel.scm.domain.Address.class.getName(), jcacheConfiguration);
-            cm.createCache(org.pcastel.scm.domain.Event.class.getName(), jcacheConfiguration);
-            cm.createCache(org.pcastel.scm.domain.Event.class.getName() + ".participants", jcacheConfiguration);
-            cm.createCache(org.pcastel.scm.domain.Location.class.getName(), jcacheConfiguration);
-            cm.createCache(org.pcastel.scm.domain.Team.class.getName(), jcacheConfiguration);
-            cm.createCache(org.pcastel.scm.domain.Team.class.getName() + ".members", jcacheConfiguration);
+            createCache(cm, "users");
+            createCache(cm, org.pcastel.scm.domain.User.class.getName());
+            createCache(cm, org.pcastel.scm.domain.Authority.class.getName());
+            createCache(cm, org.pcastel.scm.domain.User.class.getName() + ".authorities");
+            createCache(cm, org.pcastel.scm.domain.Member.class.getName());
+            createCache(cm, org.pcastel.scm.domain.Address.class.getName());
+            createCache(cm, org.pcastel.scm.domain.Event.class.getName());
+            createCache(cm, org.pcastel.scm.domain.Event.class.getName() + ".participants");
+            createCache(cm, org.pcastel.scm.domain.Location.class.getName());
+            createCache(cm, org.pcastel.scm.domain.Team.class.getName());
+            createCache(cm, org.pcastel.scm.domain.Team.class.getName() + ".members");
             // jhipster-needle-ehcache-add-entry
         };
     }
+
+    /**
+     * Create a cache with the configuration of its region, and enable its statistics, which are
+     * published by the "jcache.statistics" metrics.
+     */
+    private void createCache(javax.cache.CacheManager cm, String cacheName) {
+        javax.cache.Cache<Object, Object> cache = cm.createCache(cacheName, jcacheConfiguration(cacheName));
+        cm.enableStatistics(cacheName, true);
+        if (cacheInvalidationBus != null) {
+            cacheInvalidationBus.register(cache);
+        }
+    }
+
+    /**
+     * A snapshot restored by a node of a cluster would miss the changes made by the other nodes
+     * while it was stopped, so the caches are only persistent without cluster.
+     */
+    private boolean isPersistent() {
+        return persistence.isEnabled() && !clustered && EhcacheCachingProvider.class.getName().equals(provider);
+    }
+
+    javax.cache.configuration.Configuration<Object, Object> jcacheConfiguration(String cacheName) {
+        String regionName = cacheName.startsWith(DOMAIN_PACKAGE) ? cacheName.substring(DOMAIN_PACKAGE.length()) : cacheName;
+        ApplicationProperties.Cache.Region region = regions.getOrDefault(regionName, new ApplicationProperties.Cache.Region());
+        if (CaffeineCachingProvider.class.getName().equals(provider)) {
+            return caffeineConfiguration(cacheName, region);
+        }
+        return ehcacheConfiguration(cacheName, region);
+    }
+
+    /**
+     * Caffeine cache, bounded by its number of entries: its W-TinyLFU policy only admits a new entry
+     * by evicting one that is read less often, so that scans of rarely read entries do not flush
+     * the frequently read ones. The heap size in megabytes, off-heap and disk tiers of the region
+     * are Ehcache only, and ignored.
+     */
+    private javax.cache.configuration.Configuration<Object, Object> caffeineConfiguration(String cacheName,
+            ApplicationProperties.Cache.Region region) {
+        CaffeineConfiguration<Object, Object> configuration = new CaffeineConfiguration<>();
+        configuration.setMaximumSize(OptionalLong.of(region.getMaxEntries() != null ?
+            region.getMaxEntries() : ehcache.getMaxEntries()));
+        if (region.getTimeToIdleSeconds() != null) {
+            configuration.setExpireAfterAccess(OptionalLong.of(TimeUnit.SECONDS.toNanos(region.getTimeToIdleSeconds())));
+        } else {
+            configuration.setExpireAfterWrite(OptionalLong.of(TimeUnit.SECONDS.toNanos(region.getTimeToLiveSeconds() != null ?
+                region.getTimeToLiveSeconds() : ehcache.getTimeToLiveSeconds())));
+        }
+        // Like Ehcache, keep references to the entries instead of copies
+        configuration.setStoreByValue(false);
+        log.debug("Cache {}: {} entries", cacheName, configuration.getMaximumSize().getAsLong());
+        return configuration;
+    }
+
+    private javax.cache.configuration.Configuration<Object, Object> ehcacheConfiguration(String cacheName,
+            ApplicationProperties.Cache.Region region) {
+        ResourcePoolsBuilder resourcePools;
+        if (region.getMaxHeapMegabytes() != null) {
+            resourcePools = ResourcePoolsBuilder.newResourcePoolsBuilder().heap(region.getMaxHeapMegabytes(), MemoryUnit.MB);
+        } else {
+            resourcePools = ResourcePoolsBuilder.heap(region.getMaxEntries() != null ? region.getMaxEntries() : ehcache.getMaxEntries());
+        }
+        if (region.getOffHeapMegabytes() != null) {
+            resourcePools = resourcePools.offheap(region.getOffHeapMegabytes(), MemoryUnit.MB);
+        }
+        if (isPersistent()) {
+            resourcePools = resourcePools.disk(region.getDiskMegabytes() != null ?
+                region.getDiskMegabytes() : persistence.getDiskMegabytes(), MemoryUnit.MB, true);
+        }
+
+        Expiry<Object, Object> expiry;
+        if (region.getTimeToIdleSeconds() != null) {
+            expiry = Expirations.timeToIdleExpiration(Duration.of(region.getTimeToIdleSeconds(), TimeUnit.SECONDS));
+        } else {
+            expiry = Expirations.timeToLiveExpiration(Duration.of(region.getTimeToLiveSeconds() != null ?
+                region.getTimeToLiveSeconds() : ehcache.getTimeToLiveSeconds(), TimeUnit.SECONDS));
+        }
+        log.debug("Cache {}: {}, expiry {}", cacheName, resourcePools.build(), expiry);
+
+        CacheConfigurationBuilder<Object, Object> configuration =
+            CacheConfigurationBuilder.newCacheConfigurationBuilder(Object.class, Object.class, resourcePools)
+                .withExpiry(expiry);
+        if (region.getOffHeapMegabytes() != null || isPersistent()) {
+            // Entries stored outside of the heap are serialized, and Ehcache has no serializer for Object
+            ClassLoader classLoader = beanClassLoader != null ? beanClassLoader : getClass().getClassLoader();
+            configuration = configuration
+                .withKeySerializer(new PlainJavaSerializer<>(classLoader))
+                .withValueSerializer(new PlainJavaSerializer<>(classLoader));
+        }
+        return Eh107Configuration.fromEhcacheCacheConfiguration(configuration.build());
+    }
 }
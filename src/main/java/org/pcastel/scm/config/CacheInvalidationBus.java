@@ -0,0 +1,201 @@
+package org.pcastel.scm.config;
+
+import com.hazelcast.core.HazelcastInstance;
+import com.hazelcast.core.HazelcastInstanceNotActiveException;
+import com.hazelcast.core.ITopic;
+import com.hazelcast.core.Message;
+import com.hazelcast.core.MessageListener;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.cache.Cache;
+import javax.cache.configuration.Factory;
+import javax.cache.configuration.MutableCacheEntryListenerConfiguration;
+import javax.cache.event.CacheEntryEvent;
+import javax.cache.event.CacheEntryRemovedListener;
+import javax.cache.event.CacheEntryUpdatedListener;
+import java.io.Serializable;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Consumer;
+
+/**
+ * Invalidates the cache entries changed on this node on the other nodes of the cluster.
+ * <p>
+ * Each node keeps its own local caches. When an entry is updated or removed from one of them, by
+ * Hibernate after an update of the entity or by an eviction of the Spring caches, its key is
+ * published to the other nodes, which remove the entry from their cache: it is loaded again from
+ * the database on its next read. The entries are never copied between the nodes.
+ * <p>
+ * In-memory indexes which are not caches can also share their invalidations, which they publish
+ * themselves.
+ */
+public class CacheInvalidationBus implements MessageListener<CacheInvalidationBus.Invalidation> {
+
+    static final String TOPIC = "scm-cache-invalidation";
+
+    private final Logger log = LoggerFactory.getLogger(CacheInvalidationBus.class);
+
+    private final ITopic<Invalidation> topic;
+
+    private final ConcurrentMap<String, Cache<Object, Object>> caches = new ConcurrentHashMap<>();
+
+    private final ConcurrentMap<String, Consumer<Object>> indexes = new ConcurrentHashMap<>();
+
+    /**
+     * Entries being removed on behalf of another node, whose removal is not published again.
+     */
+    private final Set<Invalidation> remoteInvalidations = ConcurrentHashMap.newKeySet();
+
+    public CacheInvalidationBus(HazelcastInstance hazelcastInstance) {
+        this.topic = hazelcastInstance.getTopic(TOPIC);
+        topic.addMessageListener(this);
+    }
+
+    /**
+     * Publish the changes of a cache to the other nodes, and apply theirs.
+     *
+     * @param cache the cache, which must have the same name on all the nodes
+     */
+    public void register(Cache<Object, Object> cache) {
+        caches.put(cache.getName(), cache);
+        InvalidationPublisher publisher = new InvalidationPublisher(cache.getName());
+        Factory<InvalidationPublisher> publisherFactory = () -> publisher;
+        // Synchronous, so that the change is published before the update or removal returns
+        cache.registerCacheEntryListener(new MutableCacheEntryListenerConfiguration<>(publisherFactory, null, false, true));
+    }
+
+    /**
+     * Apply the invalidations of an in-memory index published by the other nodes.
+     *
+     * @param name the name of the index, which must be the same on all the nodes
+     * @param invalidator the removal of an entry of the index on this node, by key
+     */
+    public void register(String name, Consumer<Object> invalidator) {
+        indexes.put(name, invalidator);
+    }
+
+    /**
+     * Publish the invalidation of an entry of an in-memory index to the other nodes.
+     *
+     * @param name the name of the index
+     * @param key the key of the entry
+     */
+    public void publish(String name, Object key) {
+        Invalidation invalidation = new Invalidation(name, key);
+        try {
+            topic.publish(invalidation);
+        } catch (HazelcastInstanceNotActiveException e) {
+            log.debug("Not publishing {}: the node is leaving the cluster", invalidation);
+        }
+    }
+
+    @Override
+    public void onMessage(Message<Invalidation> message) {
+        if (message.getPublishingMember().localMember()) {
+            return;
+        }
+        Invalidation invalidation = message.getMessageObject();
+        Consumer<Object> invalidator = indexes.get(invalidation.getCacheName());
+        if (invalidator != null) {
+            invalidator.accept(invalidation.getKey());
+            return;
+        }
+        Cache<Object, Object> cache = caches.get(invalidation.getCacheName());
+        if (cache == null || cache.isClosed()) {
+            return;
+        }
+        remoteInvalidations.add(invalidation);
+        if (!cache.remove(invalidation.getKey())) {
+            remoteInvalidations.remove(invalidation);
+        }
+        log.trace("Invalidated {} {} ms after its change", invalidation,
+            System.currentTimeMillis() - message.getPublishTime());
+    }
+
+    private class InvalidationPublisher implements CacheEntryUpdatedListener<Object, Object>,
+        CacheEntryRemovedListener<Object, Object> {
+
+        private final String cacheName;
+
+        InvalidationPublisher(String cacheName) {
+            this.cacheName = cacheName;
+        }
+
+        @Override
+        public void onUpdated(Iterable<CacheEntryEvent<?, ?>> events) {
+            publish(events);
+        }
+
+        @Override
+        public void onRemoved(Iterable<CacheEntryEvent<?, ?>> events) {
+            publish(events);
+        }
+
+        private void publish(Iterable<CacheEntryEvent<?, ?>> events) {
+            for (CacheEntryEvent<?, ?> event : events) {
+                Invalidation invalidation = new Invalidation(cacheName, event.getKey());
+                if (remoteInvalidations.remove(invalidation)) {
+                    continue;
+                }
+                try {
+                    topic.publish(invalidation);
+                } catch (HazelcastInstanceNotActiveException e) {
+                    log.debug("Not publishing {}: the node is leaving the cluster", invalidation);
+                }
+            }
+        }
+    }
+
+    /**
+     * A cache entry to remove.
+     */
+    public static class Invalidation implements Serializable {
+
+        private static final long serialVersionUID = 1L;
+
+        private final String cacheName;
+
+        private final Object key;
+
+        Invalidation(String cacheName, Object key) {
+            this.cacheName = cacheName;
+            this.key = key;
+        }
+
+        public String getCacheName() {
+            return cacheName;
+        }
+
+        public Object getKey() {
+            return key;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (o == null || getClass() != o.getClass()) {
+                return false;
+            }
+            Invalidation invalidation = (Invalidation) o;
+            return Objects.equals(cacheName, invalidation.cacheName) && Objects.equals(key, invalidation.key);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(cacheName, key);
+        }
+
+        @Override
+        public String toString() {
+            return "Invalidation{" +
+                "cacheName='" + cacheName + "'" +
+                ", key=" + key +
+                "}";
+        }
+    }
+}
@@ -0,0 +1,90 @@
+package org.pcastel.scm.config;
+
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.MetricRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.SortedMap;
+
+/**
+ * Logs the hit ratios of the cache regions every minute after startup, to check that the caches
+ * restored from their persistent disk tier are warm.
+ * <p>
+ * The hits and misses are read from the "jcache.statistics" metrics registered by the
+ * MetricsConfiguration. Each report gives the hit ratio of the past minute, and the hit ratio
+ * since startup.
+ */
+@Component
+@ConditionalOnProperty(prefix = "application.cache.persistence", name = "enabled")
+public class CacheWarmUpReporter {
+
+    private static final String PREFIX = "jcache.statistics.";
+
+    private static final String HITS = ".cache-hits";
+
+    private static final String MISSES = ".cache-misses";
+
+    private final Logger log = LoggerFactory.getLogger(CacheWarmUpReporter.class);
+
+    private final MetricRegistry metricRegistry;
+
+    private final int warmUpReports;
+
+    private final Map<String, Long> previousHits = new HashMap<>();
+
+    private final Map<String, Long> previousMisses = new HashMap<>();
+
+    private int reports;
+
+    public CacheWarmUpReporter(MetricRegistry metricRegistry, ApplicationProperties applicationProperties) {
+        this.metricRegistry = metricRegistry;
+        this.warmUpReports = applicationProperties.getCache().getPersistence().getWarmUpReports();
+    }
+
+    @Scheduled(initialDelay = 60000, fixedRate = 60000)
+    public void report() {
+        if (reports >= warmUpReports) {
+            return;
+        }
+        reports++;
+        SortedMap<String, Gauge> gauges = metricRegistry.getGauges((name, metric) -> name.startsWith(PREFIX) &&
+            (name.endsWith(HITS) || name.endsWith(MISSES)));
+        StringBuilder report = new StringBuilder();
+        for (Map.Entry<String, Gauge> entry : gauges.entrySet()) {
+            if (!entry.getKey().endsWith(HITS)) {
+                continue;
+            }
+            String cacheName = entry.getKey().substring(PREFIX.length(), entry.getKey().length() - HITS.length());
+            Gauge missesGauge = gauges.get(PREFIX + cacheName + MISSES);
+            if (missesGauge == null) {
+                continue;
+            }
+            long hits = toLong(entry.getValue().getValue());
+            long misses = toLong(missesGauge.getValue());
+            long minuteHits = hits - previousHits.getOrDefault(cacheName, 0L);
+            long minuteMisses = misses - previousMisses.getOrDefault(cacheName, 0L);
+            previousHits.put(cacheName, hits);
+            previousMisses.put(cacheName, misses);
+            if (minuteHits + minuteMisses > 0) {
+                report.append(String.format("%n  %s: %.1f%% of %d gets (%.1f%% since startup)", cacheName,
+                    ratio(minuteHits, minuteMisses), minuteHits + minuteMisses, ratio(hits, misses)));
+            }
+        }
+        log.info("Cache hit ratios {} minute(s) after startup:{}", reports,
+            report.length() > 0 ? report : " no cache reads");
+    }
+
+    private static long toLong(Object value) {
+        return value instanceof Number ? ((Number) value).longValue() : 0L;
+    }
+
+    private static double ratio(long hits, long misses) {
+        return hits + misses == 0 ? 0 : 100.0 * hits / (hits + misses);
+    }
+}
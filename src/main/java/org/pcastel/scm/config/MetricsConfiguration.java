@@ -1,6 +1,7 @@
 package org.pcastel.scm.config;
 
 import io.github.jhipster.config.JHipsterProperties;
+import org.pcastel.scm.web.filter.RateLimiter;
 
 import com.codahale.metrics.JmxReporter;
 import com.codahale.metrics.JvmAttributeGaugeSet;
@@ -20,6 +21,7 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.context.annotation.*;
 
 import javax.annotation.PostConstruct;
+import javax.cache.CacheManager;
 import java.lang.management.ManagementFactory;
 import java.util.concurrent.TimeUnit;
 
@@ -35,6 +37,8 @@ public class MetricsConfiguration extends MetricsConfigurerAdapter {
     private static final String PROP_METRIC_REG_JVM_ATTRIBUTE_SET = "jvm.attributes";
 
     private static final String PROP_METRIC_REG_JCACHE_STATISTICS = "jcache.statistics";
+
+    private static final String PROP_METRIC_REG_RATE_LIMIT = "rate-limit";
     private final Logger log = LoggerFactory.getLogger(MetricsConfiguration.class);
 
     private MetricRegistry metricRegistry = new MetricRegistry();
@@ -45,6 +49,8 @@ public class MetricsConfiguration extends MetricsConfigurerAdapter {
 
     private HikariDataSource hikariDataSource;
 
+    private RateLimiter rateLimiter;
+
     public MetricsConfiguration(JHipsterProperties jHipsterProperties) {
         this.jHipsterProperties = jHipsterProperties;
     }
@@ -54,6 +60,19 @@ public class MetricsConfiguration extends MetricsConfigurerAdapter {
         this.hikariDataSource = hikariDataSource;
     }
 
+    /**
+     * The JCache gauges are registered for the caches existing in init(), so they are created first.
+     */
+    @Autowired(required = false)
+    public void setCacheManager(CacheManager cacheManager) {
+        log.debug("Monitoring the caches of {}", cacheManager.getURI());
+    }
+
+    @Autowired(required = false)
+    public void setRateLimiter(RateLimiter rateLimiter) {
+        this.rateLimiter = rateLimiter;
+    }
+
     @Override
     @Bean
     public MetricRegistry getMetricRegistry() {
@@ -77,6 +96,10 @@ public class MetricsConfiguration extends MetricsConfigurerAdapter {
         metricRegistry.register(PROP_METRIC_REG_JVM_ATTRIBUTE_SET, new JvmAttributeGaugeSet());
 
         metricRegistry.register(PROP_METRIC_REG_JCACHE_STATISTICS, new JCacheGaugeSet());
+        if (rateLimiter != null) {
+            log.debug("Monitoring the rate limits");
+            metricRegistry.register(PROP_METRIC_REG_RATE_LIMIT, rateLimiter);
+        }
         if (hikariDataSource != null) {
             log.debug("Monitoring the datasource");
             hikariDataSource.setMetricRegistry(metricRegistry);
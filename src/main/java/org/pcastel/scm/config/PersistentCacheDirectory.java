@@ -0,0 +1,90 @@
+package org.pcastel.scm.config;
+
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.support.ResourcePatternResolver;
+import org.springframework.util.FileCopyUtils;
+import org.springframework.util.FileSystemUtils;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Comparator;
+
+/**
+ * Directory of the persistent disk tier of the caches.
+ * <p>
+ * The cached entities are only valid for the database schema they were read from, so the snapshot
+ * is stored along with the checksum of the Liquibase changelog, and discarded when it does not
+ * match the changelog of the starting application.
+ */
+class PersistentCacheDirectory {
+
+    static final String CHECKSUM_FILE = "changelog.md5";
+
+    static final String DATA_DIRECTORY = "data";
+
+    private final File directory;
+
+    PersistentCacheDirectory(File directory) {
+        this.directory = directory;
+    }
+
+    /**
+     * @return the directory of the Ehcache data files
+     */
+    File getDataDirectory() {
+        return new File(directory, DATA_DIRECTORY);
+    }
+
+    /**
+     * Validate the snapshot against a changelog checksum, and discard it if it does not match.
+     *
+     * @param changelogChecksum the checksum of the current changelog
+     * @return true if the snapshot is kept, false if there was none or it was discarded
+     * @throws IOException if the snapshot can not be discarded
+     */
+    boolean validate(String changelogChecksum) throws IOException {
+        File checksumFile = new File(directory, CHECKSUM_FILE);
+        if (checksumFile.isFile() &&
+            changelogChecksum.equals(new String(Files.readAllBytes(checksumFile.toPath()), StandardCharsets.UTF_8))) {
+            return true;
+        }
+        FileSystemUtils.deleteRecursively(directory);
+        Files.createDirectories(getDataDirectory().toPath());
+        Files.write(checksumFile.toPath(), changelogChecksum.getBytes(StandardCharsets.UTF_8));
+        return false;
+    }
+
+    /**
+     * @param resolver the resolver of the changelog files
+     * @param locationPattern the location pattern of the changelog files
+     * @return the MD5 checksum of the content of the changelog files, in the order of their names
+     * @throws IOException if a changelog file can not be read
+     */
+    static String changelogChecksum(ResourcePatternResolver resolver, String locationPattern) throws IOException {
+        Resource[] resources = resolver.getResources(locationPattern);
+        Arrays.sort(resources, Comparator.comparing(Resource::getFilename));
+        MessageDigest digest = md5();
+        for (Resource resource : resources) {
+            digest.update(resource.getFilename().getBytes(StandardCharsets.UTF_8));
+            digest.update(FileCopyUtils.copyToByteArray(resource.getInputStream()));
+        }
+        StringBuilder checksum = new StringBuilder();
+        for (byte b : digest.digest()) {
+            checksum.append(String.format("%02x", b));
+        }
+        return checksum.toString();
+    }
+
+    private static MessageDigest md5() {
+        try {
+            return MessageDigest.getInstance("MD5");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -3,11 +3,14 @@ package org.pcastel.scm.config;
 import org.pcastel.scm.security.*;
 import org.pcastel.scm.security.jwt.*;
 
+import com.codahale.metrics.MetricRegistry;
 import io.github.jhipster.security.*;
 
 import org.springframework.beans.factory.BeanInitializationException;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.core.task.AsyncTaskExecutor;
 import org.springframework.http.HttpMethod;
 import org.springframework.security.config.annotation.authentication.builders.AuthenticationManagerBuilder;
 import org.springframework.security.config.annotation.method.configuration.EnableGlobalMethodSecurity;
@@ -38,14 +41,21 @@ public class SecurityConfiguration extends WebSecurityConfigurerAdapter {
 
     private final CorsFilter corsFilter;
 
+    private final AsyncTaskExecutor passwordHashingExecutor;
+
+    private final MetricRegistry metricRegistry;
+
     public SecurityConfiguration(AuthenticationManagerBuilder authenticationManagerBuilder, UserDetailsService userDetailsService,
             TokenProvider tokenProvider,
-        CorsFilter corsFilter) {
+        CorsFilter corsFilter, @Qualifier("passwordHashingExecutor") AsyncTaskExecutor passwordHashingExecutor,
+        MetricRegistry metricRegistry) {
 
         this.authenticationManagerBuilder = authenticationManagerBuilder;
         this.userDetailsService = userDetailsService;
         this.tokenProvider = tokenProvider;
         this.corsFilter = corsFilter;
+        this.passwordHashingExecutor = passwordHashingExecutor;
+        this.metricRegistry = metricRegistry;
     }
 
     @PostConstruct
@@ -66,7 +76,7 @@ public class SecurityConfiguration extends WebSecurityConfigurerAdapter {
 
     @Bean
     public PasswordEncoder passwordEncoder() {
-        return new BCryptPasswordEncoder();
+        return new BoundedPasswordEncoder(new BCryptPasswordEncoder(), passwordHashingExecutor, metricRegistry);
     }
 
     @Override
@@ -102,9 +112,14 @@ public class SecurityConfiguration extends WebSecurityConfigurerAdapter {
             .antMatchers("/api/register").permitAll()
             .antMatchers("/api/activate").permitAll()
             .antMatchers("/api/authenticate").permitAll()
+            .antMatchers("/api/authenticate/refresh").permitAll()
+            .antMatchers("/api/logout").permitAll()
             .antMatchers("/api/account/reset-password/init").permitAll()
             .antMatchers("/api/account/reset-password/finish").permitAll()
             .antMatchers("/api/profile-info").permitAll()
+            // Photos are loaded through <img> tags, which cannot send the JWT header: their URL holds the
+            // hash of the photo, which is checked against the member
+            .antMatchers(HttpMethod.GET, "/api/members/*/photo/*").permitAll()
             .antMatchers("/api/**").authenticated()
             .antMatchers("/management/health").permitAll()
             .antMatchers("/management/**").hasAuthority(AuthoritiesConstants.ADMIN)
@@ -3,6 +3,9 @@ package org.pcastel.scm.config;
 import io.github.jhipster.config.JHipsterConstants;
 import io.github.jhipster.config.JHipsterProperties;
 import io.github.jhipster.web.filter.CachingHttpHeadersFilter;
+import org.pcastel.scm.security.jwt.TokenProvider;
+import org.pcastel.scm.web.filter.RateLimitFilter;
+import org.pcastel.scm.web.filter.RateLimiter;
 
 import com.codahale.metrics.MetricRegistry;
 import com.codahale.metrics.servlet.InstrumentedFilter;
@@ -41,6 +44,10 @@ public class WebConfigurer implements ServletContextInitializer, EmbeddedServlet
 
     private MetricRegistry metricRegistry;
 
+    private RateLimiter rateLimiter;
+
+    private TokenProvider tokenProvider;
+
     public WebConfigurer(Environment env, JHipsterProperties jHipsterProperties) {
 
         this.env = env;
@@ -54,6 +61,9 @@ public class WebConfigurer implements ServletContextInitializer, EmbeddedServlet
         }
         EnumSet<DispatcherType> disps = EnumSet.of(DispatcherType.REQUEST, DispatcherType.FORWARD, DispatcherType.ASYNC);
         initMetrics(servletContext, disps);
+        if (rateLimiter != null && !rateLimiter.isEmpty()) {
+            initRateLimitFilter(servletContext, disps);
+        }
         if (env.acceptsProfiles(JHipsterConstants.SPRING_PROFILE_PRODUCTION)) {
             initCachingHttpHeadersFilter(servletContext, disps);
         }
@@ -160,6 +170,18 @@ public class WebConfigurer implements ServletContextInitializer, EmbeddedServlet
         metricsAdminServlet.setLoadOnStartup(2);
     }
 
+    /**
+     * Initializes the rate limit filter of the API.
+     */
+    private void initRateLimitFilter(ServletContext servletContext, EnumSet<DispatcherType> disps) {
+        log.debug("Registering Rate Limit Filter");
+        FilterRegistration.Dynamic rateLimitFilter = servletContext.addFilter("rateLimitFilter",
+            new RateLimitFilter(rateLimiter, tokenProvider));
+
+        rateLimitFilter.addMappingForUrlPatterns(disps, true, "/api/*");
+        rateLimitFilter.setAsyncSupported(true);
+    }
+
     @Bean
     public CorsFilter corsFilter() {
         UrlBasedCorsConfigurationSource source = new UrlBasedCorsConfigurationSource();
@@ -187,4 +209,14 @@ public class WebConfigurer implements ServletContextInitializer, EmbeddedServlet
     public void setMetricRegistry(MetricRegistry metricRegistry) {
         this.metricRegistry = metricRegistry;
     }
+
+    @Autowired(required = false)
+    public void setRateLimiter(RateLimiter rateLimiter) {
+        this.rateLimiter = rateLimiter;
+    }
+
+    @Autowired(required = false)
+    public void setTokenProvider(TokenProvider tokenProvider) {
+        this.tokenProvider = tokenProvider;
+    }
 }
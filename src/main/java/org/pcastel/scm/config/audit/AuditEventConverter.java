@@ -44,19 +44,17 @@ public class AuditEventConverter {
 
     /**
      * Internal conversion. This is needed to support the current SpringBoot actuator AuditEventRepository interface
+     * <p>
+     * The data is not copied: the map returned is a read-only view of the data of the event.
      *
      * @param data the data to convert
      * @return a map of String, Object
      */
     public Map<String, Object> convertDataToObjects(Map<String, String> data) {
-        Map<String, Object> results = new HashMap<>();
-
-        if (data != null) {
-            for (Map.Entry<String, String> entry : data.entrySet()) {
-                results.put(entry.getKey(), entry.getValue());
-            }
+        if (data == null) {
+            return Collections.emptyMap();
         }
-        return results;
+        return Collections.unmodifiableMap(data);
     }
 
     /**
@@ -0,0 +1,157 @@
+package org.pcastel.scm.config.audit;
+
+import org.pcastel.scm.config.ApplicationProperties;
+import org.pcastel.scm.domain.PersistentAuditEvent;
+import org.pcastel.scm.repository.PersistenceAuditEventRepository;
+
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * Writer of the audit events, off the request threads.
+ * <p>
+ * The events are queued in a bounded queue, drained by a single thread which saves them in batches,
+ * in one transaction per batch: their ids come from the pooled id generator, so that their rows are
+ * inserted in JDBC batches. The writer wakes up when a batch is full, or at the end of the flush
+ * interval. When the queue is full, the new events are dropped and counted. The queued events are
+ * written on shutdown.
+ */
+@Component
+public class AuditEventWriter {
+
+    private final Logger log = LoggerFactory.getLogger(AuditEventWriter.class);
+
+    private final PersistenceAuditEventRepository persistenceAuditEventRepository;
+
+    private final TransactionTemplate transactionTemplate;
+
+    private final BlockingQueue<PersistentAuditEvent> queue;
+
+    private final int batchSize;
+
+    private final long flushIntervalMillis;
+
+    /**
+     * Monitor on which the writer thread waits for a full batch.
+     */
+    private final Object batchReady = new Object();
+
+    private final Meter dropped;
+
+    private final Meter failed;
+
+    private final Timer batches;
+
+    private volatile boolean running;
+
+    private Thread writerThread;
+
+    public AuditEventWriter(PersistenceAuditEventRepository persistenceAuditEventRepository,
+                            PlatformTransactionManager transactionManager, ApplicationProperties applicationProperties,
+                            MetricRegistry metricRegistry) {
+        this.persistenceAuditEventRepository = persistenceAuditEventRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        ApplicationProperties.Audit audit = applicationProperties.getAudit();
+        this.queue = new ArrayBlockingQueue<>(audit.getQueueCapacity());
+        this.batchSize = audit.getBatchSize();
+        this.flushIntervalMillis = audit.getFlushIntervalMillis();
+        this.dropped = metricRegistry.meter(MetricRegistry.name(AuditEventWriter.class, "dropped"));
+        this.failed = metricRegistry.meter(MetricRegistry.name(AuditEventWriter.class, "failed"));
+        this.batches = metricRegistry.timer(MetricRegistry.name(AuditEventWriter.class, "batches"));
+        metricRegistry.register(MetricRegistry.name(AuditEventWriter.class, "queued"), (Gauge<Integer>) queue::size);
+    }
+
+    @PostConstruct
+    public void start() {
+        running = true;
+        writerThread = new Thread(this::run, "scm-Audit-Writer");
+        writerThread.setDaemon(true);
+        writerThread.start();
+    }
+
+    /**
+     * Queue an audit event, to be written later. The event is dropped if the queue is full.
+     *
+     * @param persistentAuditEvent the event
+     * @return true if the event was queued
+     */
+    public boolean write(PersistentAuditEvent persistentAuditEvent) {
+        if (!queue.offer(persistentAuditEvent)) {
+            dropped.mark();
+            log.warn("Audit event {} of {} dropped: the queue is full", persistentAuditEvent.getAuditEventType(),
+                persistentAuditEvent.getPrincipal());
+            return false;
+        }
+        if (queue.size() >= batchSize) {
+            synchronized (batchReady) {
+                batchReady.notify();
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Write all the queued audit events, in the current transaction if there is one.
+     */
+    public void flush() {
+        synchronized (this) {
+            List<PersistentAuditEvent> batch = new ArrayList<>(batchSize);
+            while (queue.drainTo(batch, batchSize) > 0) {
+                save(batch);
+                batch.clear();
+            }
+        }
+    }
+
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        running = false;
+        synchronized (batchReady) {
+            batchReady.notify();
+        }
+        writerThread.join(flushIntervalMillis);
+        flush();
+        log.debug("Audit event writer stopped, {} events dropped", dropped.getCount());
+    }
+
+    private void run() {
+        while (running) {
+            try {
+                synchronized (batchReady) {
+                    if (running && queue.size() < batchSize) {
+                        batchReady.wait(flushIntervalMillis);
+                    }
+                }
+                flush();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (RuntimeException e) {
+                log.error("Unexpected error in the audit event writer", e);
+            }
+        }
+    }
+
+    private void save(List<PersistentAuditEvent> batch) {
+        try (Timer.Context ignored = batches.time()) {
+            transactionTemplate.execute(status -> persistenceAuditEventRepository.save(batch));
+        } catch (RuntimeException e) {
+            failed.mark(batch.size());
+            log.error("Could not write {} audit events: {}", batch.size(), e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,97 @@
+package org.pcastel.scm.config.liquibase;
+
+import org.pcastel.scm.domain.AuditEventDataConverter;
+
+import liquibase.change.custom.CustomTaskChange;
+import liquibase.database.Database;
+import liquibase.database.jvm.JdbcConnection;
+import liquibase.exception.CustomChangeException;
+import liquibase.exception.DatabaseException;
+import liquibase.exception.SetupException;
+import liquibase.exception.ValidationErrors;
+import liquibase.resource.ResourceAccessor;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Liquibase change moving the audit event data from the "jhi_persistent_audit_evt_data" table to the
+ * "event_data" column of the events.
+ * <p>
+ * The data rows are read in event order, and each event is updated with the JSON object of its rows.
+ */
+public class AuditEventDataMigration implements CustomTaskChange {
+
+    private static final int BATCH_SIZE = 100;
+
+    private final AuditEventDataConverter converter = new AuditEventDataConverter();
+
+    private int migratedEvents;
+
+    @Override
+    public void execute(Database database) throws CustomChangeException {
+        JdbcConnection connection = (JdbcConnection) database.getConnection();
+        try (PreparedStatement select = connection.prepareStatement(
+                "select event_id, name, value from jhi_persistent_audit_evt_data order by event_id");
+             PreparedStatement update = connection.prepareStatement(
+                 "update jhi_persistent_audit_event set event_data = ? where event_id = ?");
+             ResultSet resultSet = select.executeQuery()) {
+
+            Map<String, String> data = new LinkedHashMap<>();
+            long eventId = 0;
+            int pending = 0;
+            while (resultSet.next()) {
+                long rowEventId = resultSet.getLong("event_id");
+                if (rowEventId != eventId && !data.isEmpty()) {
+                    addUpdate(update, eventId, data);
+                    if (++pending == BATCH_SIZE) {
+                        update.executeBatch();
+                        pending = 0;
+                    }
+                }
+                eventId = rowEventId;
+                data.put(resultSet.getString("name"), resultSet.getString("value"));
+            }
+            if (!data.isEmpty()) {
+                addUpdate(update, eventId, data);
+                pending++;
+            }
+            if (pending > 0) {
+                update.executeBatch();
+            }
+        } catch (DatabaseException | SQLException e) {
+            throw new CustomChangeException("Audit event data could not be moved to the event_data column", e);
+        }
+    }
+
+    private void addUpdate(PreparedStatement update, long eventId, Map<String, String> data) throws SQLException {
+        update.setString(1, converter.convertToDatabaseColumn(data));
+        update.setLong(2, eventId);
+        update.addBatch();
+        data.clear();
+        migratedEvents++;
+    }
+
+    @Override
+    public String getConfirmationMessage() {
+        return "Data of " + migratedEvents + " audit events moved to the event_data column";
+    }
+
+    @Override
+    public void setUp() throws SetupException {
+        // Nothing to set up
+    }
+
+    @Override
+    public void setFileOpener(ResourceAccessor resourceAccessor) {
+        // Not used
+    }
+
+    @Override
+    public ValidationErrors validate(Database database) {
+        return new ValidationErrors();
+    }
+}
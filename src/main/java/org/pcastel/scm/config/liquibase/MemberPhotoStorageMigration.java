@@ -0,0 +1,93 @@
+package org.pcastel.scm.config.liquibase;
+
+import org.pcastel.scm.service.util.ContentAddressedStore;
+
+import liquibase.change.custom.CustomTaskChange;
+import liquibase.database.Database;
+import liquibase.database.jvm.JdbcConnection;
+import liquibase.exception.CustomChangeException;
+import liquibase.exception.DatabaseException;
+import liquibase.exception.SetupException;
+import liquibase.exception.ValidationErrors;
+import liquibase.resource.ResourceAccessor;
+
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+/**
+ * Liquibase change moving the member photos from the "member.photo" blob column to the photo storage directory.
+ * <p>
+ * Each photo is written to the content addressed store and the member row is updated with its hash.
+ */
+public class MemberPhotoStorageMigration implements CustomTaskChange {
+
+    private static final int BATCH_SIZE = 100;
+
+    private String storageDirectory;
+
+    private int migratedPhotos;
+
+    public String getStorageDirectory() {
+        return storageDirectory;
+    }
+
+    public void setStorageDirectory(String storageDirectory) {
+        this.storageDirectory = storageDirectory;
+    }
+
+    @Override
+    public void execute(Database database) throws CustomChangeException {
+        ContentAddressedStore store = new ContentAddressedStore(Paths.get(storageDirectory));
+        JdbcConnection connection = (JdbcConnection) database.getConnection();
+        try (PreparedStatement select = connection.prepareStatement("select id, photo from member where photo is not null");
+             PreparedStatement update = connection.prepareStatement("update member set photo_hash = ? where id = ?");
+             ResultSet resultSet = select.executeQuery()) {
+
+            int pending = 0;
+            while (resultSet.next()) {
+                byte[] photo = resultSet.getBytes("photo");
+                if (photo == null || photo.length == 0) {
+                    continue;
+                }
+                update.setString(1, store.put(photo));
+                update.setLong(2, resultSet.getLong("id"));
+                update.addBatch();
+                migratedPhotos++;
+                if (++pending == BATCH_SIZE) {
+                    update.executeBatch();
+                    pending = 0;
+                }
+            }
+            if (pending > 0) {
+                update.executeBatch();
+            }
+        } catch (DatabaseException | SQLException | IOException e) {
+            throw new CustomChangeException("Member photos could not be moved to " + storageDirectory, e);
+        }
+    }
+
+    @Override
+    public String getConfirmationMessage() {
+        return migratedPhotos + " member photos moved to " + storageDirectory;
+    }
+
+    @Override
+    public void setUp() throws SetupException {
+        // Nothing to set up
+    }
+
+    @Override
+    public void setFileOpener(ResourceAccessor resourceAccessor) {
+        // Not used
+    }
+
+    @Override
+    public ValidationErrors validate(Database database) {
+        ValidationErrors errors = new ValidationErrors();
+        errors.checkRequiredField("storageDirectory", storageDirectory);
+        return errors;
+    }
+}
@@ -0,0 +1,66 @@
+package org.pcastel.scm.domain;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+
+import javax.persistence.AttributeConverter;
+import javax.persistence.Converter;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.io.UncheckedIOException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Converter of the data of an audit event to a JSON object, stored in a single column of the event.
+ * <p>
+ * The JSON is written and read with the streaming API of Jackson: reading an event only builds
+ * its map. An event without data is stored as null.
+ *
+ * @see PersistentAuditEvent
+ */
+@Converter
+public class AuditEventDataConverter implements AttributeConverter<Map<String, String>, String> {
+
+    private static final JsonFactory JSON_FACTORY = new JsonFactory();
+
+    @Override
+    public String convertToDatabaseColumn(Map<String, String> data) {
+        if (data == null || data.isEmpty()) {
+            return null;
+        }
+        StringWriter json = new StringWriter();
+        try (JsonGenerator generator = JSON_FACTORY.createGenerator(json)) {
+            generator.writeStartObject();
+            for (Map.Entry<String, String> entry : data.entrySet()) {
+                generator.writeStringField(entry.getKey(), entry.getValue());
+            }
+            generator.writeEndObject();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return json.toString();
+    }
+
+    @Override
+    public Map<String, String> convertToEntityAttribute(String json) {
+        Map<String, String> data = new LinkedHashMap<>();
+        if (json == null) {
+            return data;
+        }
+        try (JsonParser parser = JSON_FACTORY.createParser(json)) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                throw new IllegalArgumentException("Audit event data is not a JSON object: " + json);
+            }
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String name = parser.getCurrentName();
+                data.put(name, parser.nextToken() == JsonToken.VALUE_NULL ? null : parser.getValueAsString());
+            }
+        } catch (IOException e) {
+            throw new IllegalArgumentException("Audit event data is not a JSON object: " + json, e);
+        }
+        return data;
+    }
+}
@@ -0,0 +1,204 @@
+package org.pcastel.scm.domain;
+
+import org.pcastel.scm.domain.enumeration.DigestEntryType;
+
+import org.hibernate.annotations.GenericGenerator;
+import org.hibernate.annotations.Parameter;
+
+import javax.persistence.*;
+import javax.validation.constraints.NotNull;
+import javax.validation.constraints.Size;
+import java.io.Serializable;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.Objects;
+
+/**
+ * A change in the daily digest of a user, instead of an email of its own.
+ * <p>
+ * The entry holds what its line of the digest shows: the title of the event or the name of the team
+ * it is about, and the date of the event or the login of the member. It has no foreign key, so that
+ * the events and teams can be deleted before the digest is sent.
+ */
+@Entity
+@Table(name = "digest_entry")
+public class DigestEntry implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.TABLE, generator = "digestEntryIdGenerator")
+    @GenericGenerator(name = "digestEntryIdGenerator", strategy = "enhanced-table", parameters = {
+        @Parameter(name = "table_name", value = "jhi_id_generator"),
+        @Parameter(name = "segment_value", value = "digest_entry"),
+        @Parameter(name = "increment_size", value = "50"),
+        @Parameter(name = "optimizer", value = "pooled-lo")
+    })
+    private Long id;
+
+    @NotNull
+    @Column(name = "user_id", nullable = false)
+    private Long userId;
+
+    @NotNull
+    @Enumerated(EnumType.STRING)
+    @Column(name = "jhi_type", length = 20, nullable = false)
+    private DigestEntryType type;
+
+    /**
+     * Id of the event or of the team.
+     */
+    @NotNull
+    @Column(name = "target_id", nullable = false)
+    private Long targetId;
+
+    /**
+     * Title of the event or name of the team.
+     */
+    @NotNull
+    @Size(max = 100)
+    @Column(name = "title", length = 100, nullable = false)
+    private String title;
+
+    /**
+     * Login of the member who joined or left the team.
+     */
+    @Size(max = 50)
+    @Column(name = "detail", length = 50)
+    private String detail;
+
+    @Column(name = "event_date")
+    private LocalDate eventDate;
+
+    @NotNull
+    @Column(name = "created_date", nullable = false)
+    private Instant createdDate = Instant.now();
+
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public Long getUserId() {
+        return userId;
+    }
+
+    public DigestEntry userId(Long userId) {
+        this.userId = userId;
+        return this;
+    }
+
+    public void setUserId(Long userId) {
+        this.userId = userId;
+    }
+
+    public DigestEntryType getType() {
+        return type;
+    }
+
+    public DigestEntry type(DigestEntryType type) {
+        this.type = type;
+        return this;
+    }
+
+    public void setType(DigestEntryType type) {
+        this.type = type;
+    }
+
+    public Long getTargetId() {
+        return targetId;
+    }
+
+    public DigestEntry targetId(Long targetId) {
+        this.targetId = targetId;
+        return this;
+    }
+
+    public void setTargetId(Long targetId) {
+        this.targetId = targetId;
+    }
+
+    public String getTitle() {
+        return title;
+    }
+
+    public DigestEntry title(String title) {
+        this.title = title;
+        return this;
+    }
+
+    public void setTitle(String title) {
+        this.title = title;
+    }
+
+    public String getDetail() {
+        return detail;
+    }
+
+    public DigestEntry detail(String detail) {
+        this.detail = detail;
+        return this;
+    }
+
+    public void setDetail(String detail) {
+        this.detail = detail;
+    }
+
+    public LocalDate getEventDate() {
+        return eventDate;
+    }
+
+    public DigestEntry eventDate(LocalDate eventDate) {
+        this.eventDate = eventDate;
+        return this;
+    }
+
+    public void setEventDate(LocalDate eventDate) {
+        this.eventDate = eventDate;
+    }
+
+    public Instant getCreatedDate() {
+        return createdDate;
+    }
+
+    public void setCreatedDate(Instant createdDate) {
+        this.createdDate = createdDate;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (o == null || getClass() != o.getClass()) {
+            return false;
+        }
+        DigestEntry digestEntry = (DigestEntry) o;
+        if (digestEntry.getId() == null || getId() == null) {
+            return false;
+        }
+        return Objects.equals(getId(), digestEntry.getId());
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hashCode(getId());
+    }
+
+    @Override
+    public String toString() {
+        return "DigestEntry{" +
+            "id=" + getId() +
+            ", userId=" + getUserId() +
+            ", type='" + getType() + "'" +
+            ", targetId=" + getTargetId() +
+            ", title='" + getTitle() + "'" +
+            ", detail='" + getDetail() + "'" +
+            ", eventDate='" + getEventDate() + "'" +
+            ", createdDate='" + getCreatedDate() + "'" +
+            "}";
+    }
+}
@@ -2,6 +2,8 @@ package org.pcastel.scm.domain;
 
 import org.hibernate.annotations.Cache;
 import org.hibernate.annotations.CacheConcurrencyStrategy;
+import org.hibernate.annotations.GenericGenerator;
+import org.hibernate.annotations.Parameter;
 
 import javax.persistence.*;
 import javax.validation.constraints.*;
@@ -26,7 +28,13 @@ public class Event implements Serializable {
     private static final long serialVersionUID = 1L;
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.TABLE, generator = "eventIdGenerator")
+    @GenericGenerator(name = "eventIdGenerator", strategy = "enhanced-table", parameters = {
+        @Parameter(name = "table_name", value = "jhi_id_generator"),
+        @Parameter(name = "segment_value", value = "event"),
+        @Parameter(name = "increment_size", value = "50"),
+        @Parameter(name = "optimizer", value = "pooled-lo")
+    })
     private Long id;
 
     @NotNull
@@ -51,6 +59,12 @@ public class Event implements Serializable {
     @Column(name = "number_of_places")
     private Integer numberOfPlaces;
 
+    /**
+     * Number of participants, maintained by the queries of {@link org.pcastel.scm.repository.EventRepositoryCustom}.
+     */
+    @Column(name = "participant_count", nullable = false, insertable = false, updatable = false)
+    private Integer participantCount = 0;
+
     @Column(name = "is_home")
     private Boolean isHome;
 
@@ -58,6 +72,13 @@ public class Event implements Serializable {
     @Column(name = "jhi_comment", length = 1000)
     private String comment;
 
+    /**
+     * Identifier shared by the events created together as a series, set when the event is created.
+     */
+    @Size(max = 36)
+    @Column(name = "series_id", length = 36, updatable = false)
+    private String seriesId;
+
     @ManyToOne
     private Team team;
 
@@ -145,6 +166,14 @@ public class Event implements Serializable {
         this.numberOfPlaces = numberOfPlaces;
     }
 
+    public Integer getParticipantCount() {
+        return participantCount;
+    }
+
+    public void setParticipantCount(Integer participantCount) {
+        this.participantCount = participantCount;
+    }
+
     public Boolean isIsHome() {
         return isHome;
     }
@@ -171,6 +200,19 @@ public class Event implements Serializable {
         this.comment = comment;
     }
 
+    public String getSeriesId() {
+        return seriesId;
+    }
+
+    public Event seriesId(String seriesId) {
+        this.seriesId = seriesId;
+        return this;
+    }
+
+    public void setSeriesId(String seriesId) {
+        this.seriesId = seriesId;
+    }
+
     public Team getTeam() {
         return team;
     }
@@ -250,8 +292,10 @@ public class Event implements Serializable {
             ", date='" + getDate() + "'" +
             ", state='" + getState() + "'" +
             ", numberOfPlaces='" + getNumberOfPlaces() + "'" +
+            ", participantCount='" + getParticipantCount() + "'" +
             ", isHome='" + isIsHome() + "'" +
             ", comment='" + getComment() + "'" +
+            ", seriesId='" + getSeriesId() + "'" +
             "}";
     }
 }
@@ -2,6 +2,8 @@ package org.pcastel.scm.domain;
 
 import org.hibernate.annotations.Cache;
 import org.hibernate.annotations.CacheConcurrencyStrategy;
+import org.hibernate.annotations.GenericGenerator;
+import org.hibernate.annotations.Parameter;
 
 import javax.persistence.*;
 import javax.validation.constraints.*;
@@ -19,7 +21,13 @@ public class Location implements Serializable {
     private static final long serialVersionUID = 1L;
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.TABLE, generator = "locationIdGenerator")
+    @GenericGenerator(name = "locationIdGenerator", strategy = "enhanced-table", parameters = {
+        @Parameter(name = "table_name", value = "jhi_id_generator"),
+        @Parameter(name = "segment_value", value = "location"),
+        @Parameter(name = "increment_size", value = "50"),
+        @Parameter(name = "optimizer", value = "pooled-lo")
+    })
     private Long id;
 
     @NotNull
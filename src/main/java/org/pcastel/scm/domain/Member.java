@@ -30,9 +30,9 @@ public class Member implements Serializable {
     @Column(name = "mobile_phone_number", length = 20)
     private String mobilePhoneNumber;
 
-    @Lob
-    @Column(name = "photo")
-    private byte[] photo;
+    @Size(max = 64)
+    @Column(name = "photo_hash", length = 64)
+    private String photoHash;
 
     @Column(name = "photo_content_type")
     private String photoContentType;
@@ -89,17 +89,17 @@ public class Member implements Serializable {
         this.mobilePhoneNumber = mobilePhoneNumber;
     }
 
-    public byte[] getPhoto() {
-        return photo;
+    public String getPhotoHash() {
+        return photoHash;
     }
 
-    public Member photo(byte[] photo) {
-        this.photo = photo;
+    public Member photoHash(String photoHash) {
+        this.photoHash = photoHash;
         return this;
     }
 
-    public void setPhoto(byte[] photo) {
-        this.photo = photo;
+    public void setPhotoHash(String photoHash) {
+        this.photoHash = photoHash;
     }
 
     public String getPhotoContentType() {
@@ -207,7 +207,7 @@ public class Member implements Serializable {
             "id=" + getId() +
             ", phoneNumber='" + getPhoneNumber() + "'" +
             ", mobilePhoneNumber='" + getMobilePhoneNumber() + "'" +
-            ", photo='" + getPhoto() + "'" +
+            ", photoHash='" + getPhotoHash() + "'" +
             ", photoContentType='" + photoContentType + "'" +
             ", birthDate='" + getBirthDate() + "'" +
             ", job='" + getJob() + "'" +
@@ -0,0 +1,238 @@
+package org.pcastel.scm.domain;
+
+import org.pcastel.scm.domain.enumeration.OutgoingMailState;
+
+import org.hibernate.annotations.GenericGenerator;
+import org.hibernate.annotations.Parameter;
+
+import javax.persistence.*;
+import javax.validation.constraints.NotNull;
+import javax.validation.constraints.Size;
+import java.io.Serializable;
+import java.time.Instant;
+import java.util.Objects;
+
+/**
+ * An email in the outbox, saved in the transaction of the change it notifies, and sent later by the
+ * {@link org.pcastel.scm.service.MailOutboxDispatcher}.
+ * <p>
+ * A pending email is sent once its next attempt date is reached. Each failed attempt postpones it,
+ * until it is sent, or given up as dead.
+ */
+@Entity
+@Table(name = "outgoing_mail")
+public class OutgoingMail implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.TABLE, generator = "outgoingMailIdGenerator")
+    @GenericGenerator(name = "outgoingMailIdGenerator", strategy = "enhanced-table", parameters = {
+        @Parameter(name = "table_name", value = "jhi_id_generator"),
+        @Parameter(name = "segment_value", value = "outgoing_mail"),
+        @Parameter(name = "increment_size", value = "50"),
+        @Parameter(name = "optimizer", value = "pooled-lo")
+    })
+    private Long id;
+
+    @NotNull
+    @Size(max = 254)
+    @Column(name = "recipient", length = 254, nullable = false)
+    private String recipient;
+
+    @NotNull
+    @Size(max = 255)
+    @Column(name = "subject", nullable = false)
+    private String subject;
+
+    @NotNull
+    @Lob
+    @Column(name = "content", nullable = false)
+    private String content;
+
+    @NotNull
+    @Column(name = "multipart", nullable = false)
+    private Boolean multipart = false;
+
+    @NotNull
+    @Column(name = "html", nullable = false)
+    private Boolean html = false;
+
+    @NotNull
+    @Enumerated(EnumType.STRING)
+    @Column(name = "state", length = 10, nullable = false)
+    private OutgoingMailState state = OutgoingMailState.PENDING;
+
+    @NotNull
+    @Column(name = "attempts", nullable = false)
+    private Integer attempts = 0;
+
+    @NotNull
+    @Column(name = "created_date", nullable = false)
+    private Instant createdDate = Instant.now();
+
+    @NotNull
+    @Column(name = "next_attempt_date", nullable = false)
+    private Instant nextAttemptDate = createdDate;
+
+    @Column(name = "sent_date")
+    private Instant sentDate;
+
+    @Size(max = 255)
+    @Column(name = "last_error")
+    private String lastError;
+
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public String getRecipient() {
+        return recipient;
+    }
+
+    public OutgoingMail recipient(String recipient) {
+        this.recipient = recipient;
+        return this;
+    }
+
+    public void setRecipient(String recipient) {
+        this.recipient = recipient;
+    }
+
+    public String getSubject() {
+        return subject;
+    }
+
+    public OutgoingMail subject(String subject) {
+        this.subject = subject;
+        return this;
+    }
+
+    public void setSubject(String subject) {
+        this.subject = subject;
+    }
+
+    public String getContent() {
+        return content;
+    }
+
+    public OutgoingMail content(String content) {
+        this.content = content;
+        return this;
+    }
+
+    public void setContent(String content) {
+        this.content = content;
+    }
+
+    public Boolean isMultipart() {
+        return multipart;
+    }
+
+    public OutgoingMail multipart(Boolean multipart) {
+        this.multipart = multipart;
+        return this;
+    }
+
+    public void setMultipart(Boolean multipart) {
+        this.multipart = multipart;
+    }
+
+    public Boolean isHtml() {
+        return html;
+    }
+
+    public OutgoingMail html(Boolean html) {
+        this.html = html;
+        return this;
+    }
+
+    public void setHtml(Boolean html) {
+        this.html = html;
+    }
+
+    public OutgoingMailState getState() {
+        return state;
+    }
+
+    public void setState(OutgoingMailState state) {
+        this.state = state;
+    }
+
+    public Integer getAttempts() {
+        return attempts;
+    }
+
+    public void setAttempts(Integer attempts) {
+        this.attempts = attempts;
+    }
+
+    public Instant getCreatedDate() {
+        return createdDate;
+    }
+
+    public void setCreatedDate(Instant createdDate) {
+        this.createdDate = createdDate;
+    }
+
+    public Instant getNextAttemptDate() {
+        return nextAttemptDate;
+    }
+
+    public void setNextAttemptDate(Instant nextAttemptDate) {
+        this.nextAttemptDate = nextAttemptDate;
+    }
+
+    public Instant getSentDate() {
+        return sentDate;
+    }
+
+    public void setSentDate(Instant sentDate) {
+        this.sentDate = sentDate;
+    }
+
+    public String getLastError() {
+        return lastError;
+    }
+
+    public void setLastError(String lastError) {
+        this.lastError = lastError;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (o == null || getClass() != o.getClass()) {
+            return false;
+        }
+        OutgoingMail outgoingMail = (OutgoingMail) o;
+        if (outgoingMail.getId() == null || getId() == null) {
+            return false;
+        }
+        return Objects.equals(getId(), outgoingMail.getId());
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hashCode(getId());
+    }
+
+    @Override
+    public String toString() {
+        return "OutgoingMail{" +
+            "id=" + getId() +
+            ", recipient='" + getRecipient() + "'" +
+            ", subject='" + getSubject() + "'" +
+            ", state='" + getState() + "'" +
+            ", attempts='" + getAttempts() + "'" +
+            ", nextAttemptDate='" + getNextAttemptDate() + "'" +
+            ", sentDate='" + getSentDate() + "'" +
+            "}";
+    }
+}
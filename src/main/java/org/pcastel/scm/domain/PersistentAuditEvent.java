@@ -1,5 +1,8 @@
 package org.pcastel.scm.domain;
 
+import org.hibernate.annotations.GenericGenerator;
+import org.hibernate.annotations.Parameter;
+
 import javax.persistence.*;
 import javax.validation.constraints.NotNull;
 import java.io.Serializable;
@@ -15,8 +18,19 @@ import java.util.Map;
 @Table(name = "jhi_persistent_audit_event")
 public class PersistentAuditEvent implements Serializable {
 
+    /**
+     * Should be the same as in Liquibase migration.
+     */
+    public static final int EVENT_DATA_MAX_LENGTH = 4000;
+
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.TABLE, generator = "auditEventIdGenerator")
+    @GenericGenerator(name = "auditEventIdGenerator", strategy = "enhanced-table", parameters = {
+        @Parameter(name = "table_name", value = "jhi_id_generator"),
+        @Parameter(name = "segment_value", value = "jhi_persistent_audit_event"),
+        @Parameter(name = "increment_size", value = "50"),
+        @Parameter(name = "optimizer", value = "pooled-lo")
+    })
     @Column(name = "event_id")
     private Long id;
 
@@ -29,10 +43,11 @@ public class PersistentAuditEvent implements Serializable {
     @Column(name = "event_type")
     private String auditEventType;
 
-    @ElementCollection
-    @MapKeyColumn(name = "name")
-    @Column(name = "value")
-    @CollectionTable(name = "jhi_persistent_audit_evt_data", joinColumns=@JoinColumn(name="event_id"))
+    /**
+     * Data of the event, as a JSON object.
+     */
+    @Convert(converter = AuditEventDataConverter.class)
+    @Column(name = "event_data", length = EVENT_DATA_MAX_LENGTH)
     private Map<String, String> data = new HashMap<>();
 
     public Long getId() {
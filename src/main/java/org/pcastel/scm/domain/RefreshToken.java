@@ -0,0 +1,158 @@
+package org.pcastel.scm.domain;
+
+import javax.persistence.*;
+import javax.validation.constraints.NotNull;
+import javax.validation.constraints.Size;
+import java.io.Serializable;
+import java.time.Instant;
+import java.util.Objects;
+
+/**
+ * A refresh token, used to get a new access token without the password of the user.
+ * <p>
+ * Only the SHA-256 hash of the token is stored. A token can be used once: it is then rotated, and
+ * replaced by a new one. Its rotated date is kept until its expiration, to detect its reuse.
+ */
+@Entity
+@Table(name = "refresh_token")
+public class RefreshToken implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @NotNull
+    @Size(min = 64, max = 64)
+    @Column(name = "token_hash", length = 64, nullable = false, unique = true)
+    private String tokenHash;
+
+    @NotNull
+    @Size(min = 1, max = 50)
+    @Column(name = "login", length = 50, nullable = false)
+    private String login;
+
+    @NotNull
+    @Column(name = "remember_me", nullable = false)
+    private Boolean rememberMe = false;
+
+    @NotNull
+    @Column(name = "created_date", nullable = false)
+    private Instant createdDate = Instant.now();
+
+    @NotNull
+    @Column(name = "expiration_date", nullable = false)
+    private Instant expirationDate;
+
+    @Column(name = "rotated_date")
+    private Instant rotatedDate;
+
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public String getTokenHash() {
+        return tokenHash;
+    }
+
+    public RefreshToken tokenHash(String tokenHash) {
+        this.tokenHash = tokenHash;
+        return this;
+    }
+
+    public void setTokenHash(String tokenHash) {
+        this.tokenHash = tokenHash;
+    }
+
+    public String getLogin() {
+        return login;
+    }
+
+    public RefreshToken login(String login) {
+        this.login = login;
+        return this;
+    }
+
+    public void setLogin(String login) {
+        this.login = login;
+    }
+
+    public Boolean isRememberMe() {
+        return rememberMe;
+    }
+
+    public RefreshToken rememberMe(Boolean rememberMe) {
+        this.rememberMe = rememberMe;
+        return this;
+    }
+
+    public void setRememberMe(Boolean rememberMe) {
+        this.rememberMe = rememberMe;
+    }
+
+    public Instant getCreatedDate() {
+        return createdDate;
+    }
+
+    public void setCreatedDate(Instant createdDate) {
+        this.createdDate = createdDate;
+    }
+
+    public Instant getExpirationDate() {
+        return expirationDate;
+    }
+
+    public RefreshToken expirationDate(Instant expirationDate) {
+        this.expirationDate = expirationDate;
+        return this;
+    }
+
+    public void setExpirationDate(Instant expirationDate) {
+        this.expirationDate = expirationDate;
+    }
+
+    public Instant getRotatedDate() {
+        return rotatedDate;
+    }
+
+    public void setRotatedDate(Instant rotatedDate) {
+        this.rotatedDate = rotatedDate;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (o == null || getClass() != o.getClass()) {
+            return false;
+        }
+        RefreshToken refreshToken = (RefreshToken) o;
+        if (refreshToken.getId() == null || getId() == null) {
+            return false;
+        }
+        return Objects.equals(getId(), refreshToken.getId());
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hashCode(getId());
+    }
+
+    @Override
+    public String toString() {
+        return "RefreshToken{" +
+            "id=" + getId() +
+            ", login='" + getLogin() + "'" +
+            ", rememberMe='" + isRememberMe() + "'" +
+            ", createdDate='" + getCreatedDate() + "'" +
+            ", expirationDate='" + getExpirationDate() + "'" +
+            ", rotatedDate='" + getRotatedDate() + "'" +
+            "}";
+    }
+}
@@ -0,0 +1,134 @@
+package org.pcastel.scm.domain;
+
+import javax.persistence.*;
+import javax.validation.constraints.NotNull;
+import javax.validation.constraints.Size;
+import java.io.Serializable;
+import java.time.Instant;
+import java.util.Objects;
+
+/**
+ * A revocation of the tokens of a user.
+ * <p>
+ * Without token id, it revokes all the tokens of the user issued until its revoked date, such as
+ * after a change of password. With a token id, it only revokes this token. It is kept until all the
+ * tokens it revokes have expired.
+ */
+@Entity
+@Table(name = "token_revocation")
+public class TokenRevocation implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @NotNull
+    @Size(min = 1, max = 50)
+    @Column(name = "login", length = 50, nullable = false)
+    private String login;
+
+    @Size(max = 36)
+    @Column(name = "token_id", length = 36)
+    private String tokenId;
+
+    @NotNull
+    @Column(name = "revoked_date", nullable = false)
+    private Instant revokedDate;
+
+    @NotNull
+    @Column(name = "expiration_date", nullable = false)
+    private Instant expirationDate;
+
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public String getLogin() {
+        return login;
+    }
+
+    public TokenRevocation login(String login) {
+        this.login = login;
+        return this;
+    }
+
+    public void setLogin(String login) {
+        this.login = login;
+    }
+
+    public String getTokenId() {
+        return tokenId;
+    }
+
+    public TokenRevocation tokenId(String tokenId) {
+        this.tokenId = tokenId;
+        return this;
+    }
+
+    public void setTokenId(String tokenId) {
+        this.tokenId = tokenId;
+    }
+
+    public Instant getRevokedDate() {
+        return revokedDate;
+    }
+
+    public TokenRevocation revokedDate(Instant revokedDate) {
+        this.revokedDate = revokedDate;
+        return this;
+    }
+
+    public void setRevokedDate(Instant revokedDate) {
+        this.revokedDate = revokedDate;
+    }
+
+    public Instant getExpirationDate() {
+        return expirationDate;
+    }
+
+    public TokenRevocation expirationDate(Instant expirationDate) {
+        this.expirationDate = expirationDate;
+        return this;
+    }
+
+    public void setExpirationDate(Instant expirationDate) {
+        this.expirationDate = expirationDate;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (o == null || getClass() != o.getClass()) {
+            return false;
+        }
+        TokenRevocation tokenRevocation = (TokenRevocation) o;
+        if (tokenRevocation.getId() == null || getId() == null) {
+            return false;
+        }
+        return Objects.equals(getId(), tokenRevocation.getId());
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hashCode(getId());
+    }
+
+    @Override
+    public String toString() {
+        return "TokenRevocation{" +
+            "id=" + getId() +
+            ", login='" + getLogin() + "'" +
+            ", tokenId='" + getTokenId() + "'" +
+            ", revokedDate='" + getRevokedDate() + "'" +
+            ", expirationDate='" + getExpirationDate() + "'" +
+            "}";
+    }
+}
@@ -0,0 +1,106 @@
+package org.pcastel.scm.domain;
+
+import javax.persistence.*;
+import javax.validation.constraints.NotNull;
+import java.io.Serializable;
+import java.time.Instant;
+import java.util.Objects;
+
+/**
+ * A user waiting for a place in a full event.
+ * <p>
+ * Entries are ordered by id: the entry with the lowest id of an event is the first promoted when
+ * a participant leaves it. They change with every sign-up to a full event, so they are not cached.
+ */
+@Entity
+@Table(name = "event_waitlist")
+public class WaitlistEntry implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @NotNull
+    @Column(name = "created_date", nullable = false)
+    private Instant createdDate = Instant.now();
+
+    @NotNull
+    @ManyToOne(optional = false)
+    private Event event;
+
+    @NotNull
+    @ManyToOne(optional = false)
+    private User user;
+
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public Instant getCreatedDate() {
+        return createdDate;
+    }
+
+    public void setCreatedDate(Instant createdDate) {
+        this.createdDate = createdDate;
+    }
+
+    public Event getEvent() {
+        return event;
+    }
+
+    public WaitlistEntry event(Event event) {
+        this.event = event;
+        return this;
+    }
+
+    public void setEvent(Event event) {
+        this.event = event;
+    }
+
+    public User getUser() {
+        return user;
+    }
+
+    public WaitlistEntry user(User user) {
+        this.user = user;
+        return this;
+    }
+
+    public void setUser(User user) {
+        this.user = user;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (o == null || getClass() != o.getClass()) {
+            return false;
+        }
+        WaitlistEntry waitlistEntry = (WaitlistEntry) o;
+        if (waitlistEntry.getId() == null || getId() == null) {
+            return false;
+        }
+        return Objects.equals(getId(), waitlistEntry.getId());
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hashCode(getId());
+    }
+
+    @Override
+    public String toString() {
+        return "WaitlistEntry{" +
+            "id=" + getId() +
+            ", createdDate='" + getCreatedDate() + "'" +
+            "}";
+    }
+}
@@ -0,0 +1,8 @@
+package org.pcastel.scm.domain.enumeration;
+
+/**
+ * The DigestEntryType enumeration.
+ */
+public enum DigestEntryType {
+    EVENT_OPENED, EVENT_CHANGED, WAITLIST_PROMOTED, MEMBER_JOINED, MEMBER_LEFT
+}
@@ -0,0 +1,8 @@
+package org.pcastel.scm.domain.enumeration;
+
+/**
+ * The OutgoingMailState enumeration.
+ */
+public enum OutgoingMailState {
+    PENDING, SENT, DEAD
+}
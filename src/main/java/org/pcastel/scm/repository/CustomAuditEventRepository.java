@@ -2,6 +2,7 @@ package org.pcastel.scm.repository;
 
 import org.pcastel.scm.config.Constants;
 import org.pcastel.scm.config.audit.AuditEventConverter;
+import org.pcastel.scm.config.audit.AuditEventWriter;
 import org.pcastel.scm.domain.PersistentAuditEvent;
 
 import org.slf4j.Logger;
@@ -9,8 +10,6 @@ import org.slf4j.LoggerFactory;
 import org.springframework.boot.actuate.audit.AuditEvent;
 import org.springframework.boot.actuate.audit.AuditEventRepository;
 import org.springframework.stereotype.Repository;
-import org.springframework.transaction.annotation.Propagation;
-import org.springframework.transaction.annotation.Transactional;
 
 import java.util.Date;
 import java.util.HashMap;
@@ -19,6 +18,9 @@ import java.util.Map;
 
 /**
  * An implementation of Spring Boot's AuditEventRepository.
+ * <p>
+ * The events are not saved by {@link #add(AuditEvent)}, but queued to the {@link AuditEventWriter},
+ * so that the logins do not wait for their audit.
  */
 @Repository
 public class CustomAuditEventRepository implements AuditEventRepository {
@@ -26,7 +28,7 @@ public class CustomAuditEventRepository implements AuditEventRepository {
     private static final String AUTHORIZATION_FAILURE = "AUTHORIZATION_FAILURE";
 
     /**
-     * Should be the same as in Liquibase migration.
+     * Maximum length of each data value, so that the data of an event fits in its column.
      */
     protected static final int EVENT_DATA_COLUMN_MAX_LENGTH = 255;
 
@@ -34,13 +36,16 @@ public class CustomAuditEventRepository implements AuditEventRepository {
 
     private final AuditEventConverter auditEventConverter;
 
+    private final AuditEventWriter auditEventWriter;
+
     private final Logger log = LoggerFactory.getLogger(getClass());
 
     public CustomAuditEventRepository(PersistenceAuditEventRepository persistenceAuditEventRepository,
-            AuditEventConverter auditEventConverter) {
+            AuditEventConverter auditEventConverter, AuditEventWriter auditEventWriter) {
 
         this.persistenceAuditEventRepository = persistenceAuditEventRepository;
         this.auditEventConverter = auditEventConverter;
+        this.auditEventWriter = auditEventWriter;
     }
 
     @Override
@@ -72,7 +77,6 @@ public class CustomAuditEventRepository implements AuditEventRepository {
     }
 
     @Override
-    @Transactional(propagation = Propagation.REQUIRES_NEW)
     public void add(AuditEvent event) {
         if (!AUTHORIZATION_FAILURE.equals(event.getType()) &&
             !Constants.ANONYMOUS_USER.equals(event.getPrincipal())) {
@@ -83,7 +87,7 @@ public class CustomAuditEventRepository implements AuditEventRepository {
             persistentAuditEvent.setAuditEventDate(event.getTimestamp().toInstant());
             Map<String, String> eventData = auditEventConverter.convertDataToStrings(event.getData());
             persistentAuditEvent.setData(truncate(eventData));
-            persistenceAuditEventRepository.save(persistentAuditEvent);
+            auditEventWriter.write(persistentAuditEvent);
         }
     }
 
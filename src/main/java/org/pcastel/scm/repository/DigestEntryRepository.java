@@ -0,0 +1,40 @@
+package org.pcastel.scm.repository;
+
+import org.pcastel.scm.domain.DigestEntry;
+import org.springframework.data.domain.Pageable;
+import org.springframework.stereotype.Repository;
+
+import org.springframework.data.jpa.repository.*;
+import org.springframework.data.repository.query.Param;
+
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Spring Data JPA repository for the DigestEntry entity.
+ */
+@Repository
+public interface DigestEntryRepository extends JpaRepository<DigestEntry, Long> {
+
+    @Query("select max(entry.id) from DigestEntry entry")
+    Long findMaxId();
+
+    /**
+     * @return the ids of the users with entries up to an entry, after a user, by id
+     */
+    @Query("select distinct entry.userId from DigestEntry entry where entry.userId > :after and entry.id <= :maxId " +
+        "order by entry.userId")
+    List<Long> findUserIdsAfter(@Param("after") Long after, @Param("maxId") Long maxId, Pageable pageable);
+
+    @Query("select entry from DigestEntry entry where entry.userId in :userIds and entry.id <= :maxId " +
+        "order by entry.userId, entry.id")
+    List<DigestEntry> findAllByUserIdIn(@Param("userIds") Collection<Long> userIds, @Param("maxId") Long maxId);
+
+    @Modifying
+    @Query("delete from DigestEntry entry where entry.id in :ids")
+    int deleteByIdIn(@Param("ids") Collection<Long> ids);
+
+    @Modifying
+    @Query("delete from DigestEntry entry where entry.userId = :userId")
+    int deleteByUserId(@Param("userId") Long userId);
+}
@@ -1,10 +1,15 @@
 package org.pcastel.scm.repository;
 
 import org.pcastel.scm.domain.Event;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Repository;
 
 import org.springframework.data.jpa.repository.*;
 import org.springframework.data.repository.query.Param;
+
+import java.time.LocalDate;
+import java.util.Collection;
 import java.util.List;
 
 /**
@@ -12,11 +17,59 @@ import java.util.List;
  */
 @SuppressWarnings("unused")
 @Repository
-public interface EventRepository extends JpaRepository<Event, Long> {
+public interface EventRepository extends JpaRepository<Event, Long>, JpaSpecificationExecutor<Event>, EventRepositoryCustom {
     @Query("select distinct event from Event event left join fetch event.participants")
     List<Event> findAllWithEagerRelationships();
 
     @Query("select event from Event event left join fetch event.participants where event.id =:id")
     Event findOneWithEagerRelationships(@Param("id") Long id);
 
+    @Query(value = "select event.id from Event event", countQuery = "select count(event) from Event event")
+    Page<Long> findAllIds(Pageable pageable);
+
+    @Query("select event.id from Event event order by event.date, event.id")
+    List<Long> findFirstIds(Pageable pageable);
+
+    @Query("select event.id from Event event where event.date > :date or (event.date = :date and event.id > :id) " +
+        "order by event.date, event.id")
+    List<Long> findIdsAfter(@Param("date") LocalDate date, @Param("id") Long id, Pageable pageable);
+
+    /**
+     * Load a page of events along with everything needed to map them, in a single query.
+     * <p>
+     * This is the second phase of the event list queries, which only select ids: fetch joins
+     * cannot be paginated by the database.
+     */
+    @Query("select distinct event from Event event " +
+        "left join fetch event.team team left join fetch team.manager left join fetch team.substitute " +
+        "left join fetch event.location location left join fetch location.address " +
+        "left join fetch event.participants participant left join fetch participant.authorities " +
+        "where event.id in :ids")
+    List<Event> findAllWithEagerRelationshipsByIdIn(@Param("ids") Collection<Long> ids);
+
+    /**
+     * @param event the event, whose series and date select the following events
+     * @return the ids of the event and of the following events of its series, in order
+     */
+    @Query("select event.id from Event event where event.id = :#{#event.id} " +
+        "or (event.seriesId = :#{#event.seriesId} and event.date >= :#{#event.date}) order by event.id")
+    List<Long> findFollowingIds(@Param("event") Event event);
+
+    /**
+     * Apply the changes of an event to several events, in a single update. The dates and the
+     * participants of the events are left unchanged.
+     * <p>
+     * The persistence context is cleared, since the events it holds are no longer up to date.
+     *
+     * @param ids the ids of the events
+     * @param changes the new values of the events
+     * @return the number of updated events
+     */
+    @Modifying(clearAutomatically = true)
+    @Query("update Event event set event.title = :#{#changes.title}, event.type = :#{#changes.type}, " +
+        "event.state = :#{#changes.state}, event.numberOfPlaces = :#{#changes.numberOfPlaces}, " +
+        "event.isHome = :#{#changes.isHome}, event.comment = :#{#changes.comment}, " +
+        "event.team = :#{#changes.team}, event.location = :#{#changes.location} " +
+        "where event.id in :ids")
+    int updateAll(@Param("ids") Collection<Long> ids, @Param("changes") Event changes);
 }
@@ -0,0 +1,67 @@
+package org.pcastel.scm.repository;
+
+/**
+ * Custom queries of the Event repository, which change the participants of an event without
+ * loading them.
+ * <p>
+ * The participant count of an event is kept in its own column, so that its capacity can be
+ * checked with a single conditional update: concurrent sign-ups only wait for the row of the
+ * event they join, and can never exceed its number of places.
+ */
+public interface EventRepositoryCustom {
+
+    /**
+     * Lock the row of an event until the end of the transaction, to serialize the changes of its
+     * participants and waitlist.
+     *
+     * @param eventId the id of the event
+     * @return true if the event exists
+     */
+    boolean lock(Long eventId);
+
+    /**
+     * Take a place in an event, if it is not full.
+     *
+     * @param eventId the id of the event
+     * @return true if a place was taken, false if the event is full or does not exist
+     */
+    boolean reservePlace(Long eventId);
+
+    /**
+     * Give back a place taken with {@link #reservePlace(Long)}.
+     *
+     * @param eventId the id of the event
+     */
+    void releasePlace(Long eventId);
+
+    /**
+     * @param eventId the id of the event
+     * @param userId the id of the user
+     * @return true if the user participates in the event
+     */
+    boolean isParticipant(Long eventId, Long userId);
+
+    /**
+     * Add a participant to an event, whose place must have been reserved.
+     *
+     * @param eventId the id of the event
+     * @param userId the id of the user
+     */
+    void insertParticipant(Long eventId, Long userId);
+
+    /**
+     * Remove a participant from an event.
+     *
+     * @param eventId the id of the event
+     * @param userId the id of the user
+     * @return true if the user was a participant
+     */
+    boolean deleteParticipant(Long eventId, Long userId);
+
+    /**
+     * Recount the participants of an event, after they have been replaced as a whole.
+     *
+     * @param eventId the id of the event
+     */
+    void updateParticipantCount(Long eventId);
+}
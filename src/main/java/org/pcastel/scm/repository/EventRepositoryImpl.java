@@ -0,0 +1,110 @@
+package org.pcastel.scm.repository;
+
+import org.pcastel.scm.domain.Event;
+
+import org.hibernate.SessionFactory;
+import org.hibernate.query.NativeQuery;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import javax.persistence.Query;
+
+/**
+ * Implementation of the custom queries of the Event repository.
+ * <p>
+ * These are native queries on the event and event_participant tables. Hibernate would clear the
+ * whole second-level cache region of every table they touch, so they are declared with an empty
+ * query space instead, and only the cache entries of the updated event are evicted, once the
+ * transaction is committed.
+ */
+public class EventRepositoryImpl implements EventRepositoryCustom {
+
+    private static final String PARTICIPANTS_CACHE_ROLE = Event.class.getName() + ".participants";
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Override
+    public boolean lock(Long eventId) {
+        return !nativeQuery("select id from event where id = :eventId for update")
+            .setParameter("eventId", eventId)
+            .getResultList()
+            .isEmpty();
+    }
+
+    @Override
+    public boolean reservePlace(Long eventId) {
+        int updated = nativeQuery("update event set participant_count = participant_count + 1 " +
+            "where id = :eventId and (number_of_places is null or participant_count < number_of_places)")
+            .setParameter("eventId", eventId)
+            .executeUpdate();
+        evictAfterCommit(eventId);
+        return updated == 1;
+    }
+
+    @Override
+    public void releasePlace(Long eventId) {
+        nativeQuery("update event set participant_count = participant_count - 1 " +
+            "where id = :eventId and participant_count > 0")
+            .setParameter("eventId", eventId)
+            .executeUpdate();
+        evictAfterCommit(eventId);
+    }
+
+    @Override
+    public boolean isParticipant(Long eventId, Long userId) {
+        return !nativeQuery("select 1 from event_participant where events_id = :eventId and participants_id = :userId")
+            .setParameter("eventId", eventId)
+            .setParameter("userId", userId)
+            .getResultList()
+            .isEmpty();
+    }
+
+    @Override
+    public void insertParticipant(Long eventId, Long userId) {
+        nativeQuery("insert into event_participant (events_id, participants_id) values (:eventId, :userId)")
+            .setParameter("eventId", eventId)
+            .setParameter("userId", userId)
+            .executeUpdate();
+        evictAfterCommit(eventId);
+    }
+
+    @Override
+    public boolean deleteParticipant(Long eventId, Long userId) {
+        int deleted = nativeQuery("delete from event_participant where events_id = :eventId and participants_id = :userId")
+            .setParameter("eventId", eventId)
+            .setParameter("userId", userId)
+            .executeUpdate();
+        evictAfterCommit(eventId);
+        return deleted == 1;
+    }
+
+    @Override
+    public void updateParticipantCount(Long eventId) {
+        entityManager.flush();
+        nativeQuery("update event set participant_count = " +
+            "(select count(*) from event_participant where events_id = :eventId) where id = :eventId")
+            .setParameter("eventId", eventId)
+            .executeUpdate();
+        evictAfterCommit(eventId);
+    }
+
+    private Query nativeQuery(String sql) {
+        Query query = entityManager.createNativeQuery(sql);
+        query.unwrap(NativeQuery.class).addSynchronizedQuerySpace("");
+        return query;
+    }
+
+    private void evictAfterCommit(Long eventId) {
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+            @Override
+            public void afterCommit() {
+                SessionFactory sessionFactory = entityManager.getEntityManagerFactory().unwrap(SessionFactory.class);
+                sessionFactory.getCache().evictEntityData(Event.class, eventId);
+                sessionFactory.getCache().evictCollectionData(PARTICIPANTS_CACHE_ROLE, eventId);
+            }
+        });
+    }
+}
@@ -1,9 +1,15 @@
 package org.pcastel.scm.repository;
 
 import org.pcastel.scm.domain.Member;
+import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Repository;
 
 import org.springframework.data.jpa.repository.*;
+import org.springframework.data.repository.query.Param;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
 
 
 /**
@@ -13,4 +19,18 @@ import org.springframework.data.jpa.repository.*;
 @Repository
 public interface MemberRepository extends JpaRepository<Member, Long> {
 
+    long countByPhotoHash(String photoHash);
+
+    @Query("select member.photoHash from Member member where member.id = ?1")
+    String findPhotoHashById(Long id);
+
+    @Query("select member from Member member left join fetch member.address where member.id in :ids")
+    List<Member> findAllByIdIn(@Param("ids") Collection<Long> ids);
+
+    @Query("select member from Member member join fetch member.user user left join fetch user.authorities " +
+        "left join fetch member.address where user.login = :login")
+    Optional<Member> findOneWithUserByLogin(@Param("login") String login);
+
+    @Query("select distinct member.photoHash from Member member where member.photoHash > ?1 order by member.photoHash")
+    List<String> findPhotoHashesAfter(String photoHash, Pageable pageable);
 }
@@ -0,0 +1,44 @@
+package org.pcastel.scm.repository;
+
+import org.pcastel.scm.domain.OutgoingMail;
+import org.pcastel.scm.domain.enumeration.OutgoingMailState;
+import org.springframework.data.domain.Pageable;
+import org.springframework.stereotype.Repository;
+
+import org.springframework.data.jpa.repository.*;
+import org.springframework.data.repository.query.Param;
+
+import java.time.Instant;
+import java.util.List;
+
+/**
+ * Spring Data JPA repository for the OutgoingMail entity.
+ */
+@Repository
+public interface OutgoingMailRepository extends JpaRepository<OutgoingMail, Long> {
+
+    /**
+     * @return the ids of the pending emails whose next attempt is due, the oldest first
+     */
+    @Query("select mail.id from OutgoingMail mail where mail.state = :state and mail.nextAttemptDate <= :now " +
+        "order by mail.nextAttemptDate, mail.id")
+    List<Long> findDueIds(@Param("state") OutgoingMailState state, @Param("now") Instant now, Pageable pageable);
+
+    /**
+     * Claim a due email for an attempt, by postponing its next attempt until the end of the lease, so
+     * that no other dispatcher sends it in the meantime.
+     *
+     * @return 1 if the email is claimed, or 0 if it is no longer due
+     */
+    @Modifying
+    @Query("update OutgoingMail mail set mail.nextAttemptDate = :leaseEnd " +
+        "where mail.id = :id and mail.state = :state and mail.nextAttemptDate <= :now")
+    int claim(@Param("id") Long id, @Param("state") OutgoingMailState state, @Param("now") Instant now,
+              @Param("leaseEnd") Instant leaseEnd);
+
+    long countByState(OutgoingMailState state);
+
+    @Modifying
+    @Query("delete from OutgoingMail mail where mail.state = :state and mail.sentDate < :before")
+    int deleteByStateAndSentDateBefore(@Param("state") OutgoingMailState state, @Param("before") Instant before);
+}
@@ -4,9 +4,16 @@ import org.pcastel.scm.domain.PersistentAuditEvent;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 
+import javax.persistence.QueryHint;
 import java.time.Instant;
 import java.util.List;
+import java.util.stream.Stream;
+
+import static org.hibernate.jpa.QueryHints.HINT_FETCH_SIZE;
 
 /**
  * Spring Data JPA repository for the PersistentAuditEvent entity.
@@ -22,4 +29,33 @@ public interface PersistenceAuditEventRepository extends JpaRepository<Persisten
     List<PersistentAuditEvent> findByPrincipalAndAuditEventDateAfterAndAuditEventType(String principle, Instant after, String type);
 
     Page<PersistentAuditEvent> findAllByAuditEventDateBetween(Instant fromDate, Instant toDate, Pageable pageable);
+
+    /**
+     * Read the events of a period with a cursor, in date order. The stream must be closed, and the
+     * events read should be detached, so that the memory used does not grow with their number.
+     * <p>
+     * The fetch size is only honoured by MySQL Connector/J with {@code useCursorFetch}, set in the prod profile:
+     * without it, the whole result set is read into memory when the query is run.
+     *
+     * @param fromDate the start of the period, inclusive
+     * @param toDate the end of the period, exclusive
+     * @return the events
+     */
+    @QueryHints(@QueryHint(name = HINT_FETCH_SIZE, value = "100"))
+    @Query("select e from PersistentAuditEvent e where e.auditEventDate >= ?1 and e.auditEventDate < ?2 " +
+        "order by e.auditEventDate, e.id")
+    Stream<PersistentAuditEvent> streamByAuditEventDateBetween(Instant fromDate, Instant toDate);
+
+    @Query("select min(e.auditEventDate) from PersistentAuditEvent e")
+    Instant findFirstAuditEventDate();
+
+    /**
+     * Delete the events before a date.
+     *
+     * @param before the date of the first event kept
+     * @return the number of events deleted
+     */
+    @Modifying
+    @Query("delete from PersistentAuditEvent e where e.auditEventDate < ?1")
+    int deleteByAuditEventDateBefore(Instant before);
 }
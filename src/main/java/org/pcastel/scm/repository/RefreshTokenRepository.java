@@ -0,0 +1,38 @@
+package org.pcastel.scm.repository;
+
+import org.pcastel.scm.domain.RefreshToken;
+import org.springframework.stereotype.Repository;
+
+import org.springframework.data.jpa.repository.*;
+import org.springframework.data.repository.query.Param;
+
+import java.time.Instant;
+import java.util.Optional;
+
+/**
+ * Spring Data JPA repository for the RefreshToken entity.
+ */
+@Repository
+public interface RefreshTokenRepository extends JpaRepository<RefreshToken, Long> {
+
+    Optional<RefreshToken> findOneByTokenHash(String tokenHash);
+
+    /**
+     * @return 1 if the token is rotated, or 0 if it already was
+     */
+    @Modifying
+    @Query("update RefreshToken token set token.rotatedDate = :date where token.id = :id and token.rotatedDate is null")
+    int rotate(@Param("id") Long id, @Param("date") Instant date);
+
+    @Modifying
+    @Query("delete from RefreshToken token where token.tokenHash = :tokenHash")
+    int deleteByTokenHash(@Param("tokenHash") String tokenHash);
+
+    @Modifying
+    @Query("delete from RefreshToken token where token.login = :login")
+    int deleteByLogin(@Param("login") String login);
+
+    @Modifying
+    @Query("delete from RefreshToken token where token.expirationDate <= :date")
+    int deleteByExpirationDateNotAfter(@Param("date") Instant date);
+}
@@ -1,6 +1,7 @@
 package org.pcastel.scm.repository;
 
 import org.pcastel.scm.domain.Team;
+import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Repository;
 
 import org.springframework.data.jpa.repository.*;
@@ -25,4 +26,10 @@ public interface TeamRepository extends JpaRepository<Team, Long> {
     @Query("select team from Team team left join fetch team.members where team.id =:id")
     Team findOneWithEagerRelationships(@Param("id") Long id);
 
+    List<Team> findAllByOrderByNameAscIdAsc(Pageable pageable);
+
+    @Query("select team from Team team where team.name > :name or (team.name = :name and team.id > :id) " +
+        "order by team.name, team.id")
+    List<Team> findAllAfter(@Param("name") String name, @Param("id") Long id, Pageable pageable);
+
 }
@@ -0,0 +1,23 @@
+package org.pcastel.scm.repository;
+
+import org.pcastel.scm.domain.TokenRevocation;
+import org.springframework.stereotype.Repository;
+
+import org.springframework.data.jpa.repository.*;
+import org.springframework.data.repository.query.Param;
+
+import java.time.Instant;
+import java.util.List;
+
+/**
+ * Spring Data JPA repository for the TokenRevocation entity.
+ */
+@Repository
+public interface TokenRevocationRepository extends JpaRepository<TokenRevocation, Long> {
+
+    List<TokenRevocation> findAllByExpirationDateAfter(Instant date);
+
+    @Modifying
+    @Query("delete from TokenRevocation revocation where revocation.expirationDate <= :date")
+    int deleteByExpirationDateNotAfter(@Param("date") Instant date);
+}
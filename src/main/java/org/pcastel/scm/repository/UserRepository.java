@@ -1,15 +1,25 @@
 package org.pcastel.scm.repository;
 
 import org.pcastel.scm.domain.User;
+import org.pcastel.scm.service.dto.MailRecipientDTO;
 import org.springframework.cache.annotation.Cacheable;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+
+import javax.persistence.QueryHint;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 import java.time.Instant;
+import java.util.stream.Stream;
+
+import static org.hibernate.jpa.QueryHints.HINT_FETCH_SIZE;
 
 /**
  * Spring Data JPA repository for the User entity.
@@ -34,5 +44,43 @@ public interface UserRepository extends JpaRepository<User, Long> {
     @Cacheable(cacheNames="users")
     Optional<User> findOneWithAuthoritiesByLogin(String login);
 
-    Page<User> findAllByLoginNot(Pageable pageable, String login);
+    @Query(value = "select user.id from User user where user.login <> :login",
+        countQuery = "select count(user) from User user where user.login <> :login")
+    Page<Long> findAllIdsByLoginNot(Pageable pageable, @Param("login") String login);
+
+    @Query("select user.id from User user where user.login <> :login and user.login > :after order by user.login")
+    List<Long> findIdsByLoginNotAfter(@Param("login") String login, @Param("after") String after, Pageable pageable);
+
+    @Query("select distinct user from User user left join fetch user.authorities where user.id in :ids")
+    List<User> findAllWithAuthoritiesByIdIn(@Param("ids") Collection<Long> ids);
+
+    /**
+     * Stream the activated members of a team who have an email, as recipients, in a single query.
+     *
+     * @param teamId the id of the team
+     * @return the recipients, by id
+     */
+    @QueryHints(@QueryHint(name = HINT_FETCH_SIZE, value = "100"))
+    @Query("select new org.pcastel.scm.service.dto.MailRecipientDTO(user.id, user.login, user.email, user.langKey, " +
+        "user.digest) from Team team join team.members user " +
+        "where team.id = :teamId and user.activated = true and user.email is not null order by user.id")
+    Stream<MailRecipientDTO> streamRecipientsByTeamId(@Param("teamId") Long teamId);
+
+    /**
+     * Stream the activated members of a team, and the activated participants of an event, who have
+     * an email, as recipients, in a single query.
+     * <p>
+     * The fetch size is only honoured by MySQL Connector/J with {@code useCursorFetch}, set in the prod profile.
+     *
+     * @param eventId the id of the event
+     * @param teamId the id of the team of the event, or null
+     * @return the recipients, by id
+     */
+    @QueryHints(@QueryHint(name = HINT_FETCH_SIZE, value = "100"))
+    @Query("select new org.pcastel.scm.service.dto.MailRecipientDTO(user.id, user.login, user.email, user.langKey, " +
+        "user.digest) from User user where user.activated = true and user.email is not null and (" +
+        "user.id in (select member.id from Team team join team.members member where team.id = :teamId) or " +
+        "user.id in (select participant.id from Event event join event.participants participant " +
+        "where event.id = :eventId)) order by user.id")
+    Stream<MailRecipientDTO> streamRecipientsByEventId(@Param("eventId") Long eventId, @Param("teamId") Long teamId);
 }
@@ -0,0 +1,49 @@
+package org.pcastel.scm.repository;
+
+import org.pcastel.scm.domain.WaitlistEntry;
+import org.springframework.stereotype.Repository;
+
+import org.springframework.data.jpa.repository.*;
+import org.springframework.data.repository.query.Param;
+
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Spring Data JPA repository for the WaitlistEntry entity.
+ */
+@Repository
+public interface WaitlistEntryRepository extends JpaRepository<WaitlistEntry, Long> {
+
+    /**
+     * @param eventId the id of the event
+     * @return the ids of the users waiting for the event, first in line first
+     */
+    @Query("select entry.user.id from WaitlistEntry entry where entry.event.id = :eventId order by entry.id")
+    List<Long> findUserIdsByEventId(@Param("eventId") Long eventId);
+
+    /**
+     * @param userId the id of the user
+     * @return the ids of the events the user is waiting for
+     */
+    @Query("select entry.event.id from WaitlistEntry entry where entry.user.id = :userId")
+    List<Long> findEventIdsByUserId(@Param("userId") Long userId);
+
+    Optional<WaitlistEntry> findFirstByEventIdOrderByIdAsc(Long eventId);
+
+    boolean existsByEventId(Long eventId);
+
+    boolean existsByEventIdAndUserId(Long eventId, Long userId);
+
+    @Modifying
+    @Query("delete from WaitlistEntry entry where entry.event.id = :eventId and entry.user.id = :userId")
+    int deleteByEventIdAndUserId(@Param("eventId") Long eventId, @Param("userId") Long userId);
+
+    @Modifying
+    @Query("delete from WaitlistEntry entry where entry.event.id = :eventId")
+    int deleteByEventId(@Param("eventId") Long eventId);
+
+    @Modifying
+    @Query("delete from WaitlistEntry entry where entry.user.id = :userId")
+    int deleteByUserId(@Param("userId") Long userId);
+}
@@ -0,0 +1,82 @@
+package org.pcastel.scm.security;
+
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.Timer;
+import org.springframework.core.task.AsyncTaskExecutor;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Password encoder hashing and verifying the passwords on a bounded executor.
+ * <p>
+ * The calling thread waits for the result, but at most as many passwords as the threads of the
+ * executor are hashed at once, so that a burst of logins leaves CPU for the other requests. When
+ * the queue of the executor is full, the password is not hashed and a
+ * {@link PasswordHashingUnavailableException} is thrown at once.
+ * <p>
+ * The time spent hashing and waiting in the queue, and the rejections, are available in the metrics.
+ */
+public class BoundedPasswordEncoder implements PasswordEncoder {
+
+    private final PasswordEncoder passwordEncoder;
+
+    private final AsyncTaskExecutor executor;
+
+    private final Timer hashing;
+
+    private final Timer queueWait;
+
+    private final Meter rejections;
+
+    public BoundedPasswordEncoder(PasswordEncoder passwordEncoder, AsyncTaskExecutor executor, MetricRegistry metricRegistry) {
+        this.passwordEncoder = passwordEncoder;
+        this.executor = executor;
+        this.hashing = metricRegistry.timer(MetricRegistry.name(BoundedPasswordEncoder.class, "hashing"));
+        this.queueWait = metricRegistry.timer(MetricRegistry.name(BoundedPasswordEncoder.class, "queue-wait"));
+        this.rejections = metricRegistry.meter(MetricRegistry.name(BoundedPasswordEncoder.class, "rejections"));
+    }
+
+    @Override
+    public String encode(CharSequence rawPassword) {
+        return execute(() -> passwordEncoder.encode(rawPassword));
+    }
+
+    @Override
+    public boolean matches(CharSequence rawPassword, String encodedPassword) {
+        return execute(() -> passwordEncoder.matches(rawPassword, encodedPassword));
+    }
+
+    private <T> T execute(Callable<T> task) {
+        long submitted = System.nanoTime();
+        Future<T> result;
+        try {
+            result = executor.submit(() -> {
+                queueWait.update(System.nanoTime() - submitted, TimeUnit.NANOSECONDS);
+                try (Timer.Context context = hashing.time()) {
+                    return task.call();
+                }
+            });
+        } catch (TaskRejectedException e) {
+            rejections.mark();
+            throw new PasswordHashingUnavailableException("Too many passwords waiting to be hashed", e);
+        }
+        try {
+            return result.get();
+        } catch (InterruptedException e) {
+            result.cancel(true);
+            Thread.currentThread().interrupt();
+            throw new PasswordHashingUnavailableException("Interrupted while waiting for the password hashing", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+}
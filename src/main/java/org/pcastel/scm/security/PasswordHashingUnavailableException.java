@@ -0,0 +1,18 @@
+package org.pcastel.scm.security;
+
+/**
+ * This exception is thrown when a password cannot be hashed nor verified, because too many
+ * passwords are already waiting for it.
+ */
+public class PasswordHashingUnavailableException extends RuntimeException {
+
+    private static final long serialVersionUID = 1L;
+
+    public PasswordHashingUnavailableException(String message) {
+        super(message);
+    }
+
+    public PasswordHashingUnavailableException(String message, Throwable t) {
+        super(message, t);
+    }
+}
@@ -2,10 +2,20 @@ package org.pcastel.scm.security.jwt;
 
 import io.github.jhipster.config.JHipsterProperties;
 
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
 import javax.annotation.PostConstruct;
 
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
@@ -24,6 +34,21 @@ public class TokenProvider {
 
     private static final String AUTHORITIES_KEY = "auth";
 
+    /**
+     * Issue time in epoch milliseconds, compared to the revocations of the tokens of the user.
+     */
+    private static final String ISSUED_AT_MILLIS_KEY = "iat_ms";
+
+    private static final long MAX_VERIFIED_TOKENS = 10000;
+
+    private static final ThreadLocal<MessageDigest> SHA_256 = ThreadLocal.withInitial(() -> {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    });
+
     private String secretKey;
 
     private long tokenValidityInMilliseconds;
@@ -32,8 +57,24 @@ public class TokenProvider {
 
     private final JHipsterProperties jHipsterProperties;
 
-    public TokenProvider(JHipsterProperties jHipsterProperties) {
+    private final TokenRevocations tokenRevocations;
+
+    private final Cache<ByteBuffer, VerifiedToken> verifiedTokens = Caffeine.newBuilder()
+        .maximumSize(MAX_VERIFIED_TOKENS)
+        .expireAfterAccess(1, TimeUnit.HOURS)
+        .build();
+
+    /**
+     * Authorities by "auth" claim, shared by all the tokens. The claims are signed, so there are
+     * only as many as combinations of authorities given to the users.
+     */
+    private final ConcurrentMap<String, List<GrantedAuthority>> authoritiesByClaim = new ConcurrentHashMap<>();
+
+    private final ConcurrentMap<String, GrantedAuthority> grantedAuthorities = new ConcurrentHashMap<>();
+
+    public TokenProvider(JHipsterProperties jHipsterProperties, TokenRevocations tokenRevocations) {
         this.jHipsterProperties = jHipsterProperties;
+        this.tokenRevocations = tokenRevocations;
     }
 
     @PostConstruct
@@ -61,33 +102,84 @@ public class TokenProvider {
         }
 
         return Jwts.builder()
+            .setId(UUID.randomUUID().toString())
             .setSubject(authentication.getName())
+            .setIssuedAt(new Date(now))
+            .claim(ISSUED_AT_MILLIS_KEY, now)
             .claim(AUTHORITIES_KEY, authorities)
             .signWith(SignatureAlgorithm.HS512, secretKey)
             .setExpiration(validity)
             .compact();
     }
 
-    public Authentication getAuthentication(String token) {
-        Claims claims = Jwts.parser()
-            .setSigningKey(secretKey)
-            .parseClaimsJws(token)
-            .getBody();
+    /**
+     * Verify a token, and get the authentication of its user.
+     * <p>
+     * The token is only parsed and verified on its first use: its authentication is then kept,
+     * by digest of the token, until the token expires or is not used for an hour. Only its revocation
+     * is checked on each use. The returned authentication is shared by all the requests with the
+     * same token, and must not be modified.
+     *
+     * @param token the JWT token
+     * @return the authentication of the user of the token, or empty if the token is not valid
+     */
+    public Optional<Authentication> authenticate(String token) {
+        ByteBuffer digest = digest(token);
+        VerifiedToken verifiedToken = verifiedTokens.getIfPresent(digest);
+        if (verifiedToken == null) {
+            Claims claims = parseClaims(token);
+            if (claims == null) {
+                return Optional.empty();
+            }
+            verifiedToken = new VerifiedToken(toAuthentication(claims, token), claims);
+            if (claims.getExpiration() != null) {
+                verifiedTokens.put(digest, verifiedToken);
+            }
+        } else if (verifiedToken.expiration <= System.currentTimeMillis()) {
+            verifiedTokens.invalidate(digest);
+            log.info("Expired JWT token.");
+            return Optional.empty();
+        }
+        if (tokenRevocations.isRevoked(verifiedToken.login, verifiedToken.tokenId, verifiedToken.issuedAt)) {
+            log.info("Revoked JWT token.");
+            return Optional.empty();
+        }
+        return Optional.of(verifiedToken.authentication);
+    }
 
-        Collection<? extends GrantedAuthority> authorities =
-            Arrays.stream(claims.get(AUTHORITIES_KEY).toString().split(","))
-                .map(SimpleGrantedAuthority::new)
-                .collect(Collectors.toList());
+    /**
+     * @param token the JWT token
+     * @return the claims of the token, or empty if it is not valid
+     */
+    public Optional<Claims> getClaims(String token) {
+        return Optional.ofNullable(parseClaims(token));
+    }
+
+    public boolean validateToken(String authToken) {
+        return authenticate(authToken).isPresent();
+    }
+
+    private Authentication toAuthentication(Claims claims, String token) {
+        List<GrantedAuthority> authorities =
+            authoritiesByClaim.computeIfAbsent(claims.get(AUTHORITIES_KEY).toString(), this::toAuthorities);
 
         User principal = new User(claims.getSubject(), "", authorities);
 
         return new UsernamePasswordAuthenticationToken(principal, token, authorities);
     }
 
-    public boolean validateToken(String authToken) {
+    private List<GrantedAuthority> toAuthorities(String authoritiesClaim) {
+        return Collections.unmodifiableList(Arrays.stream(authoritiesClaim.split(","))
+            .map(authority -> grantedAuthorities.computeIfAbsent(authority, SimpleGrantedAuthority::new))
+            .collect(Collectors.toList()));
+    }
+
+    /**
+     * @return the claims of the token, or null if it is not valid
+     */
+    private Claims parseClaims(String authToken) {
         try {
-            Jwts.parser().setSigningKey(secretKey).parseClaimsJws(authToken);
-            return true;
+            return Jwts.parser().setSigningKey(secretKey).parseClaimsJws(authToken).getBody();
         } catch (SignatureException e) {
             log.info("Invalid JWT signature.");
             log.trace("Invalid JWT signature trace: {}", e);
@@ -104,6 +196,38 @@ public class TokenProvider {
             log.info("JWT token compact of handler are invalid.");
             log.trace("JWT token compact of handler are invalid trace: {}", e);
         }
-        return false;
+        return null;
+    }
+
+    private static ByteBuffer digest(String token) {
+        return ByteBuffer.wrap(SHA_256.get().digest(token.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    private static final class VerifiedToken {
+
+        private final Authentication authentication;
+
+        private final String login;
+
+        private final String tokenId;
+
+        /**
+         * In epoch milliseconds, or 0 for the tokens issued without it.
+         */
+        private final long issuedAt;
+
+        private final long expiration;
+
+        VerifiedToken(Authentication authentication, Claims claims) {
+            this.authentication = authentication;
+            this.login = claims.getSubject();
+            this.tokenId = claims.getId();
+            // The standard claim is in seconds: the tokens issued without the milliseconds claim are taken
+            // as issued at the start of their second
+            Number issuedAtMillis = claims.get(ISSUED_AT_MILLIS_KEY, Number.class);
+            this.issuedAt = issuedAtMillis != null ? issuedAtMillis.longValue() :
+                claims.getIssuedAt() == null ? 0 : claims.getIssuedAt().getTime();
+            this.expiration = claims.getExpiration() == null ? Long.MAX_VALUE : claims.getExpiration().getTime();
+        }
     }
 }
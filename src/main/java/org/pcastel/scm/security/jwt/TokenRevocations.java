@@ -0,0 +1,188 @@
+package org.pcastel.scm.security.jwt;
+
+import org.springframework.stereotype.Component;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Revoked tokens, checked on each request.
+ * <p>
+ * A user can have a watermark: the tokens of the user issued until the watermark are revoked, such as
+ * after a change of password. A single token can also be revoked by its id. The revocations are kept
+ * until the expiration of the tokens they revoke.
+ * <p>
+ * The revocations change rarely, so the check reads an immutable snapshot, replaced on each change:
+ * an open addressing table of the watermarks by login, and a Bloom filter of the revoked token ids,
+ * which only looks up the exact set of the ids for the few tokens it cannot rule out. The check does
+ * not allocate nor lock.
+ *
+ * @see org.pcastel.scm.service.TokenRevocationService
+ */
+@Component
+public class TokenRevocations {
+
+    private static final int BLOOM_FILTER_HASHES = 4;
+
+    /**
+     * Bits of the Bloom filter per revoked token, for a false positive rate below 0.5%.
+     */
+    private static final int BLOOM_FILTER_BITS_PER_TOKEN = 16;
+
+    private static final int MIN_BLOOM_FILTER_BITS = 1 << 16;
+
+    /**
+     * Watermark and expiration in epoch milliseconds, by login.
+     */
+    private final Map<String, long[]> watermarks = new HashMap<>();
+
+    /**
+     * Expiration in epoch milliseconds, by revoked token id.
+     */
+    private final Map<String, Long> revokedTokens = new HashMap<>();
+
+    private volatile Snapshot snapshot = new Snapshot(watermarks, revokedTokens);
+
+    /**
+     * @param login the login of the user of the token
+     * @param tokenId the id of the token, or null if it has none
+     * @param issuedAt the issue time of the token, in epoch milliseconds
+     * @return true if the token is revoked
+     */
+    public boolean isRevoked(String login, String tokenId, long issuedAt) {
+        Snapshot revocations = snapshot;
+        return issuedAt <= revocations.getWatermark(login) || revocations.isRevoked(tokenId);
+    }
+
+    /**
+     * Revoke all the tokens of a user issued until a time, including the tokens issued in its millisecond.
+     * <p>
+     * The watermark is precise to the millisecond, so that the tokens issued just after, such as by the
+     * login following a change of password, stay valid.
+     *
+     * @param login the login of the user
+     * @param issuedUntil the watermark, in epoch milliseconds
+     * @param expiration the time after which none of the revoked tokens is valid, in epoch milliseconds
+     */
+    public synchronized void revokeTokensIssuedUntil(String login, long issuedUntil, long expiration) {
+        long[] previous = watermarks.get(login);
+        if (previous == null || previous[0] < issuedUntil) {
+            watermarks.put(login, new long[]{issuedUntil, Math.max(expiration, previous == null ? 0 : previous[1])});
+            snapshot = new Snapshot(watermarks, revokedTokens);
+        }
+    }
+
+    /**
+     * @param tokenId the id of the token
+     * @param expiration the expiration of the token, in epoch milliseconds
+     */
+    public synchronized void revokeToken(String tokenId, long expiration) {
+        if (revokedTokens.put(tokenId, expiration) == null) {
+            snapshot = new Snapshot(watermarks, revokedTokens);
+        }
+    }
+
+    /**
+     * Remove the revocations of the tokens which have all expired.
+     *
+     * @param now the current time, in epoch milliseconds
+     */
+    public synchronized void purge(long now) {
+        boolean purged = watermarks.values().removeIf(watermark -> watermark[1] <= now);
+        purged |= revokedTokens.values().removeIf(expiration -> expiration <= now);
+        if (purged) {
+            snapshot = new Snapshot(watermarks, revokedTokens);
+        }
+    }
+
+    private static final class Snapshot {
+
+        private final String[] logins;
+
+        private final long[] watermarks;
+
+        private final long[] bloomFilter;
+
+        private final Map<String, Long> revokedTokens;
+
+        Snapshot(Map<String, long[]> watermarksByLogin, Map<String, Long> revokedTokens) {
+            int size = tableSize(2 * watermarksByLogin.size(), 16);
+            this.logins = new String[size];
+            this.watermarks = new long[size];
+            watermarksByLogin.forEach((login, watermark) -> {
+                int index = spread(login.hashCode()) & (size - 1);
+                while (logins[index] != null) {
+                    index = (index + 1) & (size - 1);
+                }
+                logins[index] = login;
+                watermarks[index] = watermark[0];
+            });
+
+            this.bloomFilter = new long[tableSize(BLOOM_FILTER_BITS_PER_TOKEN * revokedTokens.size(), MIN_BLOOM_FILTER_BITS) / 64];
+            revokedTokens.keySet().forEach(tokenId -> {
+                long hash = hash(tokenId);
+                for (int i = 0; i < BLOOM_FILTER_HASHES; i++) {
+                    int bit = bloomFilterBit(hash, i);
+                    bloomFilter[bit >>> 6] |= 1L << bit;
+                }
+            });
+            this.revokedTokens = new HashMap<>(revokedTokens);
+        }
+
+        long getWatermark(String login) {
+            if (login == null) {
+                return Long.MIN_VALUE;
+            }
+            int index = spread(login.hashCode()) & (logins.length - 1);
+            for (String key = logins[index]; key != null; key = logins[index]) {
+                if (key.equals(login)) {
+                    return watermarks[index];
+                }
+                index = (index + 1) & (logins.length - 1);
+            }
+            return Long.MIN_VALUE;
+        }
+
+        boolean isRevoked(String tokenId) {
+            if (tokenId == null) {
+                return false;
+            }
+            long hash = hash(tokenId);
+            for (int i = 0; i < BLOOM_FILTER_HASHES; i++) {
+                int bit = bloomFilterBit(hash, i);
+                if ((bloomFilter[bit >>> 6] & (1L << bit)) == 0) {
+                    return false;
+                }
+            }
+            return revokedTokens.containsKey(tokenId);
+        }
+
+        private int bloomFilterBit(long hash, int i) {
+            // Double hashing, with the two halves of the hash
+            return ((int) hash + i * ((int) (hash >>> 32) | 1)) & (64 * bloomFilter.length - 1);
+        }
+
+        /**
+         * @return the lowest power of two greater than or equal to the size and the minimum size
+         */
+        private static int tableSize(int size, int minSize) {
+            return Math.max(minSize, Integer.highestOneBit(Math.max(1, size - 1)) << 1);
+        }
+
+        private static int spread(int hash) {
+            return hash ^ (hash >>> 16);
+        }
+
+        /**
+         * @return the 64-bit FNV-1a hash of the characters
+         */
+        private static long hash(String value) {
+            long hash = 0xcbf29ce484222325L;
+            for (int i = 0; i < value.length(); i++) {
+                hash ^= value.charAt(i);
+                hash *= 0x100000001b3L;
+            }
+            return hash;
+        }
+    }
+}
@@ -1,35 +1,81 @@
 package org.pcastel.scm.service;
 
+import org.pcastel.scm.config.ApplicationProperties;
 import org.pcastel.scm.config.audit.AuditEventConverter;
+import org.pcastel.scm.domain.PersistentAuditEvent;
 import org.pcastel.scm.repository.PersistenceAuditEventRepository;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.boot.actuate.audit.AuditEvent;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import javax.persistence.EntityManager;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
 import java.time.Instant;
+import java.time.YearMonth;
+import java.time.ZoneOffset;
+import java.util.Iterator;
+import java.util.Map;
 import java.util.Optional;
+import java.util.stream.Stream;
+import java.util.zip.GZIPOutputStream;
 
 /**
  * Service for managing audit events.
  * <p>
  * This is the default implementation to support SpringBoot Actuator AuditEventRepository
+ * <p>
+ * The events are kept in the database for a number of months, and the older months are moved to
+ * archives on disk: one gzipped NDJSON file per month, in the same format as the export.
  */
 @Service
 @Transactional
 public class AuditEventService {
 
+    private static final JsonFactory JSON_FACTORY = new JsonFactory()
+        .disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET)
+        .setRootValueSeparator(null);
+
+    private final Logger log = LoggerFactory.getLogger(AuditEventService.class);
+
     private final PersistenceAuditEventRepository persistenceAuditEventRepository;
 
     private final AuditEventConverter auditEventConverter;
 
+    private final EntityManager entityManager;
+
+    private final TransactionTemplate transactionTemplate;
+
+    private final ApplicationProperties.Audit audit;
+
     public AuditEventService(
         PersistenceAuditEventRepository persistenceAuditEventRepository,
-        AuditEventConverter auditEventConverter) {
+        AuditEventConverter auditEventConverter,
+        EntityManager entityManager,
+        PlatformTransactionManager transactionManager,
+        ApplicationProperties applicationProperties) {
 
         this.persistenceAuditEventRepository = persistenceAuditEventRepository;
         this.auditEventConverter = auditEventConverter;
+        this.entityManager = entityManager;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.audit = applicationProperties.getAudit();
     }
 
     public Page<AuditEvent> findAll(Pageable pageable) {
@@ -46,4 +92,103 @@ public class AuditEventService {
         return Optional.ofNullable(persistenceAuditEventRepository.findOne(id)).map
             (auditEventConverter::convertToAuditEvent);
     }
+
+    /**
+     * Write the events of a period as NDJSON, one event per line, in date order. The events are
+     * read with a cursor, fetched by chunks on MySQL with {@code useCursorFetch}, so the memory used
+     * does not depend on their number.
+     *
+     * @param fromDate the start of the period, inclusive
+     * @param toDate the end of the period, exclusive
+     * @param out the stream to write to, which is not closed
+     * @return the number of events written
+     * @throws IOException if the events could not be written
+     */
+    @Transactional(readOnly = true)
+    public long export(Instant fromDate, Instant toDate, OutputStream out) throws IOException {
+        try (Stream<PersistentAuditEvent> events =
+                 persistenceAuditEventRepository.streamByAuditEventDateBetween(fromDate, toDate)) {
+            return writeNdjson(events, out);
+        }
+    }
+
+    /**
+     * Move the events of the months past the retention period to the archives.
+     * <p>
+     * This is scheduled to get fired every day, at 03:00 (am). Each month is archived in its own
+     * transaction: its events are deleted once its archive is written. A month whose archive is
+     * written, but whose events could not be deleted, is archived again in another file.
+     */
+    @Scheduled(cron = "0 0 3 * * ?")
+    @Transactional(propagation = Propagation.SUPPORTS)
+    public void archiveExpiredEvents() {
+        Instant firstEventDate = persistenceAuditEventRepository.findFirstAuditEventDate();
+        if (firstEventDate == null) {
+            return;
+        }
+        YearMonth firstMonthKept = YearMonth.now(ZoneOffset.UTC).minusMonths(audit.getRetentionMonths());
+        for (YearMonth month = YearMonth.from(firstEventDate.atOffset(ZoneOffset.UTC));
+             month.isBefore(firstMonthKept); month = month.plusMonths(1)) {
+            YearMonth archivedMonth = month;
+            try {
+                transactionTemplate.execute(status -> archive(archivedMonth));
+            } catch (UncheckedIOException e) {
+                log.error("Could not archive the audit events of {}: {}", archivedMonth, e.getCause().getMessage());
+                return;
+            }
+        }
+    }
+
+    private Path archive(YearMonth month) {
+        Instant start = month.atDay(1).atStartOfDay(ZoneOffset.UTC).toInstant();
+        Instant end = month.plusMonths(1).atDay(1).atStartOfDay(ZoneOffset.UTC).toInstant();
+        try {
+            Path directory = Files.createDirectories(Paths.get(audit.getArchiveDirectory()));
+            Path archive = directory.resolve("audit-" + month + ".ndjson.gz");
+            if (Files.exists(archive)) {
+                archive = directory.resolve("audit-" + month + "-" + System.currentTimeMillis() + ".ndjson.gz");
+            }
+            Path temporaryArchive = directory.resolve(archive.getFileName() + ".tmp");
+            long count;
+            try (Stream<PersistentAuditEvent> events = persistenceAuditEventRepository.streamByAuditEventDateBetween(start, end);
+                 OutputStream out = new GZIPOutputStream(Files.newOutputStream(temporaryArchive))) {
+                count = writeNdjson(events, out);
+            }
+            if (count == 0) {
+                Files.delete(temporaryArchive);
+                return null;
+            }
+            Files.move(temporaryArchive, archive, StandardCopyOption.ATOMIC_MOVE);
+            int deleted = persistenceAuditEventRepository.deleteByAuditEventDateBefore(end);
+            log.info("Archived {} audit events of {} to {}, deleted {}", count, month, archive, deleted);
+            return archive;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private long writeNdjson(Stream<PersistentAuditEvent> events, OutputStream out) throws IOException {
+        long count = 0;
+        try (JsonGenerator generator = JSON_FACTORY.createGenerator(out)) {
+            Iterator<PersistentAuditEvent> iterator = events.iterator();
+            while (iterator.hasNext()) {
+                PersistentAuditEvent event = iterator.next();
+                generator.writeStartObject();
+                generator.writeNumberField("id", event.getId());
+                generator.writeStringField("timestamp", event.getAuditEventDate().toString());
+                generator.writeStringField("principal", event.getPrincipal());
+                generator.writeStringField("type", event.getAuditEventType());
+                generator.writeObjectFieldStart("data");
+                for (Map.Entry<String, String> data : event.getData().entrySet()) {
+                    generator.writeStringField(data.getKey(), data.getValue());
+                }
+                generator.writeEndObject();
+                generator.writeEndObject();
+                generator.writeRaw('\n');
+                entityManager.detach(event);
+                count++;
+            }
+        }
+        return count;
+    }
 }
@@ -0,0 +1,288 @@
+package org.pcastel.scm.service;
+
+import org.pcastel.scm.config.ApplicationProperties;
+import org.pcastel.scm.domain.DigestEntry;
+import org.pcastel.scm.domain.Event;
+import org.pcastel.scm.domain.Team;
+import org.pcastel.scm.domain.User;
+import org.pcastel.scm.domain.enumeration.DigestEntryType;
+import org.pcastel.scm.repository.DigestEntryRepository;
+import org.pcastel.scm.repository.UserRepository;
+import org.pcastel.scm.service.dto.MailRecipientDTO;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.persistence.EntityManager;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Service for the daily digest of the notifications of the users in digest mode.
+ * <p>
+ * Their notifications are appended to a per-user change log, instead of being sent one email each.
+ * Once a day, the log is sent as one email per user, in which the changes of the same event, or of
+ * the same member of a team, are coalesced into one line, and then emptied.
+ */
+@Service
+@Transactional
+public class DigestService {
+
+    private final Logger log = LoggerFactory.getLogger(DigestService.class);
+
+    /**
+     * Number of ids in the "in" list of each delete of the sent entries.
+     */
+    private static final int DELETE_CHUNK_SIZE = 1000;
+
+    private final DigestEntryRepository digestEntryRepository;
+
+    private final UserRepository userRepository;
+
+    private final MailService mailService;
+
+    private final EntityManager entityManager;
+
+    private final TransactionTemplate transactionTemplate;
+
+    private final ApplicationProperties.Mail mail;
+
+    public DigestService(DigestEntryRepository digestEntryRepository, UserRepository userRepository,
+                         MailService mailService, EntityManager entityManager,
+                         PlatformTransactionManager transactionManager, ApplicationProperties applicationProperties) {
+        this.digestEntryRepository = digestEntryRepository;
+        this.userRepository = userRepository;
+        this.mailService = mailService;
+        this.entityManager = entityManager;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.mail = applicationProperties.getMail();
+    }
+
+    /**
+     * Create the entry of a change of an event.
+     *
+     * @param userId the id of the user to notify
+     * @param type the type of the change
+     * @param event the event
+     * @return the entry, to append
+     */
+    public static DigestEntry eventEntry(Long userId, DigestEntryType type, Event event) {
+        return new DigestEntry()
+            .userId(userId)
+            .type(type)
+            .targetId(event.getId())
+            .title(event.getTitle())
+            .eventDate(event.getDate());
+    }
+
+    /**
+     * Create the entry of a member who joined or left a team.
+     *
+     * @param userId the id of the user to notify
+     * @param type the type of the change
+     * @param team the team
+     * @param member the member who joined or left the team
+     * @return the entry, to append
+     */
+    public static DigestEntry memberEntry(Long userId, DigestEntryType type, Team team, User member) {
+        return new DigestEntry()
+            .userId(userId)
+            .type(type)
+            .targetId(team.getId())
+            .title(team.getName())
+            .detail(member.getLogin());
+    }
+
+    /**
+     * Append a change to the digest of a user.
+     *
+     * @param entry the change
+     */
+    public void append(DigestEntry entry) {
+        log.debug("Request to append to the digest of User {} : {}", entry.getUserId(), entry);
+        digestEntryRepository.save(entry);
+    }
+
+    /**
+     * Get a writer of the changes of many users, which appends them in batches.
+     *
+     * @return the writer, to close once all the changes are appended
+     */
+    public Writer writer() {
+        return new Writer();
+    }
+
+    /**
+     * Append the members who joined or left a team to the digests of its members in digest mode.
+     *
+     * @param team the team, with its members
+     * @param joined the members who joined the team
+     * @param left the members who left the team
+     */
+    public void appendRosterChanges(Team team, Collection<User> joined, Collection<User> left) {
+        if (joined.isEmpty() && left.isEmpty()) {
+            return;
+        }
+        try (Stream<MailRecipientDTO> recipients = userRepository.streamRecipientsByTeamId(team.getId());
+             Writer writer = writer()) {
+            recipients
+                .filter(MailRecipientDTO::isDigest)
+                .forEach(recipient -> {
+                    joined.forEach(member -> writer.append(
+                        memberEntry(recipient.getId(), DigestEntryType.MEMBER_JOINED, team, member)));
+                    left.forEach(member -> writer.append(
+                        memberEntry(recipient.getId(), DigestEntryType.MEMBER_LEFT, team, member)));
+                });
+        }
+    }
+
+    /**
+     * Send the digests of all the users with changes, and empty them.
+     * <p>
+     * This is scheduled to get fired everyday, at 01:00 (am), with the removal of the not activated
+     * users. The users are iterated in chunks, by id, each in its own transaction. The changes appended
+     * while the digests are sent are left for the next day.
+     *
+     * @return the number of digests sent
+     */
+    @Scheduled(cron = "0 0 1 * * ?")
+    @Transactional(propagation = Propagation.SUPPORTS)
+    public int sendDigests() {
+        Long maxId = digestEntryRepository.findMaxId();
+        if (maxId == null) {
+            return 0;
+        }
+        int sent = 0;
+        Long after = 0L;
+        while (true) {
+            List<Long> userIds = digestEntryRepository.findUserIdsAfter(after, maxId,
+                new PageRequest(0, mail.getDigestChunkSize()));
+            if (userIds.isEmpty()) {
+                break;
+            }
+            sent += transactionTemplate.execute(status -> sendDigests(userIds, maxId));
+            after = userIds.get(userIds.size() - 1);
+        }
+        log.info("Sent {} digests", sent);
+        return sent;
+    }
+
+    private int sendDigests(List<Long> userIds, Long maxId) {
+        Map<Long, User> users = userRepository.findAll(userIds).stream()
+            .collect(Collectors.toMap(User::getId, Function.identity()));
+        List<DigestEntry> entries = digestEntryRepository.findAllByUserIdIn(userIds, maxId);
+        Map<Long, List<DigestEntry>> entriesByUser = entries.stream()
+            .collect(Collectors.groupingBy(DigestEntry::getUserId, LinkedHashMap::new, Collectors.toList()));
+        int sent = 0;
+        for (Map.Entry<Long, List<DigestEntry>> userEntries : entriesByUser.entrySet()) {
+            User user = users.get(userEntries.getKey());
+            // The entries of the users who were deleted, or can no longer be reached, are dropped
+            if (user != null && user.getActivated() && user.getEmail() != null) {
+                mailService.sendDigestEmail(user, coalesce(userEntries.getValue()));
+                sent++;
+            }
+        }
+        // The ids of the entries are not in commit order, as each node and transaction takes its own block of
+        // ids: only the entries loaded are deleted, and those committed since are left for the next day
+        List<Long> ids = entries.stream().map(DigestEntry::getId).collect(Collectors.toList());
+        for (int from = 0; from < ids.size(); from += DELETE_CHUNK_SIZE) {
+            digestEntryRepository.deleteByIdIn(ids.subList(from, Math.min(from + DELETE_CHUNK_SIZE, ids.size())));
+        }
+        return sent;
+    }
+
+    /**
+     * Coalesce the changes of a user: an event, or a member of a team, has a single line, with its
+     * latest values. An event opened then changed is still shown as opened.
+     *
+     * @param entries the changes, in the order they were appended
+     * @return the lines of the digest, in the order of their first change
+     */
+    static List<DigestEntry> coalesce(List<DigestEntry> entries) {
+        Map<String, DigestEntry> lines = new LinkedHashMap<>();
+        for (DigestEntry entry : entries) {
+            lines.merge(getLineKey(entry), entry, (previous, latest) -> {
+                DigestEntry line = copy(latest);
+                if (previous.getType() == DigestEntryType.EVENT_OPENED && latest.getType() == DigestEntryType.EVENT_CHANGED) {
+                    line.setType(DigestEntryType.EVENT_OPENED);
+                }
+                return line;
+            });
+        }
+        return new ArrayList<>(lines.values());
+    }
+
+    private static String getLineKey(DigestEntry entry) {
+        switch (entry.getType()) {
+            case EVENT_OPENED:
+            case EVENT_CHANGED:
+                return "event-" + entry.getTargetId();
+            case WAITLIST_PROMOTED:
+                return "waitlist-" + entry.getTargetId();
+            default:
+                return "team-" + entry.getTargetId() + "-" + entry.getDetail();
+        }
+    }
+
+    /**
+     * The entries are managed, and deleted once sent: the lines are copies.
+     */
+    private static DigestEntry copy(DigestEntry entry) {
+        DigestEntry copy = new DigestEntry()
+            .userId(entry.getUserId())
+            .type(entry.getType())
+            .targetId(entry.getTargetId())
+            .title(entry.getTitle())
+            .detail(entry.getDetail())
+            .eventDate(entry.getEventDate());
+        copy.setCreatedDate(entry.getCreatedDate());
+        return copy;
+    }
+
+    /**
+     * Writer of the changes of many users, which saves them in batches, and detaches them once
+     * flushed, so that the memory used does not grow with the number of users.
+     */
+    public final class Writer implements AutoCloseable {
+
+        private final List<DigestEntry> batch = new ArrayList<>();
+
+        private Writer() {
+        }
+
+        public void append(DigestEntry entry) {
+            batch.add(entry);
+            if (batch.size() >= mail.getWriteBatchSize()) {
+                write();
+            }
+        }
+
+        private void write() {
+            if (batch.isEmpty()) {
+                return;
+            }
+            digestEntryRepository.save(batch);
+            entityManager.flush();
+            batch.forEach(entityManager::detach);
+            batch.clear();
+        }
+
+        @Override
+        public void close() {
+            write();
+        }
+    }
+}
@@ -0,0 +1,135 @@
+package org.pcastel.scm.service;
+
+import org.pcastel.scm.domain.Event;
+import org.pcastel.scm.domain.Location;
+import org.pcastel.scm.domain.User;
+import org.pcastel.scm.domain.enumeration.DigestEntryType;
+import org.pcastel.scm.domain.enumeration.EventState;
+import org.pcastel.scm.repository.UserRepository;
+import org.pcastel.scm.service.dto.MailRecipientDTO;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+/**
+ * Service for notifying the users of the changes of their events.
+ * <p>
+ * The members of the team and the participants of an event are told when it is opened, and when the
+ * date or the location of an open or closed event changes. Their emails are written to the outbox
+ * with the change of the event, and so only sent if it is committed. The users in digest mode get
+ * the change appended to their daily digest instead.
+ */
+@Service
+@Transactional
+public class EventNotificationService {
+
+    /**
+     * The notifications of the members of a team.
+     */
+    public enum Notification {
+        OPENED("email.event.opened.title", DigestEntryType.EVENT_OPENED),
+        CHANGED("email.event.changed.title", DigestEntryType.EVENT_CHANGED);
+
+        private final String titleKey;
+
+        private final DigestEntryType digestEntryType;
+
+        Notification(String titleKey, DigestEntryType digestEntryType) {
+            this.titleKey = titleKey;
+            this.digestEntryType = digestEntryType;
+        }
+    }
+
+    private final Logger log = LoggerFactory.getLogger(EventNotificationService.class);
+
+    private final UserRepository userRepository;
+
+    private final MailService mailService;
+
+    private final DigestService digestService;
+
+    public EventNotificationService(UserRepository userRepository, MailService mailService,
+                                    DigestService digestService) {
+        this.userRepository = userRepository;
+        this.mailService = mailService;
+        this.digestService = digestService;
+    }
+
+    /**
+     * Get the notification of a change of an event, if any.
+     *
+     * @param previous the event before the change, or null if it is created
+     * @param event the event after the change
+     * @return the notification to send to the members of the team of the event
+     */
+    public static Optional<Notification> getNotification(Event previous, Event event) {
+        if (event.getState() == EventState.OPEN && (previous == null || previous.getState() != EventState.OPEN)) {
+            return Optional.of(Notification.OPENED);
+        }
+        if (previous != null && (event.getState() == EventState.OPEN || event.getState() == EventState.CLOSED) &&
+            (!Objects.equals(previous.getDate(), event.getDate()) ||
+                !Objects.equals(getLocationId(previous), getLocationId(event)))) {
+            return Optional.of(Notification.CHANGED);
+        }
+        return Optional.empty();
+    }
+
+    private static Long getLocationId(Event event) {
+        Location location = event.getLocation();
+        return location == null ? null : location.getId();
+    }
+
+    /**
+     * Notify the members of the team and the participants of an event.
+     * <p>
+     * The recipients are selected in a single query and streamed to the mail service, which renders
+     * the email once per language and writes the emails to the outbox in batches. The recipients in
+     * digest mode are filtered out of the stream, and their entries appended in batches.
+     *
+     * @param event the event, with its team and location
+     * @param notification the notification
+     * @return the number of recipients emailed
+     */
+    public int notifyTeam(Event event, Notification notification) {
+        Long teamId = event.getTeam() == null ? null : event.getTeam().getId();
+        log.debug("Request to notify the members of Team {} and the participants of Event {} : {}", teamId,
+            event.getId(), notification);
+        Map<String, Object> variables = new HashMap<>();
+        variables.put("event", event);
+        variables.put("opened", notification == Notification.OPENED);
+        try (Stream<MailRecipientDTO> recipients = userRepository.streamRecipientsByEventId(event.getId(), teamId);
+             DigestService.Writer digest = digestService.writer()) {
+            Stream<MailRecipientDTO> emailed = recipients.filter(recipient -> {
+                if (recipient.isDigest()) {
+                    digest.append(DigestService.eventEntry(recipient.getId(), notification.digestEntryType, event));
+                    return false;
+                }
+                return true;
+            });
+            return mailService.sendEmailsFromTemplate(emailed, "eventNotificationEmail", notification.titleKey,
+                new Object[]{event.getTitle()}, variables);
+        }
+    }
+
+    /**
+     * Notify a user promoted from the waitlist of an event.
+     *
+     * @param user the user
+     * @param event the event
+     */
+    public void notifyPromotion(User user, Event event) {
+        if (user.isDigest()) {
+            digestService.append(DigestService.eventEntry(user.getId(), DigestEntryType.WAITLIST_PROMOTED, event));
+        } else {
+            mailService.sendWaitlistPromotionEmail(user, event);
+        }
+    }
+}
@@ -1,14 +1,28 @@
 package org.pcastel.scm.service;
 
+import org.pcastel.scm.service.dto.EventCriteria;
 import org.pcastel.scm.service.dto.EventDTO;
+import org.pcastel.scm.service.dto.EventSeriesDTO;
+import org.pcastel.scm.service.dto.EventSeriesSummaryDTO;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+
+import java.time.LocalDate;
+import java.util.Optional;
 
 /**
  * Service Interface for managing Event.
  */
 public interface EventService {
 
+    /**
+     * Outcome of a request of the current user to participate in an event.
+     */
+    enum Participation {
+        JOINED, ALREADY_PARTICIPANT, WAITLISTED, EVENT_NOT_FOUND
+    }
+
     /**
      * Save a event.
      *
@@ -17,6 +31,23 @@ public interface EventService {
      */
     EventDTO save(EventDTO eventDTO);
 
+    /**
+     * Create the events of a series.
+     *
+     * @param eventSeriesDTO the template of the events and their recurrence rule
+     * @return the summary of the created events
+     */
+    EventSeriesSummaryDTO createSeries(EventSeriesDTO eventSeriesDTO);
+
+    /**
+     * Apply the changes of an event to the following events of its series, itself included.
+     * The dates and the participants of the events are left unchanged.
+     *
+     * @param eventDTO the changes of the event
+     * @return the number of updated events, if the event exists
+     */
+    Optional<Integer> updateFollowing(EventDTO eventDTO);
+
     /**
      *  Get all the events.
      *
@@ -25,6 +56,25 @@ public interface EventService {
      */
     Page<EventDTO> findAll(Pageable pageable);
 
+    /**
+     *  Get the events matching the criteria.
+     *
+     *  @param criteria the criteria the events must match
+     *  @param pageable the pagination information
+     *  @return the list of entities
+     */
+    Page<EventDTO> findAll(EventCriteria criteria, Pageable pageable);
+
+    /**
+     *  Get the events sorted after a given one, by date and id.
+     *
+     *  @param date the date of the event to start after, or null to start with the first event
+     *  @param id the id of the event to start after
+     *  @param size the number of events to get
+     *  @return the slice of entities
+     */
+    Slice<EventDTO> findAllAfter(LocalDate date, Long id, int size);
+
     /**
      *  Get the "id" event.
      *
@@ -33,6 +83,31 @@ public interface EventService {
      */
     EventDTO findOne(Long id);
 
+    /**
+     *  Add the current user to the participants of the "id" event, or to its waitlist if it is full.
+     *
+     *  @param id the id of the event
+     *  @return the outcome of the request
+     */
+    Participation join(Long id);
+
+    /**
+     *  Remove the current user from the participants or from the waitlist of the "id" event.
+     *  The place of a participant goes to the first user of the waitlist.
+     *
+     *  @param id the id of the event
+     *  @return true if the current user was a participant or was waiting
+     */
+    boolean leave(Long id);
+
+    /**
+     *  Get the position of the current user in the waitlist of the "id" event.
+     *
+     *  @param id the id of the event
+     *  @return the position, starting at 1, if the current user is waiting
+     */
+    Optional<Integer> getWaitlistPosition(Long id);
+
     /**
      *  Delete the "id" event.
      *
@@ -0,0 +1,336 @@
+package org.pcastel.scm.service;
+
+import org.pcastel.scm.config.ApplicationProperties;
+import org.pcastel.scm.domain.OutgoingMail;
+import org.pcastel.scm.domain.enumeration.OutgoingMailState;
+import org.pcastel.scm.repository.OutgoingMailRepository;
+
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.Timer;
+import io.github.jhipster.config.JHipsterProperties;
+import org.apache.commons.lang3.CharEncoding;
+import org.apache.commons.lang3.StringUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.mail.javamail.JavaMailSenderImpl;
+import org.springframework.mail.javamail.MimeMessageHelper;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.annotation.PreDestroy;
+import javax.mail.MessagingException;
+import javax.mail.SendFailedException;
+import javax.mail.Transport;
+import javax.mail.internet.AddressException;
+import javax.mail.internet.MimeMessage;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Dispatcher of the emails of the outbox.
+ * <p>
+ * Dedicated threads claim the due emails in batches, and send them over their own SMTP connection,
+ * which is kept open from one email and one batch to the next, until it is idle. The threads wake up
+ * when new emails are committed, or at the end of the poll interval. A failed email is retried with
+ * an exponential backoff, and given up as dead after the maximum number of attempts, or at once if
+ * its address is invalid.
+ * <p>
+ * Claiming an email postpones it for a lease, so that the dispatchers of all the nodes can share the
+ * outbox: an email whose dispatcher has stopped before its outcome was saved is sent again once the
+ * lease has ended.
+ */
+@Service
+public class MailOutboxDispatcher {
+
+    static final Duration LEASE = Duration.ofMinutes(5);
+
+    private final Logger log = LoggerFactory.getLogger(MailOutboxDispatcher.class);
+
+    private final OutgoingMailRepository outgoingMailRepository;
+
+    private final TransactionTemplate transactionTemplate;
+
+    private final JavaMailSenderImpl javaMailSender;
+
+    private final String from;
+
+    private final ApplicationProperties.Mail mail;
+
+    /**
+     * Monitor on which the dispatchers wait for new emails.
+     */
+    private final Object outboxChanged = new Object();
+
+    private final Meter sent;
+
+    private final Meter retried;
+
+    private final Meter dead;
+
+    private final Timer batches;
+
+    private final List<Thread> dispatcherThreads = new ArrayList<>();
+
+    private volatile boolean running;
+
+    public MailOutboxDispatcher(OutgoingMailRepository outgoingMailRepository, PlatformTransactionManager transactionManager,
+                                JavaMailSenderImpl javaMailSender, JHipsterProperties jHipsterProperties,
+                                ApplicationProperties applicationProperties, MetricRegistry metricRegistry) {
+        this.outgoingMailRepository = outgoingMailRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.javaMailSender = javaMailSender;
+        this.from = jHipsterProperties.getMail().getFrom();
+        this.mail = applicationProperties.getMail();
+        this.sent = metricRegistry.meter(MetricRegistry.name(MailOutboxDispatcher.class, "sent"));
+        this.retried = metricRegistry.meter(MetricRegistry.name(MailOutboxDispatcher.class, "retried"));
+        this.dead = metricRegistry.meter(MetricRegistry.name(MailOutboxDispatcher.class, "dead"));
+        this.batches = metricRegistry.timer(MetricRegistry.name(MailOutboxDispatcher.class, "batches"));
+    }
+
+    /**
+     * Start the dispatchers once the application is ready, so that they do not poll the outbox
+     * before the database migrations have created it. With the asynchronous migrations of the dev
+     * profile, the polls fail until they are done, and are retried after the poll interval.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        running = true;
+        for (int i = 1; i <= mail.getDispatchers(); i++) {
+            Thread thread = new Thread(this::run, "scm-Mail-Dispatcher-" + i);
+            thread.setDaemon(true);
+            thread.start();
+            dispatcherThreads.add(thread);
+        }
+    }
+
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        running = false;
+        wakeUp();
+        for (Thread thread : dispatcherThreads) {
+            thread.join(mail.getPollIntervalMillis());
+        }
+    }
+
+    /**
+     * Wake the dispatchers up, once new emails are committed.
+     */
+    public void wakeUp() {
+        synchronized (outboxChanged) {
+            outboxChanged.notifyAll();
+        }
+    }
+
+    /**
+     * Send a batch of the due emails, over a new SMTP connection.
+     *
+     * @return the number of emails claimed, sent or not
+     */
+    public int dispatch() {
+        try (SmtpConnection connection = new SmtpConnection()) {
+            return dispatch(connection);
+        }
+    }
+
+    private void run() {
+        try (SmtpConnection connection = new SmtpConnection()) {
+            while (running) {
+                boolean fullBatch = false;
+                try {
+                    fullBatch = dispatch(connection) == mail.getBatchSize();
+                } catch (RuntimeException e) {
+                    log.error("Could not dispatch the emails of the outbox", e);
+                }
+                if (!fullBatch) {
+                    connection.closeIfIdle();
+                    synchronized (outboxChanged) {
+                        if (running) {
+                            outboxChanged.wait(mail.getPollIntervalMillis());
+                        }
+                    }
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private int dispatch(SmtpConnection connection) {
+        Instant now = Instant.now();
+        List<OutgoingMail> claimed = transactionTemplate.execute(status -> claim(now));
+        if (claimed.isEmpty()) {
+            return 0;
+        }
+        try (Timer.Context ignored = batches.time()) {
+            MessagingException connectionFailure = null;
+            for (OutgoingMail outgoingMail : claimed) {
+                outgoingMail.setAttempts(outgoingMail.getAttempts() + 1);
+                if (connectionFailure == null) {
+                    try {
+                        connection.connect();
+                    } catch (MessagingException e) {
+                        log.warn("Could not connect to the mail server: {}", e.getMessage());
+                        connectionFailure = e;
+                    }
+                }
+                if (connectionFailure != null) {
+                    // The other emails of the batch are not sent either, but they are not invalid
+                    fail(outgoingMail, connectionFailure, false, now);
+                    continue;
+                }
+                try {
+                    connection.send(createMimeMessage(outgoingMail));
+                    outgoingMail.setState(OutgoingMailState.SENT);
+                    outgoingMail.setSentDate(Instant.now());
+                    outgoingMail.setLastError(null);
+                    sent.mark();
+                    log.debug("Sent email to '{}'", outgoingMail.getRecipient());
+                } catch (MessagingException e) {
+                    fail(outgoingMail, e, isInvalidAddress(e), now);
+                }
+            }
+        }
+        transactionTemplate.execute(status -> saveOutcomes(claimed));
+        return claimed.size();
+    }
+
+    private List<OutgoingMail> claim(Instant now) {
+        List<Long> claimedIds = outgoingMailRepository
+            .findDueIds(OutgoingMailState.PENDING, now, new PageRequest(0, mail.getBatchSize()))
+            .stream()
+            .filter(id -> outgoingMailRepository.claim(id, OutgoingMailState.PENDING, now, now.plus(LEASE)) == 1)
+            .collect(Collectors.toList());
+        return claimedIds.isEmpty() ? Collections.emptyList() : outgoingMailRepository.findAll(claimedIds);
+    }
+
+    /**
+     * The outcomes are copied to the emails loaded again in this transaction, so that their updates
+     * are sent in a JDBC batch.
+     */
+    private List<OutgoingMail> saveOutcomes(List<OutgoingMail> outcomes) {
+        Map<Long, OutgoingMail> outcomesById = outcomes.stream()
+            .collect(Collectors.toMap(OutgoingMail::getId, Function.identity()));
+        List<OutgoingMail> outgoingMails = outgoingMailRepository.findAll(outcomesById.keySet());
+        for (OutgoingMail outgoingMail : outgoingMails) {
+            OutgoingMail outcome = outcomesById.get(outgoingMail.getId());
+            outgoingMail.setState(outcome.getState());
+            outgoingMail.setAttempts(outcome.getAttempts());
+            outgoingMail.setNextAttemptDate(outcome.getNextAttemptDate());
+            outgoingMail.setSentDate(outcome.getSentDate());
+            outgoingMail.setLastError(outcome.getLastError());
+        }
+        return outgoingMails;
+    }
+
+    private void fail(OutgoingMail outgoingMail, MessagingException e, boolean invalidAddress, Instant now) {
+        outgoingMail.setLastError(StringUtils.abbreviate(e.toString(), 255));
+        if (invalidAddress || outgoingMail.getAttempts() >= mail.getMaxAttempts()) {
+            outgoingMail.setState(OutgoingMailState.DEAD);
+            dead.mark();
+            log.error("Email to '{}' given up after {} attempts: {}", outgoingMail.getRecipient(),
+                outgoingMail.getAttempts(), e.getMessage());
+        } else {
+            outgoingMail.setNextAttemptDate(now.plusSeconds(backoffSeconds(outgoingMail.getAttempts())));
+            retried.mark();
+            log.warn("Email to '{}' could not be sent, attempt {} will be at {}: {}", outgoingMail.getRecipient(),
+                outgoingMail.getAttempts() + 1, outgoingMail.getNextAttemptDate(), e.getMessage());
+        }
+    }
+
+    /**
+     * @return the delay after a number of failed attempts
+     */
+    long backoffSeconds(int attempts) {
+        long backoff = mail.getInitialBackoffSeconds() << Math.min(attempts - 1, 30);
+        return Math.min(backoff, mail.getMaxBackoffSeconds());
+    }
+
+    private static boolean isInvalidAddress(MessagingException e) {
+        if (e instanceof AddressException) {
+            return true;
+        }
+        if (e instanceof SendFailedException) {
+            SendFailedException sendFailure = (SendFailedException) e;
+            return sendFailure.getInvalidAddresses() != null && sendFailure.getInvalidAddresses().length > 0;
+        }
+        return false;
+    }
+
+    private MimeMessage createMimeMessage(OutgoingMail outgoingMail) throws MessagingException {
+        MimeMessage mimeMessage = javaMailSender.createMimeMessage();
+        MimeMessageHelper message = new MimeMessageHelper(mimeMessage, outgoingMail.isMultipart(), CharEncoding.UTF_8);
+        message.setTo(outgoingMail.getRecipient());
+        message.setFrom(from);
+        message.setSubject(outgoingMail.getSubject());
+        message.setText(outgoingMail.getContent(), outgoingMail.isHtml());
+        return mimeMessage;
+    }
+
+    /**
+     * An SMTP connection of a dispatcher, opened on the first email to send, and reused until it is
+     * idle or fails.
+     */
+    private final class SmtpConnection implements AutoCloseable {
+
+        private Transport transport;
+
+        private long lastUsedMillis;
+
+        void connect() throws MessagingException {
+            if (transport != null && transport.isConnected()) {
+                return;
+            }
+            close();
+            Transport newTransport = javaMailSender.getSession().getTransport(javaMailSender.getProtocol());
+            newTransport.connect(javaMailSender.getHost(), javaMailSender.getPort(),
+                javaMailSender.getUsername(), javaMailSender.getPassword());
+            transport = newTransport;
+            lastUsedMillis = System.currentTimeMillis();
+        }
+
+        void send(MimeMessage message) throws MessagingException {
+            message.setSentDate(new Date());
+            message.saveChanges();
+            try {
+                transport.sendMessage(message, message.getAllRecipients());
+                lastUsedMillis = System.currentTimeMillis();
+            } catch (MessagingException e) {
+                if (!(e instanceof SendFailedException)) {
+                    // The connection may be broken: the next email opens a new one
+                    close();
+                }
+                throw e;
+            }
+        }
+
+        void closeIfIdle() {
+            if (transport != null && System.currentTimeMillis() - lastUsedMillis >= mail.getConnectionIdleTimeoutMillis()) {
+                close();
+            }
+        }
+
+        @Override
+        public void close() {
+            if (transport != null) {
+                try {
+                    transport.close();
+                } catch (MessagingException e) {
+                    log.debug("Could not close the connection to the mail server: {}", e.getMessage());
+                }
+                transport = null;
+            }
+        }
+    }
+}
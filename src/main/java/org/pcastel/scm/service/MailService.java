@@ -1,79 +1,122 @@
 package org.pcastel.scm.service;
 
+import org.pcastel.scm.config.ApplicationProperties;
+import org.pcastel.scm.config.Constants;
+import org.pcastel.scm.domain.DigestEntry;
+import org.pcastel.scm.domain.Event;
+import org.pcastel.scm.domain.OutgoingMail;
 import org.pcastel.scm.domain.User;
+import org.pcastel.scm.domain.enumeration.OutgoingMailState;
+import org.pcastel.scm.repository.OutgoingMailRepository;
+import org.pcastel.scm.service.dto.MailRecipientDTO;
 
 import io.github.jhipster.config.JHipsterProperties;
 
-import org.apache.commons.lang3.CharEncoding;
+import org.apache.commons.lang3.StringUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.context.MessageSource;
-import org.springframework.mail.javamail.JavaMailSender;
-import org.springframework.mail.javamail.MimeMessageHelper;
-import org.springframework.scheduling.annotation.Async;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.web.util.HtmlUtils;
 import org.thymeleaf.context.Context;
 import org.thymeleaf.spring4.SpringTemplateEngine;
 
-import javax.mail.internet.MimeMessage;
+import javax.persistence.EntityManager;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
 import java.util.Locale;
+import java.util.Map;
+import java.util.stream.Stream;
 
 /**
  * Service for sending emails.
  * <p>
- * We use the @Async annotation to send emails asynchronously.
+ * The emails are written to the outbox, in the transaction of the caller, so that they are only sent
+ * if it commits. They are sent later by the {@link MailOutboxDispatcher}, woken up on commit.
  */
 @Service
+@Transactional
 public class MailService {
 
     private final Logger log = LoggerFactory.getLogger(MailService.class);
 
     private static final String USER = "user";
 
+    private static final String EVENT = "event";
+
     private static final String BASE_URL = "baseUrl";
 
-    private final JHipsterProperties jHipsterProperties;
+    private static final String ENTRIES = "entries";
+
+    private static final String RECIPIENT = "recipient";
 
-    private final JavaMailSender javaMailSender;
+    /**
+     * Login of the recipient in the templates rendered for many recipients, replaced in each email.
+     */
+    private static final String RECIPIENT_LOGIN = "%%recipient.login%%";
+
+    private final JHipsterProperties jHipsterProperties;
 
     private final MessageSource messageSource;
 
     private final SpringTemplateEngine templateEngine;
 
-    public MailService(JHipsterProperties jHipsterProperties, JavaMailSender javaMailSender,
-            MessageSource messageSource, SpringTemplateEngine templateEngine) {
+    private final OutgoingMailRepository outgoingMailRepository;
+
+    private final MailOutboxDispatcher mailOutboxDispatcher;
+
+    private final ApplicationProperties applicationProperties;
+
+    private final EntityManager entityManager;
+
+    public MailService(JHipsterProperties jHipsterProperties, MessageSource messageSource,
+            SpringTemplateEngine templateEngine, OutgoingMailRepository outgoingMailRepository,
+            MailOutboxDispatcher mailOutboxDispatcher, ApplicationProperties applicationProperties,
+            EntityManager entityManager) {
 
         this.jHipsterProperties = jHipsterProperties;
-        this.javaMailSender = javaMailSender;
         this.messageSource = messageSource;
         this.templateEngine = templateEngine;
+        this.outgoingMailRepository = outgoingMailRepository;
+        this.mailOutboxDispatcher = mailOutboxDispatcher;
+        this.applicationProperties = applicationProperties;
+        this.entityManager = entityManager;
     }
 
-    @Async
     public void sendEmail(String to, String subject, String content, boolean isMultipart, boolean isHtml) {
         log.debug("Send email[multipart '{}' and html '{}'] to '{}' with subject '{}' and content={}",
             isMultipart, isHtml, to, subject, content);
 
-        // Prepare message using a Spring helper
-        MimeMessage mimeMessage = javaMailSender.createMimeMessage();
-        try {
-            MimeMessageHelper message = new MimeMessageHelper(mimeMessage, isMultipart, CharEncoding.UTF_8);
-            message.setTo(to);
-            message.setFrom(jHipsterProperties.getMail().getFrom());
-            message.setSubject(subject);
-            message.setText(content, isHtml);
-            javaMailSender.send(mimeMessage);
-            log.debug("Sent email to User '{}'", to);
-        } catch (Exception e) {
-            if (log.isDebugEnabled()) {
-                log.warn("Email could not be sent to user '{}'", to, e);
-            } else {
-                log.warn("Email could not be sent to user '{}': {}", to, e.getMessage());
-            }
+        outgoingMailRepository.save(new OutgoingMail()
+            .recipient(to)
+            .subject(subject)
+            .content(content)
+            .multipart(isMultipart)
+            .html(isHtml));
+        wakeUpDispatcherAfterCommit();
+    }
+
+    private void wakeUpDispatcherAfterCommit() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+                @Override
+                public void afterCommit() {
+                    mailOutboxDispatcher.wakeUp();
+                }
+            });
+        } else {
+            mailOutboxDispatcher.wakeUp();
         }
     }
 
-    @Async
     public void sendEmailFromTemplate(User user, String templateName, String titleKey) {
         Locale locale = Locale.forLanguageTag(user.getLangKey());
         Context context = new Context(locale);
@@ -85,21 +128,129 @@ public class MailService {
 
     }
 
-    @Async
     public void sendActivationEmail(User user) {
         log.debug("Sending activation email to '{}'", user.getEmail());
         sendEmailFromTemplate(user, "activationEmail", "email.activation.title");
     }
 
-    @Async
     public void sendCreationEmail(User user) {
         log.debug("Sending creation email to '{}'", user.getEmail());
         sendEmailFromTemplate(user, "creationEmail", "email.activation.title");
     }
 
-    @Async
     public void sendPasswordResetMail(User user) {
         log.debug("Sending password reset email to '{}'", user.getEmail());
         sendEmailFromTemplate(user, "passwordResetEmail", "email.reset.title");
     }
+
+    public void sendWaitlistPromotionEmail(User user, Event event) {
+        log.debug("Sending waitlist promotion email to '{}' for Event {}", user.getEmail(), event.getId());
+        Locale locale = Locale.forLanguageTag(user.getLangKey());
+        Context context = new Context(locale);
+        context.setVariable(USER, user);
+        context.setVariable(EVENT, event);
+        context.setVariable(BASE_URL, jHipsterProperties.getMail().getBaseUrl());
+        String content = templateEngine.process("waitlistPromotionEmail", context);
+        String subject = messageSource.getMessage("email.waitlist.title", new Object[]{event.getTitle()}, locale);
+        sendEmail(user.getEmail(), subject, content, false, true);
+    }
+
+    public void sendDigestEmail(User user, List<DigestEntry> entries) {
+        log.debug("Sending digest email to '{}' with {} changes", user.getEmail(), entries.size());
+        Locale locale = Locale.forLanguageTag(user.getLangKey());
+        Context context = new Context(locale);
+        context.setVariable(USER, user);
+        context.setVariable(ENTRIES, entries);
+        context.setVariable(BASE_URL, jHipsterProperties.getMail().getBaseUrl());
+        String content = templateEngine.process("digestEmail", context);
+        String subject = messageSource.getMessage("email.digest.title", new Object[]{entries.size()}, locale);
+        sendEmail(user.getEmail(), subject, content, false, true);
+    }
+
+    /**
+     * Send an email from a template to many recipients.
+     * <p>
+     * The template is rendered once per language, with a placeholder for the login of the recipient,
+     * which is replaced in the content of each email. The emails are written to the outbox in batches,
+     * and detached once flushed, so that the memory used does not grow with the number of recipients.
+     *
+     * @param recipients the recipients, consumed once
+     * @param templateName the name of the template, which gets the login as {@code recipient.login}
+     * @param titleKey the key of the subject
+     * @param titleArgs the arguments of the subject
+     * @param variables the other variables of the template
+     * @return the number of emails sent
+     */
+    public int sendEmailsFromTemplate(Stream<MailRecipientDTO> recipients, String templateName, String titleKey,
+                                      Object[] titleArgs, Map<String, Object> variables) {
+        int writeBatchSize = applicationProperties.getMail().getWriteBatchSize();
+        Map<String, RenderedEmail> renderedEmails = new HashMap<>();
+        List<OutgoingMail> batch = new ArrayList<>(writeBatchSize);
+        int count = 0;
+        for (Iterator<MailRecipientDTO> it = recipients.iterator(); it.hasNext(); count++) {
+            MailRecipientDTO recipient = it.next();
+            String langKey = recipient.getLangKey() == null ? Constants.DEFAULT_LANGUAGE : recipient.getLangKey();
+            RenderedEmail email = renderedEmails.computeIfAbsent(langKey,
+                key -> renderEmail(Locale.forLanguageTag(key), templateName, titleKey, titleArgs, variables));
+            batch.add(new OutgoingMail()
+                .recipient(recipient.getEmail())
+                .subject(email.subject)
+                .content(StringUtils.replace(email.content, RECIPIENT_LOGIN, HtmlUtils.htmlEscape(recipient.getLogin())))
+                .multipart(false)
+                .html(true));
+            if (batch.size() == writeBatchSize) {
+                writeBatch(batch);
+            }
+        }
+        writeBatch(batch);
+        if (count > 0) {
+            wakeUpDispatcherAfterCommit();
+        }
+        log.debug("Sent {} emails from template '{}' in {} languages", count, templateName, renderedEmails.size());
+        return count;
+    }
+
+    private RenderedEmail renderEmail(Locale locale, String templateName, String titleKey, Object[] titleArgs,
+                                      Map<String, Object> variables) {
+        Context context = new Context(locale);
+        context.setVariables(variables);
+        context.setVariable(RECIPIENT, new MailRecipientDTO(null, RECIPIENT_LOGIN, null, locale.toLanguageTag(), false));
+        context.setVariable(BASE_URL, jHipsterProperties.getMail().getBaseUrl());
+        return new RenderedEmail(messageSource.getMessage(titleKey, titleArgs, locale),
+            templateEngine.process(templateName, context));
+    }
+
+    private void writeBatch(List<OutgoingMail> batch) {
+        if (batch.isEmpty()) {
+            return;
+        }
+        outgoingMailRepository.save(batch);
+        entityManager.flush();
+        batch.forEach(entityManager::detach);
+        batch.clear();
+    }
+
+    /**
+     * Sent emails should be removed from the outbox after their retention period.
+     * <p>
+     * This is scheduled to get fired every hour, at 15 minutes past the hour.
+     */
+    @Scheduled(cron = "0 15 * * * ?")
+    public void removeSentMails() {
+        Instant before = Instant.now().minus(applicationProperties.getMail().getSentRetentionDays(), ChronoUnit.DAYS);
+        int removed = outgoingMailRepository.deleteByStateAndSentDateBefore(OutgoingMailState.SENT, before);
+        log.debug("Removed {} sent emails from the outbox", removed);
+    }
+
+    private static final class RenderedEmail {
+
+        private final String subject;
+
+        private final String content;
+
+        private RenderedEmail(String subject, String content) {
+            this.subject = subject;
+            this.content = content;
+        }
+    }
 }
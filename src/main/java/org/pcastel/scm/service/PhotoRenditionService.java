@@ -0,0 +1,233 @@
+package org.pcastel.scm.service;
+
+import org.pcastel.scm.config.ApplicationProperties;
+import org.pcastel.scm.repository.MemberRepository;
+
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Service;
+
+import javax.imageio.ImageIO;
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static com.codahale.metrics.MetricRegistry.name;
+
+/**
+ * Service creating the resized renditions of member photos.
+ * <p>
+ * Renditions are square JPEG crops of the original photo, one per configured size. They are
+ * created once, in the background, when a photo is uploaded, and then served from disk like the
+ * original photo. Photos stored before the renditions existed, or whose renditions could not be
+ * queued, are picked up by a nightly backfill.
+ */
+@Service
+public class PhotoRenditionService {
+
+    private final Logger log = LoggerFactory.getLogger(PhotoRenditionService.class);
+
+    private static final String RENDITION_FORMAT = "jpg";
+
+    public static final String RENDITION_CONTENT_TYPE = "image/jpeg";
+
+    private static final int BACKFILL_PAGE_SIZE = 100;
+
+    private final PhotoStorageService photoStorageService;
+
+    private final MemberRepository memberRepository;
+
+    private final ThreadPoolTaskExecutor photoTaskExecutor;
+
+    private final List<Integer> sizes;
+
+    private final Map<Integer, Timer> renderTimers = new HashMap<>();
+
+    private final Timer queueWaitTimer;
+
+    private final Meter rejectedMeter;
+
+    private final AtomicBoolean backfilling = new AtomicBoolean();
+
+    public PhotoRenditionService(ApplicationProperties applicationProperties, PhotoStorageService photoStorageService,
+                                 MemberRepository memberRepository,
+                                 @Qualifier("photoTaskExecutor") ThreadPoolTaskExecutor photoTaskExecutor,
+                                 MetricRegistry metricRegistry) {
+        this.photoStorageService = photoStorageService;
+        this.memberRepository = memberRepository;
+        this.photoTaskExecutor = photoTaskExecutor;
+        // Largest first: each rendition is scaled down from the previous one
+        List<Integer> sortedSizes = new ArrayList<>(new TreeSet<>(applicationProperties.getPhoto().getRenditionSizes()));
+        Collections.reverse(sortedSizes);
+        this.sizes = Collections.unmodifiableList(sortedSizes);
+        for (Integer size : sizes) {
+            renderTimers.put(size, metricRegistry.timer(name(PhotoRenditionService.class, "render", size + "px")));
+        }
+        this.queueWaitTimer = metricRegistry.timer(name(PhotoRenditionService.class, "queue", "wait"));
+        this.rejectedMeter = metricRegistry.meter(name(PhotoRenditionService.class, "queue", "rejected"));
+        metricRegistry.register(name(PhotoRenditionService.class, "queue", "size"),
+            (Gauge<Integer>) () -> photoTaskExecutor.getThreadPoolExecutor().getQueue().size());
+        metricRegistry.register(name(PhotoRenditionService.class, "queue", "active"),
+            (Gauge<Integer>) photoTaskExecutor::getActiveCount);
+    }
+
+    /**
+     * @param size a rendition size, in pixels
+     * @return true if renditions of that size are created
+     */
+    public boolean isRenditionSize(int size) {
+        return sizes.contains(size);
+    }
+
+    /**
+     * Get the file holding a rendition of a photo.
+     *
+     * @param hash the hash of the original photo
+     * @param size the size of the rendition, in pixels
+     * @return the rendition file, if it has been created
+     */
+    public Optional<Path> findRendition(String hash, int size) {
+        return photoStorageService.findRendition(hash, size);
+    }
+
+    /**
+     * Queue the creation of the renditions of a photo.
+     * <p>
+     * When the queue is full the request is dropped: the original photo is served until the
+     * renditions are created by the next backfill.
+     *
+     * @param hash the hash of the original photo
+     */
+    public void scheduleRenditions(String hash) {
+        if (hash == null) {
+            return;
+        }
+        long queuedAt = System.nanoTime();
+        try {
+            photoTaskExecutor.execute(() -> {
+                queueWaitTimer.update(System.nanoTime() - queuedAt, TimeUnit.NANOSECONDS);
+                createMissingRenditions(hash);
+            });
+        } catch (TaskRejectedException e) {
+            rejectedMeter.mark();
+            log.warn("Photo rendition queue is full, renditions of {} are left to the backfill", hash);
+        }
+    }
+
+    /**
+     * Queue the creation of the missing renditions of all stored photos.
+     * <p>
+     * This is scheduled to get fired everyday, at 02:00 (am). The backfill runs as a single task of
+     * the rendition executor, one photo at a time, so that it neither holds the scheduler thread
+     * nor takes more than one of the rendition threads from the uploads.
+     */
+    @Scheduled(cron = "0 0 2 * * ?")
+    public void backfillRenditions() {
+        if (!backfilling.compareAndSet(false, true)) {
+            log.warn("Previous rendition backfill still running, skipping this one");
+            return;
+        }
+        try {
+            photoTaskExecutor.execute(() -> {
+                try {
+                    createAllMissingRenditions();
+                } finally {
+                    backfilling.set(false);
+                }
+            });
+        } catch (TaskRejectedException e) {
+            backfilling.set(false);
+            rejectedMeter.mark();
+            log.warn("Photo rendition queue is full, the backfill is left to the next night");
+        }
+    }
+
+    private void createAllMissingRenditions() {
+        String lastHash = "";
+        int photos = 0;
+        List<String> hashes;
+        do {
+            hashes = memberRepository.findPhotoHashesAfter(lastHash, new PageRequest(0, BACKFILL_PAGE_SIZE));
+            for (String hash : hashes) {
+                createMissingRenditions(hash);
+                lastHash = hash;
+            }
+            photos += hashes.size();
+        } while (hashes.size() == BACKFILL_PAGE_SIZE);
+        log.debug("Checked the renditions of {} photos", photos);
+    }
+
+    void createMissingRenditions(String hash) {
+        if (sizes.stream().allMatch(size -> photoStorageService.findRendition(hash, size).isPresent())) {
+            return;
+        }
+        Optional<Path> original = photoStorageService.find(hash);
+        if (!original.isPresent()) {
+            log.warn("Photo {} not found, no rendition created", hash);
+            return;
+        }
+        try {
+            BufferedImage image = ImageIO.read(original.get().toFile());
+            if (image == null) {
+                log.warn("Photo {} is not a supported image, no rendition created", hash);
+                return;
+            }
+            image = cropToSquare(image);
+            for (Integer size : sizes) {
+                try (Timer.Context ignored = renderTimers.get(size).time()) {
+                    image = resize(image, size);
+                    if (!photoStorageService.findRendition(hash, size).isPresent()) {
+                        photoStorageService.storeRendition(hash, size, encode(image));
+                    }
+                }
+            }
+            log.debug("Created renditions of photo {}", hash);
+        } catch (IOException | UncheckedIOException e) {
+            log.error("Error creating the renditions of photo {}", hash, e);
+        }
+    }
+
+    private static BufferedImage cropToSquare(BufferedImage image) {
+        int height = image.getHeight();
+        int width = image.getWidth();
+        int maxSize = Math.min(height, width);
+        return image.getSubimage((width - maxSize) / 2, (height - maxSize) / 2, maxSize, maxSize);
+    }
+
+    private static BufferedImage resize(BufferedImage image, int size) {
+        // JPEG has no alpha channel: transparent pixels are drawn on white
+        BufferedImage resizedImage = new BufferedImage(size, size, BufferedImage.TYPE_INT_RGB);
+        Graphics2D graphics = resizedImage.createGraphics();
+        try {
+            graphics.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+            graphics.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+            graphics.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+            graphics.drawImage(image, 0, 0, size, size, Color.WHITE, null);
+        } finally {
+            graphics.dispose();
+        }
+        return resizedImage;
+    }
+
+    private static byte[] encode(BufferedImage image) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ImageIO.write(image, RENDITION_FORMAT, out);
+        return out.toByteArray();
+    }
+}
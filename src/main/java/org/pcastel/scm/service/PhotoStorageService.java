@@ -0,0 +1,167 @@
+package org.pcastel.scm.service;
+
+import org.pcastel.scm.config.ApplicationProperties;
+import org.pcastel.scm.repository.MemberRepository;
+import org.pcastel.scm.service.util.ContentAddressedStore;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Optional;
+
+/**
+ * Service for storing member photos outside of the database.
+ * <p>
+ * Photos are kept on the local disk, keyed by the hash of their content; the member row only
+ * references that hash. Resized renditions of a photo are stored next to it, under
+ * "renditions/&lt;size&gt;", keyed by the hash of the original photo.
+ */
+@Service
+public class PhotoStorageService {
+
+    private final Logger log = LoggerFactory.getLogger(PhotoStorageService.class);
+
+    private static final String RENDITIONS_DIRECTORY = "renditions";
+
+    private final ContentAddressedStore store;
+
+    private final Path renditionsRoot;
+
+    private final MemberRepository memberRepository;
+
+    public PhotoStorageService(ApplicationProperties applicationProperties, MemberRepository memberRepository) {
+        this.store = new ContentAddressedStore(Paths.get(applicationProperties.getPhoto().getStorageDirectory()));
+        this.renditionsRoot = store.getRoot().resolve(RENDITIONS_DIRECTORY);
+        this.memberRepository = memberRepository;
+        log.debug("Storing member photos in {}", store.getRoot().toAbsolutePath());
+    }
+
+    /**
+     * Store a photo.
+     *
+     * @param photo the photo content
+     * @return the hash of the stored photo, or null if there is no photo
+     */
+    public String store(byte[] photo) {
+        if (photo == null || photo.length == 0) {
+            return null;
+        }
+        try {
+            String hash = store.put(photo);
+            log.debug("Stored photo {} ({} bytes)", hash, photo.length);
+            return hash;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Photo could not be stored", e);
+        }
+    }
+
+    /**
+     * Get the file holding a photo.
+     *
+     * @param hash the hash of the photo
+     * @return the photo file, if it exists
+     */
+    public Optional<Path> find(String hash) {
+        if (hash == null) {
+            return Optional.empty();
+        }
+        try {
+            return store.exists(hash) ? Optional.of(store.resolve(hash)) : Optional.empty();
+        } catch (IllegalArgumentException e) {
+            log.warn("Ignoring invalid photo hash {}", hash);
+            return Optional.empty();
+        }
+    }
+
+    /**
+     * Store a resized rendition of a photo.
+     *
+     * @param hash the hash of the original photo
+     * @param size the size of the rendition, in pixels
+     * @param content the rendition content
+     */
+    public void storeRendition(String hash, int size, byte[] content) {
+        try {
+            renditionStore(size).write(hash, content);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Photo rendition could not be stored", e);
+        }
+    }
+
+    /**
+     * Get the file holding a resized rendition of a photo.
+     *
+     * @param hash the hash of the original photo
+     * @param size the size of the rendition, in pixels
+     * @return the rendition file, if it has been created
+     */
+    public Optional<Path> findRendition(String hash, int size) {
+        if (hash == null) {
+            return Optional.empty();
+        }
+        try {
+            ContentAddressedStore renditionStore = renditionStore(size);
+            return renditionStore.exists(hash) ? Optional.of(renditionStore.resolve(hash)) : Optional.empty();
+        } catch (IllegalArgumentException e) {
+            log.warn("Ignoring invalid photo hash {}", hash);
+            return Optional.empty();
+        }
+    }
+
+    private ContentAddressedStore renditionStore(int size) {
+        return new ContentAddressedStore(renditionsRoot.resolve(Integer.toString(size)));
+    }
+
+    /**
+     * Delete a photo which is no longer referenced by any member.
+     * <p>
+     * The same photo may be shared by several members, so it is only removed once the last reference is gone.
+     * Within a transaction, the photo is only deleted after the commit, so that a rollback does not leave
+     * the members referencing a missing photo.
+     *
+     * @param hash the hash of the photo
+     */
+    public void deleteIfUnused(String hash) {
+        if (hash == null) {
+            return;
+        }
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+                @Override
+                public void afterCommit() {
+                    delete(hash);
+                }
+            });
+        } else {
+            delete(hash);
+        }
+    }
+
+    private void delete(String hash) {
+        if (memberRepository.countByPhotoHash(hash) > 0) {
+            return;
+        }
+        try {
+            store.delete(hash);
+            if (Files.isDirectory(renditionsRoot)) {
+                try (DirectoryStream<Path> sizes = Files.newDirectoryStream(renditionsRoot)) {
+                    for (Path size : sizes) {
+                        new ContentAddressedStore(size).delete(hash);
+                    }
+                }
+            }
+            log.debug("Deleted unused photo {}", hash);
+        } catch (IOException | IllegalArgumentException e) {
+            log.warn("Photo {} could not be deleted: {}", hash, e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,216 @@
+package org.pcastel.scm.service;
+
+import org.pcastel.scm.config.ApplicationProperties;
+import org.pcastel.scm.domain.RefreshToken;
+import org.pcastel.scm.repository.RefreshTokenRepository;
+import org.pcastel.scm.security.jwt.TokenRevocations;
+import org.pcastel.scm.service.util.RandomUtil;
+
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.RatioGauge;
+import io.github.jhipster.config.JHipsterProperties;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.AuthenticationException;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.security.core.userdetails.UserDetailsService;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Instant;
+import java.util.Optional;
+
+/**
+ * Service for the refresh tokens, which give new access tokens to the users without checking their
+ * password again.
+ * <p>
+ * Each refresh token can be used once, and is then replaced by a new one. The requests sent
+ * concurrently with the same token can still use it for a short interval after its rotation; a
+ * later reuse of a replaced token means that it was stolen: all the tokens of its user are then
+ * revoked. The rates of the
+ * password logins and of the refreshes are available in the metrics, with the ratio of refreshes.
+ */
+@Service
+@Transactional
+public class RefreshTokenService {
+
+    private final Logger log = LoggerFactory.getLogger(RefreshTokenService.class);
+
+    private final RefreshTokenRepository refreshTokenRepository;
+
+    private final UserDetailsService userDetailsService;
+
+    private final TokenRevocations tokenRevocations;
+
+    private final TokenRevocationService tokenRevocationService;
+
+    private final long validityInSeconds;
+
+    private final long validityInSecondsForRememberMe;
+
+    private final long reuseIntervalInSeconds;
+
+    private final Meter passwordLogins;
+
+    private final Meter refreshes;
+
+    public RefreshTokenService(RefreshTokenRepository refreshTokenRepository, UserDetailsService userDetailsService,
+                               TokenRevocations tokenRevocations, TokenRevocationService tokenRevocationService,
+                               JHipsterProperties jHipsterProperties, ApplicationProperties applicationProperties,
+                               MetricRegistry metricRegistry) {
+        this.refreshTokenRepository = refreshTokenRepository;
+        this.userDetailsService = userDetailsService;
+        this.tokenRevocations = tokenRevocations;
+        this.tokenRevocationService = tokenRevocationService;
+        this.validityInSeconds = applicationProperties.getSecurity().getRefreshTokenValidityInSeconds();
+        this.validityInSecondsForRememberMe =
+            jHipsterProperties.getSecurity().getAuthentication().getJwt().getTokenValidityInSecondsForRememberMe();
+        this.reuseIntervalInSeconds = applicationProperties.getSecurity().getRefreshTokenReuseIntervalInSeconds();
+        this.passwordLogins = metricRegistry.meter(MetricRegistry.name(RefreshTokenService.class, "password-logins"));
+        this.refreshes = metricRegistry.meter(MetricRegistry.name(RefreshTokenService.class, "refreshes"));
+        metricRegistry.register(MetricRegistry.name(RefreshTokenService.class, "refresh-ratio"), new RatioGauge() {
+            @Override
+            protected Ratio getRatio() {
+                return Ratio.of(refreshes.getFifteenMinuteRate(),
+                    refreshes.getFifteenMinuteRate() + passwordLogins.getFifteenMinuteRate());
+            }
+        });
+    }
+
+    /**
+     * Create a refresh token for a user who has just logged in with their password.
+     *
+     * @param login the login of the user
+     * @param rememberMe whether the session of the user should last longer
+     * @return the refresh token
+     */
+    public String createRefreshToken(String login, boolean rememberMe) {
+        passwordLogins.mark();
+        return saveRefreshToken(login, rememberMe);
+    }
+
+    /**
+     * Use a refresh token, and replace it by a new one.
+     *
+     * @param refreshToken the refresh token
+     * @return the authentication of the user of the token, with the new refresh token, or empty if
+     * the token is not valid
+     */
+    public Optional<RefreshedAuthentication> refresh(String refreshToken) {
+        Optional<RefreshToken> existingToken = refreshTokenRepository.findOneByTokenHash(hash(refreshToken));
+        if (!existingToken.isPresent()) {
+            log.info("Unknown refresh token.");
+            return Optional.empty();
+        }
+        RefreshToken token = existingToken.get();
+        Instant now = Instant.now();
+        if (token.getRotatedDate() != null && token.getRotatedDate().plusSeconds(reuseIntervalInSeconds).isBefore(now)) {
+            log.warn("Reuse of a replaced refresh token of {}, revoking all the tokens of the user", token.getLogin());
+            refreshTokenRepository.deleteByLogin(token.getLogin());
+            tokenRevocationService.revokeUserTokens(token.getLogin());
+            return Optional.empty();
+        }
+        if (!token.getExpirationDate().isAfter(now)) {
+            log.info("Expired refresh token.");
+            return Optional.empty();
+        }
+        if (tokenRevocations.isRevoked(token.getLogin(), null, token.getCreatedDate().toEpochMilli())) {
+            log.info("Revoked refresh token.");
+            return Optional.empty();
+        }
+        UserDetails user;
+        try {
+            user = userDetailsService.loadUserByUsername(token.getLogin());
+        } catch (AuthenticationException e) {
+            log.info("Refresh token of an unknown or deactivated user: {}", e.getMessage());
+            return Optional.empty();
+        }
+        if (refreshTokenRepository.rotate(token.getId(), now) == 0) {
+            log.debug("Refresh token of {} used concurrently, within its reuse interval", token.getLogin());
+        }
+        refreshes.mark();
+        Authentication authentication = new UsernamePasswordAuthenticationToken(user, null, user.getAuthorities());
+        return Optional.of(new RefreshedAuthentication(authentication, saveRefreshToken(token.getLogin(), token.isRememberMe())));
+    }
+
+    /**
+     * Delete a refresh token, when its user logs out.
+     *
+     * @param refreshToken the refresh token
+     */
+    public void deleteRefreshToken(String refreshToken) {
+        refreshTokenRepository.deleteByTokenHash(hash(refreshToken));
+    }
+
+    /**
+     * Refresh tokens should be removed once expired.
+     * <p>
+     * This is scheduled to get fired every hour.
+     */
+    @Scheduled(cron = "0 30 * * * ?")
+    public void removeExpiredRefreshTokens() {
+        int removed = refreshTokenRepository.deleteByExpirationDateNotAfter(Instant.now());
+        log.debug("Removed {} expired refresh tokens", removed);
+    }
+
+    private String saveRefreshToken(String login, boolean rememberMe) {
+        String refreshToken = RandomUtil.generateRefreshToken();
+        RefreshToken token = new RefreshToken()
+            .tokenHash(hash(refreshToken))
+            .login(login)
+            .rememberMe(rememberMe);
+        token.setExpirationDate(token.getCreatedDate()
+            .plusSeconds(rememberMe ? validityInSecondsForRememberMe : validityInSeconds));
+        refreshTokenRepository.save(token);
+        return refreshToken;
+    }
+
+    /**
+     * @return the hexadecimal SHA-256 hash of the token
+     */
+    private static String hash(String refreshToken) {
+        try {
+            byte[] hash = MessageDigest.getInstance("SHA-256").digest(refreshToken.getBytes(StandardCharsets.UTF_8));
+            StringBuilder hex = new StringBuilder(2 * hash.length);
+            for (byte b : hash) {
+                hex.append(Character.forDigit((b >> 4) & 0xf, 16)).append(Character.forDigit(b & 0xf, 16));
+            }
+            return hex.toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * An authentication given by a refresh token.
+     */
+    public static class RefreshedAuthentication {
+
+        private final Authentication authentication;
+
+        private final String refreshToken;
+
+        RefreshedAuthentication(Authentication authentication, String refreshToken) {
+            this.authentication = authentication;
+            this.refreshToken = refreshToken;
+        }
+
+        public Authentication getAuthentication() {
+            return authentication;
+        }
+
+        /**
+         * @return the refresh token replacing the one used
+         */
+        public String getRefreshToken() {
+            return refreshToken;
+        }
+    }
+}
@@ -3,6 +3,7 @@ package org.pcastel.scm.service;
 import org.pcastel.scm.service.dto.TeamDTO;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 
 /**
  * Service Interface for managing Team.
@@ -25,6 +26,16 @@ public interface TeamService {
      */
     Page<TeamDTO> findAll(Pageable pageable);
 
+    /**
+     *  Get the teams sorted after a given one, by name and id.
+     *
+     *  @param name the name of the team to start after, or null to start with the first team
+     *  @param id the id of the team to start after
+     *  @param size the number of teams to get
+     *  @return the slice of entities
+     */
+    Slice<TeamDTO> findAllAfter(String name, Long id, int size);
+
     /**
      *  Get the "id" team.
      *
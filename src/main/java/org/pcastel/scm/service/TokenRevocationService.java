@@ -0,0 +1,164 @@
+package org.pcastel.scm.service;
+
+import org.pcastel.scm.domain.TokenRevocation;
+import org.pcastel.scm.repository.TokenRevocationRepository;
+import org.pcastel.scm.security.jwt.TokenRevocations;
+
+import com.hazelcast.core.HazelcastInstance;
+import com.hazelcast.core.HazelcastInstanceNotActiveException;
+import com.hazelcast.core.ITopic;
+import io.github.jhipster.config.JHipsterProperties;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataAccessException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Instant;
+
+/**
+ * Service for revoking the tokens of the users before their expiration.
+ * <p>
+ * The revocations are saved in the database, loaded once the application is ready, and applied to the in-memory
+ * {@link TokenRevocations} checked on each request. In a cluster, they are also sent to the other
+ * nodes, which apply them at once.
+ */
+@Service
+@Transactional
+public class TokenRevocationService {
+
+    static final String TOPIC = "scm-token-revocation";
+
+    private final Logger log = LoggerFactory.getLogger(TokenRevocationService.class);
+
+    private final TokenRevocationRepository tokenRevocationRepository;
+
+    private final TokenRevocations tokenRevocations;
+
+    private final long maxTokenValidityInSeconds;
+
+    private ITopic<TokenRevocation> topic;
+
+    public TokenRevocationService(TokenRevocationRepository tokenRevocationRepository, TokenRevocations tokenRevocations,
+                                  JHipsterProperties jHipsterProperties) {
+        this.tokenRevocationRepository = tokenRevocationRepository;
+        this.tokenRevocations = tokenRevocations;
+        JHipsterProperties.Security.Authentication.Jwt jwt = jHipsterProperties.getSecurity().getAuthentication().getJwt();
+        this.maxTokenValidityInSeconds = Math.max(jwt.getTokenValidityInSeconds(), jwt.getTokenValidityInSecondsForRememberMe());
+    }
+
+    @Autowired(required = false)
+    public void setHazelcastInstance(HazelcastInstance hazelcastInstance) {
+        this.topic = hazelcastInstance.getTopic(TOPIC);
+        topic.addMessageListener(message -> {
+            if (!message.getPublishingMember().localMember()) {
+                apply(message.getMessageObject());
+            }
+        });
+    }
+
+    /**
+     * Load the revocations in force once the application is ready, rather than when this bean is
+     * created, before the database migrations may have run. With the asynchronous migrations of the
+     * dev profile, the table may still be missing: the revocations are then loaded by the hourly
+     * {@link #removeExpiredRevocations()}.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void loadRevocations() {
+        try {
+            tokenRevocationRepository.findAllByExpirationDateAfter(Instant.now()).forEach(this::apply);
+        } catch (DataAccessException e) {
+            log.warn("Could not load the token revocations, they will be loaded by the next hourly reload: {}",
+                e.getMessage());
+        }
+    }
+
+    /**
+     * Revoke all the tokens of a user issued until now.
+     * <p>
+     * The tokens issued in the current millisecond are also revoked.
+     *
+     * @param login the login of the user
+     */
+    public void revokeUserTokens(String login) {
+        Instant now = Instant.now();
+        revoke(new TokenRevocation()
+            .login(login)
+            .revokedDate(now)
+            .expirationDate(now.plusSeconds(maxTokenValidityInSeconds)));
+    }
+
+    /**
+     * @param login the login of the user of the token
+     * @param tokenId the id of the token
+     * @param expirationDate the expiration of the token
+     */
+    public void revokeToken(String login, String tokenId, Instant expirationDate) {
+        revoke(new TokenRevocation()
+            .login(login)
+            .tokenId(tokenId)
+            .revokedDate(Instant.now())
+            .expirationDate(expirationDate));
+    }
+
+    /**
+     * Revocations should be removed once all the tokens they revoke have expired.
+     * <p>
+     * This is scheduled to get fired every hour. The revocations in force are applied again, in case
+     * some were not received from the other nodes.
+     */
+    @Scheduled(cron = "0 0 * * * ?")
+    public void removeExpiredRevocations() {
+        Instant now = Instant.now();
+        tokenRevocations.purge(now.toEpochMilli());
+        int removed = tokenRevocationRepository.deleteByExpirationDateNotAfter(now);
+        log.debug("Removed {} expired token revocations", removed);
+        tokenRevocationRepository.findAllByExpirationDateAfter(now).forEach(this::apply);
+    }
+
+    /**
+     * The revocation is applied, and sent to the other nodes, once it is committed: a revocation rolled back
+     * is not kept in memory without its row.
+     */
+    private void revoke(TokenRevocation tokenRevocation) {
+        tokenRevocationRepository.save(tokenRevocation);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+                @Override
+                public void afterCommit() {
+                    applyAndPublish(tokenRevocation);
+                }
+            });
+        } else {
+            applyAndPublish(tokenRevocation);
+        }
+    }
+
+    private void applyAndPublish(TokenRevocation tokenRevocation) {
+        apply(tokenRevocation);
+        if (topic != null) {
+            try {
+                topic.publish(tokenRevocation);
+            } catch (HazelcastInstanceNotActiveException e) {
+                log.warn("Not publishing {}: the node is leaving the cluster", tokenRevocation);
+            }
+        }
+        log.debug("Revoked tokens: {}", tokenRevocation);
+    }
+
+    private void apply(TokenRevocation tokenRevocation) {
+        long expiration = tokenRevocation.getExpirationDate().toEpochMilli();
+        if (tokenRevocation.getTokenId() == null) {
+            tokenRevocations.revokeTokensIssuedUntil(tokenRevocation.getLogin(),
+                tokenRevocation.getRevokedDate().toEpochMilli(), expiration);
+        } else {
+            tokenRevocations.revokeToken(tokenRevocation.getTokenId(), expiration);
+        }
+    }
+}
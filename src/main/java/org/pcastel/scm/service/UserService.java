@@ -5,42 +5,39 @@ import org.pcastel.scm.domain.Authority;
 import org.pcastel.scm.domain.Member;
 import org.pcastel.scm.domain.User;
 import org.pcastel.scm.repository.AuthorityRepository;
+import org.pcastel.scm.repository.DigestEntryRepository;
 import org.pcastel.scm.repository.MemberRepository;
 import org.pcastel.scm.repository.UserRepository;
+import org.pcastel.scm.repository.WaitlistEntryRepository;
 import org.pcastel.scm.security.AuthoritiesConstants;
 import org.pcastel.scm.security.SecurityUtils;
 import org.pcastel.scm.service.dto.UserDTO;
 import org.pcastel.scm.service.mapper.MemberMapper;
 import org.pcastel.scm.service.util.RandomUtil;
+import org.pcastel.scm.service.util.SliceUtil;
 import org.pcastel.scm.web.rest.vm.ManagedUserVM;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.cache.CacheManager;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
-import javax.imageio.ImageIO;
-import java.awt.*;
-import java.awt.image.BufferedImage;
-import java.io.ByteArrayInputStream;
-import java.io.ByteArrayOutputStream;
-import java.io.IOException;
-import java.io.InputStream;
 import java.time.Instant;
 import java.time.temporal.ChronoUnit;
+import java.util.Collections;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
 import java.util.function.Function;
 import java.util.stream.Collectors;
 
-import static java.lang.StrictMath.min;
-
 /**
  * Service class for managing users.
  */
@@ -48,7 +45,6 @@ import static java.lang.StrictMath.min;
 @Transactional
 public class UserService {
 
-    private static final int IMG_DIMENSION = 300;
     private final Logger log = LoggerFactory.getLogger(UserService.class);
 
     private final UserRepository userRepository;
@@ -63,14 +59,35 @@ public class UserService {
 
     private final CacheManager cacheManager;
 
+    private final PhotoStorageService photoStorageService;
+
+    private final PhotoRenditionService photoRenditionService;
+
+    private final TokenRevocationService tokenRevocationService;
+
+    private final DigestEntryRepository digestEntryRepository;
+
+    private final WaitlistEntryRepository waitlistEntryRepository;
+
+    private final WaitlistPositionIndex waitlistPositionIndex;
+
     public UserService(UserRepository userRepository, PasswordEncoder passwordEncoder, AuthorityRepository authorityRepository
-        , MemberRepository memberRepository, MemberMapper memberMapper, CacheManager cacheManager) {
+        , MemberRepository memberRepository, MemberMapper memberMapper, CacheManager cacheManager,
+                       PhotoStorageService photoStorageService, PhotoRenditionService photoRenditionService,
+                       TokenRevocationService tokenRevocationService, DigestEntryRepository digestEntryRepository,
+                       WaitlistEntryRepository waitlistEntryRepository, WaitlistPositionIndex waitlistPositionIndex) {
         this.userRepository = userRepository;
         this.passwordEncoder = passwordEncoder;
         this.authorityRepository = authorityRepository;
         this.memberRepository = memberRepository;
         this.cacheManager = cacheManager;
         this.memberMapper = memberMapper;
+        this.photoStorageService = photoStorageService;
+        this.photoRenditionService = photoRenditionService;
+        this.tokenRevocationService = tokenRevocationService;
+        this.digestEntryRepository = digestEntryRepository;
+        this.waitlistEntryRepository = waitlistEntryRepository;
+        this.waitlistPositionIndex = waitlistPositionIndex;
     }
 
     public Optional<User> activateRegistration(String key) {
@@ -96,6 +113,7 @@ public class UserService {
                 user.setResetKey(null);
                 user.setResetDate(null);
                 cacheManager.getCache("users").evict(user.getLogin());
+                tokenRevocationService.revokeUserTokens(user.getLogin());
                 return user;
             });
     }
@@ -190,6 +208,7 @@ public class UserService {
             user.setEmail(managedUserVM.getEmail());
             user.setLangKey(managedUserVM.getLangKey());
             user.setImageUrl(managedUserVM.getImageUrl());
+            user.setDigest(managedUserVM.isDigest());
             cacheManager.getCache("users").evict(user.getLogin());
             log.debug("Changed Information for User: {}", user);
 
@@ -208,6 +227,12 @@ public class UserService {
         return Optional.of(userRepository
             .findOne(managedUserVM.getId()))
             .map(user -> {
+                // The tokens of the user hold its login and authorities
+                if (!managedUserVM.isActivated() || !user.getLogin().equals(managedUserVM.getLogin())
+                    || !user.getAuthorities().stream().map(Authority::getName).collect(Collectors.toSet())
+                    .equals(managedUserVM.getAuthorities())) {
+                    tokenRevocationService.revokeUserTokens(user.getLogin());
+                }
                 user.setLogin(managedUserVM.getLogin());
                 user.setFirstName(managedUserVM.getFirstName());
                 user.setLastName(managedUserVM.getLastName());
@@ -237,104 +262,115 @@ public class UserService {
 
     private Member updateMember(final ManagedUserVM managedUserVM, final User user) {
         final Member member = getMember(user.getId());
+        final String previousPhotoHash = member.getPhotoHash();
         member.setUser(user);
         member.setPhoneNumber(managedUserVM.getPhoneNumber());
-        member.setPhoto(managedUserVM.getPhoto());
-        member.setPhotoContentType("image/jpeg");
+        if (managedUserVM.getPhoto() != null) {
+            member.setPhotoHash(photoStorageService.store(managedUserVM.getPhoto()));
+            member.setPhotoContentType(managedUserVM.getPhotoContentType());
+            photoRenditionService.scheduleRenditions(member.getPhotoHash());
+        } else if (managedUserVM.isRemovePhoto()) {
+            member.setPhotoHash(null);
+        }
+        if (member.getPhotoHash() == null) {
+            member.setPhotoContentType(null);
+        }
         member.setBirthDate(managedUserVM.getBirthDate());
 
         memberRepository.save(member);
         log.debug("Created Information for Member: {}", member);
-        return member;
-    }
-
-    private byte[] resizePhoto(final byte[] photo) {
-
-        if (photo == null) {
-            return null;
+        if (previousPhotoHash != null && !previousPhotoHash.equals(member.getPhotoHash())) {
+            photoStorageService.deleteIfUnused(previousPhotoHash);
         }
-
-        byte[] resizeImageInByte = null;
-
-        try {
-            //transform byte array into buffered image
-            final InputStream in = new ByteArrayInputStream(photo);
-            final BufferedImage originalImage = ImageIO.read(in);
-
-            //resize and optimize
-            final int type = originalImage.getType() == 0 ? BufferedImage.TYPE_INT_ARGB : originalImage.getType();
-            final BufferedImage resizeImageJpg = resizeImage(originalImage, type);
-
-            //rewrite image in byte array
-            final ByteArrayOutputStream baos = new ByteArrayOutputStream();
-            ImageIO.write(resizeImageJpg, "jpg", baos);
-            baos.flush();
-            resizeImageInByte = baos.toByteArray();
-            baos.close();
-
-        } catch (IOException e) {
-            log.error("Error in image resizing", e);
-        }
-        return resizeImageInByte;
-    }
-
-    private static BufferedImage resizeImage(final BufferedImage originalImage, final int type) {
-        final int height = originalImage.getHeight();
-        final int width = originalImage.getWidth();
-        final int maxSize = min(height, width);
-        final int x = (width - maxSize) / 2;
-        final int y = (height - maxSize) / 2;
-
-        final BufferedImage cropImage = originalImage.getSubimage(x, y, maxSize, maxSize);
-        final BufferedImage resizedImage = new BufferedImage(IMG_DIMENSION, IMG_DIMENSION, type);
-        final Graphics2D graphics = resizedImage.createGraphics();
-        graphics.drawImage(cropImage, 0, 0, IMG_DIMENSION, IMG_DIMENSION, null);
-        graphics.dispose();
-        graphics.setComposite(AlphaComposite.Src);
-
-        graphics.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
-        graphics.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
-        graphics.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
-
-        return resizedImage;
+        return member;
     }
 
     public void deleteUser(String login) {
         userRepository.findOneByLogin(login).ifPresent(user -> {
+            String photoHash = memberRepository.findPhotoHashById(user.getId());
             memberRepository.delete(user.getId());
+            digestEntryRepository.deleteByUserId(user.getId());
+            deleteWaitlistEntries(user);
             userRepository.delete(user);
+            photoStorageService.deleteIfUnused(photoHash);
             cacheManager.getCache("users").evict(login);
+            tokenRevocationService.revokeUserTokens(login);
             log.debug("Deleted User: {}", user);
         });
     }
 
+    /**
+     * Remove a user from the waitlists, whose entries reference the user, and invalidate their positions.
+     */
+    private void deleteWaitlistEntries(User user) {
+        waitlistEntryRepository.findEventIdsByUserId(user.getId()).forEach(waitlistPositionIndex::invalidate);
+        waitlistEntryRepository.deleteByUserId(user.getId());
+    }
+
     public void changePassword(String password) {
         userRepository.findOneByLogin(SecurityUtils.getCurrentUserLogin()).ifPresent(user -> {
             String encryptedPassword = passwordEncoder.encode(password);
             user.setPassword(encryptedPassword);
             cacheManager.getCache("users").evict(user.getLogin());
+            tokenRevocationService.revokeUserTokens(user.getLogin());
             log.debug("Changed password for User: {}", user);
         });
     }
 
     /**
      * Gets managed user.
+     * <p>
+     * The user, its authorities and its member information are loaded with a single query.
      *
      * @return the managed user
      */
+    @Transactional(readOnly = true)
     public ManagedUserVM getCurrentUser() {
-        final User userWithAuthorities = getUserWithAuthorities();
-        return getManagedUser(userWithAuthorities);
+        final String login = SecurityUtils.getCurrentUserLogin();
+        return memberRepository.findOneWithUserByLogin(login)
+            .map(member -> new ManagedUserVM(new UserDTO(member.getUser()), memberMapper.toDto(member)))
+            .orElseGet(() -> userRepository.findOneWithAuthoritiesByLogin(login)
+                .map(user -> new ManagedUserVM(new UserDTO(user), memberMapper.toDto(new Member())))
+                .orElse(null));
     }
 
-    private ManagedUserVM getManagedUser(final User user) {
-        final Member member = getMember(user.getId());
-        return new ManagedUserVM(new UserDTO(user), memberMapper.toDto(member));
+    @Transactional(readOnly = true)
+    public Page<ManagedUserVM> getAllManagedUsers(Pageable pageable) {
+        Page<Long> ids = userRepository.findAllIdsByLoginNot(pageable, Constants.ANONYMOUS_USER);
+        Map<Long, ManagedUserVM> users = getManagedUsers(ids.getContent());
+        return ids.map(users::get);
     }
 
-    public Page<ManagedUserVM> getAllManagedUsers(Pageable pageable) {
-        Page<User> users = getAllUsers(pageable);
-        return users.map(this::getManagedUser);
+    /**
+     * Get the users sorted after a given login.
+     *
+     * @param login the login of the user to start after, or null to start with the first user
+     * @param size the number of users to get
+     * @return the slice of users
+     */
+    @Transactional(readOnly = true)
+    public Slice<ManagedUserVM> getManagedUsersAfter(String login, int size) {
+        Slice<Long> ids = SliceUtil.toSlice(userRepository.findIdsByLoginNotAfter(Constants.ANONYMOUS_USER,
+            login == null ? "" : login, SliceUtil.queryLimit(size)), size);
+        Map<Long, ManagedUserVM> users = getManagedUsers(ids.getContent());
+        return ids.map(users::get);
+    }
+
+    /**
+     * Load users with their authorities, then their member information, in two queries.
+     * <p>
+     * Users are loaded first, so that the user of each member is already in the persistence
+     * context and is not selected again.
+     */
+    private Map<Long, ManagedUserVM> getManagedUsers(List<Long> ids) {
+        if (ids.isEmpty()) {
+            return Collections.emptyMap();
+        }
+        List<User> users = userRepository.findAllWithAuthoritiesByIdIn(ids);
+        Map<Long, Member> members = memberRepository.findAllByIdIn(ids).stream()
+            .collect(Collectors.toMap(Member::getId, Function.identity()));
+        return users.stream().collect(Collectors.toMap(User::getId, user -> new ManagedUserVM(new UserDTO(user),
+            memberMapper.toDto(members.getOrDefault(user.getId(), new Member())))));
     }
 
     @Transactional(readOnly = true)
@@ -344,11 +380,6 @@ public class UserService {
             .orElseGet(Member::new);
     }
 
-    @Transactional(readOnly = true)
-    private Page<User> getAllUsers(Pageable pageable) {
-        return userRepository.findAllByLoginNot(pageable, Constants.ANONYMOUS_USER);
-    }
-
     @Transactional(readOnly = true)
     public Optional<User> getUserWithAuthoritiesByLogin(String login) {
         return userRepository.findOneWithAuthoritiesByLogin(login);
@@ -375,6 +406,8 @@ public class UserService {
         for (User user : users) {
             log.debug("Deleting not activated user {}", user.getLogin());
             memberRepository.delete(user.getId());
+            digestEntryRepository.deleteByUserId(user.getId());
+            deleteWaitlistEntries(user);
             userRepository.delete(user);
             cacheManager.getCache("users").evict(user.getLogin());
         }
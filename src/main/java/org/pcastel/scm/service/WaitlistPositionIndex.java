@@ -0,0 +1,128 @@
+package org.pcastel.scm.service;
+
+import org.pcastel.scm.config.CacheInvalidationBus;
+import org.pcastel.scm.repository.WaitlistEntryRepository;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * In-memory index of the positions of the users in the waitlists of the events.
+ * <p>
+ * The waitlist of an event is loaded once, in order, into a map from user id to position, so that
+ * looking up a position does not count the entries ahead in the database. Any change to a waitlist
+ * invalidates its index, which is loaded again on the next lookup. In a cluster, the invalidations
+ * are published to the other nodes once the change is completed.
+ */
+@Service
+public class WaitlistPositionIndex {
+
+    static final String NAME = "waitlistPositions";
+
+    private final Logger log = LoggerFactory.getLogger(WaitlistPositionIndex.class);
+
+    private final WaitlistEntryRepository waitlistEntryRepository;
+
+    private final ConcurrentMap<Long, Map<Long, Integer>> positionsByEvent = new ConcurrentHashMap<>();
+
+    /**
+     * Incremented by every invalidation, so that a waitlist loaded while it was being changed is
+     * not kept in the index.
+     */
+    private final AtomicLong invalidations = new AtomicLong();
+
+    private CacheInvalidationBus cacheInvalidationBus;
+
+    public WaitlistPositionIndex(WaitlistEntryRepository waitlistEntryRepository) {
+        this.waitlistEntryRepository = waitlistEntryRepository;
+    }
+
+    @Autowired(required = false)
+    public void setCacheInvalidationBus(CacheInvalidationBus cacheInvalidationBus) {
+        this.cacheInvalidationBus = cacheInvalidationBus;
+        cacheInvalidationBus.register(NAME, eventId -> evict((Long) eventId));
+    }
+
+    /**
+     * @param eventId the id of the event
+     * @param userId the id of the user
+     * @return the position of the user in the waitlist of the event, starting at 1
+     */
+    public Optional<Integer> getPosition(Long eventId, Long userId) {
+        return Optional.ofNullable(getPositions(eventId).get(userId));
+    }
+
+    /**
+     * Invalidate the index of the waitlist of an event, which is being changed by the current
+     * transaction. It is invalidated again once the transaction is completed, since it may have
+     * been loaded from the uncommitted changes in the meantime.
+     *
+     * @param eventId the id of the event
+     */
+    public void invalidate(Long eventId) {
+        evict(eventId);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+                @Override
+                public void afterCompletion(int status) {
+                    evict(eventId);
+                    publish(eventId);
+                }
+            });
+        } else {
+            publish(eventId);
+        }
+    }
+
+    private void publish(Long eventId) {
+        if (cacheInvalidationBus != null) {
+            cacheInvalidationBus.publish(NAME, eventId);
+        }
+    }
+
+    private void evict(Long eventId) {
+        invalidations.incrementAndGet();
+        positionsByEvent.remove(eventId);
+    }
+
+    private Map<Long, Integer> getPositions(Long eventId) {
+        Map<Long, Integer> positions = positionsByEvent.get(eventId);
+        if (positions != null) {
+            return positions;
+        }
+        long version = invalidations.get();
+        positions = load(eventId);
+        positionsByEvent.put(eventId, positions);
+        if (invalidations.get() != version) {
+            // Invalidated while loading: the loaded positions may already be stale
+            positionsByEvent.remove(eventId, positions);
+        }
+        return positions;
+    }
+
+    private Map<Long, Integer> load(Long eventId) {
+        List<Long> userIds = waitlistEntryRepository.findUserIdsByEventId(eventId);
+        log.debug("Loaded the waitlist of Event {}: {} users", eventId, userIds.size());
+        if (userIds.isEmpty()) {
+            return Collections.emptyMap();
+        }
+        Map<Long, Integer> positions = new HashMap<>(userIds.size() * 4 / 3 + 1);
+        for (int i = 0; i < userIds.size(); i++) {
+            positions.put(userIds.get(i), i + 1);
+        }
+        return Collections.unmodifiableMap(positions);
+    }
+}
@@ -0,0 +1,127 @@
+package org.pcastel.scm.service.dto;
+
+import org.pcastel.scm.domain.enumeration.EventState;
+import org.pcastel.scm.domain.enumeration.EventType;
+import org.springframework.format.annotation.DateTimeFormat;
+
+import java.io.Serializable;
+import java.time.LocalDate;
+
+/**
+ * Criteria class for filtering the Event entity, bound from the request parameters of
+ * GET /api/events. A null field does not filter.
+ */
+public class EventCriteria implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    private Long teamId;
+
+    @DateTimeFormat(iso = DateTimeFormat.ISO.DATE)
+    private LocalDate from;
+
+    @DateTimeFormat(iso = DateTimeFormat.ISO.DATE)
+    private LocalDate to;
+
+    private EventState state;
+
+    private EventType type;
+
+    private Boolean isHome;
+
+    private Long locationId;
+
+    private String seriesId;
+
+    public Long getTeamId() {
+        return teamId;
+    }
+
+    public void setTeamId(Long teamId) {
+        this.teamId = teamId;
+    }
+
+    /**
+     * @return the first date of the events, inclusive
+     */
+    public LocalDate getFrom() {
+        return from;
+    }
+
+    public void setFrom(LocalDate from) {
+        this.from = from;
+    }
+
+    /**
+     * @return the last date of the events, inclusive
+     */
+    public LocalDate getTo() {
+        return to;
+    }
+
+    public void setTo(LocalDate to) {
+        this.to = to;
+    }
+
+    public EventState getState() {
+        return state;
+    }
+
+    public void setState(EventState state) {
+        this.state = state;
+    }
+
+    public EventType getType() {
+        return type;
+    }
+
+    public void setType(EventType type) {
+        this.type = type;
+    }
+
+    public Boolean getIsHome() {
+        return isHome;
+    }
+
+    public void setIsHome(Boolean isHome) {
+        this.isHome = isHome;
+    }
+
+    public Long getLocationId() {
+        return locationId;
+    }
+
+    public void setLocationId(Long locationId) {
+        this.locationId = locationId;
+    }
+
+    public String getSeriesId() {
+        return seriesId;
+    }
+
+    public void setSeriesId(String seriesId) {
+        this.seriesId = seriesId;
+    }
+
+    /**
+     * @return true if no criteria is set, so that all events match
+     */
+    public boolean isEmpty() {
+        return teamId == null && from == null && to == null && state == null && type == null && isHome == null &&
+            locationId == null && seriesId == null;
+    }
+
+    @Override
+    public String toString() {
+        return "EventCriteria{" +
+            "teamId=" + teamId +
+            ", from='" + from + "'" +
+            ", to='" + to + "'" +
+            ", state='" + state + "'" +
+            ", type='" + type + "'" +
+            ", isHome='" + isHome + "'" +
+            ", locationId=" + locationId +
+            ", seriesId='" + seriesId + "'" +
+            "}";
+    }
+}
@@ -7,6 +7,7 @@ import java.io.Serializable;
 import java.util.HashSet;
 import java.util.Set;
 import java.util.Objects;
+import com.fasterxml.jackson.annotation.JsonProperty;
 import org.pcastel.scm.domain.enumeration.EventType;
 import org.pcastel.scm.domain.enumeration.EventState;
 
@@ -32,11 +33,16 @@ public class EventDTO implements Serializable {
 
     private Integer numberOfPlaces;
 
+    @JsonProperty(access = JsonProperty.Access.READ_ONLY)
+    private Integer participantCount;
+
     private Boolean isHome;
 
     @Size(max = 1000)
     private String comment;
 
+    private String seriesId;
+
     private Long teamId;
 
     private Long locationId;
@@ -91,6 +97,14 @@ public class EventDTO implements Serializable {
         this.numberOfPlaces = numberOfPlaces;
     }
 
+    public Integer getParticipantCount() {
+        return participantCount;
+    }
+
+    public void setParticipantCount(Integer participantCount) {
+        this.participantCount = participantCount;
+    }
+
     public Boolean isIsHome() {
         return isHome;
     }
@@ -107,6 +121,14 @@ public class EventDTO implements Serializable {
         this.comment = comment;
     }
 
+    public String getSeriesId() {
+        return seriesId;
+    }
+
+    public void setSeriesId(String seriesId) {
+        this.seriesId = seriesId;
+    }
+
     public Long getTeamId() {
         return teamId;
     }
@@ -161,8 +183,10 @@ public class EventDTO implements Serializable {
             ", date='" + getDate() + "'" +
             ", state='" + getState() + "'" +
             ", numberOfPlaces='" + getNumberOfPlaces() + "'" +
+            ", participantCount='" + getParticipantCount() + "'" +
             ", isHome='" + isIsHome() + "'" +
             ", comment='" + getComment() + "'" +
+            ", seriesId='" + getSeriesId() + "'" +
             "}";
     }
 }
@@ -0,0 +1,127 @@
+package org.pcastel.scm.service.dto;
+
+import javax.validation.Valid;
+import javax.validation.constraints.NotNull;
+import javax.validation.constraints.Size;
+import java.io.Serializable;
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * A DTO for creating a series of events from a recurrence rule.
+ * <p>
+ * An event is created from the template on each of the days of the week, from the date of the
+ * template to the end date, except during the excluded periods, such as school holidays.
+ */
+public class EventSeriesDTO implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    @NotNull
+    @Valid
+    private EventDTO template;
+
+    @NotNull
+    @Size(min = 1)
+    private Set<DayOfWeek> daysOfWeek = new HashSet<>();
+
+    @NotNull
+    private LocalDate endDate;
+
+    @Valid
+    private List<Exclusion> exclusions = new ArrayList<>();
+
+    /**
+     * @return the event to create on each date, starting on its own date
+     */
+    public EventDTO getTemplate() {
+        return template;
+    }
+
+    public void setTemplate(EventDTO template) {
+        this.template = template;
+    }
+
+    public Set<DayOfWeek> getDaysOfWeek() {
+        return daysOfWeek;
+    }
+
+    public void setDaysOfWeek(Set<DayOfWeek> daysOfWeek) {
+        this.daysOfWeek = daysOfWeek;
+    }
+
+    /**
+     * @return the last date of the series, inclusive
+     */
+    public LocalDate getEndDate() {
+        return endDate;
+    }
+
+    public void setEndDate(LocalDate endDate) {
+        this.endDate = endDate;
+    }
+
+    public List<Exclusion> getExclusions() {
+        return exclusions;
+    }
+
+    public void setExclusions(List<Exclusion> exclusions) {
+        this.exclusions = exclusions;
+    }
+
+    @Override
+    public String toString() {
+        return "EventSeriesDTO{" +
+            "template=" + template +
+            ", daysOfWeek=" + daysOfWeek +
+            ", endDate='" + endDate + "'" +
+            ", exclusions=" + exclusions +
+            "}";
+    }
+
+    /**
+     * A period without events, from and to dates inclusive.
+     */
+    public static class Exclusion implements Serializable {
+
+        private static final long serialVersionUID = 1L;
+
+        @NotNull
+        private LocalDate from;
+
+        @NotNull
+        private LocalDate to;
+
+        public LocalDate getFrom() {
+            return from;
+        }
+
+        public void setFrom(LocalDate from) {
+            this.from = from;
+        }
+
+        public LocalDate getTo() {
+            return to;
+        }
+
+        public void setTo(LocalDate to) {
+            this.to = to;
+        }
+
+        public boolean contains(LocalDate date) {
+            return !date.isBefore(from) && !date.isAfter(to);
+        }
+
+        @Override
+        public String toString() {
+            return "Exclusion{" +
+                "from='" + from + "'" +
+                ", to='" + to + "'" +
+                "}";
+        }
+    }
+}
@@ -0,0 +1,79 @@
+package org.pcastel.scm.service.dto;
+
+import java.io.Serializable;
+import java.time.LocalDate;
+
+/**
+ * A DTO summing up the events created as a series.
+ */
+public class EventSeriesSummaryDTO implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    private String seriesId;
+
+    private int numberOfEvents;
+
+    private LocalDate firstDate;
+
+    private LocalDate lastDate;
+
+    public EventSeriesSummaryDTO() {
+        // Empty constructor needed for Jackson.
+    }
+
+    public EventSeriesSummaryDTO(String seriesId, int numberOfEvents, LocalDate firstDate, LocalDate lastDate) {
+        this.seriesId = seriesId;
+        this.numberOfEvents = numberOfEvents;
+        this.firstDate = firstDate;
+        this.lastDate = lastDate;
+    }
+
+    public String getSeriesId() {
+        return seriesId;
+    }
+
+    public void setSeriesId(String seriesId) {
+        this.seriesId = seriesId;
+    }
+
+    public int getNumberOfEvents() {
+        return numberOfEvents;
+    }
+
+    public void setNumberOfEvents(int numberOfEvents) {
+        this.numberOfEvents = numberOfEvents;
+    }
+
+    /**
+     * @return the date of the first event, or null if no event was created
+     */
+    public LocalDate getFirstDate() {
+        return firstDate;
+    }
+
+    public void setFirstDate(LocalDate firstDate) {
+        this.firstDate = firstDate;
+    }
+
+    /**
+     * @return the date of the last event, or null if no event was created
+     */
+    public LocalDate getLastDate() {
+        return lastDate;
+    }
+
+    public void setLastDate(LocalDate lastDate) {
+        this.lastDate = lastDate;
+    }
+
+    @Override
+    public String toString() {
+        return "EventSeriesSummaryDTO{" +
+            "seriesId='" + seriesId + "'" +
+            ", numberOfEvents=" + numberOfEvents +
+            ", firstDate='" + firstDate + "'" +
+            ", lastDate='" + lastDate + "'" +
+            "}";
+    }
+}
@@ -0,0 +1,63 @@
+package org.pcastel.scm.service.dto;
+
+import java.io.Serializable;
+
+/**
+ * A DTO for the recipient of an email sent to many users, selected without loading the users.
+ */
+public class MailRecipientDTO implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    private final Long id;
+
+    private final String login;
+
+    private final String email;
+
+    private final String langKey;
+
+    private final boolean digest;
+
+    public MailRecipientDTO(Long id, String login, String email, String langKey, boolean digest) {
+        this.id = id;
+        this.login = login;
+        this.email = email;
+        this.langKey = langKey;
+        this.digest = digest;
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public String getLogin() {
+        return login;
+    }
+
+    public String getEmail() {
+        return email;
+    }
+
+    public String getLangKey() {
+        return langKey;
+    }
+
+    /**
+     * @return true if the recipient gets a daily digest instead of the email
+     */
+    public boolean isDigest() {
+        return digest;
+    }
+
+    @Override
+    public String toString() {
+        return "MailRecipientDTO{" +
+            "id=" + id +
+            ", login='" + login + "'" +
+            ", email='" + email + "'" +
+            ", langKey='" + langKey + "'" +
+            ", digest=" + digest +
+            "}";
+    }
+}
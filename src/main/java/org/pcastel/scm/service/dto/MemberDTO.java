@@ -7,7 +7,8 @@ import java.io.Serializable;
 import java.util.HashSet;
 import java.util.Set;
 import java.util.Objects;
-import javax.persistence.Lob;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
 
 /**
  * A DTO for the Member entity.
@@ -22,8 +23,16 @@ public class MemberDTO implements Serializable {
     @Size(max = 20)
     private String mobilePhoneNumber;
 
-    @Lob
+    @JsonProperty(access = JsonProperty.Access.WRITE_ONLY)
     private byte[] photo;
+
+    @JsonProperty(access = JsonProperty.Access.WRITE_ONLY)
+    private boolean removePhoto;
+
+    @JsonProperty(access = JsonProperty.Access.READ_ONLY)
+    @Size(max = 64)
+    private String photoHash;
+
     private String photoContentType;
 
     private LocalDate birthDate;
@@ -68,6 +77,29 @@ public class MemberDTO implements Serializable {
         this.photo = photo;
     }
 
+    /**
+     * @return true if the photo of the member is to be removed, when no new photo is given
+     */
+    public boolean isRemovePhoto() {
+        return removePhoto;
+    }
+
+    public void setRemovePhoto(boolean removePhoto) {
+        this.removePhoto = removePhoto;
+    }
+
+    public String getPhotoHash() {
+        return photoHash;
+    }
+
+    public void setPhotoHash(String photoHash) {
+        this.photoHash = photoHash;
+    }
+
+    public String getPhotoUrl() {
+        return photoUrl(id, photoHash, showInfo);
+    }
+
     public String getPhotoContentType() {
         return photoContentType;
     }
@@ -143,10 +175,29 @@ public class MemberDTO implements Serializable {
             "id=" + getId() +
             ", phoneNumber='" + getPhoneNumber() + "'" +
             ", mobilePhoneNumber='" + getMobilePhoneNumber() + "'" +
-            ", photo='" + getPhoto() + "'" +
+            ", photoHash='" + getPhotoHash() + "'" +
             ", birthDate='" + getBirthDate() + "'" +
             ", job='" + getJob() + "'" +
             ", showInfo='" + isShowInfo() + "'" +
             "}";
     }
+
+    /**
+     * Build the URL a member photo is served from, without authentication, to {@code <img>} tags.
+     * <p>
+     * The photo hash is part of the URL, so a new photo gets a new URL and the old one can be cached forever.
+     * It is checked against the current photo of the member, so the URL cannot be guessed from the id.
+     * The photos of the members who do not show their information have no such URL.
+     *
+     * @param memberId the id of the member
+     * @param photoHash the hash of the photo
+     * @param showInfo whether the member shows their information
+     * @return the photo URL, or null if there is no photo, or if it is not shown
+     */
+    public static String photoUrl(Long memberId, String photoHash, Boolean showInfo) {
+        if (memberId == null || photoHash == null || !Boolean.TRUE.equals(showInfo)) {
+            return null;
+        }
+        return "api/members/" + memberId + "/photo/" + photoHash;
+    }
 }
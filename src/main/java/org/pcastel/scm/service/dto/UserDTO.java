@@ -40,6 +40,8 @@ public class UserDTO {
 
     private boolean activated = false;
 
+    private boolean digest = false;
+
     @Size(min = 2, max = 5)
     private String langKey;
 
@@ -63,6 +65,7 @@ public class UserDTO {
             user.getCreatedBy(), user.getCreatedDate(), user.getLastModifiedBy(), user.getLastModifiedDate(),
             user.getAuthorities().stream().map(Authority::getName)
                 .collect(Collectors.toSet()));
+        this.digest = user.isDigest();
     }
 
     public UserDTO(Long id, String login, String firstName, String lastName,
@@ -121,6 +124,14 @@ public class UserDTO {
         return activated;
     }
 
+    public boolean isDigest() {
+        return digest;
+    }
+
+    public void setDigest(boolean digest) {
+        this.digest = digest;
+    }
+
     public String getLangKey() {
         return langKey;
     }
@@ -158,6 +169,7 @@ public class UserDTO {
             ", email='" + email + '\'' +
             ", imageUrl='" + imageUrl + '\'' +
             ", activated=" + activated +
+            ", digest=" + digest +
             ", langKey='" + langKey + '\'' +
             ", createdBy=" + createdBy +
             ", createdDate=" + createdDate +
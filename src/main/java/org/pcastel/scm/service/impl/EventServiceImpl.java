@@ -1,17 +1,48 @@
 package org.pcastel.scm.service.impl;
 
+import org.pcastel.scm.service.EventNotificationService;
+import org.pcastel.scm.service.EventNotificationService.Notification;
 import org.pcastel.scm.service.EventService;
+import org.pcastel.scm.service.WaitlistPositionIndex;
 import org.pcastel.scm.domain.Event;
+import org.pcastel.scm.domain.Event_;
+import org.pcastel.scm.domain.Location_;
+import org.pcastel.scm.domain.Team;
+import org.pcastel.scm.domain.Team_;
+import org.pcastel.scm.domain.User;
+import org.pcastel.scm.domain.WaitlistEntry;
 import org.pcastel.scm.repository.EventRepository;
+import org.pcastel.scm.repository.UserRepository;
+import org.pcastel.scm.repository.WaitlistEntryRepository;
+import org.pcastel.scm.security.SecurityUtils;
+import org.pcastel.scm.service.dto.EventCriteria;
 import org.pcastel.scm.service.dto.EventDTO;
+import org.pcastel.scm.service.dto.EventSeriesDTO;
+import org.pcastel.scm.service.dto.EventSeriesSummaryDTO;
 import org.pcastel.scm.service.mapper.EventMapper;
+import org.pcastel.scm.service.util.SliceUtil;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.data.jpa.domain.Specifications;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import javax.persistence.criteria.Fetch;
+import javax.persistence.criteria.JoinType;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.stream.Collectors;
 
 /**
  * Service Implementation for managing Event.
@@ -26,13 +57,32 @@ public class EventServiceImpl implements EventService{
 
     private final EventMapper eventMapper;
 
-    public EventServiceImpl(EventRepository eventRepository, EventMapper eventMapper) {
+    private final UserRepository userRepository;
+
+    private final WaitlistEntryRepository waitlistEntryRepository;
+
+    private final WaitlistPositionIndex waitlistPositionIndex;
+
+    private final EventNotificationService eventNotificationService;
+
+    public EventServiceImpl(EventRepository eventRepository, EventMapper eventMapper, UserRepository userRepository,
+                            WaitlistEntryRepository waitlistEntryRepository,
+                            WaitlistPositionIndex waitlistPositionIndex,
+                            EventNotificationService eventNotificationService) {
         this.eventRepository = eventRepository;
         this.eventMapper = eventMapper;
+        this.userRepository = userRepository;
+        this.waitlistEntryRepository = waitlistEntryRepository;
+        this.waitlistPositionIndex = waitlistPositionIndex;
+        this.eventNotificationService = eventNotificationService;
     }
 
     /**
      * Save a event.
+     * <p>
+     * The members of the team and the participants are notified when the event is opened, or when its
+     * date or location changes. The places freed by the change, when its number of places increases or
+     * participants are removed, go to the first users of its waitlist.
      *
      * @param eventDTO the entity to save
      * @return the persisted entity
@@ -40,13 +90,117 @@ public class EventServiceImpl implements EventService{
     @Override
     public EventDTO save(EventDTO eventDTO) {
         log.debug("Request to save Event : {}", eventDTO);
+        // Serialized with the sign-ups and cancellations, which change the same participants and waitlist
+        boolean update = eventDTO.getId() != null && eventRepository.lock(eventDTO.getId());
         Event event = eventMapper.toEntity(eventDTO);
+        // Compared before the save, which copies the changes to the previous event
+        Optional<Notification> notification = EventNotificationService.getNotification(
+            update ? eventRepository.findOne(eventDTO.getId()) : null, event);
         event = eventRepository.save(event);
-        return eventMapper.toDto(event);
+        // The participants are replaced as a whole, without checking the number of places
+        eventRepository.updateParticipantCount(event.getId());
+        int promoted = update ? promoteFromWaitlist(event.getId()) : 0;
+        if (notification.isPresent()) {
+            eventNotificationService.notifyTeam(event, notification.get());
+        }
+        EventDTO result = eventMapper.toDto(event);
+        result.setParticipantCount(event.getParticipants().size() + promoted);
+        return result;
+    }
+
+    /**
+     * Create the events of a series.
+     * <p>
+     * The events are persisted together, so that their inserts are sent in JDBC batches when the
+     * transaction is committed. They are created without participants.
+     *
+     * @param eventSeriesDTO the template of the events and their recurrence rule
+     * @return the summary of the created events
+     */
+    @Override
+    public EventSeriesSummaryDTO createSeries(EventSeriesDTO eventSeriesDTO) {
+        log.debug("Request to create a series of Events : {}", eventSeriesDTO);
+        String seriesId = UUID.randomUUID().toString();
+        List<Event> events = new ArrayList<>();
+        for (LocalDate date : getOccurrenceDates(eventSeriesDTO)) {
+            Event event = eventMapper.toEntity(eventSeriesDTO.getTemplate())
+                .date(date)
+                .seriesId(seriesId);
+            event.setParticipants(new HashSet<>());
+            events.add(event);
+        }
+        eventRepository.save(events);
+        if (events.isEmpty()) {
+            return new EventSeriesSummaryDTO(seriesId, 0, null, null);
+        }
+        return new EventSeriesSummaryDTO(seriesId, events.size(), events.get(0).getDate(),
+            events.get(events.size() - 1).getDate());
+    }
+
+    private static List<LocalDate> getOccurrenceDates(EventSeriesDTO eventSeriesDTO) {
+        List<LocalDate> dates = new ArrayList<>();
+        for (LocalDate date = eventSeriesDTO.getTemplate().getDate(); !date.isAfter(eventSeriesDTO.getEndDate());
+             date = date.plusDays(1)) {
+            LocalDate occurrence = date;
+            if (eventSeriesDTO.getDaysOfWeek().contains(date.getDayOfWeek()) &&
+                eventSeriesDTO.getExclusions().stream().noneMatch(exclusion -> exclusion.contains(occurrence))) {
+                dates.add(date);
+            }
+        }
+        return dates;
+    }
+
+    /**
+     * Apply the changes of an event to the following events of its series, itself included, in a
+     * single update instead of saving each event.
+     * <p>
+     * The updated events then go through the same steps as a saved event: their rows are locked
+     * first, their free places go to their waitlists, and their users are notified of their
+     * changes.
+     *
+     * @param eventDTO the changes of the event
+     * @return the number of updated events, if the event exists
+     */
+    @Override
+    public Optional<Integer> updateFollowing(EventDTO eventDTO) {
+        log.debug("Request to update the following Events of : {}", eventDTO);
+        Event event = eventRepository.findOne(eventDTO.getId());
+        if (event == null) {
+            return Optional.empty();
+        }
+        List<Long> ids = eventRepository.findFollowingIds(event);
+        // Locked in order, so that two updates of the same series cannot deadlock
+        ids.forEach(eventRepository::lock);
+        Event changes = eventMapper.toEntity(eventDTO);
+        Map<Long, Notification> notifications = new HashMap<>();
+        for (Event previous : eventRepository.findAll(ids)) {
+            // The date of each event is left unchanged
+            Event updated = new Event()
+                .state(changes.getState())
+                .date(previous.getDate())
+                .location(changes.getLocation());
+            EventNotificationService.getNotification(previous, updated)
+                .ifPresent(notification -> notifications.put(previous.getId(), notification));
+        }
+        // Flushed first, as the update clears the persistence context
+        eventRepository.flush();
+        int count = eventRepository.updateAll(ids, changes);
+        for (Long id : ids) {
+            eventRepository.updateParticipantCount(id);
+            promoteFromWaitlist(id);
+        }
+        if (!notifications.isEmpty()) {
+            eventRepository.findAll(notifications.keySet()).forEach(updated ->
+                eventNotificationService.notifyTeam(updated, notifications.get(updated.getId())));
+        }
+        return Optional.of(count);
     }
 
     /**
      *  Get all the events.
+     *  <p>
+     *  The page of ids is selected first, then the events and their participants are loaded in
+     *  a single query, instead of one query per event for its lazy relationships.
      *
      *  @param pageable the pagination information
      *  @return the list of entities
@@ -55,8 +209,110 @@ public class EventServiceImpl implements EventService{
     @Transactional(readOnly = true)
     public Page<EventDTO> findAll(Pageable pageable) {
         log.debug("Request to get all Events");
-        return eventRepository.findAll(pageable)
-            .map(eventMapper::toDto);
+        Page<Long> ids = eventRepository.findAllIds(pageable);
+        Map<Long, EventDTO> events = findAllById(ids.getContent());
+        return ids.map(events::get);
+    }
+
+    /**
+     *  Get the events matching the criteria.
+     *  <p>
+     *  The page query fetches the team and location of the events, then their participants are
+     *  loaded in a single query, as when getting all the events.
+     *
+     *  @param criteria the criteria the events must match
+     *  @param pageable the pagination information
+     *  @return the list of entities
+     */
+    @Override
+    @Transactional(readOnly = true)
+    public Page<EventDTO> findAll(EventCriteria criteria, Pageable pageable) {
+        if (criteria.isEmpty()) {
+            return findAll(pageable);
+        }
+        log.debug("Request to get Events by criteria : {}", criteria);
+        Page<Event> page = eventRepository.findAll(createSpecification(criteria), pageable);
+        Map<Long, EventDTO> events = findAllById(page.getContent().stream()
+            .map(Event::getId)
+            .collect(Collectors.toList()));
+        return page.map(event -> events.get(event.getId()));
+    }
+
+    private Specifications<Event> createSpecification(EventCriteria criteria) {
+        Specifications<Event> specification = Specifications.where(fetchToOneRelationships());
+        if (criteria.getTeamId() != null) {
+            specification = specification.and((root, query, cb) ->
+                cb.equal(root.get(Event_.team).get(Team_.id), criteria.getTeamId()));
+        }
+        if (criteria.getFrom() != null) {
+            specification = specification.and((root, query, cb) ->
+                cb.greaterThanOrEqualTo(root.get(Event_.date), criteria.getFrom()));
+        }
+        if (criteria.getTo() != null) {
+            specification = specification.and((root, query, cb) ->
+                cb.lessThanOrEqualTo(root.get(Event_.date), criteria.getTo()));
+        }
+        if (criteria.getState() != null) {
+            specification = specification.and((root, query, cb) -> cb.equal(root.get(Event_.state), criteria.getState()));
+        }
+        if (criteria.getType() != null) {
+            specification = specification.and((root, query, cb) -> cb.equal(root.get(Event_.type), criteria.getType()));
+        }
+        if (criteria.getIsHome() != null) {
+            specification = specification.and((root, query, cb) -> cb.equal(root.get(Event_.isHome), criteria.getIsHome()));
+        }
+        if (criteria.getLocationId() != null) {
+            specification = specification.and((root, query, cb) ->
+                cb.equal(root.get(Event_.location).get(Location_.id), criteria.getLocationId()));
+        }
+        if (criteria.getSeriesId() != null) {
+            specification = specification.and((root, query, cb) ->
+                cb.equal(root.get(Event_.seriesId), criteria.getSeriesId()));
+        }
+        return specification;
+    }
+
+    /**
+     * Fetch the eager to-one relationships of the events with the page query, instead of one
+     * query per team and location. The count query of the page selects no event to fetch for.
+     */
+    private static Specification<Event> fetchToOneRelationships() {
+        return (root, query, cb) -> {
+            if (!Long.class.equals(query.getResultType()) && !long.class.equals(query.getResultType())) {
+                Fetch<Event, Team> team = root.fetch(Event_.team, JoinType.LEFT);
+                team.fetch(Team_.manager, JoinType.LEFT);
+                team.fetch(Team_.substitute, JoinType.LEFT);
+                root.fetch(Event_.location, JoinType.LEFT).fetch(Location_.address, JoinType.LEFT);
+            }
+            return null;
+        };
+    }
+
+    /**
+     *  Get the events sorted after a given one, by date and id.
+     *
+     *  @param date the date of the event to start after, or null to start with the first event
+     *  @param id the id of the event to start after
+     *  @param size the number of events to get
+     *  @return the slice of entities
+     */
+    @Override
+    @Transactional(readOnly = true)
+    public Slice<EventDTO> findAllAfter(LocalDate date, Long id, int size) {
+        log.debug("Request to get Events after : {}, {}", date, id);
+        Slice<Long> ids = SliceUtil.toSlice(date == null
+            ? eventRepository.findFirstIds(SliceUtil.queryLimit(size))
+            : eventRepository.findIdsAfter(date, id, SliceUtil.queryLimit(size)), size);
+        Map<Long, EventDTO> events = findAllById(ids.getContent());
+        return ids.map(events::get);
+    }
+
+    private Map<Long, EventDTO> findAllById(List<Long> ids) {
+        if (ids.isEmpty()) {
+            return Collections.emptyMap();
+        }
+        return eventRepository.findAllWithEagerRelationshipsByIdIn(ids).stream()
+            .collect(Collectors.toMap(Event::getId, eventMapper::toDto));
     }
 
     /**
@@ -73,6 +329,144 @@ public class EventServiceImpl implements EventService{
         return eventMapper.toDto(event);
     }
 
+    /**
+     *  Add the current user to the participants of the "id" event, or to its waitlist if it is full.
+     *  <p>
+     *  A place is taken first with the conditional update of the participant count, which also
+     *  locks the row of the event: sign-ups to an event which is not full only wait for each
+     *  other during that update. The place is given back if the user already participates, or if
+     *  users are waiting, since the free places go to them first. Otherwise the row of the event
+     *  is locked explicitly, to serialize the changes of the waitlist.
+     *
+     *  @param id the id of the event
+     *  @return the outcome of the request
+     */
+    @Override
+    public Participation join(Long id) {
+        log.debug("Request to join Event : {}", id);
+        Long userId = getCurrentUserId();
+        if (eventRepository.reservePlace(id)) {
+            if (!waitlistEntryRepository.existsByEventId(id)) {
+                if (eventRepository.isParticipant(id, userId)) {
+                    eventRepository.releasePlace(id);
+                    return Participation.ALREADY_PARTICIPANT;
+                }
+                eventRepository.insertParticipant(id, userId);
+                return Participation.JOINED;
+            }
+            eventRepository.releasePlace(id);
+        } else if (!eventRepository.lock(id)) {
+            return Participation.EVENT_NOT_FOUND;
+        }
+        return joinWaitlist(id, userId);
+    }
+
+    /**
+     * Add a user to the waitlist of an event, whose row must be locked, unless a place is free
+     * once the users already waiting have been promoted.
+     */
+    private Participation joinWaitlist(Long eventId, Long userId) {
+        if (eventRepository.isParticipant(eventId, userId)) {
+            return Participation.ALREADY_PARTICIPANT;
+        }
+        if (waitlistEntryRepository.existsByEventIdAndUserId(eventId, userId)) {
+            return Participation.WAITLISTED;
+        }
+        boolean queued = waitlistEntryRepository.existsByEventId(eventId);
+        if (queued) {
+            promoteFromWaitlist(eventId);
+            queued = waitlistEntryRepository.existsByEventId(eventId);
+        }
+        if (!queued && eventRepository.reservePlace(eventId)) {
+            eventRepository.insertParticipant(eventId, userId);
+            return Participation.JOINED;
+        }
+        waitlistEntryRepository.save(new WaitlistEntry()
+            .event(eventRepository.getOne(eventId))
+            .user(userRepository.getOne(userId)));
+        waitlistPositionIndex.invalidate(eventId);
+        return Participation.WAITLISTED;
+    }
+
+    /**
+     *  Remove the current user from the participants or from the waitlist of the "id" event.
+     *  <p>
+     *  The place of a participant goes to the first user of the waitlist in the same
+     *  transaction, so that it cannot be taken by a new request in between.
+     *
+     *  @param id the id of the event
+     *  @return true if the current user was a participant or was waiting
+     */
+    @Override
+    public boolean leave(Long id) {
+        log.debug("Request to leave Event : {}", id);
+        Long userId = getCurrentUserId();
+        if (!eventRepository.lock(id)) {
+            return false;
+        }
+        if (waitlistEntryRepository.deleteByEventIdAndUserId(id, userId) > 0) {
+            waitlistPositionIndex.invalidate(id);
+            return true;
+        }
+        if (!eventRepository.deleteParticipant(id, userId)) {
+            return false;
+        }
+        eventRepository.releasePlace(id);
+        promoteFromWaitlist(id);
+        return true;
+    }
+
+    /**
+     * Give the free places of an event to the first users of its waitlist, whose row must be locked.
+     * Users who were added to the participants in the meantime are only removed from the waitlist.
+     *
+     * @return the number of users promoted
+     */
+    private int promoteFromWaitlist(Long eventId) {
+        Optional<WaitlistEntry> head = waitlistEntryRepository.findFirstByEventIdOrderByIdAsc(eventId);
+        if (!head.isPresent()) {
+            return 0;
+        }
+        waitlistPositionIndex.invalidate(eventId);
+        int promoted = 0;
+        while (head.isPresent()) {
+            WaitlistEntry entry = head.get();
+            Long userId = entry.getUser().getId();
+            if (!eventRepository.isParticipant(eventId, userId)) {
+                if (!eventRepository.reservePlace(eventId)) {
+                    return promoted;
+                }
+                eventRepository.insertParticipant(eventId, userId);
+                promoted++;
+                // Written to the outbox of the emails or to the digest, and so only sent if the transaction commits
+                eventNotificationService.notifyPromotion(entry.getUser(), entry.getEvent());
+                log.debug("Promoted User {} from the waitlist of Event {}", userId, eventId);
+            }
+            waitlistEntryRepository.delete(entry);
+            head = waitlistEntryRepository.findFirstByEventIdOrderByIdAsc(eventId);
+        }
+        return promoted;
+    }
+
+    /**
+     *  Get the position of the current user in the waitlist of the "id" event.
+     *
+     *  @param id the id of the event
+     *  @return the position, starting at 1, if the current user is waiting
+     */
+    @Override
+    @Transactional(readOnly = true)
+    public Optional<Integer> getWaitlistPosition(Long id) {
+        log.debug("Request to get the waitlist position in Event : {}", id);
+        return waitlistPositionIndex.getPosition(id, getCurrentUserId());
+    }
+
+    private Long getCurrentUserId() {
+        return userRepository.findOneByLogin(SecurityUtils.getCurrentUserLogin())
+            .map(User::getId)
+            .orElseThrow(() -> new IllegalStateException("Current user not found"));
+    }
+
     /**
      *  Delete the  event by id.
      *
@@ -81,6 +475,8 @@ public class EventServiceImpl implements EventService{
     @Override
     public void delete(Long id) {
         log.debug("Request to delete Event : {}", id);
+        waitlistEntryRepository.deleteByEventId(id);
+        waitlistPositionIndex.invalidate(id);
         eventRepository.delete(id);
     }
 }
@@ -1,6 +1,8 @@
 package org.pcastel.scm.service.impl;
 
 import org.pcastel.scm.service.MemberService;
+import org.pcastel.scm.service.PhotoRenditionService;
+import org.pcastel.scm.service.PhotoStorageService;
 import org.pcastel.scm.domain.Member;
 import org.pcastel.scm.repository.MemberRepository;
 import org.pcastel.scm.service.dto.MemberDTO;
@@ -27,13 +29,23 @@ public class MemberServiceImpl implements MemberService{
 
     private final MemberMapper memberMapper;
 
-    public MemberServiceImpl(MemberRepository memberRepository, MemberMapper memberMapper) {
+    private final PhotoStorageService photoStorageService;
+
+    private final PhotoRenditionService photoRenditionService;
+
+    public MemberServiceImpl(MemberRepository memberRepository, MemberMapper memberMapper,
+                             PhotoStorageService photoStorageService, PhotoRenditionService photoRenditionService) {
         this.memberRepository = memberRepository;
         this.memberMapper = memberMapper;
+        this.photoStorageService = photoStorageService;
+        this.photoRenditionService = photoRenditionService;
     }
 
     /**
      * Save a member.
+     * <p>
+     * The photo hash is not taken from the DTO: the photo of the member is kept, unless a new photo
+     * is given or the photo is removed.
      *
      * @param memberDTO the entity to save
      * @return the persisted entity
@@ -41,8 +53,21 @@ public class MemberServiceImpl implements MemberService{
     @Override
     public MemberDTO save(MemberDTO memberDTO) {
         log.debug("Request to save Member : {}", memberDTO);
+        String previousPhotoHash = memberDTO.getId() == null ? null : memberRepository.findPhotoHashById(memberDTO.getId());
         Member member = memberMapper.toEntity(memberDTO);
+        if (memberDTO.getPhoto() != null) {
+            member.setPhotoHash(photoStorageService.store(memberDTO.getPhoto()));
+            photoRenditionService.scheduleRenditions(member.getPhotoHash());
+        } else {
+            member.setPhotoHash(memberDTO.isRemovePhoto() ? null : previousPhotoHash);
+        }
+        if (member.getPhotoHash() == null) {
+            member.setPhotoContentType(null);
+        }
         member = memberRepository.save(member);
+        if (previousPhotoHash != null && !previousPhotoHash.equals(member.getPhotoHash())) {
+            photoStorageService.deleteIfUnused(previousPhotoHash);
+        }
         return memberMapper.toDto(member);
     }
 
@@ -82,6 +107,8 @@ public class MemberServiceImpl implements MemberService{
     @Override
     public void delete(Long id) {
         log.debug("Request to delete Member : {}", id);
+        String photoHash = memberRepository.findPhotoHashById(id);
         memberRepository.delete(id);
+        photoStorageService.deleteIfUnused(photoHash);
     }
 }
@@ -1,17 +1,27 @@
 package org.pcastel.scm.service.impl;
 
+import org.pcastel.scm.domain.User;
+import org.pcastel.scm.service.DigestService;
 import org.pcastel.scm.service.TeamService;
 import org.pcastel.scm.domain.Team;
 import org.pcastel.scm.repository.TeamRepository;
+import org.pcastel.scm.repository.UserRepository;
 import org.pcastel.scm.service.dto.TeamDTO;
 import org.pcastel.scm.service.mapper.TeamMapper;
+import org.pcastel.scm.service.util.SliceUtil;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
 
 /**
  * Service Implementation for managing Team.
@@ -26,13 +36,22 @@ public class TeamServiceImpl implements TeamService{
 
     private final TeamMapper teamMapper;
 
-    public TeamServiceImpl(TeamRepository teamRepository, TeamMapper teamMapper) {
+    private final UserRepository userRepository;
+
+    private final DigestService digestService;
+
+    public TeamServiceImpl(TeamRepository teamRepository, TeamMapper teamMapper, UserRepository userRepository,
+                           DigestService digestService) {
         this.teamRepository = teamRepository;
         this.teamMapper = teamMapper;
+        this.userRepository = userRepository;
+        this.digestService = digestService;
     }
 
     /**
      * Save a team.
+     * <p>
+     * The members who joined or left the team are appended to the digests of its members.
      *
      * @param teamDTO the entity to save
      * @return the persisted entity
@@ -40,11 +59,37 @@ public class TeamServiceImpl implements TeamService{
     @Override
     public TeamDTO save(TeamDTO teamDTO) {
         log.debug("Request to save Team : {}", teamDTO);
+        Set<Long> previousMemberIds = Collections.emptySet();
+        if (teamDTO.getId() != null) {
+            Team previous = teamRepository.findOneWithEagerRelationships(teamDTO.getId());
+            if (previous != null) {
+                previousMemberIds = getMemberIds(previous);
+            }
+        }
         Team team = teamMapper.toEntity(teamDTO);
         team = teamRepository.save(team);
+        Set<Long> memberIds = getMemberIds(team);
+        Set<Long> joinedIds = new HashSet<>(memberIds);
+        joinedIds.removeAll(previousMemberIds);
+        Set<Long> leftIds = new HashSet<>(previousMemberIds);
+        leftIds.removeAll(memberIds);
+        digestService.appendRosterChanges(team, findUsers(joinedIds), findUsers(leftIds));
         return teamMapper.toDto(team);
     }
 
+    private static Set<Long> getMemberIds(Team team) {
+        return team.getMembers().stream()
+            .map(User::getId)
+            .collect(Collectors.toSet());
+    }
+
+    /**
+     * The members of the mapped team only have their id.
+     */
+    private List<User> findUsers(Set<Long> ids) {
+        return ids.isEmpty() ? Collections.emptyList() : userRepository.findAll(ids);
+    }
+
     /**
      *  Get all the teams.
      *
@@ -59,6 +104,25 @@ public class TeamServiceImpl implements TeamService{
             .map(teamMapper::toDto);
     }
 
+    /**
+     *  Get the teams sorted after a given one, by name and id.
+     *
+     *  @param name the name of the team to start after, or null to start with the first team
+     *  @param id the id of the team to start after
+     *  @param size the number of teams to get
+     *  @return the slice of entities
+     */
+    @Override
+    @Transactional(readOnly = true)
+    public Slice<TeamDTO> findAllAfter(String name, Long id, int size) {
+        log.debug("Request to get Teams after : {}, {}", name, id);
+        List<Team> teams = name == null
+            ? teamRepository.findAllByOrderByNameAscIdAsc(SliceUtil.queryLimit(size))
+            : teamRepository.findAllAfter(name, id, SliceUtil.queryLimit(size));
+        return SliceUtil.toSlice(teams, size)
+            .map(teamMapper::toDto);
+    }
+
     /**
      *  Get one team by id.
      *
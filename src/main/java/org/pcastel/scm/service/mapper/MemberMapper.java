@@ -14,6 +14,10 @@ public interface MemberMapper extends EntityMapper <MemberDTO, Member> {
     @Mapping(source = "user.id", target = "userId")
 
     @Mapping(source = "address.id", target = "addressId")
+
+    @Mapping(target = "photo", ignore = true)
+
+    @Mapping(target = "removePhoto", ignore = true)
     MemberDTO toDto(Member member); 
 
     @Mapping(source = "userId", target = "user")
@@ -0,0 +1,109 @@
+package org.pcastel.scm.service.util;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.regex.Pattern;
+
+/**
+ * File system store where every blob is named after the SHA-256 hash of its content.
+ * <p>
+ * Blobs are spread over 256 sub-directories (first two hex digits of the hash) and are written
+ * through a temporary file followed by an atomic move, so readers never see a partial file and
+ * storing the same content twice is a no-op.
+ */
+public final class ContentAddressedStore {
+
+    private static final String HASH_ALGORITHM = "SHA-256";
+
+    private static final Pattern HASH_PATTERN = Pattern.compile("^[0-9a-f]{64}$");
+
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+    private final Path root;
+
+    public ContentAddressedStore(Path root) {
+        this.root = root;
+    }
+
+    /**
+     * Store a blob.
+     *
+     * @param content the bytes to store
+     * @return the hash under which the content is stored
+     * @throws IOException if the blob could not be written
+     */
+    public String put(byte[] content) throws IOException {
+        String hash = hash(content);
+        write(hash, content);
+        return hash;
+    }
+
+    /**
+     * Store a blob under a given hash.
+     * <p>
+     * This is used for content derived from another blob (e.g. an image rendition), which is then
+     * looked up with the hash of its source.
+     *
+     * @param hash the hash to store the content under
+     * @param content the bytes to store
+     * @throws IOException if the blob could not be written
+     */
+    public void write(String hash, byte[] content) throws IOException {
+        Path target = resolve(hash);
+        if (Files.exists(target)) {
+            return;
+        }
+        Files.createDirectories(target.getParent());
+        Path temp = Files.createTempFile(target.getParent(), hash, ".tmp");
+        try {
+            Files.write(temp, content);
+            Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    /**
+     * Get the location of a blob, whether it exists or not.
+     *
+     * @param hash the hash of the blob
+     * @return the path of the blob
+     * @throws IllegalArgumentException if the hash is not a lowercase hex SHA-256 digest
+     */
+    public Path resolve(String hash) {
+        if (hash == null || !HASH_PATTERN.matcher(hash).matches()) {
+            throw new IllegalArgumentException("Invalid content hash: " + hash);
+        }
+        return root.resolve(hash.substring(0, 2)).resolve(hash);
+    }
+
+    public boolean exists(String hash) {
+        return Files.isRegularFile(resolve(hash));
+    }
+
+    public void delete(String hash) throws IOException {
+        Files.deleteIfExists(resolve(hash));
+    }
+
+    public Path getRoot() {
+        return root;
+    }
+
+    public static String hash(byte[] content) {
+        try {
+            byte[] digest = MessageDigest.getInstance(HASH_ALGORITHM).digest(content);
+            char[] chars = new char[digest.length * 2];
+            for (int i = 0; i < digest.length; i++) {
+                chars[i * 2] = HEX[(digest[i] >> 4) & 0xf];
+                chars[i * 2 + 1] = HEX[digest[i] & 0xf];
+            }
+            return new String(chars);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(HASH_ALGORITHM + " is not available", e);
+        }
+    }
+}
@@ -0,0 +1,39 @@
+package org.pcastel.scm.service.util;
+
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.SliceImpl;
+
+import java.util.List;
+
+/**
+ * Utility class for building slices out of keyset queries.
+ *
+ * <p>
+ * A keyset query fetches one element more than the slice size: its presence tells that there is a
+ * next slice, without running a count query.
+ */
+public final class SliceUtil {
+
+    private SliceUtil() {
+    }
+
+    /**
+     * @param size the size of the slice
+     * @return the limit to apply to the keyset query
+     */
+    public static Pageable queryLimit(int size) {
+        return new PageRequest(0, size + 1);
+    }
+
+    /**
+     * @param content the result of the keyset query, limited with {@link #queryLimit(int)}
+     * @param size the size of the slice
+     * @return the slice
+     */
+    public static <T> Slice<T> toSlice(List<T> content, int size) {
+        boolean hasNext = content.size() > size;
+        return new SliceImpl<>(hasNext ? content.subList(0, size) : content, new PageRequest(0, size), hasNext);
+    }
+}
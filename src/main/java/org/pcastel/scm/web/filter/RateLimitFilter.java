@@ -0,0 +1,119 @@
+package org.pcastel.scm.web.filter;
+
+import org.pcastel.scm.security.jwt.JWTFilter;
+import org.pcastel.scm.security.jwt.TokenProvider;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.util.StringUtils;
+import org.springframework.web.util.UrlPathHelper;
+
+import javax.servlet.*;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Filter rejecting the requests of the clients sending too many of them, with a 429 (Too Many
+ * Requests) status and the number of seconds to wait in the Retry-After header.
+ * <p>
+ * The clients are identified by their IP address, or by the principal of their token for the
+ * routes limited by principal. Behind trusted proxies, the IP address is the last one of the
+ * X-Forwarded-For header that is not a trusted proxy, as the client can forge the ones before. The principal is read from the token of the request, so that the
+ * filter does not depend on the order of the Spring Security filters.
+ *
+ * @see RateLimiter
+ */
+public class RateLimitFilter implements Filter {
+
+    private final Logger log = LoggerFactory.getLogger(RateLimitFilter.class);
+
+    private final RateLimiter rateLimiter;
+
+    private final TokenProvider tokenProvider;
+
+    private static final String FORWARDED_FOR_HEADER = "X-Forwarded-For";
+
+    private final UrlPathHelper urlPathHelper = new UrlPathHelper();
+
+    public RateLimitFilter(RateLimiter rateLimiter, TokenProvider tokenProvider) {
+        this.rateLimiter = rateLimiter;
+        this.tokenProvider = tokenProvider;
+    }
+
+    @Override
+    public void init(FilterConfig filterConfig) throws ServletException {
+        // Nothing to initialize
+    }
+
+    @Override
+    public void destroy() {
+        // Nothing to destroy
+    }
+
+    @Override
+    public void doFilter(ServletRequest request, ServletResponse response, FilterChain chain)
+        throws IOException, ServletException {
+
+        HttpServletRequest httpRequest = (HttpServletRequest) request;
+        RateLimiter.Route route = rateLimiter.getRoute(urlPathHelper.getPathWithinApplication(httpRequest));
+        if (route != null) {
+            String client = route.isByPrincipal() ? getPrincipal(httpRequest) : getClientAddress(httpRequest);
+            long wait = rateLimiter.acquire(route, client, System.nanoTime());
+            if (wait > 0) {
+                log.debug("Too many requests from {} on {}", client, route.getName());
+                HttpServletResponse httpResponse = (HttpServletResponse) response;
+                httpResponse.setStatus(HttpStatus.TOO_MANY_REQUESTS.value());
+                httpResponse.setHeader(HttpHeaders.RETRY_AFTER,
+                    String.valueOf((wait + TimeUnit.SECONDS.toNanos(1) - 1) / TimeUnit.SECONDS.toNanos(1)));
+                return;
+            }
+        }
+        chain.doFilter(request, response);
+    }
+
+    /**
+     * @return the principal of the token of the request, or the IP address for the requests without
+     * a valid token
+     */
+    private String getPrincipal(HttpServletRequest request) {
+        String jwt = JWTFilter.resolveToken(request);
+        if (StringUtils.hasText(jwt)) {
+            return tokenProvider.authenticate(jwt)
+                .map(authentication -> "user:" + authentication.getName())
+                .orElseGet(() -> getClientAddress(request));
+        }
+        return getClientAddress(request);
+    }
+
+    /**
+     * @return the IP address of the client, resolved through the X-Forwarded-For header of the
+     * trusted proxies
+     */
+    String getClientAddress(HttpServletRequest request) {
+        String address = request.getRemoteAddr();
+        Enumeration<String> headers = request.getHeaders(FORWARDED_FOR_HEADER);
+        if (headers == null || !rateLimiter.isTrustedProxy(address)) {
+            return address;
+        }
+        // The proxies append to the header, which can be repeated, so the client is found from the end
+        List<String> forwarded = new ArrayList<>();
+        for (String header : Collections.list(headers)) {
+            Collections.addAll(forwarded, StringUtils.commaDelimitedListToStringArray(header));
+        }
+        for (int i = forwarded.size() - 1; i >= 0 && rateLimiter.isTrustedProxy(address); i--) {
+            String hop = forwarded.get(i).trim();
+            if (!hop.isEmpty()) {
+                address = hop;
+            }
+        }
+        return address;
+    }
+}
@@ -0,0 +1,165 @@
+package org.pcastel.scm.web.filter;
+
+import org.pcastel.scm.config.ApplicationProperties;
+
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.Metric;
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.MetricSet;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.stereotype.Component;
+import org.springframework.util.AntPathMatcher;
+import org.springframework.util.StringUtils;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Pattern;
+
+/**
+ * Token buckets limiting the rate of the requests of each client, by route.
+ * <p>
+ * Each bucket is a single {@link AtomicLong}: the time at which it will be full again, updated with a
+ * compare-and-set, so that the clients never lock. The buckets are kept in a bounded Caffeine cache,
+ * whose hash table is striped and lock-free for reads. A forgotten bucket is full, so forgetting the
+ * least recently seen clients never denies a request.
+ * <p>
+ * The allowed and denied requests of each route are metered, and registered by the MetricsConfiguration.
+ *
+ * @see RateLimitFilter
+ */
+@Component
+public class RateLimiter implements MetricSet {
+
+    private final AntPathMatcher pathMatcher = new AntPathMatcher();
+
+    private final List<Route> routes = new ArrayList<>();
+
+    private final Cache<String, AtomicLong> buckets;
+
+    private final Pattern trustedProxies;
+
+    public RateLimiter(ApplicationProperties applicationProperties) {
+        ApplicationProperties.RateLimit rateLimit = applicationProperties.getRateLimit();
+        this.trustedProxies = StringUtils.hasText(rateLimit.getTrustedProxies())
+            ? Pattern.compile(rateLimit.getTrustedProxies()) : null;
+        if (rateLimit.isEnabled()) {
+            rateLimit.getPolicies().forEach((name, policy) -> routes.add(new Route(name, policy)));
+        }
+        long maxRefillNanos = routes.stream().mapToLong(route -> route.tolerance).max().orElse(0);
+        this.buckets = Caffeine.newBuilder()
+            .maximumSize(rateLimit.getMaxClients())
+            // A bucket unused for longer is full again
+            .expireAfterAccess(Math.max(maxRefillNanos, TimeUnit.MINUTES.toNanos(1)), TimeUnit.NANOSECONDS)
+            .build();
+    }
+
+    public boolean isEmpty() {
+        return routes.isEmpty();
+    }
+
+    /**
+     * @param address the IP address of a peer
+     * @return true if the peer is a proxy whose X-Forwarded-For header is trusted
+     */
+    public boolean isTrustedProxy(String address) {
+        return trustedProxies != null && trustedProxies.matcher(address).matches();
+    }
+
+    /**
+     * @param path the path of the request, within the application
+     * @return the route of the first policy matching the path, or null if the path is not limited
+     */
+    public Route getRoute(String path) {
+        for (Route route : routes) {
+            if (pathMatcher.match(route.pattern, path)) {
+                return route;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Take a token from the bucket of a client.
+     *
+     * @param route the route of the request
+     * @param client the IP address or the principal of the client
+     * @param now the current time, from {@link System#nanoTime()}
+     * @return 0 if the request is allowed, or the nanoseconds until the client can send it
+     */
+    public long acquire(Route route, String client, long now) {
+        AtomicLong bucket = buckets.get(route.name + '|' + client, key -> new AtomicLong(Long.MIN_VALUE));
+        while (true) {
+            long fullAt = bucket.get();
+            long nextFullAt = Math.max(fullAt, now) + route.interval;
+            long wait = nextFullAt - now - route.tolerance;
+            if (wait > 0) {
+                route.denied.mark();
+                return wait;
+            }
+            if (bucket.compareAndSet(fullAt, nextFullAt)) {
+                route.allowed.mark();
+                return 0;
+            }
+        }
+    }
+
+    @Override
+    public Map<String, Metric> getMetrics() {
+        Map<String, Metric> metrics = new HashMap<>();
+        for (Route route : routes) {
+            metrics.put(MetricRegistry.name(route.name, "allowed"), route.allowed);
+            metrics.put(MetricRegistry.name(route.name, "denied"), route.denied);
+        }
+        metrics.put("clients", (Gauge<Long>) buckets::estimatedSize);
+        return Collections.unmodifiableMap(metrics);
+    }
+
+    /**
+     * The limits of the requests matching a policy.
+     */
+    public static final class Route {
+
+        private final String name;
+
+        private final String pattern;
+
+        private final boolean byPrincipal;
+
+        /**
+         * Time to refill one token, in nanoseconds.
+         */
+        private final long interval;
+
+        /**
+         * Time to refill the whole bucket, in nanoseconds.
+         */
+        private final long tolerance;
+
+        private final Meter allowed = new Meter();
+
+        private final Meter denied = new Meter();
+
+        Route(String name, ApplicationProperties.RateLimit.Policy policy) {
+            this.name = name;
+            this.pattern = policy.getPath();
+            this.byPrincipal = policy.getKey() == ApplicationProperties.RateLimit.Policy.Key.PRINCIPAL;
+            this.interval = TimeUnit.MINUTES.toNanos(1) / policy.getRequestsPerMinute();
+            this.tolerance = interval * policy.getCapacity();
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public boolean isByPrincipal() {
+            return byPrincipal;
+        }
+    }
+}
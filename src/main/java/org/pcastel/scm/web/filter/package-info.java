@@ -0,0 +1,4 @@
+/**
+ * Servlet filters.
+ */
+package org.pcastel.scm.web.filter;
@@ -13,6 +13,9 @@ import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.time.Instant;
 import java.time.LocalDate;
 import java.time.ZoneId;
 import java.util.List;
@@ -24,6 +27,8 @@ import java.util.List;
 @RequestMapping("/management/audits")
 public class AuditResource {
 
+    static final String NDJSON_CONTENT_TYPE = "application/x-ndjson";
+
     private final AuditEventService auditEventService;
 
     public AuditResource(AuditEventService auditEventService) {
@@ -65,6 +70,31 @@ public class AuditResource {
         return new ResponseEntity<>(page.getContent(), headers, HttpStatus.OK);
     }
 
+    /**
+     * GET  /audits/export : export the AuditEvents as NDJSON, one event per line, in date order.
+     * <p>
+     * The events are streamed from the database to the response, so any number of them can be
+     * exported. The events older than the retention period are in the archives instead.
+     *
+     * @param fromDate the start of the time period of AuditEvents to export, or none for all the events
+     * @param toDate the end of the time period of AuditEvents to export, or none for all the events until now
+     * @param response the response to write to
+     * @throws IOException if the events could not be written
+     */
+    @GetMapping("/export")
+    public void export(
+        @RequestParam(value = "fromDate", required = false) LocalDate fromDate,
+        @RequestParam(value = "toDate", required = false) LocalDate toDate,
+        HttpServletResponse response) throws IOException {
+
+        response.setContentType(NDJSON_CONTENT_TYPE);
+        response.setHeader(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"audits.ndjson\"");
+        auditEventService.export(
+            fromDate == null ? Instant.EPOCH : fromDate.atStartOfDay(ZoneId.systemDefault()).toInstant(),
+            toDate == null ? Instant.now() : toDate.atStartOfDay(ZoneId.systemDefault()).plusDays(1).toInstant(),
+            response.getOutputStream());
+    }
+
     /**
      * GET  /audits/:id : get an AuditEvent by id.
      *
@@ -0,0 +1,124 @@
+package org.pcastel.scm.web.rest;
+
+import org.pcastel.scm.web.rest.vm.CacheRegionVM;
+
+import com.codahale.metrics.annotation.Timed;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/**
+ * Controller for viewing the statistics of the cache regions and clearing them at runtime.
+ * <p>
+ * The statistics are read from the JCache statistics MBeans, which are registered for the caches
+ * whose statistics are enabled by the CacheConfiguration.
+ */
+@RestController
+@RequestMapping("/management")
+public class CacheResource {
+
+    private static final ObjectName STATISTICS_MBEANS = toObjectName("javax.cache:type=CacheStatistics,*");
+
+    private final Logger log = LoggerFactory.getLogger(CacheResource.class);
+
+    private final CacheManager cacheManager;
+
+    private final MBeanServer mBeanServer = ManagementFactory.getPlatformMBeanServer();
+
+    public CacheResource(CacheManager cacheManager) {
+        this.cacheManager = cacheManager;
+    }
+
+    /**
+     * GET  /caches : get the statistics of all the cache regions.
+     *
+     * @return the list of cache regions, sorted by name
+     */
+    @GetMapping("/caches")
+    @Timed
+    public List<CacheRegionVM> getAllCaches() {
+        Map<String, ObjectName> statistics = getStatisticsMBeans();
+        return cacheManager.getCacheNames().stream()
+            .sorted()
+            .map(name -> toCacheRegionVM(name, statistics.get(name)))
+            .collect(Collectors.toList());
+    }
+
+    /**
+     * DELETE  /caches/:name : clear a cache region.
+     *
+     * @param name the name of the cache region, such as "org.pcastel.scm.domain.Event.participants"
+     * @return the ResponseEntity with status 204 (No Content), or with status 404 (Not Found)
+     */
+    @DeleteMapping("/caches/{name:.+}")
+    @Timed
+    public ResponseEntity<Void> clearCache(@PathVariable String name) {
+        if (!cacheManager.getCacheNames().contains(name)) {
+            return ResponseEntity.notFound().build();
+        }
+        log.info("Clearing cache {}", name);
+        cacheManager.getCache(name).clear();
+        return ResponseEntity.noContent().build();
+    }
+
+    /**
+     * DELETE  /caches : clear all the cache regions.
+     */
+    @DeleteMapping("/caches")
+    @ResponseStatus(HttpStatus.NO_CONTENT)
+    @Timed
+    public void clearAllCaches() {
+        log.info("Clearing all caches");
+        cacheManager.getCacheNames().stream()
+            .map(cacheManager::getCache)
+            .forEach(Cache::clear);
+    }
+
+    private Map<String, ObjectName> getStatisticsMBeans() {
+        Map<String, ObjectName> mBeans = new HashMap<>();
+        for (ObjectName objectName : mBeanServer.queryNames(STATISTICS_MBEANS, null)) {
+            mBeans.put(objectName.getKeyProperty("Cache"), objectName);
+        }
+        return mBeans;
+    }
+
+    private CacheRegionVM toCacheRegionVM(String name, ObjectName statistics) {
+        CacheRegionVM cacheRegion = new CacheRegionVM(name);
+        if (statistics == null) {
+            // Statistics are not enabled on this cache
+            return cacheRegion;
+        }
+        try {
+            cacheRegion.setHits((Long) mBeanServer.getAttribute(statistics, "CacheHits"));
+            cacheRegion.setMisses((Long) mBeanServer.getAttribute(statistics, "CacheMisses"));
+            cacheRegion.setPuts((Long) mBeanServer.getAttribute(statistics, "CachePuts"));
+            cacheRegion.setRemovals((Long) mBeanServer.getAttribute(statistics, "CacheRemovals"));
+            cacheRegion.setEvictions((Long) mBeanServer.getAttribute(statistics, "CacheEvictions"));
+            cacheRegion.setHitPercentage((Float) mBeanServer.getAttribute(statistics, "CacheHitPercentage"));
+        } catch (JMException e) {
+            log.warn("Could not read the statistics of cache {}: {}", name, e.getMessage());
+        }
+        return cacheRegion;
+    }
+
+    private static ObjectName toObjectName(String name) {
+        try {
+            return new ObjectName(name);
+        } catch (JMException e) {
+            throw new IllegalArgumentException(e);
+        }
+    }
+}
@@ -3,23 +3,31 @@ package org.pcastel.scm.web.rest;
 import com.codahale.metrics.annotation.Timed;
 import org.pcastel.scm.service.EventService;
 import org.pcastel.scm.web.rest.util.HeaderUtil;
+import org.pcastel.scm.web.rest.util.KeysetCursor;
 import org.pcastel.scm.web.rest.util.PaginationUtil;
+import org.pcastel.scm.service.dto.EventCriteria;
 import org.pcastel.scm.service.dto.EventDTO;
+import org.pcastel.scm.service.dto.EventSeriesDTO;
+import org.pcastel.scm.service.dto.EventSeriesSummaryDTO;
 import io.swagger.annotations.ApiParam;
 import io.github.jhipster.web.util.ResponseUtil;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.util.UriComponentsBuilder;
 
+import javax.servlet.http.HttpServletRequest;
 import javax.validation.Valid;
 import java.net.URI;
 import java.net.URISyntaxException;
 
+import java.time.Period;
 import java.util.List;
 import java.util.Optional;
 
@@ -34,6 +42,8 @@ public class EventResource {
 
     private static final String ENTITY_NAME = "event";
 
+    private static final Period MAX_SERIES_DURATION = Period.ofYears(1);
+
     private final EventService eventService;
 
     public EventResource(EventService eventService) {
@@ -83,20 +93,107 @@ public class EventResource {
     }
 
     /**
-     * GET  /events : get all the events.
+     * POST  /events/series : Create the events of a series, from a template event and a recurrence rule.
+     * <p>
+     * For example, the weekly trainings of a season, without the school holidays, are created by posting
+     * {@code {"template": {...,"date": "2017-09-04"}, "daysOfWeek": ["MONDAY"], "endDate": "2018-06-30",
+     * "exclusions": [{"from": "2017-10-21", "to": "2017-11-05"}]}}.
+     *
+     * @param eventSeriesDTO the template of the events, whose date is the first date of the series, and the
+     *                       recurrence rule
+     * @return the ResponseEntity with status 201 (Created) and with body the summary of the created events, or with
+     * status 400 (Bad Request) if the template has already an ID or if the series ends before it starts or more
+     * than a year after
+     * @throws URISyntaxException if the Location URI syntax is incorrect
+     */
+    @PostMapping("/events/series")
+    @Timed
+    public ResponseEntity<EventSeriesSummaryDTO> createEventSeries(@Valid @RequestBody EventSeriesDTO eventSeriesDTO)
+        throws URISyntaxException {
+        log.debug("REST request to save a series of Events : {}", eventSeriesDTO);
+        EventDTO template = eventSeriesDTO.getTemplate();
+        if (template.getId() != null) {
+            return ResponseEntity.badRequest().headers(HeaderUtil.createFailureAlert(ENTITY_NAME, "idexists", "A new event cannot already have an ID")).body(null);
+        }
+        if (eventSeriesDTO.getEndDate().isBefore(template.getDate()) ||
+            eventSeriesDTO.getEndDate().isAfter(template.getDate().plus(MAX_SERIES_DURATION))) {
+            return ResponseEntity.badRequest().headers(HeaderUtil.createFailureAlert(ENTITY_NAME, "invalidSeries", "A series of events must end within a year after it starts")).body(null);
+        }
+        EventSeriesSummaryDTO result = eventService.createSeries(eventSeriesDTO);
+        return ResponseEntity.created(new URI("/api/events?seriesId=" + result.getSeriesId()))
+            .headers(HeaderUtil.createAlert("scmApp.event.seriesCreated", String.valueOf(result.getNumberOfEvents())))
+            .body(result);
+    }
+
+    /**
+     * PUT  /events/:id/following : Updates the "id" event and the following events of its series.
+     * <p>
+     * The dates and the participants of the events are left unchanged: to cancel the following events,
+     * put the event with the CANCELED state.
      *
+     * @param id the id of the first event to update
+     * @param eventDTO the changes of the events
+     * @return the ResponseEntity with status 200 (OK), or with status 400 (Bad Request) if the eventDTO is not
+     * valid, or with status 404 (Not Found)
+     */
+    @PutMapping("/events/{id}/following")
+    @Timed
+    public ResponseEntity<Void> updateFollowingEvents(@PathVariable Long id, @Valid @RequestBody EventDTO eventDTO) {
+        log.debug("REST request to update Event {} and the following ones : {}", id, eventDTO);
+        eventDTO.setId(id);
+        return eventService.updateFollowing(eventDTO)
+            .map(count -> ResponseEntity.ok()
+                .headers(HeaderUtil.createAlert("scmApp.event.followingUpdated", count.toString()))
+                .<Void>build())
+            .orElse(ResponseEntity.notFound().build());
+    }
+
+    /**
+     * GET  /events : get all the events, or the events matching the given criteria.
+     * <p>
+     * For example, the upcoming matches of a team are returned by
+     * {@code /api/events?teamId=1&from=2017-10-20&type=MATCH&sort=date}.
+     *
+     * @param criteria the criteria the events must match: teamId, from, to (both inclusive), state, type,
+     *                 isHome, locationId and seriesId
      * @param pageable the pagination information
+     * @param request the HTTP request, whose criteria are kept in the pagination links
      * @return the ResponseEntity with status 200 (OK) and the list of events in body
      */
     @GetMapping("/events")
     @Timed
-    public ResponseEntity<List<EventDTO>> getAllEvents(@ApiParam Pageable pageable) {
-        log.debug("REST request to get a page of Events");
-        Page<EventDTO> page = eventService.findAll(pageable);
-        HttpHeaders headers = PaginationUtil.generatePaginationHttpHeaders(page, "/api/events");
+    public ResponseEntity<List<EventDTO>> getAllEvents(EventCriteria criteria, @ApiParam Pageable pageable,
+                                                       HttpServletRequest request) {
+        log.debug("REST request to get a page of Events by criteria : {}", criteria);
+        Page<EventDTO> page = eventService.findAll(criteria, pageable);
+        String baseUrl = UriComponentsBuilder.fromPath("/api/events").query(request.getQueryString())
+            .replaceQueryParam("page").replaceQueryParam("size").toUriString();
+        HttpHeaders headers = PaginationUtil.generatePaginationHttpHeaders(page, baseUrl);
         return new ResponseEntity<>(page.getContent(), headers, HttpStatus.OK);
     }
 
+    /**
+     * GET  /events?after=:cursor : get the events sorted after a cursor, by date and id.
+     * <p>
+     * Unlike the offset pagination above, getting a page costs the same whatever its position,
+     * and no total count is computed: the response only links to the next and first pages.
+     * An empty cursor gets the first page. Events are not filtered in this mode.
+     *
+     * @param after the cursor of the page, taken from the "next" Link header of the previous page
+     * @param pageable the pagination information, of which only the size is used
+     * @return the ResponseEntity with status 200 (OK) and the list of events in body
+     */
+    @GetMapping(value = "/events", params = "after")
+    @Timed
+    public ResponseEntity<List<EventDTO>> getEventsAfter(@RequestParam String after, @ApiParam Pageable pageable) {
+        log.debug("REST request to get Events after : {}", after);
+        KeysetCursor cursor = KeysetCursor.decode(after, 2);
+        Slice<EventDTO> slice = eventService.findAllAfter(cursor.getLocalDate(0), cursor.getLong(1), pageable.getPageSize());
+        HttpHeaders headers = PaginationUtil.generateKeysetPaginationHttpHeaders(slice,
+            event -> KeysetCursor.encode(event.getDate(), event.getId()), "/api/events");
+        return new ResponseEntity<>(slice.getContent(), headers, HttpStatus.OK);
+    }
+
     /**
      * GET  /events/:id : get the "id" event.
      *
@@ -111,6 +208,65 @@ public class EventResource {
         return ResponseUtil.wrapOrNotFound(Optional.ofNullable(eventDTO));
     }
 
+    /**
+     * POST  /events/:id/participants/me : add the current user to the participants of the "id" event.
+     *
+     * @param id the id of the event to join
+     * @return the ResponseEntity with status 201 (Created) if the user joined the event, with status 200 (OK) if
+     * the user already participates, with status 202 (Accepted) if the event is full and the user is on its waitlist,
+     * or with status 404 (Not Found)
+     */
+    @PostMapping("/events/{id}/participants/me")
+    @Timed
+    public ResponseEntity<Void> joinEvent(@PathVariable Long id) {
+        log.debug("REST request to join Event : {}", id);
+        switch (eventService.join(id)) {
+            case JOINED:
+                return ResponseEntity.status(HttpStatus.CREATED)
+                    .headers(HeaderUtil.createAlert("scmApp.event.joined", id.toString())).build();
+            case ALREADY_PARTICIPANT:
+                return ResponseEntity.ok().build();
+            case WAITLISTED:
+                String position = eventService.getWaitlistPosition(id).map(String::valueOf).orElse("");
+                return ResponseEntity.status(HttpStatus.ACCEPTED)
+                    .headers(HeaderUtil.createAlert("scmApp.event.waitlisted", position)).build();
+            default:
+                return ResponseEntity.notFound().build();
+        }
+    }
+
+    /**
+     * GET  /events/:id/waitlist/me : get the position of the current user in the waitlist of the "id" event.
+     *
+     * @param id the id of the event
+     * @return the ResponseEntity with status 200 (OK) and the position, starting at 1, in body, or with status
+     * 404 (Not Found) if the user is not waiting for the event
+     */
+    @GetMapping("/events/{id}/waitlist/me")
+    @Timed
+    public ResponseEntity<Integer> getWaitlistPosition(@PathVariable Long id) {
+        log.debug("REST request to get the waitlist position in Event : {}", id);
+        return ResponseUtil.wrapOrNotFound(eventService.getWaitlistPosition(id));
+    }
+
+    /**
+     * DELETE  /events/:id/participants/me : remove the current user from the participants or from the waitlist
+     * of the "id" event.
+     *
+     * @param id the id of the event to leave
+     * @return the ResponseEntity with status 200 (OK), or with status 404 (Not Found) if the user neither
+     * participates in nor waits for the event
+     */
+    @DeleteMapping("/events/{id}/participants/me")
+    @Timed
+    public ResponseEntity<Void> leaveEvent(@PathVariable Long id) {
+        log.debug("REST request to leave Event : {}", id);
+        if (!eventService.leave(id)) {
+            return ResponseEntity.notFound().build();
+        }
+        return ResponseEntity.ok().headers(HeaderUtil.createAlert("scmApp.event.left", id.toString())).build();
+    }
+
     /**
      * DELETE  /events/:id : delete the "id" event.
      *
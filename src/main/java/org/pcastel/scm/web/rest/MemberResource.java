@@ -1,7 +1,14 @@
 package org.pcastel.scm.web.rest;
 
 import com.codahale.metrics.annotation.Timed;
+import org.pcastel.scm.config.ApplicationProperties;
+import org.pcastel.scm.repository.UserRepository;
+import org.pcastel.scm.security.AuthoritiesConstants;
+import org.pcastel.scm.security.SecurityUtils;
 import org.pcastel.scm.service.MemberService;
+import org.pcastel.scm.service.PhotoRenditionService;
+import org.pcastel.scm.service.PhotoStorageService;
+import org.pcastel.scm.web.rest.util.FileResponseUtil;
 import org.pcastel.scm.web.rest.util.HeaderUtil;
 import org.pcastel.scm.service.dto.MemberDTO;
 import io.github.jhipster.web.util.ResponseUtil;
@@ -10,9 +17,13 @@ import org.slf4j.LoggerFactory;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
 import javax.validation.Valid;
+import java.io.IOException;
 import java.net.URI;
 import java.net.URISyntaxException;
+import java.nio.file.Path;
 
 import java.util.List;
 import java.util.Optional;
@@ -30,8 +41,22 @@ public class MemberResource {
 
     private final MemberService memberService;
 
-    public MemberResource(MemberService memberService) {
+    private final PhotoStorageService photoStorageService;
+
+    private final PhotoRenditionService photoRenditionService;
+
+    private final ApplicationProperties applicationProperties;
+
+    private final UserRepository userRepository;
+
+    public MemberResource(MemberService memberService, PhotoStorageService photoStorageService,
+                          PhotoRenditionService photoRenditionService, ApplicationProperties applicationProperties,
+                          UserRepository userRepository) {
         this.memberService = memberService;
+        this.photoStorageService = photoStorageService;
+        this.photoRenditionService = photoRenditionService;
+        this.applicationProperties = applicationProperties;
+        this.userRepository = userRepository;
     }
 
     /**
@@ -102,6 +127,99 @@ public class MemberResource {
         return ResponseUtil.wrapOrNotFound(Optional.ofNullable(memberDTO));
     }
 
+    /**
+     * GET  /members/:id/photo : get the photo of the "id" member.
+     * <p>
+     * The photo is sent if the member shows their information, or to the member themselves and to
+     * the administrators.
+     *
+     * @param id the id of the member whose photo to retrieve
+     * @param size the size of the rendition to retrieve, in pixels
+     * @param request the HTTP request
+     * @param response the HTTP response
+     * @throws IOException if the photo could not be sent
+     */
+    @GetMapping("/members/{id}/photo")
+    @Timed
+    public void getMemberPhoto(@PathVariable Long id, @RequestParam(required = false) Integer size,
+                               HttpServletRequest request, HttpServletResponse response) throws IOException {
+        log.debug("REST request to get photo of Member : {}, size : {}", id, size);
+        MemberDTO memberDTO = memberService.findOne(id);
+        if (memberDTO == null || !Boolean.TRUE.equals(memberDTO.isShowInfo()) && !isCurrentUserOrAdmin(id)) {
+            response.sendError(HttpServletResponse.SC_NOT_FOUND);
+            return;
+        }
+        sendPhoto(memberDTO, size, request, response);
+    }
+
+    /**
+     * GET  /members/:id/photo/:hash : get the photo of the "id" member, without authentication.
+     * <p>
+     * This is the URL of {@link MemberDTO#getPhotoUrl()}, for the {@code <img>} tags, which cannot send the
+     * JWT header. The photo is only sent if the hash is the one of the current photo of the member, and
+     * if the member shows their information.
+     *
+     * @param id the id of the member whose photo to retrieve
+     * @param hash the hash of the photo
+     * @param size the size of the rendition to retrieve, in pixels
+     * @param request the HTTP request
+     * @param response the HTTP response
+     * @throws IOException if the photo could not be sent
+     */
+    @GetMapping("/members/{id}/photo/{hash}")
+    @Timed
+    public void getMemberPhotoByHash(@PathVariable Long id, @PathVariable String hash,
+                                     @RequestParam(required = false) Integer size,
+                                     HttpServletRequest request, HttpServletResponse response) throws IOException {
+        log.debug("REST request to get photo of Member : {}, hash : {}, size : {}", id, hash, size);
+        MemberDTO memberDTO = memberService.findOne(id);
+        if (memberDTO == null || !hash.equals(memberDTO.getPhotoHash()) || !Boolean.TRUE.equals(memberDTO.isShowInfo())) {
+            response.sendError(HttpServletResponse.SC_NOT_FOUND);
+            return;
+        }
+        sendPhoto(memberDTO, size, request, response);
+    }
+
+    private boolean isCurrentUserOrAdmin(Long memberId) {
+        // A member has the id of its user
+        return SecurityUtils.isCurrentUserInRole(AuthoritiesConstants.ADMIN) ||
+            userRepository.findOneByLogin(SecurityUtils.getCurrentUserLogin())
+                .map(user -> user.getId().equals(memberId))
+                .orElse(false);
+    }
+
+    /**
+     * Photos are immutable (a new upload gets a new hash), so they are served with a strong ETag,
+     * long-lived cache headers and byte range support. When a size is given, the square rendition
+     * of that size is sent; until it has been created, the original photo is sent instead, without
+     * being cacheable.
+     */
+    private void sendPhoto(MemberDTO memberDTO, Integer size, HttpServletRequest request,
+                           HttpServletResponse response) throws IOException {
+        if (size != null && !photoRenditionService.isRenditionSize(size)) {
+            response.sendError(HttpServletResponse.SC_BAD_REQUEST);
+            return;
+        }
+        String photoHash = memberDTO.getPhotoHash();
+        long maxAgeSeconds = applicationProperties.getPhoto().getCacheMaxAgeSeconds();
+        if (size != null) {
+            Optional<Path> rendition = photoRenditionService.findRendition(photoHash, size);
+            if (rendition.isPresent()) {
+                FileResponseUtil.sendFile(request, response, rendition.get(),
+                    PhotoRenditionService.RENDITION_CONTENT_TYPE, photoHash + "-" + size, maxAgeSeconds);
+                return;
+            }
+            maxAgeSeconds = 0;
+        }
+        Optional<Path> photo = photoStorageService.find(photoHash);
+        if (!photo.isPresent()) {
+            response.sendError(HttpServletResponse.SC_NOT_FOUND);
+            return;
+        }
+        FileResponseUtil.sendFile(request, response, photo.get(), memberDTO.getPhotoContentType(),
+            photoHash, maxAgeSeconds);
+    }
+
     /**
      * DELETE  /members/:id : delete the "id" member.
      *
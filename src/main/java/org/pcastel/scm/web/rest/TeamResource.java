@@ -3,6 +3,7 @@ package org.pcastel.scm.web.rest;
 import com.codahale.metrics.annotation.Timed;
 import org.pcastel.scm.service.TeamService;
 import org.pcastel.scm.web.rest.util.HeaderUtil;
+import org.pcastel.scm.web.rest.util.KeysetCursor;
 import org.pcastel.scm.web.rest.util.PaginationUtil;
 import org.pcastel.scm.service.dto.TeamDTO;
 import io.swagger.annotations.ApiParam;
@@ -11,6 +12,7 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
@@ -97,6 +99,28 @@ public class TeamResource {
         return new ResponseEntity<>(page.getContent(), headers, HttpStatus.OK);
     }
 
+    /**
+     * GET  /teams?after=:cursor : get the teams sorted after a cursor, by name and id.
+     * <p>
+     * Unlike the offset pagination above, getting a page costs the same whatever its position,
+     * and no total count is computed: the response only links to the next and first pages.
+     * An empty cursor gets the first page.
+     *
+     * @param after the cursor of the page, taken from the "next" Link header of the previous page
+     * @param pageable the pagination information, of which only the size is used
+     * @return the ResponseEntity with status 200 (OK) and the list of teams in body
+     */
+    @GetMapping(value = "/teams", params = "after")
+    @Timed
+    public ResponseEntity<List<TeamDTO>> getTeamsAfter(@RequestParam String after, @ApiParam Pageable pageable) {
+        log.debug("REST request to get Teams after : {}", after);
+        KeysetCursor cursor = KeysetCursor.decode(after, 2);
+        Slice<TeamDTO> slice = teamService.findAllAfter(cursor.getString(0), cursor.getLong(1), pageable.getPageSize());
+        HttpHeaders headers = PaginationUtil.generateKeysetPaginationHttpHeaders(slice,
+            team -> KeysetCursor.encode(team.getName(), team.getId()), "/api/teams");
+        return new ResponseEntity<>(slice.getContent(), headers, HttpStatus.OK);
+    }
+
     /**
      * GET  /teams/:id : get the "id" team.
      *
@@ -1,8 +1,12 @@
 package org.pcastel.scm.web.rest;
 
+import org.pcastel.scm.security.SecurityUtils;
 import org.pcastel.scm.security.jwt.JWTConfigurer;
 import org.pcastel.scm.security.jwt.TokenProvider;
+import org.pcastel.scm.service.RefreshTokenService;
+import org.pcastel.scm.service.TokenRevocationService;
 import org.pcastel.scm.web.rest.vm.LoginVM;
+import org.pcastel.scm.web.rest.vm.RefreshTokenVM;
 
 import com.codahale.metrics.annotation.Timed;
 import com.fasterxml.jackson.annotation.JsonProperty;
@@ -21,6 +25,7 @@ import org.springframework.web.bind.annotation.*;
 import javax.servlet.http.HttpServletResponse;
 import javax.validation.Valid;
 import java.util.Collections;
+import java.util.Optional;
 
 /**
  * Controller to authenticate users.
@@ -35,9 +40,16 @@ public class UserJWTController {
 
     private final AuthenticationManager authenticationManager;
 
-    public UserJWTController(TokenProvider tokenProvider, AuthenticationManager authenticationManager) {
+    private final TokenRevocationService tokenRevocationService;
+
+    private final RefreshTokenService refreshTokenService;
+
+    public UserJWTController(TokenProvider tokenProvider, AuthenticationManager authenticationManager,
+                             TokenRevocationService tokenRevocationService, RefreshTokenService refreshTokenService) {
         this.tokenProvider = tokenProvider;
         this.authenticationManager = authenticationManager;
+        this.tokenRevocationService = tokenRevocationService;
+        this.refreshTokenService = refreshTokenService;
     }
 
     @PostMapping("/authenticate")
@@ -51,9 +63,11 @@ public class UserJWTController {
             Authentication authentication = this.authenticationManager.authenticate(authenticationToken);
             SecurityContextHolder.getContext().setAuthentication(authentication);
             boolean rememberMe = (loginVM.isRememberMe() == null) ? false : loginVM.isRememberMe();
-            String jwt = tokenProvider.createToken(authentication, rememberMe);
+            // The access token is short-lived: "remember me" extends the validity of the refresh token
+            String jwt = tokenProvider.createToken(authentication, false);
+            String refreshToken = refreshTokenService.createRefreshToken(authentication.getName(), rememberMe);
             response.addHeader(JWTConfigurer.AUTHORIZATION_HEADER, "Bearer " + jwt);
-            return ResponseEntity.ok(new JWTToken(jwt));
+            return ResponseEntity.ok(new JWTToken(jwt, refreshToken));
         } catch (AuthenticationException ae) {
             log.trace("Authentication exception trace: {}", ae);
             return new ResponseEntity<>(Collections.singletonMap("AuthenticationException",
@@ -61,6 +75,55 @@ public class UserJWTController {
         }
     }
 
+    /**
+     * POST  /authenticate/refresh : get a new access token and refresh token, from a refresh token.
+     * <p>
+     * The refresh token can only be used once.
+     *
+     * @param refreshTokenVM the refresh token
+     * @param response the response, with the new access token in its Authorization header
+     * @return the ResponseEntity with status 200 (OK) and the new tokens in body, or with status
+     * 401 (Unauthorized) if the refresh token is not valid
+     */
+    @PostMapping("/authenticate/refresh")
+    @Timed
+    public ResponseEntity refresh(@Valid @RequestBody RefreshTokenVM refreshTokenVM, HttpServletResponse response) {
+        Optional<RefreshTokenService.RefreshedAuthentication> refreshed =
+            refreshTokenService.refresh(refreshTokenVM.getRefreshToken());
+        if (!refreshed.isPresent()) {
+            return new ResponseEntity<>(Collections.singletonMap("AuthenticationException",
+                "Invalid refresh token"), HttpStatus.UNAUTHORIZED);
+        }
+        String jwt = tokenProvider.createToken(refreshed.get().getAuthentication(), false);
+        response.addHeader(JWTConfigurer.AUTHORIZATION_HEADER, "Bearer " + jwt);
+        return ResponseEntity.ok(new JWTToken(jwt, refreshed.get().getRefreshToken()));
+    }
+
+    /**
+     * POST  /logout : revoke the token of the current request, and delete the refresh token of the session.
+     * <p>
+     * The access token may have expired already, so the refresh token is deleted without authentication.
+     *
+     * @param refreshTokenVM the refresh token of the session, if any
+     * @return the ResponseEntity with status 204 (No Content)
+     */
+    @PostMapping("/logout")
+    @Timed
+    public ResponseEntity<Void> logout(@Valid @RequestBody(required = false) RefreshTokenVM refreshTokenVM) {
+        if (refreshTokenVM != null) {
+            refreshTokenService.deleteRefreshToken(refreshTokenVM.getRefreshToken());
+        }
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        if (authentication != null && authentication.getCredentials() instanceof String) {
+            tokenProvider.getClaims((String) authentication.getCredentials())
+                .filter(claims -> claims.getId() != null && claims.getExpiration() != null)
+                .ifPresent(claims -> tokenRevocationService.revokeToken(claims.getSubject(), claims.getId(),
+                    claims.getExpiration().toInstant()));
+        }
+        log.debug("Logged out user: {}", SecurityUtils.getCurrentUserLogin());
+        return ResponseEntity.noContent().build();
+    }
+
     /**
      * Object to return as body in JWT Authentication.
      */
@@ -68,8 +131,11 @@ public class UserJWTController {
 
         private String idToken;
 
-        JWTToken(String idToken) {
+        private String refreshToken;
+
+        JWTToken(String idToken, String refreshToken) {
             this.idToken = idToken;
+            this.refreshToken = refreshToken;
         }
 
         @JsonProperty("id_token")
@@ -80,5 +146,14 @@ public class UserJWTController {
         void setIdToken(String idToken) {
             this.idToken = idToken;
         }
+
+        @JsonProperty("refresh_token")
+        String getRefreshToken() {
+            return refreshToken;
+        }
+
+        void setRefreshToken(String refreshToken) {
+            this.refreshToken = refreshToken;
+        }
     }
 }
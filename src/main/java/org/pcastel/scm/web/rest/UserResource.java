@@ -10,6 +10,7 @@ import org.pcastel.scm.service.UserService;
 import org.pcastel.scm.service.dto.UserDTO;
 import org.pcastel.scm.web.rest.vm.ManagedUserVM;
 import org.pcastel.scm.web.rest.util.HeaderUtil;
+import org.pcastel.scm.web.rest.util.KeysetCursor;
 import org.pcastel.scm.web.rest.util.PaginationUtil;
 import io.github.jhipster.web.util.ResponseUtil;
 import io.swagger.annotations.ApiParam;
@@ -18,6 +19,7 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
@@ -155,6 +157,28 @@ public class UserResource {
         return new ResponseEntity<>(page.getContent(), headers, HttpStatus.OK);
     }
 
+    /**
+     * GET  /users?after=:cursor : get the users sorted after a cursor, by login.
+     * <p>
+     * Unlike the offset pagination above, getting a page costs the same whatever its position,
+     * and no total count is computed: the response only links to the next and first pages.
+     * An empty cursor gets the first page.
+     *
+     * @param after the cursor of the page, taken from the "next" Link header of the previous page
+     * @param pageable the pagination information, of which only the size is used
+     * @return the ResponseEntity with status 200 (OK) and the list of users in body
+     */
+    @GetMapping(value = "/users", params = "after")
+    @Timed
+    public ResponseEntity<List<ManagedUserVM>> getUsersAfter(@RequestParam String after, @ApiParam Pageable pageable) {
+        log.debug("REST request to get Users after : {}", after);
+        KeysetCursor cursor = KeysetCursor.decode(after, 1);
+        Slice<ManagedUserVM> slice = userService.getManagedUsersAfter(cursor.getString(0), pageable.getPageSize());
+        HttpHeaders headers = PaginationUtil.generateKeysetPaginationHttpHeaders(slice,
+            user -> KeysetCursor.encode(user.getLogin()), "/api/users");
+        return new ResponseEntity<>(slice.getContent(), headers, HttpStatus.OK);
+    }
+
     /**
      * @return a string list of the all of the roles
      */
@@ -1,7 +1,10 @@
 package org.pcastel.scm.web.rest.errors;
 
+import org.pcastel.scm.security.PasswordHashingUnavailableException;
+
 import org.springframework.core.annotation.AnnotationUtils;
 import org.springframework.dao.ConcurrencyFailureException;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.ResponseEntity;
 import org.springframework.validation.BindingResult;
 import org.springframework.web.bind.MethodArgumentNotValidException;
@@ -30,6 +33,8 @@ import java.util.stream.Collectors;
 @ControllerAdvice
 public class ExceptionTranslator implements ProblemHandling {
 
+    private static final int RETRY_AFTER_SECONDS = 1;
+
     /**
      * Post-process Problem payload to add the message key for front-end if needed
      */
@@ -110,4 +115,21 @@ public class ExceptionTranslator implements ProblemHandling {
             .build();
         return create(ex, problem, request);
     }
+
+    /**
+     * The password hashing is saturated: the client should try again in a moment.
+     */
+    @ExceptionHandler(PasswordHashingUnavailableException.class)
+    public ResponseEntity<Problem> handlePasswordHashingUnavailable(PasswordHashingUnavailableException ex,
+                                                                    NativeWebRequest request) {
+        Problem problem = Problem.builder()
+            .withStatus(Status.SERVICE_UNAVAILABLE)
+            .withDetail(ex.getMessage())
+            .build();
+        ResponseEntity<Problem> response = create(ex, problem, request);
+        HttpHeaders headers = new HttpHeaders();
+        headers.putAll(response.getHeaders());
+        headers.set(HttpHeaders.RETRY_AFTER, String.valueOf(RETRY_AFTER_SECONDS));
+        return new ResponseEntity<>(response.getBody(), headers, response.getStatusCode());
+    }
 }
@@ -0,0 +1,130 @@
+package org.pcastel.scm.web.rest.util;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.MediaType;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Utility class for streaming immutable files to HTTP clients.
+ *
+ * <p>
+ * Files are sent with a strong ETag and long-lived cache headers, support conditional requests
+ * (<a href="https://tools.ietf.org/html/rfc7232">RFC 7232</a>) and single byte ranges
+ * (<a href="https://tools.ietf.org/html/rfc7233">RFC 7233</a>), and are streamed in chunks, so
+ * a file is never loaded whole into memory. The servlet output stream is not a file descriptor, so
+ * {@link FileChannel#transferTo} copies through a small buffer of the channel wrapping it: this is
+ * not a zero-copy transfer, which Undertow only offers through its own non-servlet API.
+ */
+public final class FileResponseUtil {
+
+    private static final Pattern RANGE_PATTERN = Pattern.compile("^bytes=(\\d*)-(\\d*)$");
+
+    private FileResponseUtil() {
+    }
+
+    public static void sendFile(HttpServletRequest request, HttpServletResponse response, Path file,
+                                String contentType, String etag, long maxAgeSeconds) throws IOException {
+
+        String quotedETag = "\"" + etag + "\"";
+        response.setHeader(HttpHeaders.ETAG, quotedETag);
+        // A max age of zero is used for stand-in content, which clients must revalidate
+        response.setHeader(HttpHeaders.CACHE_CONTROL,
+            maxAgeSeconds > 0 ? "public, max-age=" + maxAgeSeconds + ", immutable" : "no-cache");
+        response.setHeader(HttpHeaders.ACCEPT_RANGES, "bytes");
+        if (matchesETag(request.getHeader(HttpHeaders.IF_NONE_MATCH), quotedETag)) {
+            response.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+            return;
+        }
+
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long length = channel.size();
+            long start = 0;
+            long end = length - 1;
+            String range = request.getHeader(HttpHeaders.RANGE);
+            String ifRange = request.getHeader(HttpHeaders.IF_RANGE);
+            if (range != null && (ifRange == null || ifRange.equals(quotedETag))) {
+                Matcher matcher = RANGE_PATTERN.matcher(range.trim());
+                if (matcher.matches()) {
+                    String first = matcher.group(1);
+                    String last = matcher.group(2);
+                    if (first.isEmpty() && !last.isEmpty()) {
+                        // Suffix range: the last N bytes
+                        start = Math.max(0, length - parsePosition(last));
+                    } else if (!first.isEmpty()) {
+                        start = parsePosition(first);
+                        if (!last.isEmpty()) {
+                            end = Math.min(end, parsePosition(last));
+                        }
+                    }
+                    if (first.isEmpty() && last.isEmpty() || start >= length || start > end) {
+                        response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes */" + length);
+                        response.setStatus(HttpServletResponse.SC_REQUESTED_RANGE_NOT_SATISFIABLE);
+                        return;
+                    }
+                    response.setStatus(HttpServletResponse.SC_PARTIAL_CONTENT);
+                    response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes " + start + "-" + end + "/" + length);
+                }
+                // Multiple ranges are not supported: the whole file is sent instead, as allowed by RFC 7233
+            }
+
+            long count = end - start + 1;
+            response.setContentType(contentType != null ? contentType : MediaType.APPLICATION_OCTET_STREAM_VALUE);
+            response.setContentLengthLong(count);
+            if (HttpMethod.HEAD.matches(request.getMethod())) {
+                return;
+            }
+            transfer(channel, start, count, response.getOutputStream());
+        }
+    }
+
+    /**
+     * @return the byte position, or {@link Long#MAX_VALUE} for the positions too large for a long,
+     * which are beyond the end of any file
+     */
+    private static long parsePosition(String digits) {
+        try {
+            return Long.parseLong(digits);
+        } catch (NumberFormatException e) {
+            return Long.MAX_VALUE;
+        }
+    }
+
+    private static boolean matchesETag(String ifNoneMatch, String quotedETag) {
+        if (ifNoneMatch == null) {
+            return false;
+        }
+        for (String candidate : ifNoneMatch.split(",")) {
+            String trimmed = candidate.trim();
+            if (trimmed.equals("*") || trimmed.equals(quotedETag) || trimmed.equals("W/" + quotedETag)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static void transfer(FileChannel channel, long position, long count, OutputStream out) throws IOException {
+        WritableByteChannel target = Channels.newChannel(out);
+        long remaining = count;
+        while (remaining > 0) {
+            long transferred = channel.transferTo(position, remaining, target);
+            if (transferred <= 0) {
+                break;
+            }
+            position += transferred;
+            remaining -= transferred;
+        }
+        out.flush();
+    }
+}
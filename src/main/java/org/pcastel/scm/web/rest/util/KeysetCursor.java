@@ -0,0 +1,100 @@
+package org.pcastel.scm.web.rest.util;
+
+import org.pcastel.scm.web.rest.errors.CustomParameterizedException;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.Base64;
+import java.util.function.Function;
+import java.util.regex.Pattern;
+
+/**
+ * Opaque cursor of a keyset paginated list.
+ *
+ * <p>
+ * A cursor holds the sort keys of the last element of a page; the next page is made of the
+ * elements sorted after those keys. Clients get cursors from the "next" Link header and send
+ * them back unchanged in the "after" request parameter. An empty cursor designates the first page.
+ */
+public final class KeysetCursor {
+
+    private static final String SEPARATOR = "\u001f";
+
+    private final String cursor;
+
+    private final String[] keys;
+
+    private KeysetCursor(String cursor, String[] keys) {
+        this.cursor = cursor;
+        this.keys = keys;
+    }
+
+    /**
+     * Encode the sort keys of the last element of a page.
+     *
+     * @param keys the sort keys, in sort order
+     * @return the cursor of the next page
+     */
+    public static String encode(Object... keys) {
+        StringBuilder value = new StringBuilder();
+        for (Object key : keys) {
+            if (value.length() > 0) {
+                value.append(SEPARATOR);
+            }
+            value.append(key);
+        }
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(value.toString().getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Decode a cursor received from a client.
+     *
+     * @param cursor the cursor, empty for the first page
+     * @param keyCount the number of sort keys the cursor should hold
+     * @return the decoded cursor, whose keys are all null for the first page
+     * @throws CustomParameterizedException if the cursor is invalid
+     */
+    public static KeysetCursor decode(String cursor, int keyCount) {
+        if (cursor == null || cursor.isEmpty()) {
+            return new KeysetCursor(cursor, new String[keyCount]);
+        }
+        String[] keys;
+        try {
+            keys = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8)
+                .split(Pattern.quote(SEPARATOR), -1);
+        } catch (IllegalArgumentException e) {
+            throw invalid(cursor);
+        }
+        if (keys.length != keyCount) {
+            throw invalid(cursor);
+        }
+        return new KeysetCursor(cursor, keys);
+    }
+
+    public String getString(int index) {
+        return keys[index];
+    }
+
+    public Long getLong(int index) {
+        return get(index, Long::valueOf);
+    }
+
+    public LocalDate getLocalDate(int index) {
+        return get(index, LocalDate::parse);
+    }
+
+    private <T> T get(int index, Function<String, T> parser) {
+        if (keys[index] == null) {
+            return null;
+        }
+        try {
+            return parser.apply(keys[index]);
+        } catch (RuntimeException e) {
+            throw invalid(cursor);
+        }
+    }
+
+    private static CustomParameterizedException invalid(String cursor) {
+        return new CustomParameterizedException("error.invalidCursor", cursor);
+    }
+}
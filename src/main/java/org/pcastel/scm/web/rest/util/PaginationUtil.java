@@ -1,15 +1,23 @@
 package org.pcastel.scm.web.rest.util;
 
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Slice;
 import org.springframework.http.HttpHeaders;
 import org.springframework.web.util.UriComponentsBuilder;
 
+import java.util.List;
+import java.util.function.Function;
+
 /**
  * Utility class for handling pagination.
  *
  * <p>
  * Pagination uses the same principles as the <a href="https://developer.github.com/v3/#pagination">GitHub API</a>,
  * and follow <a href="http://tools.ietf.org/html/rfc5988">RFC 5988 (Link header)</a>.
+ *
+ * <p>
+ * Lists can also be paginated with a keyset cursor ({@code ?after=<cursor>&size=}), see {@link KeysetCursor}.
+ * In that mode the total count is not computed, so only the "next" and "first" links are sent.
  */
 public final class PaginationUtil {
 
@@ -39,6 +47,25 @@ public final class PaginationUtil {
         return headers;
     }
 
+    public static <T> HttpHeaders generateKeysetPaginationHttpHeaders(Slice<T> slice, Function<T, String> cursor,
+                                                                      String baseUrl) {
+
+        HttpHeaders headers = new HttpHeaders();
+        String link = "";
+        if (slice.hasNext()) {
+            List<T> content = slice.getContent();
+            String next = cursor.apply(content.get(content.size() - 1));
+            link = "<" + generateKeysetUri(baseUrl, next, slice.getSize()) + ">; rel=\"next\",";
+        }
+        link += "<" + generateKeysetUri(baseUrl, "", slice.getSize()) + ">; rel=\"first\"";
+        headers.add(HttpHeaders.LINK, link);
+        return headers;
+    }
+
+    private static String generateKeysetUri(String baseUrl, String after, int size) {
+        return UriComponentsBuilder.fromUriString(baseUrl).queryParam("after", after).queryParam("size", size).toUriString();
+    }
+
     private static String generateUri(String baseUrl, int page, int size) {
         return UriComponentsBuilder.fromUriString(baseUrl).queryParam("page", page).queryParam("size", size).toUriString();
     }
@@ -0,0 +1,98 @@
+package org.pcastel.scm.web.rest.vm;
+
+/**
+ * View Model object for storing the statistics of a cache region.
+ */
+public class CacheRegionVM {
+
+    private String name;
+
+    private long hits;
+
+    private long misses;
+
+    private long puts;
+
+    private long removals;
+
+    private long evictions;
+
+    private float hitPercentage;
+
+    public CacheRegionVM(String name) {
+        this.name = name;
+    }
+
+    public CacheRegionVM() {
+        // Empty public constructor used by Jackson.
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public void setName(String name) {
+        this.name = name;
+    }
+
+    public long getHits() {
+        return hits;
+    }
+
+    public void setHits(long hits) {
+        this.hits = hits;
+    }
+
+    public long getMisses() {
+        return misses;
+    }
+
+    public void setMisses(long misses) {
+        this.misses = misses;
+    }
+
+    public long getPuts() {
+        return puts;
+    }
+
+    public void setPuts(long puts) {
+        this.puts = puts;
+    }
+
+    public long getRemovals() {
+        return removals;
+    }
+
+    public void setRemovals(long removals) {
+        this.removals = removals;
+    }
+
+    public long getEvictions() {
+        return evictions;
+    }
+
+    public void setEvictions(long evictions) {
+        this.evictions = evictions;
+    }
+
+    public float getHitPercentage() {
+        return hitPercentage;
+    }
+
+    public void setHitPercentage(float hitPercentage) {
+        this.hitPercentage = hitPercentage;
+    }
+
+    @Override
+    public String toString() {
+        return "CacheRegionVM{" +
+            "name='" + name + '\'' +
+            ", hits=" + hits +
+            ", misses=" + misses +
+            ", puts=" + puts +
+            ", removals=" + removals +
+            ", evictions=" + evictions +
+            ", hitPercentage=" + hitPercentage +
+            '}';
+    }
+}
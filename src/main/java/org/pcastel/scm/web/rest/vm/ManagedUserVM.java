@@ -3,6 +3,8 @@ package org.pcastel.scm.web.rest.vm;
 import org.pcastel.scm.service.dto.MemberDTO;
 import org.pcastel.scm.service.dto.UserDTO;
 
+import com.fasterxml.jackson.annotation.JsonProperty;
+
 import javax.validation.constraints.Size;
 import java.time.Instant;
 import java.time.LocalDate;
@@ -22,7 +24,12 @@ public class ManagedUserVM extends UserDTO {
 
     private String phoneNumber;
     private String mobilePhoneNumber;
+    @JsonProperty(access = JsonProperty.Access.WRITE_ONLY)
     private byte[] photo;
+    @JsonProperty(access = JsonProperty.Access.WRITE_ONLY)
+    private boolean removePhoto;
+    @JsonProperty(access = JsonProperty.Access.READ_ONLY)
+    private String photoHash;
     private String photoContentType;
     private LocalDate birthDate;
     private String job;
@@ -38,13 +45,13 @@ public class ManagedUserVM extends UserDTO {
                          String email, String phoneNumber, boolean activated, String imageUrl, String langKey,
                          String createdBy, Instant createdDate, String lastModifiedBy, Instant lastModifiedDate,
                          Set<String> authorities) {
-        this(id, login, password, firstName, lastName, email, phoneNumber, null, null, null, null, null, null,
+        this(id, login, password, firstName, lastName, email, phoneNumber, null, null, null, null, null, null, null,
             null, activated, imageUrl, langKey, createdBy, createdDate, lastModifiedBy, lastModifiedDate,
             authorities);
     }
 
     public ManagedUserVM(Long id, String login, String password, String firstName, String lastName, String email,
-                         String phoneNumber, String mobilePhoneNumber, byte[] photo, String photoContentType,
+                         String phoneNumber, String mobilePhoneNumber, byte[] photo, String photoHash, String photoContentType,
                          LocalDate birthDate, String job, Boolean showInfo, Long addressId, boolean activated,
                          String imageUrl, String langKey, String createdBy, Instant createdDate,
                          String lastModifiedBy, Instant lastModifiedDate,
@@ -58,6 +65,7 @@ public class ManagedUserVM extends UserDTO {
         this.phoneNumber = phoneNumber;
         this.mobilePhoneNumber = mobilePhoneNumber;
         this.photo = photo;
+        this.photoHash = photoHash;
         this.photoContentType = photoContentType;
         this.birthDate = birthDate;
         this.job = job;
@@ -68,11 +76,12 @@ public class ManagedUserVM extends UserDTO {
 
     public ManagedUserVM(UserDTO userDTO, MemberDTO memberDTO) {
         this(userDTO.getId(), userDTO.getLogin(), null, userDTO.getFirstName(), userDTO.getLastName(),
-            userDTO.getEmail(), memberDTO.getPhoneNumber(), memberDTO.getMobilePhoneNumber(), memberDTO.getPhoto(),
-            memberDTO.getPhotoContentType(), memberDTO.getBirthDate(), memberDTO.getJob(), memberDTO.isShowInfo(),
+            userDTO.getEmail(), memberDTO.getPhoneNumber(), memberDTO.getMobilePhoneNumber(), null,
+            memberDTO.getPhotoHash(), memberDTO.getPhotoContentType(), memberDTO.getBirthDate(), memberDTO.getJob(), memberDTO.isShowInfo(),
             memberDTO.getAddressId(), userDTO.isActivated(), userDTO.getImageUrl(), userDTO.getLangKey(),
             userDTO.getCreatedBy(), userDTO.getCreatedDate(), userDTO.getLastModifiedBy(),
             userDTO.getLastModifiedDate(), userDTO.getAuthorities());
+        setDigest(userDTO.isDigest());
     }
 
     public String getPassword() {
@@ -92,6 +101,18 @@ public class ManagedUserVM extends UserDTO {
         return photo;
     }
 
+    public boolean isRemovePhoto() {
+        return removePhoto;
+    }
+
+    public String getPhotoHash() {
+        return photoHash;
+    }
+
+    public String getPhotoUrl() {
+        return MemberDTO.photoUrl(getId(), photoHash, showInfo);
+    }
+
     public String getPhotoContentType() {
         return photoContentType;
     }
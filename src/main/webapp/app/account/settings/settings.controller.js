@@ -32,9 +32,11 @@
                 login: account.login,
                 imageUrl: account.imageUrl,
                 phoneNumber: account.phoneNumber,
-                photo: account.photo,
+                photoHash: account.photoHash,
+                photoUrl: account.photoUrl,
                 photoContentType: account.photoContentType,
-                birthDate: account.birthDate
+                birthDate: account.birthDate,
+                digest: account.digest
             };
         };
 
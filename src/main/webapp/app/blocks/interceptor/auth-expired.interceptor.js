@@ -15,6 +15,23 @@
         return service;
 
         function responseError(response) {
+            var config = response.config || {};
+            if (response.status === 401 && !config.refreshed && (config.url || '').indexOf('api/authenticate') === -1 &&
+                ($localStorage.refreshToken || $sessionStorage.refreshToken)) {
+                // The access token has expired: get a new one, unless another request already did, and
+                // send the request again once
+                var AuthServerProvider = $injector.get('AuthServerProvider');
+                var token = AuthServerProvider.getToken();
+                var refreshed = token && config.headers.Authorization !== 'Bearer ' + token ?
+                    $q.when(token) : AuthServerProvider.refresh();
+                return refreshed.then(function (jwt) {
+                    config.refreshed = true;
+                    config.headers.Authorization = 'Bearer ' + jwt;
+                    return $injector.get('$http')(config);
+                }, function () {
+                    return responseError(response);
+                });
+            }
             if (response.status === 401) {
                 delete $localStorage.authenticationToken;
                 delete $sessionStorage.authenticationToken;
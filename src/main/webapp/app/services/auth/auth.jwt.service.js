@@ -8,11 +8,14 @@
     AuthServerProvider.$inject = ['$http', '$localStorage', '$sessionStorage', '$q'];
 
     function AuthServerProvider ($http, $localStorage, $sessionStorage, $q) {
+        var refreshing = null;
+
         var service = {
             getToken: getToken,
             login: login,
             loginWithToken: loginWithToken,
             storeAuthenticationToken: storeAuthenticationToken,
+            refresh: refresh,
             logout: logout
         };
 
@@ -37,11 +40,41 @@
                 if (angular.isDefined(bearerToken) && bearerToken.slice(0, 7) === 'Bearer ') {
                     var jwt = bearerToken.slice(7, bearerToken.length);
                     service.storeAuthenticationToken(jwt, credentials.rememberMe);
+                    storeRefreshToken(data.refresh_token, credentials.rememberMe);
                     return jwt;
                 }
             }
         }
 
+        /**
+         * Get a new access token with the refresh token, which is replaced by a new one.
+         * <p>
+         * The requests expiring together share the same refresh, as the refresh token can only be used once.
+         */
+        function refresh () {
+            /*jshint camelcase: false */
+            if (refreshing) {
+                return refreshing;
+            }
+            var rememberMe = angular.isDefined($localStorage.refreshToken);
+            var refreshToken = $localStorage.refreshToken || $sessionStorage.refreshToken;
+            if (!refreshToken) {
+                return $q.reject();
+            }
+            refreshing = $http.post('api/authenticate/refresh', {refreshToken: refreshToken}).then(function (response) {
+                refreshing = null;
+                service.storeAuthenticationToken(response.data.id_token, rememberMe);
+                storeRefreshToken(response.data.refresh_token, rememberMe);
+                return response.data.id_token;
+            }, function (response) {
+                refreshing = null;
+                delete $localStorage.refreshToken;
+                delete $sessionStorage.refreshToken;
+                return $q.reject(response);
+            });
+            return refreshing;
+        }
+
         function loginWithToken(jwt, rememberMe) {
             var deferred = $q.defer();
 
@@ -63,10 +96,31 @@
             }
         }
 
-        function logout () {
+        function storeRefreshToken(refreshToken, rememberMe) {
+            if (!refreshToken) {
+                return;
+            }
+            if(rememberMe){
+                $localStorage.refreshToken = refreshToken;
+            } else {
+                $sessionStorage.refreshToken = refreshToken;
+            }
+        }
 
+        /**
+         * Revoke the access token and delete the refresh token on the server, then forget them.
+         */
+        function logout () {
+            var token = getToken();
+            var refreshToken = $localStorage.refreshToken || $sessionStorage.refreshToken;
+            if (token || refreshToken) {
+                $http.post('api/logout', refreshToken ? {refreshToken: refreshToken} : null,
+                    {headers: token ? {Authorization: 'Bearer ' + token} : {}});
+            }
             delete $localStorage.authenticationToken;
             delete $sessionStorage.authenticationToken;
+            delete $localStorage.refreshToken;
+            delete $sessionStorage.refreshToken;
         }
     }
 })();
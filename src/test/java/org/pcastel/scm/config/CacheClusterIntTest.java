@@ -0,0 +1,200 @@
+package org.pcastel.scm.config;
+
+import org.pcastel.scm.ScmApp;
+import org.pcastel.scm.domain.Event;
+import org.pcastel.scm.domain.User;
+import org.pcastel.scm.domain.WaitlistEntry;
+import org.pcastel.scm.domain.enumeration.EventState;
+import org.pcastel.scm.domain.enumeration.EventType;
+import org.pcastel.scm.service.WaitlistPositionIndex;
+
+import com.hazelcast.core.HazelcastInstance;
+import org.h2.tools.Server;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.cache.CacheManager;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+import java.util.function.Function;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Integration tests of the invalidation of the caches on the other nodes of a cluster.
+ * <p>
+ * Several application contexts are started in this JVM as the nodes of a cluster, sharing an H2
+ * server database. Each node has its own cache manager, under its own URI.
+ *
+ * @see CacheInvalidationBus
+ */
+public class CacheClusterIntTest {
+
+    private static final int NODES = 3;
+
+    private static final long MAX_INVALIDATION_LATENCY_MS = 2000;
+
+    private static final Logger log = LoggerFactory.getLogger(CacheClusterIntTest.class);
+
+    private static Server h2Server;
+
+    private static final List<ConfigurableApplicationContext> nodes = new ArrayList<>();
+
+    @BeforeClass
+    public static void startCluster() throws Exception {
+        h2Server = Server.createTcpServer("-tcpPort", String.valueOf(freePort())).start();
+        String groupName = "scm-test-" + UUID.randomUUID();
+        int clusterPort = freePort();
+        for (int i = 1; i <= NODES; i++) {
+            nodes.add(new SpringApplicationBuilder(ScmApp.class).run(
+                "--server.port=0",
+                "--spring.jmx.enabled=false",
+                "--jhipster.metrics.jmx.enabled=false",
+                "--jhipster.metrics.logs.enabled=false",
+                "--jhipster.logging.logstash.enabled=false",
+                "--spring.datasource.url=jdbc:h2:tcp://localhost:" + h2Server.getPort() + "/mem:scm-cluster;DB_CLOSE_DELAY=-1",
+                "--spring.cache.type=jcache",
+                "--spring.cache.jcache.provider=org.ehcache.jsr107.EhcacheCachingProvider",
+                "--spring.jpa.properties.hibernate.cache.use_second_level_cache=true",
+                "--spring.jpa.properties.hibernate.cache.region.factory_class=io.github.jhipster.config.jcache.NoDefaultJCacheRegionFactory",
+                "--spring.jpa.properties.hibernate.javax.cache.provider=org.ehcache.jsr107.EhcacheCachingProvider",
+                "--spring.jpa.properties.hibernate.javax.cache.uri=scm-node-" + i,
+                "--application.cache.manager-uri=scm-node-" + i,
+                "--application.cache.cluster.enabled=true",
+                "--application.cache.cluster.group-name=" + groupName,
+                "--application.cache.cluster.port=" + clusterPort,
+                "--application.cache.cluster.members=127.0.0.1:" + clusterPort + "-" + (clusterPort + NODES)));
+        }
+    }
+
+    @AfterClass
+    public static void stopCluster() {
+        nodes.forEach(ConfigurableApplicationContext::close);
+        nodes.clear();
+        if (h2Server != null) {
+            h2Server.stop();
+        }
+    }
+
+    @Test
+    public void nodesJoinTheCluster() {
+        for (ConfigurableApplicationContext node : nodes) {
+            assertThat(node.getBean(HazelcastInstance.class).getCluster().getMembers()).hasSize(NODES);
+        }
+    }
+
+    @Test
+    public void updatedEntityIsInvalidatedOnTheOtherNodes() throws Exception {
+        ConfigurableApplicationContext writer = nodes.get(0);
+        Long eventId = inTransaction(writer, em -> {
+            Event event = new Event()
+                .title("Training")
+                .type(EventType.TRAINING)
+                .date(LocalDate.now())
+                .state(EventState.INIT);
+            em.persist(event);
+            return event.getId();
+        });
+        for (ConfigurableApplicationContext node : nodes) {
+            inTransaction(node, em -> em.find(Event.class, eventId));
+            assertThat(isCached(node, eventId)).isTrue();
+        }
+
+        inTransaction(writer, em -> em.find(Event.class, eventId).title("Match"));
+        long latency = awaitInvalidation(() -> nodes.stream().skip(1).noneMatch(node -> isCached(node, eventId)));
+
+        log.info("Event invalidated on {} nodes in {} ms", NODES - 1, latency);
+        assertThat(latency).isLessThan(MAX_INVALIDATION_LATENCY_MS);
+        for (ConfigurableApplicationContext node : nodes) {
+            assertThat(inTransaction(node, em -> em.find(Event.class, eventId).getTitle())).isEqualTo("Match");
+        }
+    }
+
+    @Test
+    public void evictedUserIsInvalidatedOnTheOtherNodes() throws Exception {
+        for (ConfigurableApplicationContext node : nodes) {
+            node.getBean(CacheManager.class).getCache("users").put("cluster-user", "cached");
+        }
+
+        nodes.get(0).getBean(CacheManager.class).getCache("users").evict("cluster-user");
+        long latency = awaitInvalidation(() -> nodes.stream()
+            .allMatch(node -> node.getBean(CacheManager.class).getCache("users").get("cluster-user") == null));
+
+        log.info("User invalidated on {} nodes in {} ms", NODES - 1, latency);
+        assertThat(latency).isLessThan(MAX_INVALIDATION_LATENCY_MS);
+    }
+
+    @Test
+    public void changedWaitlistIsInvalidatedOnTheOtherNodes() throws Exception {
+        ConfigurableApplicationContext writer = nodes.get(0);
+        Long eventId = inTransaction(writer, em -> {
+            Event event = new Event()
+                .title("Tournament")
+                .type(EventType.MATCH)
+                .date(LocalDate.now())
+                .state(EventState.OPEN);
+            em.persist(event);
+            return event.getId();
+        });
+        Long userId = inTransaction(writer, em -> em.createQuery("select user.id from User user where user.login = 'user'",
+            Long.class).getSingleResult());
+        for (ConfigurableApplicationContext node : nodes) {
+            assertThat(node.getBean(WaitlistPositionIndex.class).getPosition(eventId, userId)).isEmpty();
+        }
+
+        inTransaction(writer, em -> {
+            em.persist(new WaitlistEntry().event(em.find(Event.class, eventId)).user(em.find(User.class, userId)));
+            writer.getBean(WaitlistPositionIndex.class).invalidate(eventId);
+            return null;
+        });
+        long latency = awaitInvalidation(() -> nodes.stream()
+            .allMatch(node -> node.getBean(WaitlistPositionIndex.class).getPosition(eventId, userId).isPresent()));
+
+        log.info("Waitlist invalidated on {} nodes in {} ms", NODES - 1, latency);
+        assertThat(latency).isLessThan(MAX_INVALIDATION_LATENCY_MS);
+    }
+
+    private static boolean isCached(ConfigurableApplicationContext node, Long eventId) {
+        return node.getBean(EntityManagerFactory.class).getCache().contains(Event.class, eventId);
+    }
+
+    /**
+     * @return the time in milliseconds until the invalidation, or until MAX_INVALIDATION_LATENCY_MS
+     * if it does not happen
+     */
+    private static long awaitInvalidation(BooleanSupplier invalidated) throws InterruptedException {
+        long start = System.nanoTime();
+        long timeout = TimeUnit.MILLISECONDS.toNanos(MAX_INVALIDATION_LATENCY_MS);
+        while (!invalidated.getAsBoolean() && System.nanoTime() - start < timeout) {
+            Thread.sleep(1);
+        }
+        return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+    }
+
+    private static <T> T inTransaction(ConfigurableApplicationContext node, Function<EntityManager, T> work) {
+        EntityManager em = node.getBean(EntityManager.class);
+        return new TransactionTemplate(node.getBean(PlatformTransactionManager.class))
+            .execute(status -> work.apply(em));
+    }
+
+    private static int freePort() throws IOException {
+        try (ServerSocket socket = new ServerSocket(0)) {
+            return socket.getLocalPort();
+        }
+    }
+}
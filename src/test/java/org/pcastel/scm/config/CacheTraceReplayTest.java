@@ -0,0 +1,123 @@
+package org.pcastel.scm.config;
+
+import com.github.benmanes.caffeine.jcache.spi.CaffeineCachingProvider;
+import io.github.jhipster.config.JHipsterProperties;
+import org.ehcache.jsr107.EhcacheCachingProvider;
+import org.junit.Before;
+import org.junit.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.cache.Cache;
+import javax.cache.CacheManager;
+import javax.cache.Caching;
+import javax.cache.spi.CachingProvider;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Benchmark of the hit ratios of the caching providers, replaying a trace of cache reads.
+ * <p>
+ * The trace is read from the file set by the "cache.trace" system property, with one key per line,
+ * such as the entity ids extracted from an access log. Without it, a trace like the one of the
+ * application is generated: a skewed access to the entities of the current season, interrupted by
+ * reports scanning the entities of old seasons. The cache regions are configured by the
+ * CacheConfiguration, as in the application.
+ */
+public class CacheTraceReplayTest {
+
+    private static final String REGION = "TraceReplay";
+
+    private static final long MAX_ENTRIES = 1000;
+
+    private static final String VALUE = "value";
+
+    private final Logger log = LoggerFactory.getLogger(CacheTraceReplayTest.class);
+
+    private ApplicationProperties applicationProperties;
+
+    private List<String> trace;
+
+    @Before
+    public void setup() throws Exception {
+        applicationProperties = new ApplicationProperties();
+        ApplicationProperties.Cache.Region region = new ApplicationProperties.Cache.Region();
+        region.setMaxEntries(MAX_ENTRIES);
+        applicationProperties.getCache().getRegions().put(REGION, region);
+
+        String traceFile = System.getProperty("cache.trace");
+        if (traceFile != null) {
+            trace = Files.lines(Paths.get(traceFile))
+                .map(String::trim)
+                .filter(key -> !key.isEmpty())
+                .collect(Collectors.toList());
+        } else {
+            trace = generateTrace();
+        }
+    }
+
+    @Test
+    public void replayTrace() {
+        double ehcacheHitRatio = replay(EhcacheCachingProvider.class.getName());
+        double caffeineHitRatio = replay(CaffeineCachingProvider.class.getName());
+
+        if (System.getProperty("cache.trace") == null) {
+            assertThat(caffeineHitRatio).isGreaterThanOrEqualTo(ehcacheHitRatio);
+        }
+    }
+
+    /**
+     * @param provider the class name of the caching provider
+     * @return the hit ratio of the trace, from 0 to 1
+     */
+    private double replay(String provider) {
+        applicationProperties.getCache().setProvider(provider);
+        CacheConfiguration cacheConfiguration = new CacheConfiguration(new JHipsterProperties(), applicationProperties);
+        CachingProvider cachingProvider = Caching.getCachingProvider(provider);
+        CacheManager cacheManager = cachingProvider.getCacheManager();
+        Cache<Object, Object> cache = cacheManager.createCache(REGION, cacheConfiguration.jcacheConfiguration(REGION));
+        try {
+            long hits = 0;
+            long start = System.nanoTime();
+            for (String key : trace) {
+                if (cache.get(key) != null) {
+                    hits++;
+                } else {
+                    cache.put(key, VALUE);
+                }
+            }
+            long elapsed = System.nanoTime() - start;
+            double hitRatio = (double) hits / trace.size();
+            log.info("Replayed {} reads with {}: {}% hits in {} ms", trace.size(), cachingProvider.getClass().getSimpleName(),
+                String.format("%.1f", 100 * hitRatio), elapsed / 1_000_000);
+            return hitRatio;
+        } finally {
+            cacheManager.destroyCache(REGION);
+        }
+    }
+
+    /**
+     * @return the reads of 2000 entities of the current season, with a skew towards the first ones,
+     * interrupted every 20000 reads by a report reading 3000 entities of one of 10 old seasons
+     */
+    private static List<String> generateTrace() {
+        Random random = new Random(42);
+        List<String> trace = new ArrayList<>();
+        for (int report = 0; report < 20; report++) {
+            for (int i = 0; i < 20000; i++) {
+                trace.add("current-" + (int) (2000 * Math.pow(random.nextDouble(), 3)));
+            }
+            int season = random.nextInt(10);
+            for (int i = 0; i < 3000; i++) {
+                trace.add("season-" + season + "-" + i);
+            }
+        }
+        return trace;
+    }
+}
@@ -0,0 +1,128 @@
+package org.pcastel.scm.config;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.beans.factory.config.YamlPropertiesFactoryBean;
+import org.springframework.core.io.ClassPathResource;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Properties;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.Assume.assumeTrue;
+
+/**
+ * Checks against a real MySQL server that the production connection properties make Connector/J honour the
+ * fetch size used by the streaming queries, such as the recipients and the audit events, instead of reading
+ * the whole result set into memory.
+ * <p>
+ * H2 does not reproduce the Connector/J behaviour, so the test only runs when a MySQL server is given, e.g.
+ * {@code ./mvnw test -Dtest=MySqlCursorFetchIntTest -Dscm.test.mysql.url=jdbc:mysql://localhost:3306/scm}
+ * with the server of {@code src/main/docker/mysql.yml}.
+ */
+public class MySqlCursorFetchIntTest {
+
+    private static final String URL_PROPERTY = "scm.test.mysql.url";
+
+    private static final String DATA_SOURCE_PROPERTIES = "spring.datasource.hikari.data-source-properties.";
+
+    private static final int FETCH_SIZE = 100;
+
+    private static final int ROWS = 1000;
+
+    private Connection connection;
+
+    @Before
+    public void setup() throws SQLException {
+        String url = System.getProperty(URL_PROPERTY);
+        assumeTrue(url != null);
+        Properties properties = productionDataSourceProperties();
+        properties.setProperty("user", System.getProperty("scm.test.mysql.username", "root"));
+        properties.setProperty("password", System.getProperty("scm.test.mysql.password", ""));
+        connection = DriverManager.getConnection(url, properties);
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("create temporary table cursor_fetch_test (id bigint not null primary key)");
+        }
+        try (PreparedStatement insert = connection.prepareStatement("insert into cursor_fetch_test (id) values (?)")) {
+            for (int id = 1; id <= ROWS; id++) {
+                insert.setLong(1, id);
+                insert.addBatch();
+            }
+            insert.executeBatch();
+        }
+    }
+
+    @After
+    public void tearDown() throws SQLException {
+        if (connection != null) {
+            connection.close();
+        }
+    }
+
+    @Test
+    public void testStreamedQueryIsFetchedByChunks() throws SQLException {
+        long fetchesBefore = fetchCount();
+        int rows = 0;
+        try (PreparedStatement select = connection.prepareStatement("select id from cursor_fetch_test order by id")) {
+            select.setFetchSize(FETCH_SIZE);
+            try (ResultSet resultSet = select.executeQuery()) {
+                while (resultSet.next()) {
+                    rows++;
+                }
+            }
+        }
+
+        assertThat(rows).isEqualTo(ROWS);
+        assertThat(fetchCount() - fetchesBefore).isGreaterThanOrEqualTo(ROWS / FETCH_SIZE);
+    }
+
+    @Test
+    public void testStreamedQueryIsFetchedByChunksInReadOnlyTransaction() throws SQLException {
+        connection.setAutoCommit(false);
+        connection.setReadOnly(true);
+        long fetchesBefore = fetchCount();
+        int rows = 0;
+        try (PreparedStatement select = connection.prepareStatement(
+                 "select id from cursor_fetch_test where id >= ? and id < ? order by id")) {
+            select.setFetchSize(FETCH_SIZE);
+            select.setLong(1, 1);
+            select.setLong(2, ROWS + 1);
+            try (ResultSet resultSet = select.executeQuery()) {
+                while (resultSet.next()) {
+                    rows++;
+                }
+            }
+        }
+        connection.commit();
+
+        assertThat(rows).isEqualTo(ROWS);
+        assertThat(fetchCount() - fetchesBefore).isGreaterThanOrEqualTo(ROWS / FETCH_SIZE);
+    }
+
+    private long fetchCount() throws SQLException {
+        try (Statement statement = connection.createStatement();
+             ResultSet resultSet = statement.executeQuery("show session status like 'Com_stmt_fetch'")) {
+            resultSet.next();
+            return resultSet.getLong(2);
+        }
+    }
+
+    private static Properties productionDataSourceProperties() {
+        YamlPropertiesFactoryBean yaml = new YamlPropertiesFactoryBean();
+        yaml.setResources(new ClassPathResource("config/application-prod.yml"));
+        Properties properties = new Properties();
+        yaml.getObject().forEach((key, value) -> {
+            String name = key.toString();
+            if (name.startsWith(DATA_SOURCE_PROPERTIES)) {
+                properties.setProperty(name.substring(DATA_SOURCE_PROPERTIES.length()), value.toString());
+            }
+        });
+        return properties;
+    }
+}
@@ -0,0 +1,71 @@
+package org.pcastel.scm.config;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.springframework.core.io.support.PathMatchingResourcePatternResolver;
+
+import java.io.File;
+import java.nio.file.Files;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Unit tests for the PersistentCacheDirectory class.
+ *
+ * @see PersistentCacheDirectory
+ */
+public class PersistentCacheDirectoryTest {
+
+    private static final String CHANGELOG = "classpath*:config/liquibase/**/*.*";
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    private PersistentCacheDirectory directory;
+
+    private File snapshot;
+
+    @Before
+    public void setup() throws Exception {
+        directory = new PersistentCacheDirectory(new File(temporaryFolder.getRoot(), "cache"));
+        snapshot = new File(directory.getDataDirectory(), "snapshot");
+    }
+
+    @Test
+    public void testNoSnapshot() throws Exception {
+        assertThat(directory.validate("checksum")).isFalse();
+        assertThat(directory.getDataDirectory()).isDirectory();
+    }
+
+    @Test
+    public void testSnapshotIsKeptForTheSameChangelog() throws Exception {
+        directory.validate("checksum");
+        Files.write(snapshot.toPath(), new byte[] { 1 });
+
+        assertThat(directory.validate("checksum")).isTrue();
+        assertThat(snapshot).exists();
+    }
+
+    @Test
+    public void testSnapshotIsDiscardedForAnotherChangelog() throws Exception {
+        directory.validate("checksum");
+        Files.write(snapshot.toPath(), new byte[] { 1 });
+
+        assertThat(directory.validate("other checksum")).isFalse();
+        assertThat(snapshot).doesNotExist();
+        assertThat(directory.validate("other checksum")).isTrue();
+    }
+
+    @Test
+    public void testChangelogChecksum() throws Exception {
+        PathMatchingResourcePatternResolver resolver = new PathMatchingResourcePatternResolver();
+        String checksum = PersistentCacheDirectory.changelogChecksum(resolver, CHANGELOG);
+
+        assertThat(checksum).hasSize(32);
+        assertThat(PersistentCacheDirectory.changelogChecksum(resolver, CHANGELOG)).isEqualTo(checksum);
+        assertThat(PersistentCacheDirectory.changelogChecksum(resolver, "classpath*:config/liquibase/*.xml"))
+            .isNotEqualTo(checksum);
+    }
+}
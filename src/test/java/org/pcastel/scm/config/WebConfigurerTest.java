@@ -6,6 +6,8 @@ import com.codahale.metrics.servlets.MetricsServlet;
 import io.github.jhipster.config.JHipsterConstants;
 import io.github.jhipster.config.JHipsterProperties;
 import io.github.jhipster.web.filter.CachingHttpHeadersFilter;
+import org.pcastel.scm.web.filter.RateLimitFilter;
+import org.pcastel.scm.web.filter.RateLimiter;
 import io.undertow.Undertow;
 import io.undertow.Undertow.Builder;
 import io.undertow.UndertowOptions;
@@ -94,6 +96,26 @@ public class WebConfigurerTest {
         verify(servletContext).addServlet(eq("H2Console"), any(WebServlet.class));
     }
 
+    @Test
+    public void testStartUpRateLimitFilter() throws ServletException {
+        ApplicationProperties applicationProperties = new ApplicationProperties();
+        ApplicationProperties.RateLimit.Policy policy = new ApplicationProperties.RateLimit.Policy();
+        policy.setPath("/api/authenticate");
+        applicationProperties.getRateLimit().getPolicies().put("authenticate", policy);
+        webConfigurer.setRateLimiter(new RateLimiter(applicationProperties));
+        webConfigurer.onStartup(servletContext);
+
+        verify(servletContext).addFilter(eq("rateLimitFilter"), any(RateLimitFilter.class));
+    }
+
+    @Test
+    public void testStartUpWithoutRateLimitPolicies() throws ServletException {
+        webConfigurer.setRateLimiter(new RateLimiter(new ApplicationProperties()));
+        webConfigurer.onStartup(servletContext);
+
+        verify(servletContext, never()).addFilter(eq("rateLimitFilter"), any(RateLimitFilter.class));
+    }
+
     @Test
     public void testCustomizeServletContainer() {
         env.setActiveProfiles(JHipsterConstants.SPRING_PROFILE_PRODUCTION);
@@ -0,0 +1,51 @@
+package org.pcastel.scm.domain;
+
+import org.junit.Test;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Test class for the storage of the audit event data in a single column.
+ *
+ * @see AuditEventDataConverter
+ */
+public class AuditEventDataConverterTest {
+
+    private final AuditEventDataConverter converter = new AuditEventDataConverter();
+
+    @Test
+    public void testDataIsStoredAsJson() {
+        Map<String, String> data = new LinkedHashMap<>();
+        data.put("remoteAddress", "1.2.3.4");
+        data.put("message", "Bad \"credentials\"\n");
+        data.put("details", null);
+
+        String json = converter.convertToDatabaseColumn(data);
+
+        assertThat(json).isEqualTo("{\"remoteAddress\":\"1.2.3.4\",\"message\":\"Bad \\\"credentials\\\"\\n\",\"details\":null}");
+        assertThat(converter.convertToEntityAttribute(json)).isEqualTo(data);
+    }
+
+    @Test
+    public void testEmptyDataIsStoredAsNull() {
+        assertThat(converter.convertToDatabaseColumn(new LinkedHashMap<>())).isNull();
+        assertThat(converter.convertToDatabaseColumn(null)).isNull();
+        assertThat(converter.convertToEntityAttribute(null)).isEmpty();
+    }
+
+    @Test
+    public void testReadDataIsMutable() {
+        Map<String, String> data = converter.convertToEntityAttribute("{\"sessionId\":\"test-session-id\"}");
+        data.put("remoteAddress", "1.2.3.4");
+
+        assertThat(data).containsEntry("sessionId", "test-session-id").containsEntry("remoteAddress", "1.2.3.4");
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidDataIsRejected() {
+        converter.convertToEntityAttribute("[\"test-value\"]");
+    }
+}
@@ -1,9 +1,13 @@
 package org.pcastel.scm.repository;
 
 import org.pcastel.scm.ScmApp;
+import org.pcastel.scm.config.ApplicationProperties;
 import org.pcastel.scm.config.Constants;
 import org.pcastel.scm.config.audit.AuditEventConverter;
+import org.pcastel.scm.config.audit.AuditEventWriter;
 import org.pcastel.scm.domain.PersistentAuditEvent;
+
+import com.codahale.metrics.MetricRegistry;
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
@@ -14,6 +18,7 @@ import org.springframework.mock.web.MockHttpServletRequest;
 import org.springframework.mock.web.MockHttpSession;
 import org.springframework.security.web.authentication.WebAuthenticationDetails;
 import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.transaction.PlatformTransactionManager;
 import org.springframework.transaction.annotation.Transactional;
 
 import javax.servlet.http.HttpSession;
@@ -42,6 +47,12 @@ public class CustomAuditEventRepositoryIntTest {
     @Autowired
     private AuditEventConverter auditEventConverter;
 
+    @Autowired
+    private AuditEventWriter auditEventWriter;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
     private CustomAuditEventRepository customAuditEventRepository;
 
     private PersistentAuditEvent testUserEvent;
@@ -52,7 +63,10 @@ public class CustomAuditEventRepositoryIntTest {
 
     @Before
     public void setup() {
-        customAuditEventRepository = new CustomAuditEventRepository(persistenceAuditEventRepository, auditEventConverter);
+        customAuditEventRepository =
+            new CustomAuditEventRepository(persistenceAuditEventRepository, auditEventConverter, auditEventWriter);
+        // Write the events queued by the other tests, so that they are deleted
+        auditEventWriter.flush();
         persistenceAuditEventRepository.deleteAll();
         Instant oneHourAgo = Instant.now().minusSeconds(3600);
 
@@ -160,6 +174,7 @@ public class CustomAuditEventRepositoryIntTest {
         data.put("test-key", "test-value");
         AuditEvent event = new AuditEvent("test-user", "test-type", data);
         customAuditEventRepository.add(event);
+        auditEventWriter.flush();
         List<PersistentAuditEvent> persistentAuditEvents = persistenceAuditEventRepository.findAll();
         assertThat(persistentAuditEvents).hasSize(1);
         PersistentAuditEvent persistentAuditEvent = persistentAuditEvents.get(0);
@@ -170,7 +185,46 @@ public class CustomAuditEventRepositoryIntTest {
         assertThat(persistentAuditEvent.getAuditEventDate()).isEqualTo(event.getTimestamp().toInstant());
     }
 
- 
+    @Test
+    public void addAuditEventIsWrittenOnFlush() {
+        AuditEvent event = new AuditEvent("test-user", "test-type", new HashMap<>());
+        customAuditEventRepository.add(event);
+        assertThat(persistenceAuditEventRepository.findAll()).isEmpty();
+
+        auditEventWriter.flush();
+        assertThat(persistenceAuditEventRepository.findAll()).hasSize(1);
+    }
+
+    @Test
+    public void addManyAuditEvents() {
+        for (int i = 0; i < 250; i++) {
+            customAuditEventRepository.add(new AuditEvent("test-user-" + i, "test-type", new HashMap<>()));
+        }
+        auditEventWriter.flush();
+
+        assertThat(persistenceAuditEventRepository.findAll()).hasSize(250);
+    }
+
+    @Test
+    public void addAuditEventWhenTheQueueIsFull() {
+        ApplicationProperties applicationProperties = new ApplicationProperties();
+        applicationProperties.getAudit().setQueueCapacity(1);
+        MetricRegistry metricRegistry = new MetricRegistry();
+        AuditEventWriter fullWriter = new AuditEventWriter(persistenceAuditEventRepository, transactionManager,
+            applicationProperties, metricRegistry);
+        customAuditEventRepository =
+            new CustomAuditEventRepository(persistenceAuditEventRepository, auditEventConverter, fullWriter);
+
+        customAuditEventRepository.add(new AuditEvent("test-user", "test-type", new HashMap<>()));
+        customAuditEventRepository.add(new AuditEvent("other-test-user", "test-type", new HashMap<>()));
+        fullWriter.flush();
+
+        List<PersistentAuditEvent> persistentAuditEvents = persistenceAuditEventRepository.findAll();
+        assertThat(persistentAuditEvents).hasSize(1);
+        assertThat(persistentAuditEvents.get(0).getPrincipal()).isEqualTo("test-user");
+        assertThat(metricRegistry.meter(MetricRegistry.name(AuditEventWriter.class, "dropped")).getCount()).isEqualTo(1);
+    }
+
     @Test
     public void addAuditEventTruncateLargeData() {
         Map<String, Object> data = new HashMap<>();
@@ -181,6 +235,7 @@ public class CustomAuditEventRepositoryIntTest {
         data.put("test-key", largeData);
         AuditEvent event = new AuditEvent("test-user", "test-type", data);
         customAuditEventRepository.add(event);
+        auditEventWriter.flush();
         List<PersistentAuditEvent> persistentAuditEvents = persistenceAuditEventRepository.findAll();
         assertThat(persistentAuditEvents).hasSize(1);
         PersistentAuditEvent persistentAuditEvent = persistentAuditEvents.get(0);
@@ -204,6 +259,7 @@ public class CustomAuditEventRepositoryIntTest {
         data.put("test-key", details);
         AuditEvent event = new AuditEvent("test-user", "test-type", data);
         customAuditEventRepository.add(event);
+        auditEventWriter.flush();
         List<PersistentAuditEvent> persistentAuditEvents = persistenceAuditEventRepository.findAll();
         assertThat(persistentAuditEvents).hasSize(1);
         PersistentAuditEvent persistentAuditEvent = persistentAuditEvents.get(0);
@@ -217,6 +273,7 @@ public class CustomAuditEventRepositoryIntTest {
         data.put("test-key", null);
         AuditEvent event = new AuditEvent("test-user", "test-type", data);
         customAuditEventRepository.add(event);
+        auditEventWriter.flush();
         List<PersistentAuditEvent> persistentAuditEvents = persistenceAuditEventRepository.findAll();
         assertThat(persistentAuditEvents).hasSize(1);
         PersistentAuditEvent persistentAuditEvent = persistentAuditEvents.get(0);
@@ -229,6 +286,7 @@ public class CustomAuditEventRepositoryIntTest {
         data.put("test-key", "test-value");
         AuditEvent event = new AuditEvent(Constants.ANONYMOUS_USER, "test-type", data);
         customAuditEventRepository.add(event);
+        auditEventWriter.flush();
         List<PersistentAuditEvent> persistentAuditEvents = persistenceAuditEventRepository.findAll();
         assertThat(persistentAuditEvents).hasSize(0);
     }
@@ -239,6 +297,7 @@ public class CustomAuditEventRepositoryIntTest {
         data.put("test-key", "test-value");
         AuditEvent event = new AuditEvent("test-user", "AUTHORIZATION_FAILURE", data);
         customAuditEventRepository.add(event);
+        auditEventWriter.flush();
         List<PersistentAuditEvent> persistentAuditEvents = persistenceAuditEventRepository.findAll();
         assertThat(persistentAuditEvents).hasSize(0);
     }
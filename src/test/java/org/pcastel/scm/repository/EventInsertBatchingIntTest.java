@@ -0,0 +1,104 @@
+package org.pcastel.scm.repository;
+
+import org.pcastel.scm.ScmApp;
+import org.pcastel.scm.domain.Event;
+import org.pcastel.scm.domain.enumeration.EventState;
+import org.pcastel.scm.domain.enumeration.EventType;
+
+import org.hibernate.Session;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.persistence.EntityManager;
+import java.time.LocalDate;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Benchmark of the inserts of many events in a single transaction.
+ * <p>
+ * The events get their ids from the pooled id generator, so their inserts are sent in JDBC
+ * batches. The same inserts without batching, as they were sent when the ids were generated by
+ * the database, are measured for comparison: the throughput of both is logged.
+ * <p>
+ * Hibernate's statistics do not count the JDBC batches, but a batch prepares its statement once,
+ * while the unbatched inserts prepare one statement per row. Both runs take their ids from the
+ * same number of blocks, so the difference between their prepared statements gives the number of
+ * batches.
+ */
+@RunWith(SpringRunner.class)
+@SpringBootTest(classes = ScmApp.class)
+@Transactional
+public class EventInsertBatchingIntTest {
+
+    private final Logger log = LoggerFactory.getLogger(EventInsertBatchingIntTest.class);
+
+    private static final int NUMBER_OF_EVENTS = 1000;
+
+    @Autowired
+    private EntityManager em;
+
+    private Statistics statistics;
+
+    private int batchSize;
+
+    @Before
+    public void setup() {
+        SessionFactory sessionFactory = em.getEntityManagerFactory().unwrap(SessionFactory.class);
+        statistics = sessionFactory.getStatistics();
+        batchSize = sessionFactory.getSessionFactoryOptions().getJdbcBatchSize();
+        // Warm up the id generator and the statement caches
+        insertEvents(NUMBER_OF_EVENTS / 10);
+    }
+
+    @Test
+    public void insertEventsInBatches() {
+        assertThat(batchSize).isGreaterThan(1);
+
+        long unbatchedStatements = benchmark("unbatched", 1);
+        long batchedStatements = benchmark("batched", null);
+
+        long batches = NUMBER_OF_EVENTS - (unbatchedStatements - batchedStatements);
+        assertThat(batches).isEqualTo((NUMBER_OF_EVENTS + batchSize - 1) / batchSize);
+    }
+
+    /**
+     * @param batchSize the JDBC batch size of the session, or null to use the configured one
+     * @return the number of statements prepared to insert the events
+     */
+    private long benchmark(String name, Integer batchSize) {
+        em.unwrap(Session.class).setJdbcBatchSize(batchSize);
+        statistics.clear();
+        long start = System.nanoTime();
+        insertEvents(NUMBER_OF_EVENTS);
+        long elapsed = System.nanoTime() - start;
+        long statements = statistics.getPrepareStatementCount();
+        assertThat(statistics.getEntityInsertCount()).isEqualTo(NUMBER_OF_EVENTS);
+        log.info("Inserted {} events {} in {} ms ({} events/s, {} statements)", NUMBER_OF_EVENTS, name,
+            TimeUnit.NANOSECONDS.toMillis(elapsed), NUMBER_OF_EVENTS * TimeUnit.SECONDS.toNanos(1) / elapsed,
+            statements);
+        return statements;
+    }
+
+    private void insertEvents(int count) {
+        for (int i = 0; i < count; i++) {
+            em.persist(new Event()
+                .title("Training " + i)
+                .type(EventType.TRAINING)
+                .date(LocalDate.now().plusDays(i))
+                .state(EventState.INIT));
+        }
+        em.flush();
+        em.clear();
+    }
+}
@@ -0,0 +1,103 @@
+package org.pcastel.scm.security;
+
+import com.codahale.metrics.MetricRegistry;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.catchThrowable;
+
+/**
+ * Test class for the BoundedPasswordEncoder.
+ *
+ * @see BoundedPasswordEncoder
+ */
+public class BoundedPasswordEncoderUnitTest {
+
+    private ThreadPoolTaskExecutor executor;
+
+    private MetricRegistry metricRegistry;
+
+    private final CountDownLatch hashing = new CountDownLatch(1);
+
+    private final CountDownLatch release = new CountDownLatch(1);
+
+    @Before
+    public void setup() {
+        executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(1);
+        executor.setMaxPoolSize(1);
+        executor.setQueueCapacity(0);
+        executor.initialize();
+        metricRegistry = new MetricRegistry();
+    }
+
+    @After
+    public void destroy() {
+        release.countDown();
+        executor.shutdown();
+    }
+
+    @Test
+    public void testEncodeAndMatch() {
+        PasswordEncoder passwordEncoder = new BoundedPasswordEncoder(new BCryptPasswordEncoder(4), executor, metricRegistry);
+
+        String encodedPassword = passwordEncoder.encode("password");
+
+        assertThat(passwordEncoder.matches("password", encodedPassword)).isTrue();
+        assertThat(passwordEncoder.matches("wrong", encodedPassword)).isFalse();
+        assertThat(metricRegistry.timer(MetricRegistry.name(BoundedPasswordEncoder.class, "hashing")).getCount()).isEqualTo(3);
+        assertThat(metricRegistry.timer(MetricRegistry.name(BoundedPasswordEncoder.class, "queue-wait")).getCount()).isEqualTo(3);
+    }
+
+    @Test
+    public void testRejectWhenSaturated() throws Exception {
+        PasswordEncoder passwordEncoder = new BoundedPasswordEncoder(new BlockingPasswordEncoder(), executor, metricRegistry);
+        ExecutorService caller = Executors.newSingleThreadExecutor();
+        try {
+            Future<String> first = caller.submit(() -> passwordEncoder.encode("first"));
+            assertThat(hashing.await(5, TimeUnit.SECONDS)).isTrue();
+
+            Throwable rejection = catchThrowable(() -> passwordEncoder.encode("second"));
+
+            assertThat(rejection).isInstanceOf(PasswordHashingUnavailableException.class);
+            assertThat(metricRegistry.meter(MetricRegistry.name(BoundedPasswordEncoder.class, "rejections")).getCount()).isEqualTo(1);
+            release.countDown();
+            assertThat(first.get(5, TimeUnit.SECONDS)).isEqualTo("first");
+        } finally {
+            caller.shutdownNow();
+        }
+    }
+
+    /**
+     * Hashes a password only once released.
+     */
+    private class BlockingPasswordEncoder implements PasswordEncoder {
+
+        @Override
+        public String encode(CharSequence rawPassword) {
+            hashing.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return rawPassword.toString();
+        }
+
+        @Override
+        public boolean matches(CharSequence rawPassword, String encodedPassword) {
+            return rawPassword.toString().equals(encodedPassword);
+        }
+    }
+}
@@ -24,12 +24,14 @@ public class TokenProviderTest {
     private final String secretKey = "e5c9ee274ae87bc031adda32e27fa98b9290da83";
     private final long ONE_MINUTE = 60000;
     private JHipsterProperties jHipsterProperties;
+    private TokenRevocations tokenRevocations;
     private TokenProvider tokenProvider;
 
     @Before
     public void setup() {
         jHipsterProperties = Mockito.mock(JHipsterProperties.class);
-        tokenProvider = new TokenProvider(jHipsterProperties);
+        tokenRevocations = new TokenRevocations();
+        tokenProvider = new TokenProvider(jHipsterProperties, tokenRevocations);
         ReflectionTestUtils.setField(tokenProvider, "secretKey", secretKey);
         ReflectionTestUtils.setField(tokenProvider, "tokenValidityInMilliseconds", ONE_MINUTE);
     }
@@ -79,6 +81,77 @@ public class TokenProviderTest {
         assertThat(isTokenValid).isEqualTo(false);
     }
 
+    @Test
+    public void testReturnSameAuthenticationWhenJWTisReused() {
+        String token = tokenProvider.createToken(createAuthentication(), false);
+
+        Authentication authentication = tokenProvider.authenticate(token).get();
+
+        assertThat(authentication.getName()).isEqualTo("anonymous");
+        assertThat(authentication.getCredentials()).isEqualTo(token);
+        assertThat(tokenProvider.authenticate(token).get()).isSameAs(authentication);
+    }
+
+    @Test
+    public void testShareAuthoritiesBetweenJWTs() {
+        String token = tokenProvider.createToken(createAuthentication(), false);
+        String otherToken = tokenProvider.createToken(
+            new UsernamePasswordAuthenticationToken("other", "other", createAuthentication().getAuthorities()), false);
+
+        Authentication authentication = tokenProvider.authenticate(token).get();
+        Authentication otherAuthentication = tokenProvider.authenticate(otherToken).get();
+
+        assertThat(otherAuthentication.getName()).isEqualTo("other");
+        assertThat(otherAuthentication.getAuthorities()).isSameAs(authentication.getAuthorities());
+    }
+
+    @Test
+    public void testReturnFalseWhenReusedJWTisExpired() throws Exception {
+        ReflectionTestUtils.setField(tokenProvider, "tokenValidityInMilliseconds", 1000L);
+        String token = tokenProvider.createToken(createAuthentication(), false);
+        assertThat(tokenProvider.validateToken(token)).isEqualTo(true);
+
+        Thread.sleep(2000);
+
+        assertThat(tokenProvider.validateToken(token)).isEqualTo(false);
+    }
+
+    @Test
+    public void testReturnFalseWhenJWTisIssuedBeforeRevocationOfUserTokens() {
+        String token = tokenProvider.createToken(createAuthentication(), false);
+        assertThat(tokenProvider.validateToken(token)).isEqualTo(true);
+
+        tokenRevocations.revokeTokensIssuedUntil("anonymous", System.currentTimeMillis(),
+            System.currentTimeMillis() + ONE_MINUTE);
+
+        assertThat(tokenProvider.validateToken(token)).isEqualTo(false);
+    }
+
+    @Test
+    public void testReturnTrueWhenJWTisIssuedJustAfterRevocationOfUserTokens() throws Exception {
+        long revokedAt = System.currentTimeMillis();
+        tokenRevocations.revokeTokensIssuedUntil("anonymous", revokedAt, revokedAt + ONE_MINUTE);
+        // The token is issued in the same second as the revocation, but after it
+        while (System.currentTimeMillis() == revokedAt) {
+            Thread.sleep(1);
+        }
+
+        String token = tokenProvider.createToken(createAuthentication(), false);
+
+        assertThat(tokenProvider.validateToken(token)).isEqualTo(true);
+    }
+
+    @Test
+    public void testReturnFalseWhenJWTisRevoked() {
+        String token = tokenProvider.createToken(createAuthentication(), false);
+        String otherToken = tokenProvider.createToken(createAuthentication(), false);
+
+        tokenRevocations.revokeToken(tokenProvider.getClaims(token).get().getId(), System.currentTimeMillis() + ONE_MINUTE);
+
+        assertThat(tokenProvider.validateToken(token)).isEqualTo(false);
+        assertThat(tokenProvider.validateToken(otherToken)).isEqualTo(true);
+    }
+
     private Authentication createAuthentication() {
         Collection<GrantedAuthority> authorities = new ArrayList<>();
         authorities.add(new SimpleGrantedAuthority(AuthoritiesConstants.ANONYMOUS));
@@ -0,0 +1,65 @@
+package org.pcastel.scm.security.jwt;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class TokenRevocationsTest {
+
+    private static final long NOW = 1508824800000L;
+
+    private TokenRevocations tokenRevocations;
+
+    @Before
+    public void setup() {
+        tokenRevocations = new TokenRevocations();
+    }
+
+    @Test
+    public void testRevokeTokensIssuedUntilWatermark() {
+        tokenRevocations.revokeTokensIssuedUntil("user", NOW, NOW + 3600000);
+
+        assertThat(tokenRevocations.isRevoked("user", "token", NOW - 1)).isTrue();
+        assertThat(tokenRevocations.isRevoked("user", "token", NOW)).isTrue();
+        assertThat(tokenRevocations.isRevoked("user", "token", NOW + 1)).isFalse();
+        assertThat(tokenRevocations.isRevoked("admin", "token", NOW - 1)).isFalse();
+    }
+
+    @Test
+    public void testKeepLatestWatermark() {
+        tokenRevocations.revokeTokensIssuedUntil("user", NOW, NOW + 3600000);
+        tokenRevocations.revokeTokensIssuedUntil("user", NOW - 60000, NOW + 3540000);
+
+        assertThat(tokenRevocations.isRevoked("user", null, NOW)).isTrue();
+    }
+
+    @Test
+    public void testRevokeManyUsersAndTokens() {
+        for (int i = 0; i < 10000; i++) {
+            tokenRevocations.revokeTokensIssuedUntil("user-" + i, NOW, NOW + 3600000);
+            tokenRevocations.revokeToken("token-" + i, NOW + 3600000);
+        }
+
+        for (int i = 0; i < 10000; i++) {
+            assertThat(tokenRevocations.isRevoked("user-" + i, null, NOW)).isTrue();
+            assertThat(tokenRevocations.isRevoked("other-" + i, "token-" + i, NOW)).isTrue();
+            assertThat(tokenRevocations.isRevoked("other-" + i, UUID.randomUUID().toString(), NOW)).isFalse();
+        }
+    }
+
+    @Test
+    public void testPurgeExpiredRevocations() {
+        tokenRevocations.revokeTokensIssuedUntil("user", NOW, NOW + 60000);
+        tokenRevocations.revokeToken("token", NOW + 60000);
+        tokenRevocations.revokeToken("other-token", NOW + 3600000);
+
+        tokenRevocations.purge(NOW + 60000);
+
+        assertThat(tokenRevocations.isRevoked("user", null, NOW)).isFalse();
+        assertThat(tokenRevocations.isRevoked("other", "token", NOW)).isFalse();
+        assertThat(tokenRevocations.isRevoked("other", "other-token", NOW)).isTrue();
+    }
+}
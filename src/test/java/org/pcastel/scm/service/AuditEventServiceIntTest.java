@@ -0,0 +1,122 @@
+package org.pcastel.scm.service;
+
+import org.pcastel.scm.ScmApp;
+import org.pcastel.scm.config.ApplicationProperties;
+import org.pcastel.scm.domain.PersistentAuditEvent;
+import org.pcastel.scm.repository.PersistenceAuditEventRepository;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.util.FileSystemUtils;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Instant;
+import java.time.YearMonth;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.GZIPInputStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Test class for the archiving of the audit events.
+ *
+ * @see AuditEventService
+ */
+@RunWith(SpringRunner.class)
+@SpringBootTest(classes = ScmApp.class)
+@Transactional
+public class AuditEventServiceIntTest {
+
+    @Autowired
+    private PersistenceAuditEventRepository persistenceAuditEventRepository;
+
+    @Autowired
+    private AuditEventService auditEventService;
+
+    @Autowired
+    private ApplicationProperties applicationProperties;
+
+    private Path archiveDirectory;
+
+    private YearMonth expiredMonth;
+
+    @Before
+    public void init() {
+        archiveDirectory = Paths.get(applicationProperties.getAudit().getArchiveDirectory());
+        FileSystemUtils.deleteRecursively(archiveDirectory.toFile());
+        persistenceAuditEventRepository.deleteAll();
+        expiredMonth = YearMonth.now(ZoneOffset.UTC).minusMonths(applicationProperties.getAudit().getRetentionMonths() + 1);
+    }
+
+    @Test
+    public void assertThatExpiredMonthsAreArchived() throws IOException {
+        Instant expiredDate = expiredMonth.atDay(2).atStartOfDay(ZoneOffset.UTC).toInstant();
+        persistenceAuditEventRepository.save(auditEvent("expired-user", expiredDate));
+        persistenceAuditEventRepository.save(auditEvent("expired-user", expiredDate.plusSeconds(60)));
+        persistenceAuditEventRepository.save(auditEvent("recent-user", Instant.now()));
+
+        auditEventService.archiveExpiredEvents();
+
+        assertThat(persistenceAuditEventRepository.findAll()).extracting("principal").containsExactly("recent-user");
+        List<String> lines = readArchive(archiveDirectory.resolve("audit-" + expiredMonth + ".ndjson.gz"));
+        assertThat(lines).hasSize(2);
+        assertThat(lines).allMatch(line -> line.contains("\"principal\":\"expired-user\""));
+        assertThat(lines.get(0)).contains("\"data\":{\"test-key\":\"test-value\"}");
+    }
+
+    @Test
+    public void assertThatArchivesAreNotOverwritten() throws IOException {
+        Instant expiredDate = expiredMonth.atDay(2).atStartOfDay(ZoneOffset.UTC).toInstant();
+        persistenceAuditEventRepository.save(auditEvent("expired-user", expiredDate));
+        auditEventService.archiveExpiredEvents();
+        persistenceAuditEventRepository.save(auditEvent("late-user", expiredDate));
+        auditEventService.archiveExpiredEvents();
+
+        assertThat(persistenceAuditEventRepository.findAll()).isEmpty();
+        try (Stream<Path> archives = Files.list(archiveDirectory)) {
+            assertThat(archives.collect(Collectors.toList())).hasSize(2);
+        }
+        assertThat(readArchive(archiveDirectory.resolve("audit-" + expiredMonth + ".ndjson.gz")))
+            .allMatch(line -> line.contains("\"principal\":\"expired-user\""));
+    }
+
+    @Test
+    public void assertThatRecentEventsAreKept() {
+        persistenceAuditEventRepository.save(auditEvent("recent-user", Instant.now()));
+
+        auditEventService.archiveExpiredEvents();
+
+        assertThat(persistenceAuditEventRepository.findAll()).hasSize(1);
+        assertThat(Files.exists(archiveDirectory)).isFalse();
+    }
+
+    private static PersistentAuditEvent auditEvent(String principal, Instant date) {
+        PersistentAuditEvent auditEvent = new PersistentAuditEvent();
+        auditEvent.setPrincipal(principal);
+        auditEvent.setAuditEventType("test-type");
+        auditEvent.setAuditEventDate(date);
+        auditEvent.getData().put("test-key", "test-value");
+        return auditEvent;
+    }
+
+    private static List<String> readArchive(Path archive) throws IOException {
+        try (BufferedReader reader = new BufferedReader(
+            new InputStreamReader(new GZIPInputStream(Files.newInputStream(archive)), StandardCharsets.UTF_8))) {
+            return reader.lines().collect(Collectors.toList());
+        }
+    }
+}
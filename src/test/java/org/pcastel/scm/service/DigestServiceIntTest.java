@@ -0,0 +1,233 @@
+package org.pcastel.scm.service;
+
+import org.pcastel.scm.ScmApp;
+import org.pcastel.scm.domain.DigestEntry;
+import org.pcastel.scm.domain.Event;
+import org.pcastel.scm.domain.OutgoingMail;
+import org.pcastel.scm.domain.Team;
+import org.pcastel.scm.domain.User;
+import org.pcastel.scm.domain.enumeration.DigestEntryType;
+import org.pcastel.scm.domain.enumeration.EventState;
+import org.pcastel.scm.domain.enumeration.EventType;
+import org.pcastel.scm.repository.DigestEntryRepository;
+import org.pcastel.scm.repository.EventRepository;
+import org.pcastel.scm.repository.OutgoingMailRepository;
+import org.pcastel.scm.repository.TeamRepository;
+import org.pcastel.scm.repository.UserRepository;
+import org.pcastel.scm.service.dto.EventDTO;
+import org.pcastel.scm.service.dto.TeamDTO;
+import org.pcastel.scm.service.dto.UserDTO;
+import org.pcastel.scm.service.mapper.EventMapper;
+import org.pcastel.scm.service.mapper.TeamMapper;
+
+import org.apache.commons.lang3.RandomStringUtils;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
+
+/**
+ * Test class for the daily digest of the notifications of the users in digest mode.
+ *
+ * @see DigestService
+ */
+@RunWith(SpringRunner.class)
+@SpringBootTest(classes = ScmApp.class)
+@Transactional
+public class DigestServiceIntTest {
+
+    @Autowired
+    private DigestService digestService;
+
+    @Autowired
+    private DigestEntryRepository digestEntryRepository;
+
+    @Autowired
+    private EventService eventService;
+
+    @Autowired
+    private EventNotificationService eventNotificationService;
+
+    @Autowired
+    private TeamService teamService;
+
+    @Autowired
+    private EventRepository eventRepository;
+
+    @Autowired
+    private EventMapper eventMapper;
+
+    @Autowired
+    private TeamRepository teamRepository;
+
+    @Autowired
+    private TeamMapper teamMapper;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private OutgoingMailRepository outgoingMailRepository;
+
+    private Team team;
+
+    @Before
+    public void init() {
+        outgoingMailRepository.deleteAll();
+        digestEntryRepository.deleteAll();
+        team = teamRepository.save(new Team().name("Seniors"));
+    }
+
+    @Test
+    public void assertThatTheChangesOfAUserInDigestModeAreAppended() {
+        User john = createUser("john", true);
+        User jane = createUser("jane", false);
+        User guest = createUser("guest", false);
+        team.addMember(john);
+        team.addMember(jane);
+        Event event = createEvent(EventState.INIT);
+        event.addParticipant(guest);
+        event = eventRepository.save(event);
+
+        // The change is made to a DTO, as the managed event is the previous event of the save
+        EventDTO eventDTO = eventMapper.toDto(event);
+        eventDTO.setState(EventState.OPEN);
+        eventService.save(eventDTO);
+
+        assertThat(outgoingMailRepository.findAll()).extracting(OutgoingMail::getRecipient)
+            .containsOnly("jane@localhost", "guest@localhost");
+        List<DigestEntry> entries = digestEntryRepository.findAll();
+        assertThat(entries).hasSize(1);
+        assertThat(entries.get(0).getUserId()).isEqualTo(john.getId());
+        assertThat(entries.get(0).getType()).isEqualTo(DigestEntryType.EVENT_OPENED);
+        assertThat(entries.get(0).getTargetId()).isEqualTo(event.getId());
+        assertThat(entries.get(0).getTitle()).isEqualTo("Tournament");
+    }
+
+    @Test
+    public void assertThatAWaitlistPromotionIsAppended() {
+        User john = createUser("john", true);
+        User jane = createUser("jane", false);
+        Event event = eventRepository.save(createEvent(EventState.OPEN));
+
+        eventNotificationService.notifyPromotion(john, event);
+        eventNotificationService.notifyPromotion(jane, event);
+
+        assertThat(outgoingMailRepository.findAll()).extracting(OutgoingMail::getRecipient)
+            .containsOnly("jane@localhost");
+        assertThat(digestEntryRepository.findAll()).extracting(DigestEntry::getType)
+            .containsOnly(DigestEntryType.WAITLIST_PROMOTED);
+    }
+
+    @Test
+    public void assertThatTheRosterChangesAreAppended() {
+        User john = createUser("john", true);
+        User jane = createUser("jane", false);
+        User paul = createUser("paul", false);
+        team.addMember(john);
+        team.addMember(jane);
+        team = teamRepository.saveAndFlush(team);
+
+        TeamDTO teamDTO = teamMapper.toDto(team);
+        teamDTO.getMembers().removeIf(member -> member.getLogin().equals("jane"));
+        teamDTO.getMembers().add(new UserDTO(paul));
+        teamService.save(teamDTO);
+
+        List<DigestEntry> entries = digestEntryRepository.findAll();
+        assertThat(entries).extracting(DigestEntry::getUserId).containsOnly(john.getId());
+        assertThat(entries).extracting(DigestEntry::getType, DigestEntry::getDetail)
+            .containsOnly(
+                tuple(DigestEntryType.MEMBER_JOINED, "paul"),
+                tuple(DigestEntryType.MEMBER_LEFT, "jane"));
+        assertThat(outgoingMailRepository.findAll()).isEmpty();
+    }
+
+    @Test
+    public void assertThatADigestIsSentPerUser() {
+        User john = createUser("john", true);
+        User jean = createUser("jean", true);
+        jean.setLangKey("fr");
+        Event event = eventRepository.save(createEvent(EventState.OPEN));
+        Event other = eventRepository.save(createEvent(EventState.OPEN).title("Training"));
+        digestService.append(DigestService.eventEntry(john.getId(), DigestEntryType.EVENT_OPENED, event));
+        digestService.append(DigestService.eventEntry(john.getId(), DigestEntryType.EVENT_CHANGED,
+            event.date(LocalDate.of(2017, 10, 28))));
+        digestService.append(DigestService.eventEntry(john.getId(), DigestEntryType.EVENT_CHANGED, other));
+        digestService.append(DigestService.eventEntry(jean.getId(), DigestEntryType.WAITLIST_PROMOTED, event));
+
+        assertThat(digestService.sendDigests()).isEqualTo(2);
+
+        Map<String, OutgoingMail> mails = outgoingMailRepository.findAll().stream()
+            .collect(Collectors.toMap(OutgoingMail::getRecipient, Function.identity()));
+        assertThat(mails).containsOnlyKeys("john@localhost", "jean@localhost");
+        assertThat(mails.get("john@localhost").getSubject()).isEqualTo("scm: your daily digest of 2 changes");
+        assertThat(mails.get("john@localhost").getContent())
+            .contains("Dear john")
+            .contains("Tournament on 2017-10-28 is open.")
+            .contains("Training has changed")
+            .doesNotContain("Tournament has changed")
+            .contains("/#/event-scm/" + event.getId());
+        assertThat(mails.get("jean@localhost").getContent()).contains("Cher jean");
+        assertThat(digestEntryRepository.findAll()).isEmpty();
+        assertThat(digestService.sendDigests()).isEqualTo(0);
+    }
+
+    @Test
+    public void assertThatTheDigestsAreSentInChunks() {
+        for (int i = 0; i < 250; i++) {
+            User user = createUser("member-" + i, true);
+            digestService.append(DigestService.memberEntry(user.getId(), DigestEntryType.MEMBER_JOINED, team, user));
+        }
+        User inactive = createUser("inactive", true);
+        inactive.setActivated(false);
+        digestService.append(DigestService.memberEntry(inactive.getId(), DigestEntryType.MEMBER_LEFT, team, inactive));
+
+        assertThat(digestService.sendDigests()).isEqualTo(250);
+
+        assertThat(outgoingMailRepository.count()).isEqualTo(250);
+        assertThat(digestEntryRepository.count()).isEqualTo(0);
+    }
+
+    @Test
+    public void assertThatTheChangesOfAMemberAreCoalesced() {
+        User jane = createUser("jane", false);
+        List<DigestEntry> lines = DigestService.coalesce(Arrays.asList(
+            DigestService.memberEntry(1L, DigestEntryType.MEMBER_JOINED, team, jane),
+            DigestService.memberEntry(1L, DigestEntryType.MEMBER_LEFT, team, jane)));
+
+        assertThat(lines).extracting(DigestEntry::getType).containsExactly(DigestEntryType.MEMBER_LEFT);
+    }
+
+    private Event createEvent(EventState state) {
+        return new Event()
+            .title("Tournament")
+            .type(EventType.MATCH)
+            .date(LocalDate.of(2017, 10, 21))
+            .state(state)
+            .team(team);
+    }
+
+    private User createUser(String login, boolean digest) {
+        User user = new User();
+        user.setLogin(login);
+        user.setPassword(RandomStringUtils.random(60));
+        user.setEmail(login + "@localhost");
+        user.setLangKey("en");
+        user.setActivated(true);
+        user.setDigest(digest);
+        return userRepository.save(user);
+    }
+}
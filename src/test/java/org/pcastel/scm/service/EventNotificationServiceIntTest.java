@@ -0,0 +1,185 @@
+package org.pcastel.scm.service;
+
+import org.pcastel.scm.ScmApp;
+import org.pcastel.scm.domain.Event;
+import org.pcastel.scm.domain.Location;
+import org.pcastel.scm.domain.OutgoingMail;
+import org.pcastel.scm.domain.Team;
+import org.pcastel.scm.domain.User;
+import org.pcastel.scm.domain.enumeration.EventState;
+import org.pcastel.scm.domain.enumeration.EventType;
+import org.pcastel.scm.domain.enumeration.OutgoingMailState;
+import org.pcastel.scm.repository.EventRepository;
+import org.pcastel.scm.repository.LocationRepository;
+import org.pcastel.scm.repository.OutgoingMailRepository;
+import org.pcastel.scm.repository.TeamRepository;
+import org.pcastel.scm.repository.UserRepository;
+import org.pcastel.scm.service.dto.EventDTO;
+import org.pcastel.scm.service.mapper.EventMapper;
+
+import org.apache.commons.lang3.RandomStringUtils;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Test class for the notifications of the members of a team of its events.
+ *
+ * @see EventNotificationService
+ */
+@RunWith(SpringRunner.class)
+@SpringBootTest(classes = ScmApp.class)
+@Transactional
+public class EventNotificationServiceIntTest {
+
+    @Autowired
+    private EventService eventService;
+
+    @Autowired
+    private EventRepository eventRepository;
+
+    @Autowired
+    private EventMapper eventMapper;
+
+    @Autowired
+    private TeamRepository teamRepository;
+
+    @Autowired
+    private LocationRepository locationRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private OutgoingMailRepository outgoingMailRepository;
+
+    private Team team;
+
+    @Before
+    public void init() {
+        outgoingMailRepository.deleteAll();
+        team = teamRepository.save(new Team().name("Seniors"));
+    }
+
+    @Test
+    public void assertThatOpeningAnEventNotifiesTheTeam() {
+        team.addMember(createUser("john", "en", true));
+        team.addMember(createUser("jean", "fr", true));
+        team.addMember(createUser("o'neil", "en", true));
+        team.addMember(createUser("inactive", "en", false));
+        Event event = eventRepository.save(createEvent(EventState.INIT));
+
+        eventService.save(toDto(event, dto -> dto.setState(EventState.OPEN)));
+
+        Map<String, OutgoingMail> mails = outgoingMailRepository.findAll().stream()
+            .collect(Collectors.toMap(OutgoingMail::getRecipient, Function.identity()));
+        assertThat(mails).containsOnlyKeys("john@localhost", "jean@localhost", "o'neil@localhost");
+        assertThat(mails.get("john@localhost").getSubject()).isEqualTo("scm: Tournament is open");
+        assertThat(mails.get("john@localhost").getContent())
+            .contains("Dear john").contains("Tournament of Seniors is open").contains("/#/event-scm/" + event.getId());
+        assertThat(mails.get("jean@localhost").getSubject()).isEqualTo("scm : Tournament est ouvert");
+        assertThat(mails.get("jean@localhost").getContent()).contains("Cher jean");
+        assertThat(mails.get("o'neil@localhost").getContent()).contains("Dear o&#39;neil");
+        assertThat(mails.values()).allMatch(OutgoingMail::isHtml);
+    }
+
+    @Test
+    public void assertThatChangingTheLocationNotifiesTheTeam() {
+        team.addMember(createUser("john", "en", true));
+        Location location = locationRepository.save(new Location().title("Stadium"));
+        Event event = eventRepository.save(createEvent(EventState.OPEN));
+
+        eventService.save(toDto(event, dto -> dto.setLocationId(location.getId())));
+
+        List<OutgoingMail> mails = outgoingMailRepository.findAll();
+        assertThat(mails).hasSize(1);
+        assertThat(mails.get(0).getSubject()).isEqualTo("scm: Tournament has changed");
+        assertThat(mails.get(0).getContent()).contains("Location: Stadium");
+    }
+
+    @Test
+    public void assertThatOtherChangesAreNotNotified() {
+        team.addMember(createUser("john", "en", true));
+        Event event = eventRepository.save(createEvent(EventState.OPEN));
+
+        eventService.save(toDto(event, dto -> dto.setComment("Bring your own ball")));
+        eventService.save(eventMapper.toDto(createEvent(EventState.INIT)));
+
+        assertThat(outgoingMailRepository.findAll()).isEmpty();
+    }
+
+    @Test
+    public void assertThatOpeningTheFollowingEventsNotifiesTheTeamOfEach() {
+        team.addMember(createUser("john", "en", true));
+        Event first = eventRepository.save(createEvent(EventState.INIT).seriesId("series"));
+        eventRepository.save(createEvent(EventState.INIT).seriesId("series").date(LocalDate.of(2017, 10, 28)));
+
+        eventService.updateFollowing(toDto(first, dto -> dto.setState(EventState.OPEN)));
+
+        List<String> contents = outgoingMailRepository.findAll().stream()
+            .map(OutgoingMail::getContent)
+            .collect(Collectors.toList());
+        assertThat(contents).hasSize(2);
+        assertThat(contents.stream().anyMatch(content -> content.contains("2017-10-21"))).isTrue();
+        assertThat(contents.stream().anyMatch(content -> content.contains("2017-10-28"))).isTrue();
+    }
+
+    @Test
+    public void assertThatALargeTeamIsNotifiedInBatches() {
+        for (int i = 0; i < 500; i++) {
+            team.addMember(createUser("member-" + i, i % 2 == 0 ? "en" : "fr", true));
+        }
+        Event event = eventRepository.save(createEvent(EventState.INIT));
+
+        eventService.save(toDto(event, dto -> dto.setState(EventState.OPEN)));
+
+        assertThat(outgoingMailRepository.count()).isEqualTo(500);
+        assertThat(outgoingMailRepository.countByState(OutgoingMailState.PENDING)).isEqualTo(500);
+        List<String> contents = outgoingMailRepository.findAll().stream()
+            .map(OutgoingMail::getContent)
+            .collect(Collectors.toList());
+        assertThat(contents.stream().anyMatch(content -> content.contains("Dear member-0"))).isTrue();
+        assertThat(contents.stream().anyMatch(content -> content.contains("Cher member-499"))).isTrue();
+    }
+
+    /**
+     * The changes are made to a DTO, as the managed event is the previous event of the save.
+     */
+    private EventDTO toDto(Event event, Consumer<EventDTO> changes) {
+        EventDTO eventDTO = eventMapper.toDto(event);
+        changes.accept(eventDTO);
+        return eventDTO;
+    }
+
+    private Event createEvent(EventState state) {
+        return new Event()
+            .title("Tournament")
+            .type(EventType.MATCH)
+            .date(LocalDate.of(2017, 10, 21))
+            .state(state)
+            .team(team);
+    }
+
+    private User createUser(String login, String langKey, boolean activated) {
+        User user = new User();
+        user.setLogin(login);
+        user.setPassword(RandomStringUtils.random(60));
+        user.setEmail(login + "@localhost");
+        user.setLangKey(langKey);
+        user.setActivated(activated);
+        return userRepository.save(user);
+    }
+}
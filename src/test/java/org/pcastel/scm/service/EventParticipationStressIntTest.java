@@ -0,0 +1,170 @@
+package org.pcastel.scm.service;
+
+import org.pcastel.scm.ScmApp;
+import org.pcastel.scm.domain.Event;
+import org.pcastel.scm.domain.User;
+import org.pcastel.scm.domain.enumeration.EventState;
+import org.pcastel.scm.domain.enumeration.EventType;
+import org.pcastel.scm.repository.EventRepository;
+import org.pcastel.scm.repository.UserRepository;
+import org.pcastel.scm.repository.WaitlistEntryRepository;
+import org.pcastel.scm.service.EventService.Participation;
+
+import org.apache.commons.lang3.RandomStringUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.test.context.junit4.SpringRunner;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Stress test of concurrent sign-ups to, and cancellations of, an event.
+ * <p>
+ * This test is not transactional: each sign-up runs in its own transaction, on its own thread,
+ * as concurrent HTTP requests would.
+ *
+ * @see EventService#join(Long)
+ * @see EventService#leave(Long)
+ */
+@RunWith(SpringRunner.class)
+@SpringBootTest(classes = ScmApp.class)
+public class EventParticipationStressIntTest {
+
+    private static final int NUMBER_OF_PLACES = 5;
+
+    private static final int NUMBER_OF_USERS = 20;
+
+    private static final int REQUESTS_PER_USER = 2;
+
+    @Autowired
+    private EventService eventService;
+
+    @Autowired
+    private EventRepository eventRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private WaitlistEntryRepository waitlistEntryRepository;
+
+    private Event event;
+
+    private final List<User> users = new ArrayList<>();
+
+    @Before
+    public void setup() {
+        event = eventRepository.save(new Event()
+            .title("Tournament")
+            .type(EventType.MATCH)
+            .date(LocalDate.now())
+            .state(EventState.OPEN)
+            .numberOfPlaces(NUMBER_OF_PLACES));
+        for (int i = 0; i < NUMBER_OF_USERS; i++) {
+            User user = new User();
+            user.setLogin("stress-" + i);
+            user.setPassword(RandomStringUtils.random(60));
+            user.setActivated(true);
+            user.setEmail("stress-" + i + "@localhost");
+            users.add(userRepository.save(user));
+        }
+    }
+
+    @After
+    public void cleanup() {
+        // Deleting the event also deletes its participants and its waitlist
+        eventService.delete(event.getId());
+        userRepository.delete(users);
+        SecurityContextHolder.clearContext();
+    }
+
+    @Test
+    public void concurrentJoinsNeverOversellTheEvent() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<Participation>> results = new ArrayList<>();
+        try {
+            for (int i = 0; i < REQUESTS_PER_USER; i++) {
+                for (User user : users) {
+                    results.add(executor.submit(runAs(user.getLogin(), start, () -> eventService.join(event.getId()))));
+                }
+            }
+            start.countDown();
+            Map<Participation, Integer> outcomes = new EnumMap<>(Participation.class);
+            for (Future<Participation> result : results) {
+                outcomes.merge(result.get(30, TimeUnit.SECONDS), 1, Integer::sum);
+            }
+
+            assertThat(outcomes.get(Participation.JOINED)).isEqualTo(NUMBER_OF_PLACES);
+            assertThat(outcomes.getOrDefault(Participation.WAITLISTED, 0) + outcomes.getOrDefault(Participation.ALREADY_PARTICIPANT, 0))
+                .isEqualTo(NUMBER_OF_USERS * REQUESTS_PER_USER - NUMBER_OF_PLACES);
+            assertThat(eventRepository.findOne(event.getId()).getParticipantCount()).isEqualTo(NUMBER_OF_PLACES);
+            assertThat(users.stream().filter(user -> eventRepository.isParticipant(event.getId(), user.getId())))
+                .hasSize(NUMBER_OF_PLACES);
+            assertThat(waitlistEntryRepository.findUserIdsByEventId(event.getId()))
+                .hasSize(NUMBER_OF_USERS - NUMBER_OF_PLACES)
+                .doesNotHaveDuplicates();
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void concurrentCancellationsPromoteTheWaitlistInOrder() throws Exception {
+        for (User user : users) {
+            runAs(user.getLogin(), new CountDownLatch(0), () -> eventService.join(event.getId())).call();
+        }
+        List<Long> userIds = users.stream().map(User::getId).collect(Collectors.toList());
+        ExecutorService executor = Executors.newFixedThreadPool(NUMBER_OF_PLACES);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<Boolean>> results = new ArrayList<>();
+        try {
+            for (User user : users.subList(0, NUMBER_OF_PLACES)) {
+                results.add(executor.submit(runAs(user.getLogin(), start, () -> eventService.leave(event.getId()))));
+            }
+            start.countDown();
+            for (Future<Boolean> result : results) {
+                assertThat(result.get(30, TimeUnit.SECONDS)).isTrue();
+            }
+
+            assertThat(eventRepository.findOne(event.getId()).getParticipantCount()).isEqualTo(NUMBER_OF_PLACES);
+            assertThat(userIds.stream().filter(userId -> eventRepository.isParticipant(event.getId(), userId)))
+                .containsExactlyElementsOf(userIds.subList(NUMBER_OF_PLACES, 2 * NUMBER_OF_PLACES));
+            assertThat(waitlistEntryRepository.findUserIdsByEventId(event.getId()))
+                .containsExactlyElementsOf(userIds.subList(2 * NUMBER_OF_PLACES, NUMBER_OF_USERS));
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private <T> Callable<T> runAs(String login, CountDownLatch start, Callable<T> action) {
+        return () -> {
+            SecurityContextHolder.getContext().setAuthentication(new UsernamePasswordAuthenticationToken(login, login));
+            try {
+                start.await();
+                return action.call();
+            } finally {
+                SecurityContextHolder.clearContext();
+            }
+        };
+    }
+}
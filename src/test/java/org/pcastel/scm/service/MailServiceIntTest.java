@@ -1,67 +1,80 @@
 package org.pcastel.scm.service;
+import org.pcastel.scm.config.ApplicationProperties;
 import org.pcastel.scm.config.Constants;
 
 import org.pcastel.scm.ScmApp;
+import org.pcastel.scm.domain.Event;
+import org.pcastel.scm.domain.OutgoingMail;
 import org.pcastel.scm.domain.User;
+import org.pcastel.scm.domain.enumeration.OutgoingMailState;
+import org.pcastel.scm.repository.OutgoingMailRepository;
+import com.codahale.metrics.MetricRegistry;
+import com.icegreen.greenmail.junit.GreenMailRule;
+import com.icegreen.greenmail.util.ServerSetupTest;
 import io.github.jhipster.config.JHipsterProperties;
 import org.junit.Before;
+import org.junit.Rule;
 import org.junit.Test;
 import org.junit.runner.RunWith;
-import org.mockito.ArgumentCaptor;
-import org.mockito.Captor;
-import org.mockito.MockitoAnnotations;
-import org.mockito.Spy;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
-import org.springframework.context.MessageSource;
-import org.springframework.mail.MailSendException;
 import org.springframework.mail.javamail.JavaMailSenderImpl;
 import org.springframework.test.context.junit4.SpringRunner;
-import org.thymeleaf.spring4.SpringTemplateEngine;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import javax.mail.Multipart;
 import javax.mail.internet.MimeBodyPart;
 import javax.mail.internet.MimeMessage;
 import javax.mail.internet.MimeMultipart;
-import java.io.ByteArrayOutputStream;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
 
 import static org.assertj.core.api.Assertions.assertThat;
-import static org.mockito.Matchers.any;
-import static org.mockito.Mockito.*;
 
+/**
+ * Test class for the MailService, and the dispatch of the outbox to a local GreenMail server.
+ *
+ * @see MailService
+ * @see MailOutboxDispatcher
+ */
 @RunWith(SpringRunner.class)
 @SpringBootTest(classes = ScmApp.class)
 public class MailServiceIntTest {
 
+    /**
+     * Port on which no mail server listens.
+     */
+    private static final int UNUSED_PORT = ServerSetupTest.SMTP.getPort() + 1;
+
+    @Rule
+    public final GreenMailRule greenMail = new GreenMailRule(ServerSetupTest.SMTP);
+
     @Autowired
     private JHipsterProperties jHipsterProperties;
 
     @Autowired
-    private MessageSource messageSource;
+    private MailService mailService;
 
     @Autowired
-    private SpringTemplateEngine templateEngine;
-
-    @Spy
-    private JavaMailSenderImpl javaMailSender;
+    private MailOutboxDispatcher mailOutboxDispatcher;
 
-    @Captor
-    private ArgumentCaptor messageCaptor;
+    @Autowired
+    private OutgoingMailRepository outgoingMailRepository;
 
-    private MailService mailService;
+    @Autowired
+    private PlatformTransactionManager transactionManager;
 
     @Before
     public void setup() {
-        MockitoAnnotations.initMocks(this);
-        doNothing().when(javaMailSender).send(any(MimeMessage.class));
-        mailService = new MailService(jHipsterProperties, javaMailSender, messageSource, templateEngine);
+        outgoingMailRepository.deleteAll();
     }
 
     @Test
     public void testSendEmail() throws Exception {
         mailService.sendEmail("john.doe@example.com", "testSubject","testContent", false, false);
-        verify(javaMailSender).send((MimeMessage) messageCaptor.capture());
-        MimeMessage message = (MimeMessage) messageCaptor.getValue();
+        MimeMessage message = dispatchSingleMessage();
         assertThat(message.getSubject()).isEqualTo("testSubject");
         assertThat(message.getAllRecipients()[0].toString()).isEqualTo("john.doe@example.com");
         assertThat(message.getFrom()[0].toString()).isEqualTo("test@localhost");
@@ -73,8 +86,7 @@ public class MailServiceIntTest {
     @Test
     public void testSendHtmlEmail() throws Exception {
         mailService.sendEmail("john.doe@example.com", "testSubject","testContent", false, true);
-        verify(javaMailSender).send((MimeMessage) messageCaptor.capture());
-        MimeMessage message = (MimeMessage) messageCaptor.getValue();
+        MimeMessage message = dispatchSingleMessage();
         assertThat(message.getSubject()).isEqualTo("testSubject");
         assertThat(message.getAllRecipients()[0].toString()).isEqualTo("john.doe@example.com");
         assertThat(message.getFrom()[0].toString()).isEqualTo("test@localhost");
@@ -86,34 +98,26 @@ public class MailServiceIntTest {
     @Test
     public void testSendMultipartEmail() throws Exception {
         mailService.sendEmail("john.doe@example.com", "testSubject","testContent", true, false);
-        verify(javaMailSender).send((MimeMessage) messageCaptor.capture());
-        MimeMessage message = (MimeMessage) messageCaptor.getValue();
-        MimeMultipart mp = (MimeMultipart) message.getContent();
-        MimeBodyPart part = (MimeBodyPart)((MimeMultipart) mp.getBodyPart(0).getContent()).getBodyPart(0);
-        ByteArrayOutputStream aos = new ByteArrayOutputStream();
-        part.writeTo(aos);
+        MimeMessage message = dispatchSingleMessage();
         assertThat(message.getSubject()).isEqualTo("testSubject");
         assertThat(message.getAllRecipients()[0].toString()).isEqualTo("john.doe@example.com");
         assertThat(message.getFrom()[0].toString()).isEqualTo("test@localhost");
         assertThat(message.getContent()).isInstanceOf(Multipart.class);
-        assertThat(aos.toString()).isEqualTo("\r\ntestContent");
+        MimeBodyPart part = textPart(message);
+        assertThat(part.getContent().toString()).isEqualTo("testContent");
         assertThat(part.getDataHandler().getContentType()).isEqualTo("text/plain; charset=UTF-8");
     }
 
     @Test
     public void testSendMultipartHtmlEmail() throws Exception {
         mailService.sendEmail("john.doe@example.com", "testSubject","testContent", true, true);
-        verify(javaMailSender).send((MimeMessage) messageCaptor.capture());
-        MimeMessage message = (MimeMessage) messageCaptor.getValue();
-        MimeMultipart mp = (MimeMultipart) message.getContent();
-        MimeBodyPart part = (MimeBodyPart)((MimeMultipart) mp.getBodyPart(0).getContent()).getBodyPart(0);
-        ByteArrayOutputStream aos = new ByteArrayOutputStream();
-        part.writeTo(aos);
+        MimeMessage message = dispatchSingleMessage();
         assertThat(message.getSubject()).isEqualTo("testSubject");
         assertThat(message.getAllRecipients()[0].toString()).isEqualTo("john.doe@example.com");
         assertThat(message.getFrom()[0].toString()).isEqualTo("test@localhost");
         assertThat(message.getContent()).isInstanceOf(Multipart.class);
-        assertThat(aos.toString()).isEqualTo("\r\ntestContent");
+        MimeBodyPart part = textPart(message);
+        assertThat(part.getContent().toString()).isEqualTo("testContent");
         assertThat(part.getDataHandler().getContentType()).isEqualTo("text/html;charset=UTF-8");
     }
 
@@ -124,12 +128,11 @@ public class MailServiceIntTest {
         user.setEmail("john.doe@example.com");
         user.setLangKey("en");
         mailService.sendEmailFromTemplate(user, "testEmail", "email.test.title");
-        verify(javaMailSender).send((MimeMessage) messageCaptor.capture());
-        MimeMessage message = (MimeMessage) messageCaptor.getValue();
+        MimeMessage message = dispatchSingleMessage();
         assertThat(message.getSubject()).isEqualTo("test title");
         assertThat(message.getAllRecipients()[0].toString()).isEqualTo(user.getEmail());
         assertThat(message.getFrom()[0].toString()).isEqualTo("test@localhost");
-        assertThat(message.getContent().toString()).isEqualTo("<html>test title, http://127.0.0.1:8080, john</html>\n");
+        assertThat(message.getContent().toString()).contains("<html>test title, http://127.0.0.1:8080, john</html>");
         assertThat(message.getDataHandler().getContentType()).isEqualTo("text/html;charset=UTF-8");
     }
 
@@ -140,8 +143,7 @@ public class MailServiceIntTest {
         user.setLogin("john");
         user.setEmail("john.doe@example.com");
         mailService.sendActivationEmail(user);
-        verify(javaMailSender).send((MimeMessage) messageCaptor.capture());
-        MimeMessage message = (MimeMessage) messageCaptor.getValue();
+        MimeMessage message = dispatchSingleMessage();
         assertThat(message.getAllRecipients()[0].toString()).isEqualTo(user.getEmail());
         assertThat(message.getFrom()[0].toString()).isEqualTo("test@localhost");
         assertThat(message.getContent().toString()).isNotEmpty();
@@ -155,8 +157,7 @@ public class MailServiceIntTest {
         user.setLogin("john");
         user.setEmail("john.doe@example.com");
         mailService.sendCreationEmail(user);
-        verify(javaMailSender).send((MimeMessage) messageCaptor.capture());
-        MimeMessage message = (MimeMessage) messageCaptor.getValue();
+        MimeMessage message = dispatchSingleMessage();
         assertThat(message.getAllRecipients()[0].toString()).isEqualTo(user.getEmail());
         assertThat(message.getFrom()[0].toString()).isEqualTo("test@localhost");
         assertThat(message.getContent().toString()).isNotEmpty();
@@ -170,18 +171,156 @@ public class MailServiceIntTest {
         user.setLogin("john");
         user.setEmail("john.doe@example.com");
         mailService.sendPasswordResetMail(user);
-        verify(javaMailSender).send((MimeMessage) messageCaptor.capture());
-        MimeMessage message = (MimeMessage) messageCaptor.getValue();
+        MimeMessage message = dispatchSingleMessage();
         assertThat(message.getAllRecipients()[0].toString()).isEqualTo(user.getEmail());
         assertThat(message.getFrom()[0].toString()).isEqualTo("test@localhost");
         assertThat(message.getContent().toString()).isNotEmpty();
         assertThat(message.getDataHandler().getContentType()).isEqualTo("text/html;charset=UTF-8");
     }
 
+    @Test
+    public void testSendWaitlistPromotionEmail() throws Exception {
+        User user = new User();
+        user.setLangKey(Constants.DEFAULT_LANGUAGE);
+        user.setLogin("john");
+        user.setEmail("john.doe@example.com");
+        Event event = new Event().title("Tournament").date(LocalDate.of(2017, 10, 21));
+        event.setId(1L);
+        mailService.sendWaitlistPromotionEmail(user, event);
+        MimeMessage message = dispatchSingleMessage();
+        assertThat(message.getSubject()).contains("Tournament");
+        assertThat(message.getAllRecipients()[0].toString()).isEqualTo(user.getEmail());
+        assertThat(message.getFrom()[0].toString()).isEqualTo("test@localhost");
+        assertThat(message.getContent().toString()).contains("/#/event-scm/1");
+        assertThat(message.getDataHandler().getContentType()).isEqualTo("text/html;charset=UTF-8");
+    }
+
+    @Test
+    public void testSendManyEmailsInOneBatch() throws Exception {
+        for (int i = 0; i < 3; i++) {
+            mailService.sendEmail("user-" + i + "@example.com", "testSubject", "testContent", false, false);
+        }
+
+        assertThat(mailOutboxDispatcher.dispatch()).isEqualTo(3);
+
+        assertThat(greenMail.getReceivedMessages()).hasSize(3);
+        assertThat(outgoingMailRepository.countByState(OutgoingMailState.SENT)).isEqualTo(3);
+        assertThat(mailOutboxDispatcher.dispatch()).isZero();
+    }
+
+    @Test
+    public void testEmailIsNotSentWhenTheTransactionRollsBack() {
+        new TransactionTemplate(transactionManager).execute(status -> {
+            mailService.sendEmail("john.doe@example.com", "testSubject", "testContent", false, false);
+            status.setRollbackOnly();
+            return null;
+        });
+
+        assertThat(mailOutboxDispatcher.dispatch()).isZero();
+        assertThat(greenMail.getReceivedMessages()).isEmpty();
+    }
+
     @Test
     public void testSendEmailWithException() throws Exception {
-        doThrow(MailSendException.class).when(javaMailSender).send(any(MimeMessage.class));
+        MailOutboxDispatcher failingDispatcher = dispatcherOnPort(UNUSED_PORT, 2);
+        mailService.sendEmail("john.doe@example.com", "testSubject","testContent", false, false);
+
+        assertThat(failingDispatcher.dispatch()).isEqualTo(1);
+
+        OutgoingMail outgoingMail = outgoingMailRepository.findAll().get(0);
+        assertThat(outgoingMail.getState()).isEqualTo(OutgoingMailState.PENDING);
+        assertThat(outgoingMail.getAttempts()).isEqualTo(1);
+        assertThat(outgoingMail.getLastError()).isNotEmpty();
+        assertThat(outgoingMail.getNextAttemptDate()).isAfter(Instant.now());
+        assertThat(failingDispatcher.dispatch()).isZero();
+
+        outgoingMail.setNextAttemptDate(Instant.now());
+        outgoingMailRepository.save(outgoingMail);
+        assertThat(mailOutboxDispatcher.dispatch()).isEqualTo(1);
+
+        assertThat(greenMail.getReceivedMessages()).hasSize(1);
+        outgoingMail = outgoingMailRepository.findOne(outgoingMail.getId());
+        assertThat(outgoingMail.getState()).isEqualTo(OutgoingMailState.SENT);
+        assertThat(outgoingMail.getAttempts()).isEqualTo(2);
+        assertThat(outgoingMail.getLastError()).isNull();
+    }
+
+    @Test
+    public void testEmailIsDeadAfterTheMaxAttempts() {
+        MailOutboxDispatcher failingDispatcher = dispatcherOnPort(UNUSED_PORT, 2);
         mailService.sendEmail("john.doe@example.com", "testSubject","testContent", false, false);
+
+        for (int attempt = 1; attempt <= 2; attempt++) {
+            OutgoingMail outgoingMail = outgoingMailRepository.findAll().get(0);
+            outgoingMail.setNextAttemptDate(Instant.now());
+            outgoingMailRepository.save(outgoingMail);
+            assertThat(failingDispatcher.dispatch()).isEqualTo(1);
+        }
+
+        OutgoingMail outgoingMail = outgoingMailRepository.findAll().get(0);
+        assertThat(outgoingMail.getState()).isEqualTo(OutgoingMailState.DEAD);
+        assertThat(outgoingMail.getAttempts()).isEqualTo(2);
+        assertThat(mailOutboxDispatcher.dispatch()).isZero();
     }
 
+    @Test
+    public void testEmailToAnInvalidAddressIsDead() {
+        mailService.sendEmail("<john.doe@example.com", "testSubject","testContent", false, false);
+        mailService.sendEmail("jane.doe@example.com", "testSubject","testContent", false, false);
+
+        assertThat(mailOutboxDispatcher.dispatch()).isEqualTo(2);
+
+        assertThat(greenMail.getReceivedMessages()).hasSize(1);
+        assertThat(outgoingMailRepository.countByState(OutgoingMailState.DEAD)).isEqualTo(1);
+        assertThat(outgoingMailRepository.countByState(OutgoingMailState.SENT)).isEqualTo(1);
+    }
+
+    @Test
+    public void testBackoffIsExponentialAndBounded() {
+        MailOutboxDispatcher dispatcher = dispatcherOnPort(UNUSED_PORT, 8);
+
+        assertThat(dispatcher.backoffSeconds(1)).isEqualTo(30);
+        assertThat(dispatcher.backoffSeconds(2)).isEqualTo(60);
+        assertThat(dispatcher.backoffSeconds(3)).isEqualTo(120);
+        assertThat(dispatcher.backoffSeconds(8)).isEqualTo(3600);
+        assertThat(dispatcher.backoffSeconds(100)).isEqualTo(3600);
+    }
+
+    @Test
+    public void testRemoveSentMails() {
+        OutgoingMail oldMail = new OutgoingMail().recipient("john.doe@example.com").subject("testSubject").content("testContent");
+        oldMail.setState(OutgoingMailState.SENT);
+        oldMail.setSentDate(Instant.now().minus(30, ChronoUnit.DAYS));
+        OutgoingMail recentMail = new OutgoingMail().recipient("john.doe@example.com").subject("testSubject").content("testContent");
+        recentMail.setState(OutgoingMailState.SENT);
+        recentMail.setSentDate(Instant.now());
+        outgoingMailRepository.save(oldMail);
+        outgoingMailRepository.save(recentMail);
+
+        mailService.removeSentMails();
+
+        assertThat(outgoingMailRepository.findAll()).extracting("id").containsExactly(recentMail.getId());
+    }
+
+    private MimeMessage dispatchSingleMessage() {
+        assertThat(mailOutboxDispatcher.dispatch()).isEqualTo(1);
+        MimeMessage[] messages = greenMail.getReceivedMessages();
+        assertThat(messages).hasSize(1);
+        return messages[0];
+    }
+
+    private static MimeBodyPart textPart(MimeMessage message) throws Exception {
+        MimeMultipart mp = (MimeMultipart) message.getContent();
+        return (MimeBodyPart) ((MimeMultipart) mp.getBodyPart(0).getContent()).getBodyPart(0);
+    }
+
+    private MailOutboxDispatcher dispatcherOnPort(int port, int maxAttempts) {
+        JavaMailSenderImpl javaMailSender = new JavaMailSenderImpl();
+        javaMailSender.setHost("localhost");
+        javaMailSender.setPort(port);
+        ApplicationProperties applicationProperties = new ApplicationProperties();
+        applicationProperties.getMail().setMaxAttempts(maxAttempts);
+        return new MailOutboxDispatcher(outgoingMailRepository, transactionManager, javaMailSender, jHipsterProperties,
+            applicationProperties, new MetricRegistry());
+    }
 }
@@ -0,0 +1,122 @@
+package org.pcastel.scm.service;
+
+import org.pcastel.scm.config.ApplicationProperties;
+import org.pcastel.scm.repository.MemberRepository;
+
+import com.codahale.metrics.MetricRegistry;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.data.domain.Pageable;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.util.FileSystemUtils;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Test class for the PhotoRenditionService.
+ *
+ * @see PhotoRenditionService
+ */
+public class PhotoRenditionServiceUnitTest {
+
+    private Path storageDirectory;
+
+    private PhotoStorageService photoStorageService;
+
+    private PhotoRenditionService photoRenditionService;
+
+    private MetricRegistry metricRegistry;
+
+    private MemberRepository memberRepository;
+
+    private ThreadPoolTaskExecutor executor;
+
+    @Before
+    public void setup() throws Exception {
+        storageDirectory = Files.createTempDirectory("photos");
+        ApplicationProperties applicationProperties = new ApplicationProperties();
+        applicationProperties.getPhoto().setStorageDirectory(storageDirectory.toString());
+        applicationProperties.getPhoto().setRenditionSizes(Arrays.asList(48, 96));
+        memberRepository = mock(MemberRepository.class);
+        executor = new ThreadPoolTaskExecutor();
+        executor.initialize();
+        metricRegistry = new MetricRegistry();
+        photoStorageService = new PhotoStorageService(applicationProperties, memberRepository);
+        photoRenditionService = new PhotoRenditionService(applicationProperties, photoStorageService,
+            memberRepository, executor, metricRegistry);
+    }
+
+    @After
+    public void cleanup() {
+        executor.shutdown();
+        FileSystemUtils.deleteRecursively(storageDirectory.toFile());
+    }
+
+    @Test
+    public void createSquareRenditions() throws Exception {
+        String hash = photoStorageService.store(png(200, 100));
+
+        photoRenditionService.createMissingRenditions(hash);
+
+        for (int size : new int[]{48, 96}) {
+            Path rendition = photoRenditionService.findRendition(hash, size).get();
+            BufferedImage image = ImageIO.read(rendition.toFile());
+            assertThat(image.getWidth()).isEqualTo(size);
+            assertThat(image.getHeight()).isEqualTo(size);
+            assertThat(metricRegistry.getTimers()).containsKey(
+                MetricRegistry.name(PhotoRenditionService.class, "render", size + "px"));
+        }
+        assertThat(photoRenditionService.findRendition(hash, 300)).isEmpty();
+    }
+
+    @Test
+    public void ignoreUnreadablePhoto() throws Exception {
+        String hash = photoStorageService.store(new byte[]{1, 2, 3});
+
+        photoRenditionService.createMissingRenditions(hash);
+
+        assertThat(photoRenditionService.findRendition(hash, 48)).isEmpty();
+    }
+
+    @Test
+    public void backfillRenditionsOnTheRenditionExecutor() throws Exception {
+        String hash = photoStorageService.store(png(100, 100));
+        when(memberRepository.findPhotoHashesAfter(eq(""), any(Pageable.class)))
+            .thenReturn(Collections.singletonList(hash));
+
+        photoRenditionService.backfillRenditions();
+        executor.getThreadPoolExecutor().shutdown();
+        assertThat(executor.getThreadPoolExecutor().awaitTermination(10, TimeUnit.SECONDS)).isTrue();
+
+        assertThat(photoRenditionService.findRendition(hash, 48)).isPresent();
+        assertThat(photoRenditionService.findRendition(hash, 96)).isPresent();
+    }
+
+    @Test
+    public void isRenditionSize() {
+        assertThat(photoRenditionService.isRenditionSize(48)).isTrue();
+        assertThat(photoRenditionService.isRenditionSize(300)).isFalse();
+    }
+
+    private static byte[] png(int width, int height) throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ImageIO.write(new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB), "png", out);
+        assertThat(ImageIO.read(new ByteArrayInputStream(out.toByteArray()))).isNotNull();
+        return out.toByteArray();
+    }
+}
@@ -0,0 +1,96 @@
+package org.pcastel.scm.service;
+
+import org.pcastel.scm.config.ApplicationProperties;
+import org.pcastel.scm.repository.MemberRepository;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.util.FileSystemUtils;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Test class for the PhotoStorageService.
+ *
+ * @see PhotoStorageService
+ */
+public class PhotoStorageServiceUnitTest {
+
+    private static final byte[] PHOTO = {1, 2, 3};
+
+    private Path storageDirectory;
+
+    private MemberRepository memberRepository;
+
+    private PhotoStorageService photoStorageService;
+
+    @Before
+    public void setup() throws Exception {
+        storageDirectory = Files.createTempDirectory("photos");
+        ApplicationProperties applicationProperties = new ApplicationProperties();
+        applicationProperties.getPhoto().setStorageDirectory(storageDirectory.toString());
+        memberRepository = mock(MemberRepository.class);
+        photoStorageService = new PhotoStorageService(applicationProperties, memberRepository);
+    }
+
+    @After
+    public void cleanup() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+        FileSystemUtils.deleteRecursively(storageDirectory.toFile());
+    }
+
+    @Test
+    public void deleteUnusedPhoto() {
+        String hash = photoStorageService.store(PHOTO);
+        photoStorageService.storeRendition(hash, 48, PHOTO);
+
+        photoStorageService.deleteIfUnused(hash);
+
+        assertThat(photoStorageService.find(hash)).isEmpty();
+        assertThat(photoStorageService.findRendition(hash, 48)).isEmpty();
+    }
+
+    @Test
+    public void keepUsedPhoto() {
+        String hash = photoStorageService.store(PHOTO);
+        when(memberRepository.countByPhotoHash(hash)).thenReturn(1L);
+
+        photoStorageService.deleteIfUnused(hash);
+
+        assertThat(photoStorageService.find(hash)).isPresent();
+    }
+
+    @Test
+    public void deleteUnusedPhotoAfterCommit() {
+        String hash = photoStorageService.store(PHOTO);
+        TransactionSynchronizationManager.initSynchronization();
+
+        photoStorageService.deleteIfUnused(hash);
+
+        assertThat(photoStorageService.find(hash)).isPresent();
+        TransactionSynchronizationManager.getSynchronizations().forEach(TransactionSynchronization::afterCommit);
+        assertThat(photoStorageService.find(hash)).isEmpty();
+    }
+
+    @Test
+    public void keepUnusedPhotoOnRollback() {
+        String hash = photoStorageService.store(PHOTO);
+        TransactionSynchronizationManager.initSynchronization();
+
+        photoStorageService.deleteIfUnused(hash);
+        TransactionSynchronizationManager.getSynchronizations()
+            .forEach(synchronization -> synchronization.afterCompletion(TransactionSynchronization.STATUS_ROLLED_BACK));
+
+        assertThat(photoStorageService.find(hash)).isPresent();
+    }
+}
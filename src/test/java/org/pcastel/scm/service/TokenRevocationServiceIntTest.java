@@ -0,0 +1,72 @@
+package org.pcastel.scm.service;
+
+import org.pcastel.scm.ScmApp;
+import org.pcastel.scm.repository.TokenRevocationRepository;
+import org.pcastel.scm.security.jwt.TokenRevocations;
+
+import org.junit.After;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Instant;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Test class for the TokenRevocationService.
+ *
+ * @see TokenRevocationService
+ */
+@RunWith(SpringRunner.class)
+@SpringBootTest(classes = ScmApp.class)
+public class TokenRevocationServiceIntTest {
+
+    @Autowired
+    private TokenRevocationService tokenRevocationService;
+
+    @Autowired
+    private TokenRevocationRepository tokenRevocationRepository;
+
+    @Autowired
+    private TokenRevocations tokenRevocations;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @After
+    public void cleanup() {
+        tokenRevocationRepository.deleteAll();
+    }
+
+    @Test
+    public void assertThatACommittedRevocationIsApplied() {
+        long issuedAt = Instant.now().toEpochMilli();
+
+        new TransactionTemplate(transactionManager).execute(status -> {
+            tokenRevocationService.revokeUserTokens("revocation-committed");
+            assertThat(tokenRevocations.isRevoked("revocation-committed", null, issuedAt)).isFalse();
+            return null;
+        });
+
+        assertThat(tokenRevocations.isRevoked("revocation-committed", null, issuedAt)).isTrue();
+    }
+
+    @Test
+    public void assertThatARolledBackRevocationIsNotApplied() {
+        long issuedAt = Instant.now().toEpochMilli();
+
+        new TransactionTemplate(transactionManager).execute(status -> {
+            tokenRevocationService.revokeUserTokens("revocation-rolled-back");
+            status.setRollbackOnly();
+            return null;
+        });
+
+        assertThat(tokenRevocations.isRevoked("revocation-rolled-back", null, issuedAt)).isFalse();
+        assertThat(tokenRevocationRepository.findAllByExpirationDateAfter(Instant.now())).isEmpty();
+    }
+}
@@ -1,11 +1,19 @@
 package org.pcastel.scm.service;
 
 import org.pcastel.scm.ScmApp;
+import org.pcastel.scm.domain.Event;
 import org.pcastel.scm.domain.User;
+import org.pcastel.scm.domain.WaitlistEntry;
+import org.pcastel.scm.domain.enumeration.EventState;
+import org.pcastel.scm.domain.enumeration.EventType;
 import org.pcastel.scm.config.Constants;
+import org.pcastel.scm.repository.EventRepository;
 import org.pcastel.scm.repository.UserRepository;
+import org.pcastel.scm.repository.WaitlistEntryRepository;
 import org.pcastel.scm.service.dto.UserDTO;
 import org.pcastel.scm.service.util.RandomUtil;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.pcastel.scm.web.rest.vm.ManagedUserVM;
@@ -17,7 +25,9 @@ import org.springframework.test.context.junit4.SpringRunner;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 
+import javax.persistence.EntityManager;
 import java.time.Instant;
+import java.time.LocalDate;
 import java.time.temporal.ChronoUnit;
 import java.util.Optional;
 import java.util.List;
@@ -40,6 +50,18 @@ public class UserServiceIntTest {
     @Autowired
     private UserService userService;
 
+    @Autowired
+    private EventRepository eventRepository;
+
+    @Autowired
+    private WaitlistEntryRepository waitlistEntryRepository;
+
+    @Autowired
+    private WaitlistPositionIndex waitlistPositionIndex;
+
+    @Autowired
+    private EntityManager em;
+
     @Test
     public void assertThatUserMustExistToResetPassword() {
         Optional<User> maybeUser = userService.requestPasswordReset("john.doe@localhost");
@@ -130,6 +152,30 @@ public class UserServiceIntTest {
             .isTrue();
     }
 
+    @Test
+    public void assertThatManagedUsersAreLoadedWithConstantStatementCount() {
+        for (int i = 0; i < 5; i++) {
+            userService.createUser("johndoe" + i, "johndoe", "John", "Doe", "john.doe" + i + "@localhost",
+                "http://placehold.it/50x50", "en-US", "0123456789");
+        }
+        em.flush();
+
+        Statistics statistics = em.getEntityManagerFactory().unwrap(SessionFactory.class).getStatistics();
+        long statementsForOneUser = countStatementsOfGetAllManagedUsers(statistics, new PageRequest(0, 1));
+        long statementsForFiveUsers = countStatementsOfGetAllManagedUsers(statistics, new PageRequest(0, 5));
+        assertThat(statementsForFiveUsers).isEqualTo(statementsForOneUser);
+        assertThat(statementsForFiveUsers).isLessThanOrEqualTo(4);
+    }
+
+    private long countStatementsOfGetAllManagedUsers(Statistics statistics, PageRequest pageable) {
+        em.clear();
+        statistics.clear();
+        Page<ManagedUserVM> users = userService.getAllManagedUsers(pageable);
+        assertThat(users.getContent()).hasSize(pageable.getPageSize());
+        assertThat(users.getContent()).allMatch(user -> !user.getAuthorities().isEmpty());
+        return statistics.getPrepareStatementCount();
+    }
+
     @Test
     public void testRemoveNotActivatedUsers() {
         User user = userService.createUser("johndoe", "johndoe", "John", "Doe", "john.doe@localhost", "http://placehold.it/50x50", "en-US", "0123456789");
@@ -140,4 +186,24 @@ public class UserServiceIntTest {
         userService.removeNotActivatedUsers();
         assertThat(userRepository.findOneByLogin("johndoe")).isNotPresent();
     }
+
+    @Test
+    public void assertThatDeletingAWaitlistedUserRemovesItFromTheWaitlist() {
+        User user = userService.createUser("johndoe", "johndoe", "John", "Doe", "john.doe@localhost", "http://placehold.it/50x50", "en-US", "0123456789");
+        Event event = eventRepository.save(new Event()
+            .title("Tournament")
+            .type(EventType.MATCH)
+            .date(LocalDate.of(2017, 10, 21))
+            .state(EventState.OPEN));
+        waitlistEntryRepository.save(new WaitlistEntry().event(event).user(user));
+        em.flush();
+        assertThat(waitlistPositionIndex.getPosition(event.getId(), user.getId())).contains(1);
+
+        userService.deleteUser("johndoe");
+        em.flush();
+
+        assertThat(userRepository.findOneByLogin("johndoe")).isNotPresent();
+        assertThat(waitlistEntryRepository.findUserIdsByEventId(event.getId())).isEmpty();
+        assertThat(waitlistPositionIndex.getPosition(event.getId(), user.getId())).isEmpty();
+    }
 }
@@ -0,0 +1,155 @@
+package org.pcastel.scm.web.filter;
+
+import org.pcastel.scm.config.ApplicationProperties;
+import org.pcastel.scm.security.AuthoritiesConstants;
+import org.pcastel.scm.security.jwt.JWTConfigurer;
+import org.pcastel.scm.security.jwt.TokenProvider;
+import org.pcastel.scm.security.jwt.TokenRevocations;
+
+import com.codahale.metrics.Meter;
+import io.github.jhipster.config.JHipsterProperties;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Test class for the RateLimitFilter and its RateLimiter.
+ *
+ * @see RateLimitFilter
+ */
+public class RateLimitFilterTest {
+
+    private RateLimiter rateLimiter;
+
+    private TokenProvider tokenProvider;
+
+    private RateLimitFilter rateLimitFilter;
+
+    @Before
+    public void setup() {
+        ApplicationProperties applicationProperties = new ApplicationProperties();
+        ApplicationProperties.RateLimit.Policy authenticate = new ApplicationProperties.RateLimit.Policy();
+        authenticate.setPath("/api/authenticate/**");
+        authenticate.setCapacity(2);
+        authenticate.setRequestsPerMinute(6);
+        applicationProperties.getRateLimit().getPolicies().put("authenticate", authenticate);
+        ApplicationProperties.RateLimit.Policy members = new ApplicationProperties.RateLimit.Policy();
+        members.setPath("/api/members/**");
+        members.setKey(ApplicationProperties.RateLimit.Policy.Key.PRINCIPAL);
+        members.setCapacity(1);
+        applicationProperties.getRateLimit().getPolicies().put("members", members);
+        applicationProperties.getRateLimit().setTrustedProxies("10\\.\\d{1,3}\\.\\d{1,3}\\.\\d{1,3}");
+        rateLimiter = new RateLimiter(applicationProperties);
+
+        tokenProvider = new TokenProvider(new JHipsterProperties(), new TokenRevocations());
+        ReflectionTestUtils.setField(tokenProvider, "secretKey", "test secret");
+        ReflectionTestUtils.setField(tokenProvider, "tokenValidityInMilliseconds", 60000);
+        rateLimitFilter = new RateLimitFilter(rateLimiter, tokenProvider);
+    }
+
+    @Test
+    public void testDenyBeyondCapacity() throws Exception {
+        assertThat(filter(request("/api/authenticate", "10.0.0.1")).getStatus()).isEqualTo(HttpStatus.OK.value());
+        assertThat(filter(request("/api/authenticate/refresh", "10.0.0.1")).getStatus()).isEqualTo(HttpStatus.OK.value());
+
+        MockHttpServletResponse response = filter(request("/api/authenticate", "10.0.0.1"));
+
+        assertThat(response.getStatus()).isEqualTo(HttpStatus.TOO_MANY_REQUESTS.value());
+        assertThat(response.getHeader("Retry-After")).isEqualTo("10");
+        assertThat(filter(request("/api/authenticate", "10.0.0.2")).getStatus()).isEqualTo(HttpStatus.OK.value());
+        assertThat(((Meter) rateLimiter.getMetrics().get("authenticate.allowed")).getCount()).isEqualTo(3);
+        assertThat(((Meter) rateLimiter.getMetrics().get("authenticate.denied")).getCount()).isEqualTo(1);
+    }
+
+    @Test
+    public void testRefillOverTime() {
+        RateLimiter.Route route = rateLimiter.getRoute("/api/authenticate");
+        long now = System.nanoTime();
+        assertThat(rateLimiter.acquire(route, "10.0.0.1", now)).isEqualTo(0);
+        assertThat(rateLimiter.acquire(route, "10.0.0.1", now)).isEqualTo(0);
+        assertThat(rateLimiter.acquire(route, "10.0.0.1", now)).isEqualTo(TimeUnit.SECONDS.toNanos(10));
+
+        assertThat(rateLimiter.acquire(route, "10.0.0.1", now + TimeUnit.SECONDS.toNanos(10))).isEqualTo(0);
+        assertThat(rateLimiter.acquire(route, "10.0.0.1", now + TimeUnit.SECONDS.toNanos(10))).isGreaterThan(0);
+    }
+
+    @Test
+    public void testLimitByPrincipal() throws Exception {
+        String jwt = tokenProvider.createToken(new UsernamePasswordAuthenticationToken("test-user", "test-password",
+            Collections.singletonList(new SimpleGrantedAuthority(AuthoritiesConstants.USER))), false);
+        MockHttpServletRequest request = request("/api/members", "10.0.0.1");
+        request.addHeader(JWTConfigurer.AUTHORIZATION_HEADER, "Bearer " + jwt);
+        assertThat(filter(request).getStatus()).isEqualTo(HttpStatus.OK.value());
+
+        MockHttpServletRequest otherAddressRequest = request("/api/members/1", "10.0.0.2");
+        otherAddressRequest.addHeader(JWTConfigurer.AUTHORIZATION_HEADER, "Bearer " + jwt);
+
+        assertThat(filter(otherAddressRequest).getStatus()).isEqualTo(HttpStatus.TOO_MANY_REQUESTS.value());
+        assertThat(filter(request("/api/members", "10.0.0.1")).getStatus()).isEqualTo(HttpStatus.OK.value());
+    }
+
+    @Test
+    public void testLimitByForwardedAddress() throws Exception {
+        assertThat(filter(forwarded("/api/authenticate", "10.0.0.1", "203.0.113.1")).getStatus()).isEqualTo(HttpStatus.OK.value());
+        assertThat(filter(forwarded("/api/authenticate", "10.0.0.2", "203.0.113.1, 10.0.0.3")).getStatus()).isEqualTo(HttpStatus.OK.value());
+
+        assertThat(filter(forwarded("/api/authenticate", "10.0.0.1", "203.0.113.1")).getStatus()).isEqualTo(HttpStatus.TOO_MANY_REQUESTS.value());
+        assertThat(filter(forwarded("/api/authenticate", "10.0.0.1", "203.0.113.2")).getStatus()).isEqualTo(HttpStatus.OK.value());
+    }
+
+    @Test
+    public void testIgnoreForgedForwardedAddress() throws Exception {
+        assertThat(rateLimitFilter.getClientAddress(forwarded("/api/authenticate", "203.0.113.1", "198.51.100.1")))
+            .isEqualTo("203.0.113.1");
+        assertThat(rateLimitFilter.getClientAddress(forwarded("/api/authenticate", "10.0.0.1", "198.51.100.1, 203.0.113.1")))
+            .isEqualTo("203.0.113.1");
+        assertThat(rateLimitFilter.getClientAddress(forwarded("/api/authenticate", "10.0.0.1", "10.0.0.2")))
+            .isEqualTo("10.0.0.2");
+    }
+
+    @Test
+    public void testTrustNoProxyByDefault() throws Exception {
+        RateLimitFilter defaultFilter = new RateLimitFilter(new RateLimiter(new ApplicationProperties()), tokenProvider);
+
+        assertThat(defaultFilter.getClientAddress(forwarded("/api/authenticate", "10.0.0.1", "203.0.113.1")))
+            .isEqualTo("10.0.0.1");
+        assertThat(defaultFilter.getClientAddress(forwarded("/api/authenticate", "127.0.0.1", "203.0.113.1")))
+            .isEqualTo("127.0.0.1");
+    }
+
+    @Test
+    public void testDoNotLimitOtherPaths() throws Exception {
+        for (int i = 0; i < 10; i++) {
+            assertThat(filter(request("/api/events", "10.0.0.1")).getStatus()).isEqualTo(HttpStatus.OK.value());
+        }
+    }
+
+    private MockHttpServletRequest request(String path, String address) {
+        MockHttpServletRequest request = new MockHttpServletRequest("POST", path);
+        request.setRemoteAddr(address);
+        return request;
+    }
+
+    private MockHttpServletRequest forwarded(String path, String proxy, String forwardedFor) {
+        MockHttpServletRequest request = request(path, proxy);
+        request.addHeader("X-Forwarded-For", forwardedFor);
+        return request;
+    }
+
+    private MockHttpServletResponse filter(MockHttpServletRequest request) throws Exception {
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        rateLimitFilter.doFilter(request, response, new MockFilterChain());
+        return response;
+    }
+}
@@ -1,7 +1,6 @@
 package org.pcastel.scm.web.rest;
 
 import org.pcastel.scm.ScmApp;
-import org.pcastel.scm.config.audit.AuditEventConverter;
 import org.pcastel.scm.domain.PersistentAuditEvent;
 import org.pcastel.scm.repository.PersistenceAuditEventRepository;
 import org.pcastel.scm.service.AuditEventService;
@@ -23,7 +22,9 @@ import org.springframework.transaction.annotation.Transactional;
 import java.time.Instant;
 import java.time.format.DateTimeFormatter;
 
+import static org.hamcrest.Matchers.containsString;
 import static org.hamcrest.Matchers.hasItem;
+import static org.hamcrest.Matchers.not;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
 
@@ -46,7 +47,7 @@ public class AuditResourceIntTest {
     private PersistenceAuditEventRepository auditEventRepository;
 
     @Autowired
-    private AuditEventConverter auditEventConverter;
+    private AuditEventService auditEventService;
 
     @Autowired
     private MappingJackson2HttpMessageConverter jacksonMessageConverter;
@@ -64,8 +65,6 @@ public class AuditResourceIntTest {
     @Before
     public void setup() {
         MockitoAnnotations.initMocks(this);
-        AuditEventService auditEventService =
-            new AuditEventService(auditEventRepository, auditEventConverter);
         AuditResource auditResource = new AuditResource(auditEventService);
         this.restAuditMockMvc = MockMvcBuilders.standaloneSetup(auditResource)
             .setCustomArgumentResolvers(pageableArgumentResolver)
@@ -138,6 +137,42 @@ public class AuditResourceIntTest {
             .andExpect(header().string("X-Total-Count", "0"));
     }
 
+    @Test
+    public void exportAudits() throws Exception {
+        // Initialize the database
+        auditEventRepository.save(auditEvent);
+        PersistentAuditEvent otherAuditEvent = new PersistentAuditEvent();
+        otherAuditEvent.setAuditEventType(SAMPLE_TYPE);
+        otherAuditEvent.setPrincipal("OTHER_PRINCIPAL");
+        otherAuditEvent.setAuditEventDate(SAMPLE_TIMESTAMP.plusSeconds(1));
+        otherAuditEvent.getData().put("remoteAddress", "1.2.3.4");
+        auditEventRepository.save(otherAuditEvent);
+
+        // Export the audits, one per line in date order
+        restAuditMockMvc.perform(get("/management/audits/export"))
+            .andExpect(status().isOk())
+            .andExpect(content().contentType(AuditResource.NDJSON_CONTENT_TYPE))
+            .andExpect(content().string(
+                "{\"id\":" + auditEvent.getId() + ",\"timestamp\":\"2015-08-04T10:11:30Z\"," +
+                    "\"principal\":\"SAMPLE_PRINCIPAL\",\"type\":\"SAMPLE_TYPE\",\"data\":{}}\n" +
+                "{\"id\":" + otherAuditEvent.getId() + ",\"timestamp\":\"2015-08-04T10:11:31Z\"," +
+                    "\"principal\":\"OTHER_PRINCIPAL\",\"type\":\"SAMPLE_TYPE\",\"data\":{\"remoteAddress\":\"1.2.3.4\"}}\n"));
+    }
+
+    @Test
+    public void exportAuditsByDate() throws Exception {
+        // Initialize the database
+        auditEventRepository.save(auditEvent);
+
+        // Generate dates for selecting audits by date, making sure the period will not contain the sample audit
+        String fromDate = SAMPLE_TIMESTAMP.plusSeconds(SECONDS_PER_DAY).toString().substring(0, 10);
+
+        // Export the audits but expect no results
+        restAuditMockMvc.perform(get("/management/audits/export?fromDate=" + fromDate))
+            .andExpect(status().isOk())
+            .andExpect(content().string(not(containsString(SAMPLE_PRINCIPAL))));
+    }
+
     @Test
     public void getNonExistingAudit() throws Exception {
         // Get the audit
@@ -0,0 +1,109 @@
+package org.pcastel.scm.web.rest;
+
+import org.pcastel.scm.ScmApp;
+
+import org.ehcache.jsr107.EhcacheCachingProvider;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.cache.jcache.JCacheCacheManager;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+
+import javax.cache.Cache;
+import javax.cache.CacheManager;
+import javax.cache.Caching;
+import javax.cache.configuration.MutableConfiguration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.hamcrest.Matchers.hasItem;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Test class for the CacheResource REST controller.
+ * <p>
+ * Caching is disabled in the tests, so the regions are created in the default JCache manager.
+ *
+ * @see CacheResource
+ */
+@RunWith(SpringRunner.class)
+@SpringBootTest(classes = ScmApp.class)
+public class CacheResourceIntTest {
+
+    private static final String CACHE_NAME = "org.pcastel.scm.domain.TestRegion";
+
+    private CacheManager jCacheManager;
+
+    private Cache<Long, String> cache;
+
+    private MockMvc restCacheMockMvc;
+
+    @Before
+    public void setup() {
+        jCacheManager = Caching.getCachingProvider(EhcacheCachingProvider.class.getName()).getCacheManager();
+        cache = jCacheManager.createCache(CACHE_NAME, new MutableConfiguration<Long, String>()
+            .setTypes(Long.class, String.class)
+            .setStatisticsEnabled(true));
+
+        JCacheCacheManager cacheManager = new JCacheCacheManager(jCacheManager);
+        cacheManager.afterPropertiesSet();
+        CacheResource cacheResource = new CacheResource(cacheManager);
+        this.restCacheMockMvc = MockMvcBuilders
+            .standaloneSetup(cacheResource)
+            .build();
+    }
+
+    @After
+    public void destroy() {
+        jCacheManager.destroyCache(CACHE_NAME);
+    }
+
+    @Test
+    public void getAllCaches() throws Exception {
+        cache.put(1L, "one");
+        cache.get(1L);
+        cache.get(2L);
+
+        restCacheMockMvc.perform(get("/management/caches"))
+            .andExpect(status().isOk())
+            .andExpect(content().contentType(MediaType.APPLICATION_JSON_UTF8_VALUE))
+            .andExpect(jsonPath("$.[*].name").value(hasItem(CACHE_NAME)))
+            .andExpect(jsonPath("$.[?(@.name == '" + CACHE_NAME + "')].puts").value(hasItem(1)))
+            .andExpect(jsonPath("$.[?(@.name == '" + CACHE_NAME + "')].hits").value(hasItem(1)))
+            .andExpect(jsonPath("$.[?(@.name == '" + CACHE_NAME + "')].misses").value(hasItem(1)));
+    }
+
+    @Test
+    public void clearCache() throws Exception {
+        cache.put(1L, "one");
+
+        restCacheMockMvc.perform(delete("/management/caches/{name}", CACHE_NAME))
+            .andExpect(status().isNoContent());
+
+        assertThat(cache.containsKey(1L)).isFalse();
+    }
+
+    @Test
+    public void clearUnknownCache() throws Exception {
+        restCacheMockMvc.perform(delete("/management/caches/{name}", "org.pcastel.scm.domain.Unknown"))
+            .andExpect(status().isNotFound());
+    }
+
+    @Test
+    public void clearAllCaches() throws Exception {
+        cache.put(1L, "one");
+
+        restCacheMockMvc.perform(delete("/management/caches"))
+            .andExpect(status().isNoContent());
+
+        assertThat(cache.containsKey(1L)).isFalse();
+    }
+}
@@ -3,12 +3,21 @@ package org.pcastel.scm.web.rest;
 import org.pcastel.scm.ScmApp;
 
 import org.pcastel.scm.domain.Event;
+import org.pcastel.scm.domain.User;
+import org.pcastel.scm.domain.WaitlistEntry;
 import org.pcastel.scm.repository.EventRepository;
+import org.pcastel.scm.repository.UserRepository;
+import org.pcastel.scm.repository.WaitlistEntryRepository;
 import org.pcastel.scm.service.EventService;
 import org.pcastel.scm.service.dto.EventDTO;
+import org.pcastel.scm.service.dto.EventSeriesDTO;
+import org.pcastel.scm.service.dto.EventSeriesSummaryDTO;
 import org.pcastel.scm.service.mapper.EventMapper;
 import org.pcastel.scm.web.rest.errors.ExceptionTranslator;
+import org.pcastel.scm.web.rest.util.KeysetCursor;
 
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
@@ -16,19 +25,27 @@ import org.mockito.MockitoAnnotations;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.data.web.PageableHandlerMethodArgumentResolver;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
 import org.springframework.http.converter.json.MappingJackson2HttpMessageConverter;
+import org.springframework.security.test.context.support.WithMockUser;
 import org.springframework.test.context.junit4.SpringRunner;
 import org.springframework.test.web.servlet.MockMvc;
 import org.springframework.test.web.servlet.setup.MockMvcBuilders;
 import org.springframework.transaction.annotation.Transactional;
 
 import javax.persistence.EntityManager;
+import java.time.DayOfWeek;
 import java.time.LocalDate;
 import java.time.ZoneId;
+import java.util.Arrays;
+import java.util.Comparator;
 import java.util.List;
+import java.util.stream.Collectors;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.containsString;
 import static org.hamcrest.Matchers.hasItem;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
@@ -71,6 +88,12 @@ public class EventResourceIntTest {
     @Autowired
     private EventMapper eventMapper;
 
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private WaitlistEntryRepository waitlistEntryRepository;
+
     @Autowired
     private EventService eventService;
 
@@ -264,6 +287,377 @@ public class EventResourceIntTest {
             .andExpect(jsonPath("$.[*].comment").value(hasItem(DEFAULT_COMMENT.toString())));
     }
 
+    @Test
+    @Transactional
+    public void createEventSeries() throws Exception {
+        int databaseSizeBeforeCreate = eventRepository.findAll().size();
+
+        // Mondays and Wednesdays of September 2017, except the week of the 11th
+        EventSeriesDTO eventSeriesDTO = createEventSeriesDTO(LocalDate.of(2017, 9, 4), LocalDate.of(2017, 9, 30),
+            DayOfWeek.MONDAY, DayOfWeek.WEDNESDAY);
+        EventSeriesDTO.Exclusion exclusion = new EventSeriesDTO.Exclusion();
+        exclusion.setFrom(LocalDate.of(2017, 9, 11));
+        exclusion.setTo(LocalDate.of(2017, 9, 17));
+        eventSeriesDTO.getExclusions().add(exclusion);
+
+        restEventMockMvc.perform(post("/api/events/series")
+            .contentType(TestUtil.APPLICATION_JSON_UTF8)
+            .content(TestUtil.convertObjectToJsonBytes(eventSeriesDTO)))
+            .andExpect(status().isCreated())
+            .andExpect(jsonPath("$.numberOfEvents").value(6))
+            .andExpect(jsonPath("$.firstDate").value("2017-09-04"))
+            .andExpect(jsonPath("$.lastDate").value("2017-09-27"));
+
+        // Validate the Events in the database
+        List<Event> eventList = eventRepository.findAll();
+        assertThat(eventList).hasSize(databaseSizeBeforeCreate + 6);
+        Event testEvent = eventList.get(eventList.size() - 1);
+        assertThat(testEvent.getSeriesId()).isNotNull();
+        assertThat(eventList.stream().filter(e -> testEvent.getSeriesId().equals(e.getSeriesId())).map(Event::getDate))
+            .containsExactlyInAnyOrder(LocalDate.of(2017, 9, 4), LocalDate.of(2017, 9, 6), LocalDate.of(2017, 9, 18),
+                LocalDate.of(2017, 9, 20), LocalDate.of(2017, 9, 25), LocalDate.of(2017, 9, 27));
+        assertThat(testEvent.getTitle()).isEqualTo(DEFAULT_TITLE);
+        assertThat(testEvent.getParticipants()).isEmpty();
+
+        restEventMockMvc.perform(get("/api/events?seriesId=" + testEvent.getSeriesId()))
+            .andExpect(status().isOk())
+            .andExpect(header().string("X-Total-Count", "6"));
+    }
+
+    @Test
+    @Transactional
+    public void createEventSeriesEndingAfterOneYear() throws Exception {
+        int databaseSizeBeforeCreate = eventRepository.findAll().size();
+
+        EventSeriesDTO eventSeriesDTO = createEventSeriesDTO(LocalDate.of(2017, 9, 4), LocalDate.of(2018, 9, 5),
+            DayOfWeek.MONDAY);
+
+        restEventMockMvc.perform(post("/api/events/series")
+            .contentType(TestUtil.APPLICATION_JSON_UTF8)
+            .content(TestUtil.convertObjectToJsonBytes(eventSeriesDTO)))
+            .andExpect(status().isBadRequest());
+
+        assertThat(eventRepository.findAll()).hasSize(databaseSizeBeforeCreate);
+    }
+
+    @Test
+    @Transactional
+    public void updateFollowingEvents() throws Exception {
+        // Initialize the database with the four Mondays of September 2017
+        EventSeriesSummaryDTO series = eventService.createSeries(
+            createEventSeriesDTO(LocalDate.of(2017, 9, 4), LocalDate.of(2017, 9, 30), DayOfWeek.MONDAY));
+        eventRepository.flush();
+        Event thirdEvent = eventRepository.findAll().stream()
+            .filter(e -> series.getSeriesId().equals(e.getSeriesId()) && e.getDate().equals(LocalDate.of(2017, 9, 18)))
+            .findFirst().get();
+
+        // Cancel the third event and the following one
+        EventDTO changes = eventMapper.toDto(thirdEvent);
+        changes.setTitle(UPDATED_TITLE);
+        changes.setState(EventState.CANCELED);
+        restEventMockMvc.perform(put("/api/events/{id}/following", thirdEvent.getId())
+            .contentType(TestUtil.APPLICATION_JSON_UTF8)
+            .content(TestUtil.convertObjectToJsonBytes(changes)))
+            .andExpect(status().isOk())
+            .andExpect(header().string("X-scmApp-params", "2"));
+
+        em.clear();
+        List<Event> seriesEvents = eventRepository.findAll().stream()
+            .filter(e -> series.getSeriesId().equals(e.getSeriesId()))
+            .collect(Collectors.toList());
+        assertThat(seriesEvents).hasSize(4);
+        for (Event seriesEvent : seriesEvents) {
+            boolean following = !seriesEvent.getDate().isBefore(thirdEvent.getDate());
+            assertThat(seriesEvent.getState()).isEqualTo(following ? EventState.CANCELED : DEFAULT_STATE);
+            assertThat(seriesEvent.getTitle()).isEqualTo(following ? UPDATED_TITLE : DEFAULT_TITLE);
+        }
+    }
+
+    @Test
+    @Transactional
+    public void updateFollowingEventsWithMorePlacesPromotesWaitingUsers() throws Exception {
+        // Initialize the database with the two Mondays of a series, the second one full with a waiting user
+        EventSeriesSummaryDTO series = eventService.createSeries(
+            createEventSeriesDTO(LocalDate.of(2017, 9, 4), LocalDate.of(2017, 9, 11), DayOfWeek.MONDAY));
+        eventRepository.flush();
+        List<Event> seriesEvents = eventRepository.findAll().stream()
+            .filter(e -> series.getSeriesId().equals(e.getSeriesId()))
+            .sorted(Comparator.comparing(Event::getDate))
+            .collect(Collectors.toList());
+        Event secondEvent = seriesEvents.get(1);
+        User user = userRepository.findOneByLogin("user").get();
+        User admin = userRepository.findOneByLogin("admin").get();
+        assertThat(eventRepository.reservePlace(secondEvent.getId())).isTrue();
+        eventRepository.insertParticipant(secondEvent.getId(), user.getId());
+        waitlistEntryRepository.saveAndFlush(new WaitlistEntry().event(secondEvent).user(admin));
+
+        EventDTO changes = eventMapper.toDto(seriesEvents.get(0));
+        changes.setNumberOfPlaces(DEFAULT_NUMBER_OF_PLACES + 1);
+        restEventMockMvc.perform(put("/api/events/{id}/following", seriesEvents.get(0).getId())
+            .contentType(TestUtil.APPLICATION_JSON_UTF8)
+            .content(TestUtil.convertObjectToJsonBytes(changes)))
+            .andExpect(status().isOk())
+            .andExpect(header().string("X-scmApp-params", "2"));
+
+        assertThat(eventRepository.isParticipant(secondEvent.getId(), admin.getId())).isTrue();
+        assertThat(getParticipantCount(secondEvent.getId())).isEqualTo(2);
+        assertThat(waitlistEntryRepository.findUserIdsByEventId(secondEvent.getId())).isEmpty();
+    }
+
+    @Test
+    @Transactional
+    public void updateFollowingNonExistingEvents() throws Exception {
+        restEventMockMvc.perform(put("/api/events/{id}/following", Long.MAX_VALUE)
+            .contentType(TestUtil.APPLICATION_JSON_UTF8)
+            .content(TestUtil.convertObjectToJsonBytes(eventMapper.toDto(event))))
+            .andExpect(status().isNotFound());
+    }
+
+    private EventSeriesDTO createEventSeriesDTO(LocalDate startDate, LocalDate endDate, DayOfWeek... daysOfWeek) {
+        EventSeriesDTO eventSeriesDTO = new EventSeriesDTO();
+        eventSeriesDTO.setTemplate(eventMapper.toDto(event.date(startDate)));
+        eventSeriesDTO.getDaysOfWeek().addAll(Arrays.asList(daysOfWeek));
+        eventSeriesDTO.setEndDate(endDate);
+        return eventSeriesDTO;
+    }
+
+    @Test
+    @Transactional
+    @WithMockUser("user")
+    public void joinAndLeaveEvent() throws Exception {
+        // Initialize the database
+        eventRepository.saveAndFlush(event);
+        Long userId = userRepository.findOneByLogin("user").get().getId();
+
+        restEventMockMvc.perform(post("/api/events/{id}/participants/me", event.getId()))
+            .andExpect(status().isCreated());
+        assertThat(eventRepository.isParticipant(event.getId(), userId)).isTrue();
+        assertThat(getParticipantCount(event.getId())).isEqualTo(1);
+
+        // Joining twice does not take another place
+        restEventMockMvc.perform(post("/api/events/{id}/participants/me", event.getId()))
+            .andExpect(status().isOk());
+        assertThat(getParticipantCount(event.getId())).isEqualTo(1);
+
+        restEventMockMvc.perform(delete("/api/events/{id}/participants/me", event.getId()))
+            .andExpect(status().isOk());
+        assertThat(eventRepository.isParticipant(event.getId(), userId)).isFalse();
+        assertThat(getParticipantCount(event.getId())).isEqualTo(0);
+
+        restEventMockMvc.perform(delete("/api/events/{id}/participants/me", event.getId()))
+            .andExpect(status().isNotFound());
+    }
+
+    @Test
+    @Transactional
+    @WithMockUser("user")
+    public void joinFullEvent() throws Exception {
+        // Initialize the database
+        event.addParticipant(userRepository.findOneByLogin("admin").get());
+        EventDTO fullEvent = eventService.save(eventMapper.toDto(event));
+        assertThat(fullEvent.getParticipantCount()).isEqualTo(DEFAULT_NUMBER_OF_PLACES);
+        Long userId = userRepository.findOneByLogin("user").get().getId();
+
+        restEventMockMvc.perform(post("/api/events/{id}/participants/me", fullEvent.getId()))
+            .andExpect(status().isAccepted())
+            .andExpect(header().string("X-scmApp-params", "1"));
+        assertThat(getParticipantCount(fullEvent.getId())).isEqualTo(DEFAULT_NUMBER_OF_PLACES);
+        assertThat(eventRepository.isParticipant(fullEvent.getId(), userId)).isFalse();
+
+        // Joining twice does not queue the user again
+        restEventMockMvc.perform(post("/api/events/{id}/participants/me", fullEvent.getId()))
+            .andExpect(status().isAccepted());
+        assertThat(waitlistEntryRepository.findUserIdsByEventId(fullEvent.getId())).containsExactly(userId);
+
+        restEventMockMvc.perform(get("/api/events/{id}/waitlist/me", fullEvent.getId()))
+            .andExpect(status().isOk())
+            .andExpect(content().string("1"));
+
+        // Leaving the waitlist does not free a place
+        restEventMockMvc.perform(delete("/api/events/{id}/participants/me", fullEvent.getId()))
+            .andExpect(status().isOk());
+        assertThat(waitlistEntryRepository.findUserIdsByEventId(fullEvent.getId())).isEmpty();
+        assertThat(getParticipantCount(fullEvent.getId())).isEqualTo(DEFAULT_NUMBER_OF_PLACES);
+
+        restEventMockMvc.perform(get("/api/events/{id}/waitlist/me", fullEvent.getId()))
+            .andExpect(status().isNotFound());
+    }
+
+    @Test
+    @Transactional
+    @WithMockUser("user")
+    public void leaveEventPromotesFirstWaitingUser() throws Exception {
+        // Initialize the database
+        User user = userRepository.findOneByLogin("user").get();
+        User admin = userRepository.findOneByLogin("admin").get();
+        User anonymous = userRepository.findOneByLogin("anonymoususer").get();
+        event.addParticipant(user);
+        EventDTO fullEvent = eventService.save(eventMapper.toDto(event));
+        Event fullEventEntity = eventRepository.getOne(fullEvent.getId());
+        waitlistEntryRepository.saveAndFlush(new WaitlistEntry().event(fullEventEntity).user(admin));
+        waitlistEntryRepository.saveAndFlush(new WaitlistEntry().event(fullEventEntity).user(anonymous));
+
+        restEventMockMvc.perform(delete("/api/events/{id}/participants/me", fullEvent.getId()))
+            .andExpect(status().isOk());
+
+        assertThat(eventRepository.isParticipant(fullEvent.getId(), user.getId())).isFalse();
+        assertThat(eventRepository.isParticipant(fullEvent.getId(), admin.getId())).isTrue();
+        assertThat(getParticipantCount(fullEvent.getId())).isEqualTo(DEFAULT_NUMBER_OF_PLACES);
+        assertThat(waitlistEntryRepository.findUserIdsByEventId(fullEvent.getId())).containsExactly(anonymous.getId());
+    }
+
+    @Test
+    @Transactional
+    public void updateEventWithMorePlacesPromotesWaitingUsers() throws Exception {
+        // Initialize the database
+        User user = userRepository.findOneByLogin("user").get();
+        User admin = userRepository.findOneByLogin("admin").get();
+        User anonymous = userRepository.findOneByLogin("anonymoususer").get();
+        event.addParticipant(user);
+        EventDTO fullEvent = eventService.save(eventMapper.toDto(event));
+        Event fullEventEntity = eventRepository.getOne(fullEvent.getId());
+        waitlistEntryRepository.saveAndFlush(new WaitlistEntry().event(fullEventEntity).user(admin));
+        waitlistEntryRepository.saveAndFlush(new WaitlistEntry().event(fullEventEntity).user(anonymous));
+
+        fullEvent.setNumberOfPlaces(DEFAULT_NUMBER_OF_PLACES + 1);
+        restEventMockMvc.perform(put("/api/events")
+            .contentType(TestUtil.APPLICATION_JSON_UTF8)
+            .content(TestUtil.convertObjectToJsonBytes(fullEvent)))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.participantCount").value(DEFAULT_NUMBER_OF_PLACES + 1));
+
+        assertThat(eventRepository.isParticipant(fullEvent.getId(), admin.getId())).isTrue();
+        assertThat(getParticipantCount(fullEvent.getId())).isEqualTo(DEFAULT_NUMBER_OF_PLACES + 1);
+        assertThat(waitlistEntryRepository.findUserIdsByEventId(fullEvent.getId())).containsExactly(anonymous.getId());
+    }
+
+    @Test
+    @Transactional
+    @WithMockUser("user")
+    public void joinEventWithWaitingUsersKeepsTheirOrder() throws Exception {
+        // Initialize the database: a place is free, but a user is still waiting for it
+        User admin = userRepository.findOneByLogin("admin").get();
+        Long userId = userRepository.findOneByLogin("user").get().getId();
+        eventRepository.saveAndFlush(event);
+        waitlistEntryRepository.saveAndFlush(new WaitlistEntry().event(event).user(admin));
+
+        restEventMockMvc.perform(post("/api/events/{id}/participants/me", event.getId()))
+            .andExpect(status().isAccepted());
+
+        assertThat(eventRepository.isParticipant(event.getId(), admin.getId())).isTrue();
+        assertThat(eventRepository.isParticipant(event.getId(), userId)).isFalse();
+        assertThat(waitlistEntryRepository.findUserIdsByEventId(event.getId())).containsExactly(userId);
+    }
+
+    @Test
+    @Transactional
+    @WithMockUser("user")
+    public void joinNonExistingEvent() throws Exception {
+        restEventMockMvc.perform(post("/api/events/{id}/participants/me", Long.MAX_VALUE))
+            .andExpect(status().isNotFound());
+    }
+
+    private int getParticipantCount(Long eventId) {
+        em.clear();
+        return eventRepository.findOne(eventId).getParticipantCount();
+    }
+
+    @Test
+    @Transactional
+    public void getAllEventsByCriteria() throws Exception {
+        // Initialize the database
+        eventRepository.saveAndFlush(event);
+
+        defaultEventShouldBeFound("state=" + DEFAULT_STATE + "&type=" + DEFAULT_TYPE + "&isHome=" + DEFAULT_IS_HOME);
+        defaultEventShouldBeFound("from=" + DEFAULT_DATE + "&to=" + DEFAULT_DATE);
+        defaultEventShouldNotBeFound("state=" + UPDATED_STATE);
+        defaultEventShouldNotBeFound("type=" + UPDATED_TYPE);
+        defaultEventShouldNotBeFound("from=" + DEFAULT_DATE.plusDays(1));
+        defaultEventShouldNotBeFound("to=" + DEFAULT_DATE.minusDays(1));
+        defaultEventShouldNotBeFound("teamId=" + Long.MAX_VALUE);
+        defaultEventShouldNotBeFound("locationId=" + Long.MAX_VALUE);
+    }
+
+    @Test
+    @Transactional
+    public void getAllEventsByCriteriaKeepsCriteriaInLinks() throws Exception {
+        // Initialize the database
+        eventRepository.saveAndFlush(event);
+
+        restEventMockMvc.perform(get("/api/events?state=" + DEFAULT_STATE + "&page=0&size=1"))
+            .andExpect(status().isOk())
+            .andExpect(header().string(HttpHeaders.LINK, containsString("/api/events?state=" + DEFAULT_STATE + "&page=0&size=1>")));
+    }
+
+    private void defaultEventShouldBeFound(String filter) throws Exception {
+        restEventMockMvc.perform(get("/api/events?sort=id,desc&" + filter))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.[*].id").value(hasItem(event.getId().intValue())));
+    }
+
+    private void defaultEventShouldNotBeFound(String filter) throws Exception {
+        restEventMockMvc.perform(get("/api/events?sort=id,desc&" + filter))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$").isEmpty());
+    }
+
+    @Test
+    @Transactional
+    public void getAllEventsWithConstantStatementCount() throws Exception {
+        // Initialize the database with more events than the largest page, each with participants
+        User admin = userRepository.findOneByLogin("admin").get();
+        User user = userRepository.findOneByLogin("user").get();
+        for (int i = 0; i < 6; i++) {
+            eventRepository.save(createEntity(em).addParticipant(admin).addParticipant(user));
+        }
+        em.flush();
+
+        // The page of ids, its count and the fetch of the events: participants are not loaded one event at a time
+        Statistics statistics = em.getEntityManagerFactory().unwrap(SessionFactory.class).getStatistics();
+        long statementsForOneEvent = countStatementsOfGet(statistics, "/api/events?sort=id&size=1");
+        long statementsForFiveEvents = countStatementsOfGet(statistics, "/api/events?sort=id&size=5");
+        assertThat(statementsForFiveEvents).isEqualTo(statementsForOneEvent);
+        assertThat(statementsForFiveEvents).isLessThanOrEqualTo(3);
+    }
+
+    private long countStatementsOfGet(Statistics statistics, String url) throws Exception {
+        em.clear();
+        statistics.clear();
+        restEventMockMvc.perform(get(url))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.[*].participants[*].authorities[*]").isNotEmpty());
+        return statistics.getPrepareStatementCount();
+    }
+
+    @Test
+    @Transactional
+    public void getAllEventsAfterCursor() throws Exception {
+        // Initialize the database
+        eventRepository.saveAndFlush(event);
+        Event laterEvent = createEntity(em).date(UPDATED_DATE);
+        eventRepository.saveAndFlush(laterEvent);
+
+        // Get the first page, which links to the next one without counting the events
+        String nextCursor = KeysetCursor.encode(DEFAULT_DATE, event.getId());
+        restEventMockMvc.perform(get("/api/events?after=&size=1"))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.[*].id").value(contains(event.getId().intValue())))
+            .andExpect(header().doesNotExist("X-Total-Count"))
+            .andExpect(header().string(HttpHeaders.LINK, containsString("after=" + nextCursor + "&size=1>; rel=\"next\"")));
+
+        // Get the next page
+        restEventMockMvc.perform(get("/api/events?after={cursor}&size=1", nextCursor))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.[*].id").value(contains(laterEvent.getId().intValue())));
+    }
+
+    @Test
+    @Transactional
+    public void getAllEventsAfterInvalidCursor() throws Exception {
+        restEventMockMvc.perform(get("/api/events?after=invalid&size=1"))
+            .andExpect(status().isBadRequest());
+    }
+
     @Test
     @Transactional
     public void getEvent() throws Exception {
@@ -0,0 +1,235 @@
+package org.pcastel.scm.web.rest;
+
+import org.pcastel.scm.ScmApp;
+
+import org.pcastel.scm.config.ApplicationProperties;
+import org.pcastel.scm.domain.Member;
+import org.pcastel.scm.domain.User;
+import org.pcastel.scm.repository.MemberRepository;
+import org.pcastel.scm.repository.UserRepository;
+import org.pcastel.scm.service.MemberService;
+import org.pcastel.scm.service.PhotoRenditionService;
+import org.pcastel.scm.service.PhotoStorageService;
+import org.pcastel.scm.web.rest.errors.ExceptionTranslator;
+
+import org.apache.commons.lang3.RandomStringUtils;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.converter.json.MappingJackson2HttpMessageConverter;
+import org.springframework.security.test.context.support.WithMockUser;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.transaction.annotation.Transactional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.hamcrest.Matchers.containsString;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+/**
+ * Test class for the photos of the MemberResource REST controller.
+ *
+ * @see MemberResource
+ */
+@RunWith(SpringRunner.class)
+@SpringBootTest(classes = ScmApp.class)
+@Transactional
+public class MemberResourceIntTest {
+
+    private static final byte[] PHOTO = {1, 2, 3, 4, 5, 6, 7, 8, 9, 10};
+
+    @Autowired
+    private MemberRepository memberRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private MemberService memberService;
+
+    @Autowired
+    private PhotoStorageService photoStorageService;
+
+    @Autowired
+    private PhotoRenditionService photoRenditionService;
+
+    @Autowired
+    private ApplicationProperties applicationProperties;
+
+    @Autowired
+    private MappingJackson2HttpMessageConverter jacksonMessageConverter;
+
+    @Autowired
+    private ExceptionTranslator exceptionTranslator;
+
+    private MockMvc restMemberMockMvc;
+
+    private String photoHash;
+
+    @Before
+    public void setup() {
+        MemberResource memberResource = new MemberResource(memberService, photoStorageService, photoRenditionService,
+            applicationProperties, userRepository);
+        this.restMemberMockMvc = MockMvcBuilders.standaloneSetup(memberResource)
+            .setControllerAdvice(exceptionTranslator)
+            .setMessageConverters(jacksonMessageConverter).build();
+        photoHash = photoStorageService.store(PHOTO);
+    }
+
+    @Test
+    public void getPhotoByHash() throws Exception {
+        Member member = createMember("shown", true);
+
+        restMemberMockMvc.perform(get("/api/members/{id}/photo/{hash}", member.getId(), photoHash))
+            .andExpect(status().isOk())
+            .andExpect(content().contentType("image/png"))
+            .andExpect(content().bytes(PHOTO));
+    }
+
+    @Test
+    public void getPhotoByHashOfAnotherPhoto() throws Exception {
+        Member member = createMember("shown", true);
+        String otherHash = photoStorageService.store(new byte[]{42});
+
+        restMemberMockMvc.perform(get("/api/members/{id}/photo/{hash}", member.getId(), otherHash))
+            .andExpect(status().isNotFound());
+    }
+
+    @Test
+    public void getHiddenPhotoByHash() throws Exception {
+        Member member = createMember("hidden", false);
+
+        restMemberMockMvc.perform(get("/api/members/{id}/photo/{hash}", member.getId(), photoHash))
+            .andExpect(status().isNotFound());
+    }
+
+    @Test
+    @WithMockUser("other")
+    public void getHiddenPhotoOfAnotherMember() throws Exception {
+        Member member = createMember("hidden", false);
+
+        restMemberMockMvc.perform(get("/api/members/{id}/photo", member.getId()))
+            .andExpect(status().isNotFound());
+    }
+
+    @Test
+    @WithMockUser("hidden")
+    public void getOwnHiddenPhoto() throws Exception {
+        Member member = createMember("hidden", false);
+
+        restMemberMockMvc.perform(get("/api/members/{id}/photo", member.getId()))
+            .andExpect(status().isOk())
+            .andExpect(content().bytes(PHOTO));
+    }
+
+    @Test
+    public void getPhotoNotModified() throws Exception {
+        Member member = createMember("shown", true);
+
+        restMemberMockMvc.perform(get("/api/members/{id}/photo/{hash}", member.getId(), photoHash)
+            .header(HttpHeaders.IF_NONE_MATCH, "\"" + photoHash + "\""))
+            .andExpect(status().isNotModified())
+            .andExpect(header().string(HttpHeaders.ETAG, "\"" + photoHash + "\""))
+            .andExpect(content().bytes(new byte[0]));
+    }
+
+    @Test
+    public void getPhotoRange() throws Exception {
+        Member member = createMember("shown", true);
+
+        restMemberMockMvc.perform(get("/api/members/{id}/photo/{hash}", member.getId(), photoHash)
+            .header(HttpHeaders.RANGE, "bytes=2-4"))
+            .andExpect(status().isPartialContent())
+            .andExpect(header().string(HttpHeaders.CONTENT_RANGE, "bytes 2-4/" + PHOTO.length))
+            .andExpect(content().bytes(new byte[]{3, 4, 5}));
+    }
+
+    @Test
+    public void getPhotoRendition() throws Exception {
+        Member member = createMember("shown", true);
+        byte[] rendition = {42, 43};
+        photoStorageService.storeRendition(photoHash, 48, rendition);
+
+        restMemberMockMvc.perform(get("/api/members/{id}/photo/{hash}?size=48", member.getId(), photoHash))
+            .andExpect(status().isOk())
+            .andExpect(content().contentType(PhotoRenditionService.RENDITION_CONTENT_TYPE))
+            .andExpect(header().string(HttpHeaders.ETAG, "\"" + photoHash + "-48\""))
+            .andExpect(header().string(HttpHeaders.CACHE_CONTROL, containsString("immutable")))
+            .andExpect(content().bytes(rendition));
+    }
+
+    @Test
+    public void getPhotoBeforeItsRendition() throws Exception {
+        Member member = createMember("shown", true);
+
+        restMemberMockMvc.perform(get("/api/members/{id}/photo/{hash}?size=96", member.getId(), photoHash))
+            .andExpect(status().isOk())
+            .andExpect(header().string(HttpHeaders.CACHE_CONTROL, "no-cache"))
+            .andExpect(content().bytes(PHOTO));
+    }
+
+    @Test
+    public void getPhotoOfUnknownSize() throws Exception {
+        Member member = createMember("shown", true);
+
+        restMemberMockMvc.perform(get("/api/members/{id}/photo/{hash}?size=50", member.getId(), photoHash))
+            .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    public void updateMemberKeepsItsPhoto() throws Exception {
+        Member member = createMember("shown", true);
+        String otherHash = photoStorageService.store(new byte[]{42});
+
+        // The photo hash is not taken from the request, and is not cleared when it is missing
+        restMemberMockMvc.perform(put("/api/members")
+            .contentType(TestUtil.APPLICATION_JSON_UTF8)
+            .content("{\"id\":" + member.getId() + ",\"userId\":" + member.getUser().getId() +
+                ",\"photoHash\":\"" + otherHash + "\",\"showInfo\":true}"))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.photoHash").value(photoHash));
+        assertThat(memberRepository.findPhotoHashById(member.getId())).isEqualTo(photoHash);
+
+        restMemberMockMvc.perform(put("/api/members")
+            .contentType(TestUtil.APPLICATION_JSON_UTF8)
+            .content("{\"id\":" + member.getId() + ",\"userId\":" + member.getUser().getId() + ",\"showInfo\":true}"))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.photoHash").value(photoHash));
+        assertThat(memberRepository.findPhotoHashById(member.getId())).isEqualTo(photoHash);
+        assertThat(photoStorageService.find(photoHash)).isPresent();
+    }
+
+    @Test
+    public void updateMemberRemovesItsPhoto() throws Exception {
+        Member member = createMember("shown", true);
+
+        restMemberMockMvc.perform(put("/api/members")
+            .contentType(TestUtil.APPLICATION_JSON_UTF8)
+            .content("{\"id\":" + member.getId() + ",\"userId\":" + member.getUser().getId() +
+                ",\"removePhoto\":true,\"showInfo\":true}"))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.photoHash").doesNotExist());
+        assertThat(memberRepository.findPhotoHashById(member.getId())).isNull();
+    }
+
+    private Member createMember(String login, boolean showInfo) {
+        User user = new User();
+        user.setLogin(login);
+        user.setPassword(RandomStringUtils.random(60));
+        user.setEmail(login + "@localhost");
+        user.setActivated(true);
+        user = userRepository.saveAndFlush(user);
+        Member member = new Member();
+        member.setUser(user);
+        member.setPhotoHash(photoHash);
+        member.setPhotoContentType("image/png");
+        member.setShowInfo(showInfo);
+        return memberRepository.saveAndFlush(member);
+    }
+}
@@ -8,6 +8,7 @@ import org.pcastel.scm.service.TeamService;
 import org.pcastel.scm.service.dto.TeamDTO;
 import org.pcastel.scm.service.mapper.TeamMapper;
 import org.pcastel.scm.web.rest.errors.ExceptionTranslator;
+import org.pcastel.scm.web.rest.util.KeysetCursor;
 
 import org.junit.Before;
 import org.junit.Test;
@@ -16,6 +17,7 @@ import org.mockito.MockitoAnnotations;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.data.web.PageableHandlerMethodArgumentResolver;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
 import org.springframework.http.converter.json.MappingJackson2HttpMessageConverter;
 import org.springframework.test.context.junit4.SpringRunner;
@@ -25,9 +27,14 @@ import org.springframework.transaction.annotation.Transactional;
 
 import javax.persistence.EntityManager;
 import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.containsString;
 import static org.hamcrest.Matchers.hasItem;
+import static org.hamcrest.Matchers.not;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
 
@@ -167,6 +174,39 @@ public class TeamResourceIntTest {
             .andExpect(jsonPath("$.[*].name").value(hasItem(DEFAULT_NAME.toString())));
     }
 
+    @Test
+    @Transactional
+    public void getTeamsAfterCursor() throws Exception {
+        // Initialize the database, with names sorted after the other teams
+        Team firstTeam = teamRepository.saveAndFlush(new Team().name("zzz-keyset-1"));
+        Team lastTeam = teamRepository.saveAndFlush(new Team().name("zzz-keyset-2"));
+
+        // Get the page after a cursor, which links to the next one without counting the teams
+        String link = restTeamMockMvc.perform(get("/api/teams?after={cursor}&size=1", KeysetCursor.encode("zzz-keyset-0", 0)))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.[*].id").value(contains(firstTeam.getId().intValue())))
+            .andExpect(header().doesNotExist("X-Total-Count"))
+            .andReturn().getResponse().getHeader(HttpHeaders.LINK);
+        Matcher next = Pattern.compile("after=([^&]*)&size=1>; rel=\"next\"").matcher(link);
+        assertThat(next.find()).isTrue();
+        KeysetCursor nextCursor = KeysetCursor.decode(next.group(1), 2);
+        assertThat(nextCursor.getString(0)).isEqualTo("zzz-keyset-1");
+        assertThat(nextCursor.getLong(1)).isEqualTo(firstTeam.getId());
+
+        // Get the next page, which is the last one
+        restTeamMockMvc.perform(get("/api/teams?after={cursor}&size=1", next.group(1)))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.[*].id").value(contains(lastTeam.getId().intValue())))
+            .andExpect(header().string(HttpHeaders.LINK, not(containsString("rel=\"next\""))));
+    }
+
+    @Test
+    @Transactional
+    public void getTeamsAfterInvalidCursor() throws Exception {
+        restTeamMockMvc.perform(get("/api/teams?after={cursor}&size=1", KeysetCursor.encode("zzz-keyset-0")))
+            .andExpect(status().isBadRequest());
+    }
+
     @Test
     @Transactional
     public void getTeam() throws Exception {
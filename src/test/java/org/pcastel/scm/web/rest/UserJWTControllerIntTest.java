@@ -2,23 +2,44 @@ package org.pcastel.scm.web.rest;
 
 import org.pcastel.scm.ScmApp;
 import org.pcastel.scm.domain.User;
+import org.pcastel.scm.repository.RefreshTokenRepository;
 import org.pcastel.scm.repository.UserRepository;
+import org.pcastel.scm.security.AuthoritiesConstants;
 import org.pcastel.scm.security.jwt.TokenProvider;
+import org.pcastel.scm.service.RefreshTokenService;
+import org.pcastel.scm.service.TokenRevocationService;
 import org.pcastel.scm.web.rest.vm.LoginVM;
+import org.pcastel.scm.web.rest.vm.RefreshTokenVM;
+import com.jayway.jsonpath.JsonPath;
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.security.authentication.AuthenticationManager;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.test.context.junit4.SpringRunner;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.ResultActions;
 import org.springframework.test.web.servlet.setup.MockMvcBuilders;
 import org.springframework.transaction.annotation.Transactional;
 
+import javax.persistence.EntityManager;
+import java.time.Instant;
+import java.util.Collections;
+
+import static org.assertj.core.api.Assertions.assertThat;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import java.util.Collections;
+
+import static org.assertj.core.api.Assertions.assertThat;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import java.util.Collections;
+
+import static org.assertj.core.api.Assertions.assertThat;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 /**
@@ -42,11 +63,24 @@ public class UserJWTControllerIntTest {
     @Autowired
     private PasswordEncoder passwordEncoder;
 
+    @Autowired
+    private TokenRevocationService tokenRevocationService;
+
+    @Autowired
+    private RefreshTokenService refreshTokenService;
+
+    @Autowired
+    private RefreshTokenRepository refreshTokenRepository;
+
+    @Autowired
+    private EntityManager em;
+
     private MockMvc mockMvc;
 
     @Before
     public void setup() {
-        UserJWTController userJWTController = new UserJWTController(tokenProvider, authenticationManager);
+        UserJWTController userJWTController = new UserJWTController(tokenProvider, authenticationManager,
+            tokenRevocationService, refreshTokenService);
         this.mockMvc = MockMvcBuilders.standaloneSetup(userJWTController)
             .build();
     }
@@ -70,7 +104,9 @@ public class UserJWTControllerIntTest {
             .content(TestUtil.convertObjectToJsonBytes(login)))
             .andExpect(status().isOk())
             .andExpect(jsonPath("$.id_token").isString())
-            .andExpect(jsonPath("$.id_token").isNotEmpty());
+            .andExpect(jsonPath("$.id_token").isNotEmpty())
+            .andExpect(jsonPath("$.refresh_token").isString())
+            .andExpect(jsonPath("$.refresh_token").isNotEmpty());
     }
 
     @Test
@@ -108,4 +144,124 @@ public class UserJWTControllerIntTest {
             .andExpect(status().isUnauthorized())
             .andExpect(jsonPath("$.id_token").doesNotExist());
     }
+
+    @Test
+    @Transactional
+    public void testRefresh() throws Exception {
+        createUser("user-jwt-controller-refresh");
+        String refreshToken = refreshTokenService.createRefreshToken("user-jwt-controller-refresh", false);
+
+        String newRefreshToken = refresh(refreshToken)
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.id_token").isString())
+            .andExpect(jsonPath("$.refresh_token").isString())
+            .andReturn().getResponse().getContentAsString();
+        String jwt = JsonPath.read(newRefreshToken, "$.id_token");
+
+        assertThat(tokenProvider.authenticate(jwt).get().getName()).isEqualTo("user-jwt-controller-refresh");
+        refresh(JsonPath.read(newRefreshToken, "$.refresh_token"))
+            .andExpect(status().isOk());
+    }
+
+    @Test
+    @Transactional
+    public void testRefreshWithReusedToken() throws Exception {
+        createUser("user-jwt-controller-refresh-reuse");
+        String refreshToken = refreshTokenService.createRefreshToken("user-jwt-controller-refresh-reuse", false);
+        String newRefreshToken = JsonPath.read(refresh(refreshToken)
+            .andExpect(status().isOk())
+            .andReturn().getResponse().getContentAsString(), "$.refresh_token");
+
+        // The replaced token is reused after its reuse interval
+        em.flush();
+        em.clear();
+        refreshTokenRepository.findAll().stream()
+            .filter(token -> token.getRotatedDate() != null)
+            .forEach(token -> {
+                token.setRotatedDate(Instant.now().minusSeconds(3600));
+                refreshTokenRepository.saveAndFlush(token);
+            });
+        refresh(refreshToken)
+            .andExpect(status().isUnauthorized());
+
+        // The whole session is revoked
+        refresh(newRefreshToken)
+            .andExpect(status().isUnauthorized());
+    }
+
+    @Test
+    @Transactional
+    public void testRefreshConcurrentlyWithTheSameToken() throws Exception {
+        createUser("user-jwt-controller-refresh-concurrent");
+        String refreshToken = refreshTokenService.createRefreshToken("user-jwt-controller-refresh-concurrent", false);
+        String newRefreshToken = JsonPath.read(refresh(refreshToken)
+            .andExpect(status().isOk())
+            .andReturn().getResponse().getContentAsString(), "$.refresh_token");
+
+        // A request sent with the same token, within its reuse interval, is not taken for a theft
+        String otherRefreshToken = JsonPath.read(refresh(refreshToken)
+            .andExpect(status().isOk())
+            .andReturn().getResponse().getContentAsString(), "$.refresh_token");
+
+        refresh(newRefreshToken)
+            .andExpect(status().isOk());
+        refresh(otherRefreshToken)
+            .andExpect(status().isOk());
+    }
+
+    @Test
+    @Transactional
+    public void testRefreshFails() throws Exception {
+        refresh("wrong-refresh-token")
+            .andExpect(status().isUnauthorized())
+            .andExpect(jsonPath("$.id_token").doesNotExist());
+    }
+
+    private void createUser(String login) {
+        User user = new User();
+        user.setLogin(login);
+        user.setEmail(login + "@example.com");
+        user.setActivated(true);
+        user.setPassword(passwordEncoder.encode("test"));
+        userRepository.saveAndFlush(user);
+    }
+
+    private ResultActions refresh(String refreshToken) throws Exception {
+        RefreshTokenVM refreshTokenVM = new RefreshTokenVM();
+        refreshTokenVM.setRefreshToken(refreshToken);
+        return mockMvc.perform(post("/api/authenticate/refresh")
+            .contentType(TestUtil.APPLICATION_JSON_UTF8)
+            .content(TestUtil.convertObjectToJsonBytes(refreshTokenVM)));
+    }
+
+    @Test
+    public void testLogout() throws Exception {
+        // Not transactional: the revocation is applied once committed
+        String jwt = tokenProvider.createToken(new UsernamePasswordAuthenticationToken("user-jwt-controller-logout", "test",
+            Collections.singletonList(new SimpleGrantedAuthority(AuthoritiesConstants.USER))), false);
+        SecurityContextHolder.getContext().setAuthentication(tokenProvider.authenticate(jwt).get());
+
+        mockMvc.perform(post("/api/logout"))
+            .andExpect(status().isNoContent());
+
+        assertThat(tokenProvider.validateToken(jwt)).isFalse();
+        SecurityContextHolder.clearContext();
+    }
+
+    @Test
+    @Transactional
+    public void testLogoutDeletesTheRefreshToken() throws Exception {
+        createUser("user-jwt-controller-logout-refresh");
+        String refreshToken = refreshTokenService.createRefreshToken("user-jwt-controller-logout-refresh", false);
+        RefreshTokenVM refreshTokenVM = new RefreshTokenVM();
+        refreshTokenVM.setRefreshToken(refreshToken);
+
+        mockMvc.perform(post("/api/logout")
+            .contentType(TestUtil.APPLICATION_JSON_UTF8)
+            .content(TestUtil.convertObjectToJsonBytes(refreshTokenVM)))
+            .andExpect(status().isNoContent());
+
+        refresh(refreshToken)
+            .andExpect(status().isUnauthorized());
+    }
 }
@@ -12,6 +12,7 @@ import org.pcastel.scm.service.UserService;
 import org.pcastel.scm.service.dto.UserDTO;
 import org.pcastel.scm.service.mapper.UserMapper;
 import org.pcastel.scm.web.rest.errors.ExceptionTranslator;
+import org.pcastel.scm.web.rest.util.KeysetCursor;
 import org.pcastel.scm.web.rest.vm.ManagedUserVM;
 import org.apache.commons.lang3.RandomStringUtils;
 import org.junit.Before;
@@ -21,6 +22,7 @@ import org.mockito.MockitoAnnotations;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.data.web.PageableHandlerMethodArgumentResolver;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
 import org.springframework.http.converter.json.MappingJackson2HttpMessageConverter;
 import org.springframework.test.context.junit4.SpringRunner;
@@ -34,11 +36,16 @@ import java.util.Arrays;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.containsString;
 import static org.hamcrest.Matchers.hasItem;
+import static org.hamcrest.Matchers.not;
 import static org.hamcrest.Matchers.containsInAnyOrder;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
@@ -314,6 +321,38 @@ public class UserResourceIntTest {
             .andExpect(jsonPath("$.[*].langKey").value(hasItem(DEFAULT_LANGKEY)));
     }
 
+    @Test
+    @Transactional
+    public void getUsersAfterCursor() throws Exception {
+        // Initialize the database, with logins sorted after the other users
+        User firstUser = createEntity(em);
+        firstUser.setLogin("zzz-keyset-1");
+        firstUser.setEmail("zzz-keyset-1@localhost");
+        userRepository.saveAndFlush(firstUser);
+        User lastUser = createEntity(em);
+        lastUser.setLogin("zzz-keyset-2");
+        lastUser.setEmail("zzz-keyset-2@localhost");
+        userRepository.saveAndFlush(lastUser);
+
+        // Get the page after a cursor, which links to the next one without counting the users
+        String link = restUserMockMvc.perform(get("/api/users?after={cursor}&size=1", KeysetCursor.encode("zzz-keyset-0"))
+            .accept(MediaType.APPLICATION_JSON))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.[*].login").value(contains("zzz-keyset-1")))
+            .andExpect(header().doesNotExist("X-Total-Count"))
+            .andReturn().getResponse().getHeader(HttpHeaders.LINK);
+        Matcher next = Pattern.compile("after=([^&]*)&size=1>; rel=\"next\"").matcher(link);
+        assertThat(next.find()).isTrue();
+        assertThat(KeysetCursor.decode(next.group(1), 1).getString(0)).isEqualTo("zzz-keyset-1");
+
+        // Get the next page, which is the last one
+        restUserMockMvc.perform(get("/api/users?after={cursor}&size=1", next.group(1))
+            .accept(MediaType.APPLICATION_JSON))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.[*].login").value(contains("zzz-keyset-2")))
+            .andExpect(header().string(HttpHeaders.LINK, not(containsString("rel=\"next\""))));
+    }
+
     @Test
     @Transactional
     public void getUser() throws Exception {
@@ -1,5 +1,6 @@
 package org.pcastel.scm.web.rest.errors;
 
+import org.pcastel.scm.security.PasswordHashingUnavailableException;
 import org.springframework.dao.ConcurrencyFailureException;
 import org.springframework.http.HttpStatus;
 import org.springframework.security.access.AccessDeniedException;
@@ -20,6 +21,11 @@ public class ExceptionTranslatorTestController {
         throw new ConcurrencyFailureException("test concurrency failure");
     }
 
+    @GetMapping("/test/password-hashing-unavailable")
+    public void passwordHashingUnavailable() {
+        throw new PasswordHashingUnavailableException("test password hashing unavailable");
+    }
+
     @PostMapping("/test/method-argument")
     public void methodArgument(@Valid @RequestBody TestDTO testDTO) {
     }
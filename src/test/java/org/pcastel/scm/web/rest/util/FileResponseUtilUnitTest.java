@@ -0,0 +1,153 @@
+package org.pcastel.scm.web.rest.util;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Test class for the FileResponseUtil utility class.
+ *
+ * @see FileResponseUtil
+ */
+public class FileResponseUtilUnitTest {
+
+    private static final String ETAG = "0123456789abcdef";
+
+    private Path file;
+
+    @Before
+    public void setup() throws Exception {
+        file = Files.createTempFile("photo", ".jpg");
+        Files.write(file, "0123456789".getBytes(StandardCharsets.US_ASCII));
+    }
+
+    @After
+    public void cleanup() throws Exception {
+        Files.deleteIfExists(file);
+    }
+
+    @Test
+    public void sendWholeFile() throws Exception {
+        MockHttpServletResponse response = send(new MockHttpServletRequest("GET", "/photo"));
+
+        assertThat(response.getStatus()).isEqualTo(200);
+        assertThat(response.getContentAsString()).isEqualTo("0123456789");
+        assertThat(response.getContentType()).isEqualTo("image/jpeg");
+        assertThat(response.getHeader(HttpHeaders.ETAG)).isEqualTo("\"" + ETAG + "\"");
+        assertThat(response.getHeader(HttpHeaders.CACHE_CONTROL)).contains("max-age=3600");
+        assertThat(response.getHeader(HttpHeaders.ACCEPT_RANGES)).isEqualTo("bytes");
+    }
+
+    @Test
+    public void sendNotModifiedWhenETagMatches() throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/photo");
+        request.addHeader(HttpHeaders.IF_NONE_MATCH, "\"other\", \"" + ETAG + "\"");
+
+        MockHttpServletResponse response = send(request);
+
+        assertThat(response.getStatus()).isEqualTo(304);
+        assertThat(response.getContentAsByteArray()).isEmpty();
+    }
+
+    @Test
+    public void sendByteRange() throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/photo");
+        request.addHeader(HttpHeaders.RANGE, "bytes=2-5");
+
+        MockHttpServletResponse response = send(request);
+
+        assertThat(response.getStatus()).isEqualTo(206);
+        assertThat(response.getContentAsString()).isEqualTo("2345");
+        assertThat(response.getHeader(HttpHeaders.CONTENT_RANGE)).isEqualTo("bytes 2-5/10");
+    }
+
+    @Test
+    public void sendSuffixByteRange() throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/photo");
+        request.addHeader(HttpHeaders.RANGE, "bytes=-3");
+
+        MockHttpServletResponse response = send(request);
+
+        assertThat(response.getStatus()).isEqualTo(206);
+        assertThat(response.getContentAsString()).isEqualTo("789");
+        assertThat(response.getHeader(HttpHeaders.CONTENT_RANGE)).isEqualTo("bytes 7-9/10");
+    }
+
+    @Test
+    public void rejectUnsatisfiableRange() throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/photo");
+        request.addHeader(HttpHeaders.RANGE, "bytes=20-");
+
+        MockHttpServletResponse response = send(request);
+
+        assertThat(response.getStatus()).isEqualTo(416);
+        assertThat(response.getHeader(HttpHeaders.CONTENT_RANGE)).isEqualTo("bytes */10");
+    }
+
+    @Test
+    public void rejectRangeBeyondLongPositions() throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/photo");
+        request.addHeader(HttpHeaders.RANGE, "bytes=99999999999999999999-");
+
+        MockHttpServletResponse response = send(request);
+
+        assertThat(response.getStatus()).isEqualTo(416);
+        assertThat(response.getHeader(HttpHeaders.CONTENT_RANGE)).isEqualTo("bytes */10");
+    }
+
+    @Test
+    public void sendWholeFileForOverlongRangeEnds() throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/photo");
+        request.addHeader(HttpHeaders.RANGE, "bytes=-99999999999999999999");
+
+        MockHttpServletResponse response = send(request);
+
+        assertThat(response.getStatus()).isEqualTo(206);
+        assertThat(response.getContentAsString()).isEqualTo("0123456789");
+        assertThat(response.getHeader(HttpHeaders.CONTENT_RANGE)).isEqualTo("bytes 0-9/10");
+
+        request = new MockHttpServletRequest("GET", "/photo");
+        request.addHeader(HttpHeaders.RANGE, "bytes=7-99999999999999999999");
+
+        response = send(request);
+
+        assertThat(response.getStatus()).isEqualTo(206);
+        assertThat(response.getContentAsString()).isEqualTo("789");
+    }
+
+    @Test
+    public void ignoreRangeWhenIfRangeDoesNotMatch() throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/photo");
+        request.addHeader(HttpHeaders.RANGE, "bytes=2-5");
+        request.addHeader(HttpHeaders.IF_RANGE, "\"stale\"");
+
+        MockHttpServletResponse response = send(request);
+
+        assertThat(response.getStatus()).isEqualTo(200);
+        assertThat(response.getContentAsString()).isEqualTo("0123456789");
+    }
+
+    @Test
+    public void sendNotCacheableWithoutMaxAge() throws Exception {
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        FileResponseUtil.sendFile(new MockHttpServletRequest("GET", "/photo"), response, file, "image/jpeg", ETAG, 0);
+
+        assertThat(response.getStatus()).isEqualTo(200);
+        assertThat(response.getHeader(HttpHeaders.CACHE_CONTROL)).isEqualTo("no-cache");
+    }
+
+    private MockHttpServletResponse send(MockHttpServletRequest request) throws Exception {
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        FileResponseUtil.sendFile(request, response, file, "image/jpeg", ETAG, 3600);
+        return response;
+    }
+}
@@ -25,6 +25,11 @@ describe('Service Tests', function () {
             //GIVEN
             //Set spy
             spyOn(spiedAuthServerProvider, 'logout').and.callThrough();
+            sessionStorageService.authenticationToken = 'access-token';
+            sessionStorageService.refreshToken = 'refresh-token';
+            $httpBackend.expectPOST('api/logout', {refreshToken: 'refresh-token'}, function (headers) {
+                return headers.Authorization === 'Bearer access-token';
+            }).respond(204);
 
             //WHEN
             authService.logout();
@@ -35,6 +40,44 @@ describe('Service Tests', function () {
             expect(spiedAuthServerProvider.logout).toHaveBeenCalled();
             expect(localStorageService.authenticationToken).toBe(undefined);
             expect(sessionStorageService.authenticationToken).toBe(undefined);
+            expect(localStorageService.refreshToken).toBe(undefined);
+            expect(sessionStorageService.refreshToken).toBe(undefined);
+        });
+        it('should replace the tokens on refresh', function(){
+            //GIVEN
+            sessionStorageService.refreshToken = 'refresh-token';
+            $httpBackend.expectPOST('api/authenticate/refresh', {refreshToken: 'refresh-token'})
+                .respond({id_token: 'access-token', refresh_token: 'new-refresh-token'});
+
+            //WHEN
+            spiedAuthServerProvider.refresh();
+            $httpBackend.flush();
+
+            //THEN
+            expect(sessionStorageService.authenticationToken).toBe('access-token');
+            expect(sessionStorageService.refreshToken).toBe('new-refresh-token');
+            $httpBackend.whenPOST('api/logout').respond(204);
+            spiedAuthServerProvider.logout();
+            $httpBackend.flush();
+        });
+        it('should share the refresh of the requests expiring together', function(){
+            //GIVEN
+            sessionStorageService.refreshToken = 'refresh-token';
+            $httpBackend.expectPOST('api/authenticate/refresh', {refreshToken: 'refresh-token'})
+                .respond({id_token: 'access-token', refresh_token: 'new-refresh-token'});
+            var tokens = [];
+
+            //WHEN
+            spiedAuthServerProvider.refresh().then(function (jwt) { tokens.push(jwt); });
+            spiedAuthServerProvider.refresh().then(function (jwt) { tokens.push(jwt); });
+            $httpBackend.flush();
+
+            //THEN
+            expect(tokens).toEqual(['access-token', 'access-token']);
+            expect(sessionStorageService.refreshToken).toBe('new-refresh-token');
+            $httpBackend.whenPOST('api/logout').respond(204);
+            spiedAuthServerProvider.logout();
+            $httpBackend.flush();
         });
     });
 });